@@ -0,0 +1,104 @@
+package cz.cuni.mff.danekji.calendar.benchmarks;
+
+import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
+import cz.cuni.mff.danekji.calendar.core.commands.AddEventCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.DeleteEventCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.ShowEventsCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.UpdateEventCommand;
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.User;
+import cz.cuni.mff.danekji.calendar.core.responses.Response;
+import cz.cuni.mff.danekji.calendar.server.DefaultCommandDispatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the dispatching of the commands end to end, from the command to its response,
+ *  including the privilege checks, the logging and the metrics of the {@link DefaultCommandDispatcher},
+ *  on top of the {@link InMemoryEventRepository}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j2.configurationFile=log4j2-benchmarks.xml")
+public class DispatcherBenchmark {
+    /**
+     * The number of the events in the calendar.
+     */
+    @Param({"10", "1000", "10000"})
+    public int events;
+
+    private DefaultCommandDispatcher dispatcher;
+    private ClientSession session;
+    private List<Long> eventIds;
+    private int nextUpdated;
+    private long nextAddedId;
+
+    /**
+     * Creates the dispatcher, logs in the benchmark user and fills its calendar.
+     */
+    @Setup
+    public void setup() {
+        var repository = new InMemoryEventRepository();
+        dispatcher = new DefaultCommandDispatcher(repository);
+        session = new ClientSession(1, new InetSocketAddress("localhost", 0));
+
+        var user = new User("benchmark", 42);
+        repository.createAccount(user, session);
+        session.setCurrentUser(user);
+        eventIds = new ArrayList<>(events);
+        for (int i = 0; i < events; i++) {
+            eventIds.add(repository.addEvent(user, SampleEvents.event(i), session));
+        }
+        nextAddedId = eventIds.getLast() + 1; // the in-memory IDs are sequential
+    }
+
+    /**
+     * Dispatches the addition of an event and the deletion of the added event, so the calendar keeps its size.
+     *
+     * @return The response to the deletion
+     */
+    @Benchmark
+    public Response addAndDeleteEvent() {
+        dispatcher.dispatch(new AddEventCommand(SampleEvents.event(events)), session);
+        return dispatcher.dispatch(new DeleteEventCommand(nextAddedId++), session);
+    }
+
+    /**
+     * Dispatches the update of an event, cycling through all of them.
+     *
+     * @return The response
+     */
+    @Benchmark
+    public Response updateEvent() {
+        int index = nextUpdated++ % eventIds.size();
+        Event event = Event.withId(eventIds.get(index), SampleEvents.event(index + nextUpdated));
+        return dispatcher.dispatch(new UpdateEventCommand(event), session);
+    }
+
+    /**
+     * Dispatches the listing of all the events.
+     *
+     * @return The response
+     */
+    @Benchmark
+    public Response showEvents() {
+        return dispatcher.dispatch(new ShowEventsCommand(), session);
+    }
+}
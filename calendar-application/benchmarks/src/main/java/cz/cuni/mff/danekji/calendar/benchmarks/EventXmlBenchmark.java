@@ -0,0 +1,60 @@
+package cz.cuni.mff.danekji.calendar.benchmarks;
+
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import org.jdom2.Element;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversion of a single event to and from its XML element,
+ *  which the XML storage does for every event of a calendar it writes or parses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j2.configurationFile=log4j2-benchmarks.xml")
+public class EventXmlBenchmark {
+    private Event event;
+    private Element element;
+
+    /**
+     * Prepares the event and its XML element.
+     */
+    @Setup
+    public void setup() {
+        event = Event.withId(42L, SampleEvents.event(42));
+        element = event.toXMLElement();
+    }
+
+    /**
+     * Converts the event to its XML element.
+     *
+     * @return The element
+     */
+    @Benchmark
+    public Element toXMLElement() {
+        return event.toXMLElement();
+    }
+
+    /**
+     * Parses the event from its XML element.
+     *
+     * @return The event
+     */
+    @Benchmark
+    public Event fromXMLElement() {
+        return Event.fromXMLElement(element);
+    }
+}
@@ -0,0 +1,82 @@
+package cz.cuni.mff.danekji.calendar.benchmarks;
+
+import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
+import cz.cuni.mff.danekji.calendar.core.exceptions.server.XmlDatabaseException;
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.User;
+import cz.cuni.mff.danekji.calendar.server.storage.EventRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Event repository keeping the calendars only in memory, so the dispatching benchmarks do not measure the disk.
+ */
+final class InMemoryEventRepository implements EventRepository {
+    private final Map<String, Integer> passwordHashes = new ConcurrentHashMap<>();
+    private final Map<String, NavigableMap<Long, Event>> calendars = new ConcurrentHashMap<>();
+    private final AtomicLong nextEventId = new AtomicLong(1);
+
+    @Override
+    public void createAccount(User user, ClientSession session) {
+        validateUsersUsername(user, session);
+        if (passwordHashes.putIfAbsent(user.username(), user.passwordHash()) != null) {
+            throw new XmlDatabaseException("The calendar for username '" + user.username() + "' already exists");
+        }
+        calendars.put(user.username(), new ConcurrentSkipListMap<>());
+    }
+
+    @Override
+    public boolean authenticate(User user, ClientSession session) {
+        Integer passwordHash = passwordHashes.get(user.username());
+        return passwordHash != null && passwordHash == user.passwordHash();
+    }
+
+    @Override
+    public long addEvent(User user, Event event, ClientSession session) {
+        long id = nextEventId.getAndIncrement();
+        calendarOf(user).put(id, Event.withId(id, event));
+        return id;
+    }
+
+    @Override
+    public void deleteEvent(User user, Long eventId, ClientSession session) {
+        if (calendarOf(user).remove(eventId) == null) {
+            throw new XmlDatabaseException("Event with id '" + eventId + "' not found");
+        }
+    }
+
+    @Override
+    public List<Event> getAllEvents(User user, ClientSession session) {
+        return new ArrayList<>(calendarOf(user).values());
+    }
+
+    @Override
+    public void updateEvent(User user, Event event, ClientSession session) {
+        if (calendarOf(user).replace(event.getId(), event) == null) {
+            throw new XmlDatabaseException("Event with id '" + event.getId() + "' not found");
+        }
+    }
+
+    @Override
+    public void deleteUser(User user, ClientSession session) {
+        if (!authenticate(user, session)) {
+            throw new XmlDatabaseException("Invalid password. Account deletion failed.");
+        }
+        passwordHashes.remove(user.username());
+        calendars.remove(user.username());
+    }
+
+    private NavigableMap<Long, Event> calendarOf(User user) {
+        var calendar = calendars.get(user.username());
+        if (calendar == null) {
+            throw new XmlDatabaseException("The calendar for username '" + user.username() + "' does not exist");
+        }
+        return calendar;
+    }
+}
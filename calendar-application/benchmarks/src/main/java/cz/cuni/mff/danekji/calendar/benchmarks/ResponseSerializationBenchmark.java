@@ -0,0 +1,81 @@
+package cz.cuni.mff.danekji.calendar.benchmarks;
+
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessEventListResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Java serialization of the event list response, the largest message of the serialized protocol.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j2.configurationFile=log4j2-benchmarks.xml")
+public class ResponseSerializationBenchmark {
+    /**
+     * The number of the events in the response.
+     */
+    @Param({"10", "1000", "10000"})
+    public int events;
+
+    private SuccessEventListResponse response;
+    private byte[] serialized;
+
+    /**
+     * Prepares the response and its serialized form.
+     *
+     * @throws IOException never, the response is written into memory
+     */
+    @Setup
+    public void setup() throws IOException {
+        response = new SuccessEventListResponse(SampleEvents.eventsWithIds(events));
+        serialized = serialize();
+    }
+
+    /**
+     * Serializes the response, as a fresh object stream does for every response.
+     *
+     * @return The serialized response
+     * @throws IOException never, the response is written into memory
+     */
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new ObjectOutputStream(bytes)) {
+            out.writeObject(response);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deserializes the response.
+     *
+     * @return The response
+     * @throws IOException never, the response is read from memory
+     * @throws ClassNotFoundException never, the classes are on the class path
+     */
+    @Benchmark
+    public Object deserialize() throws IOException, ClassNotFoundException {
+        try (var in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            return in.readObject();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package cz.cuni.mff.danekji.calendar.benchmarks;
+
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic sample events of a realistic size, so the runs of the benchmarks are comparable.
+ */
+final class SampleEvents {
+    private static final LocalDate FIRST_DATE = LocalDate.of(2025, 1, 1);
+
+    private SampleEvents() {
+    }
+
+    /**
+     * Creates a sample event without an ID.
+     *
+     * @param index The index of the event, it determines all its fields
+     * @return The event
+     */
+    static Event event(int index) {
+        return new Event(
+                "Meeting " + index,
+                FIRST_DATE.plusDays(index % 730),
+                LocalTime.of(8 + index % 10, (index * 7) % 60),
+                "Room " + (100 + index % 50),
+                "Weekly sync about the project status, agenda item " + index + "."
+        );
+    }
+
+    /**
+     * Creates sample events with the IDs {@code 1..count}.
+     *
+     * @param count The number of the events
+     * @return The events
+     */
+    static List<Event> eventsWithIds(int count) {
+        List<Event> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            events.add(Event.withId((long) i + 1, event(i)));
+        }
+        return events;
+    }
+}
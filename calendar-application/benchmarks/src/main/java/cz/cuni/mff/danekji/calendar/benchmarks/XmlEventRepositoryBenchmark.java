@@ -0,0 +1,177 @@
+package cz.cuni.mff.danekji.calendar.benchmarks;
+
+import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
+import cz.cuni.mff.danekji.calendar.core.commands.AddEventCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.BatchOperation;
+import cz.cuni.mff.danekji.calendar.core.models.BatchItemResult;
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.User;
+import cz.cuni.mff.danekji.calendar.server.storage.StorageConfiguration;
+import cz.cuni.mff.danekji.calendar.server.storage.XMLEventRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the operations of the {@link XMLEventRepository} on a calendar of a given size.
+ * <p>
+ * The calendar is created in the {@code ./data} folder of the working directory under a new user,
+ *  which is deleted once the trial ends. The writes are not synced to the disk ({@code none} durability),
+ *  so the results measure the storage code rather than the disk. With the cache disabled every operation
+ *  parses the whole calendar file, with the cache enabled only the modifications rewrite it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j2.configurationFile=log4j2-benchmarks.xml")
+public class XmlEventRepositoryBenchmark {
+    /**
+     * The number of the events in the calendar.
+     */
+    @Param({"10", "1000", "10000"})
+    public int events;
+
+    /**
+     * Whether the parsed calendars are cached.
+     */
+    @Param({"true", "false"})
+    public boolean cached;
+
+    private XMLEventRepository repository;
+    private User user;
+    private ClientSession session;
+    private List<Long> eventIds;
+    private int nextUpdated;
+
+    /**
+     * Creates the repository and fills the calendar of the benchmark user.
+     *
+     * @throws IOException if the calendar cannot be created
+     */
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        var properties = new Properties();
+        properties.setProperty(StorageConfiguration.DURABILITY, "none");
+        properties.setProperty(StorageConfiguration.CACHE_MAX_CALENDARS, cached ? "16" : "0");
+        repository = new XMLEventRepository(new StorageConfiguration(properties));
+        // a fresh user on every run, so a calendar left behind by an interrupted run is never reused
+        user = new User("benchmark-" + Long.toString(System.currentTimeMillis(), Character.MAX_RADIX), 42);
+        session = new ClientSession(1, new InetSocketAddress("localhost", 0));
+        repository.createAccount(user, session);
+
+        List<BatchOperation> additions = new ArrayList<>(events);
+        for (int i = 0; i < events; i++) {
+            additions.add(new AddEventCommand(SampleEvents.event(i)));
+        }
+        eventIds = repository.applyBatch(user, additions, session).stream().map(BatchItemResult::eventId).toList();
+    }
+
+    /**
+     * Deletes the benchmark user with its calendar and closes the repository.
+     *
+     * @throws IOException if the calendar cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        repository.deleteUser(user, session);
+        repository.close();
+    }
+
+    /**
+     * An event added by the measured operation, deleted again after it so the calendar keeps its size.
+     */
+    @State(Scope.Thread)
+    public static class AddedEvent {
+        private Long id;
+
+        /**
+         * Deletes the added event.
+         *
+         * @param benchmark The benchmark state
+         */
+        @TearDown(Level.Invocation)
+        public void delete(XmlEventRepositoryBenchmark benchmark) {
+            benchmark.repository.deleteEvent(benchmark.user, id, benchmark.session);
+        }
+    }
+
+    /**
+     * An extra event deleted by the measured operation, added before it so the calendar keeps its size.
+     */
+    @State(Scope.Thread)
+    public static class ExtraEvent {
+        private Long id;
+
+        /**
+         * Adds the extra event.
+         *
+         * @param benchmark The benchmark state
+         * @throws IOException if the event cannot be added
+         */
+        @Setup(Level.Invocation)
+        public void add(XmlEventRepositoryBenchmark benchmark) throws IOException {
+            id = benchmark.repository.addEvent(benchmark.user, SampleEvents.event(benchmark.events), benchmark.session);
+        }
+    }
+
+    /**
+     * Adds an event into the calendar.
+     *
+     * @param added Remembers the added event
+     * @return The ID of the added event
+     * @throws IOException if the event cannot be added
+     */
+    @Benchmark
+    public long addEvent(AddedEvent added) throws IOException {
+        added.id = repository.addEvent(user, SampleEvents.event(events), session);
+        return added.id;
+    }
+
+    /**
+     * Updates an event of the calendar, cycling through all of them.
+     */
+    @Benchmark
+    public void updateEvent() {
+        int index = nextUpdated++ % eventIds.size();
+        repository.updateEvent(user, Event.withId(eventIds.get(index), SampleEvents.event(index + nextUpdated)), session);
+    }
+
+    /**
+     * Deletes an event from the calendar.
+     *
+     * @param extra The event to delete
+     */
+    @Benchmark
+    public void deleteEvent(ExtraEvent extra) {
+        repository.deleteEvent(user, extra.id, session);
+    }
+
+    /**
+     * Gets all the events of the calendar.
+     *
+     * @return The events
+     */
+    @Benchmark
+    public List<Event> getAllEvents() {
+        return repository.getAllEvents(user, session);
+    }
+}
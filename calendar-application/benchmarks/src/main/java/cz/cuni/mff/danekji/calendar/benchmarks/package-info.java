@@ -0,0 +1,6 @@
+/**
+ * Contains the JMH benchmarks of the hot paths of the calendar application.
+ * This package includes the benchmarks of the XML storage, of the XML and Java serialization of the events
+ * and of the command dispatching, together with the sample data and the in-memory repository they use.
+ */
+package cz.cuni.mff.danekji.calendar.benchmarks;
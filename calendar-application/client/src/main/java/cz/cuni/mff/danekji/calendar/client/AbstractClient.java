@@ -10,6 +10,8 @@ import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * An abstract base class for client implementations.
@@ -70,6 +72,29 @@ public abstract class AbstractClient implements Client {
         return networkHandler.sendCommand(command);
     }
 
+    /**
+     * Sends a command to the server without waiting for the response.
+     *
+     * @param command The command to be sent.
+     * @param partialResponses Receives the partial responses to a streamed command.
+     * @return The future completed with the final response from the server.
+     */
+    @Override
+    public CompletableFuture<Response> sendCommandAsync(Command command, Consumer<Response> partialResponses) {
+        LOGGER.debug("Sending pipelined command '{}'", command);
+        return networkHandler.sendCommandAsync(command, partialResponses);
+    }
+
+    /**
+     * Sets the receiver of the notifications pushed by the server.
+     *
+     * @param notifications Receives the pushed notifications.
+     */
+    @Override
+    public void setNotificationListener(Consumer<Response> notifications) {
+        networkHandler.setNotificationListener(notifications);
+    }
+
     /**
      * Checks if the client is currently connected to the server.
      *
@@ -3,7 +3,6 @@ package cz.cuni.mff.danekji.calendar.client.cli;
 import cz.cuni.mff.danekji.calendar.client.AbstractClient;
 import cz.cuni.mff.danekji.calendar.client.cli.ui.CLIUserInterface;
 import cz.cuni.mff.danekji.calendar.client.network.NetworkHandler;
-import cz.cuni.mff.danekji.calendar.client.network.SocketNetworkHandler;
 import cz.cuni.mff.danekji.calendar.core.client.Client;
 import cz.cuni.mff.danekji.calendar.core.client.ui.UserInterface;
 import org.apache.logging.log4j.LogManager;
@@ -55,7 +54,7 @@ public final class CLIClient extends AbstractClient {
         final int port = args.length == 0 ? 8080 : Integer.parseInt(args[1]);
 
         UserInterface ui = new CLIUserInterface(System.in, System.out);
-        Client client = new CLIClient(ui, new SocketNetworkHandler());
+        Client client = new CLIClient(ui, NetworkHandler.fromSystemProperties());
         if (!client.connect(address, port)) {
             LOGGER.fatal("Connection to server is not open. Please connect to the server first.");
             return;
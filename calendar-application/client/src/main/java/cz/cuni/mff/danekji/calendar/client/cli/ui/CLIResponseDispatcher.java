@@ -3,6 +3,7 @@ package cz.cuni.mff.danekji.calendar.client.cli.ui;
 import cz.cuni.mff.danekji.calendar.core.responses.ResponseVisitor;
 import cz.cuni.mff.danekji.calendar.core.responses.success.*;
 import cz.cuni.mff.danekji.calendar.core.responses.error.ErrorResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.push.EventsChangedNotification;
 import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -19,6 +20,7 @@ public class CLIResponseDispatcher implements ResponseVisitor<Void, ClientSessio
     private static final Logger LOGGER = LogManager.getLogger(CLIResponseDispatcher.class);
 
     private final OutputStreamWriter output;
+    private boolean streamingEventList;
 
     /**
      * Constructor for CLIResponseDispatcher.
@@ -103,6 +105,31 @@ public class CLIResponseDispatcher implements ResponseVisitor<Void, ClientSessio
         return null;
     }
 
+    /**
+     * The visitor endpoint for SuccessEventChunkResponse.
+     * It handles the response by writing the events of the chunk to the output stream,
+     *  the list header is written with the first chunk only.
+     *
+     * @param response The {@link SuccessEventChunkResponse} to be processed.
+     * @param session The client session associated with the response.
+     * @return Void
+     * @throws IOException If an I/O error occurs while writing to the output stream.
+     */
+    @Override
+    public Void visit(SuccessEventChunkResponse response, ClientSession session) throws IOException {
+        if (!streamingEventList) {
+            output.write("Event list:\n");
+        }
+        streamingEventList = !response.last();
+        for (var event : response.events()) {
+            output.write("\t");
+            output.write(event.toString());
+            output.write("\n");
+        }
+        output.flush();
+        return null;
+    }
+
     /**
      * The visitor endpoint for SuccessQuit.
      * It handles the response by writing the message 'Quitting...' to the output stream and
@@ -155,4 +182,91 @@ public class CLIResponseDispatcher implements ResponseVisitor<Void, ClientSessio
         output.flush();
         return null;
     }
+
+    /**
+     * The visitor endpoint for SuccessBatchResponse.
+     * It handles the response by writing the result of every operation of the batch to the output stream.
+     *
+     * @param response The {@link SuccessBatchResponse} to be processed.
+     * @param session The client session associated with the response.
+     * @return Void
+     * @throws IOException If an I/O error occurs while writing to the output stream.
+     */
+    @Override
+    public Void visit(SuccessBatchResponse response, ClientSession session) throws IOException {
+        output.write("Batch results:\n");
+        int index = 1;
+        for (var result : response.results()) {
+            output.write("\t" + index++ + ". ");
+            if (result.isSuccess()) {
+                output.write("OK - event with id '" + result.eventId() + "'\n");
+            } else {
+                output.write("ERROR - " + result.errorMessage() + "\n");
+            }
+        }
+        output.flush();
+        return null;
+    }
+
+    /**
+     * The visitor endpoint for SuccessEventChangesResponse.
+     * It handles the response by writing the new version of the calendar followed by the changed events
+     *  and the IDs of the deleted ones to the output stream.
+     *
+     * @param response The {@link SuccessEventChangesResponse} to be processed.
+     * @param session The client session associated with the response.
+     * @return Void
+     * @throws IOException If an I/O error occurs while writing to the output stream.
+     */
+    @Override
+    public Void visit(SuccessEventChangesResponse response, ClientSession session) throws IOException {
+        var changes = response.changes();
+        output.write("Calendar version: " + changes.version() + "\n");
+        output.write(changes.complete() ? "Event list:\n" : "Changed events:\n");
+        for (var event : changes.changedEvents()) {
+            output.write("\t");
+            output.write(event.toString());
+            output.write("\n");
+        }
+        if (!changes.deletedEventIds().isEmpty()) {
+            output.write("Deleted events: " + changes.deletedEventIds() + "\n");
+        }
+        output.flush();
+        return null;
+    }
+
+    /**
+     * The visitor endpoint for EventsChangedNotification.
+     * It handles the pushed notification by telling the user that another session changed the calendar.
+     *
+     * @param notification The {@link EventsChangedNotification} to be processed.
+     * @param session The client session associated with the notification.
+     * @return Void
+     * @throws IOException If an I/O error occurs while writing to the output stream.
+     */
+    @Override
+    public Void visit(EventsChangedNotification notification, ClientSession session) throws IOException {
+        output.write("\nThe calendar was changed by another session (version " + notification.version() + "), use 'sync_events' to see the changes.\n");
+        output.flush();
+        return null;
+    }
+
+    /**
+     * The visitor endpoint for SuccessStatsResponse.
+     * It handles the response by writing every metric of the server with its value to the output stream.
+     *
+     * @param response The {@link SuccessStatsResponse} to be processed.
+     * @param session The client session associated with the response.
+     * @return Void
+     * @throws IOException If an I/O error occurs while writing to the output stream.
+     */
+    @Override
+    public Void visit(SuccessStatsResponse response, ClientSession session) throws IOException {
+        output.write("Server statistics:\n");
+        for (var metric : response.metrics()) {
+            output.write("\t" + metric.name() + " = " + metric.value() + "\n");
+        }
+        output.flush();
+        return null;
+    }
 }
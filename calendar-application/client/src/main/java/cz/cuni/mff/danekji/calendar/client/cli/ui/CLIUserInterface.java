@@ -15,7 +15,9 @@ import org.apache.logging.log4j.Logger;
 import java.io.*;
 import java.net.SocketException;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Command Line Interface (CLI) for the calendar client.
@@ -28,6 +30,7 @@ public final class CLIUserInterface implements UserInterface {
     private final OutputStreamWriter userOutput;
     private final ResponseVisitor<Void, ClientSession> responseDispatcher;
     private final CLICommandParser parser;
+    private final Queue<Response> pendingNotifications = new ConcurrentLinkedQueue<>();
 
     /**
      * Constructor for CLIUserInterface.
@@ -54,6 +57,11 @@ public final class CLIUserInterface implements UserInterface {
         parser.registerCommand(QuitCommand.COMMAND_NAME, QuitCommand.class);
         parser.registerCommand(DeleteUserCommand.COMMAND_NAME, DeleteUserCommand.class);
         parser.registerCommand(ShowFutureEventsCommand.COMMAND_NAME, ShowFutureEventsCommand.class);
+        parser.registerCommand(BatchCommand.COMMAND_NAME, BatchCommand.class);
+        parser.registerCommand(SyncEventsCommand.COMMAND_NAME, SyncEventsCommand.class);
+        parser.registerCommand(SubscribeCommand.COMMAND_NAME, SubscribeCommand.class);
+        parser.registerCommand(UnsubscribeCommand.COMMAND_NAME, UnsubscribeCommand.class);
+        parser.registerCommand(StatsCommand.COMMAND_NAME, StatsCommand.class);
         // ... add more commands as needed
     }
 
@@ -70,6 +78,8 @@ public final class CLIUserInterface implements UserInterface {
     /**
      * The main entry point for the CLI.
      * It reads commands from the console and sends them to the client.
+     *  The notifications pushed by the server are queued by the reader thread of the client
+     *  and displayed by the console thread before the next prompt, so the output is written by a single thread.
      *
      * @param client The client that will handle the network communication.
      */
@@ -81,10 +91,12 @@ public final class CLIUserInterface implements UserInterface {
         }
 
         displayHelpMessage(client);
+        client.setNotificationListener(pendingNotifications::add);
 
         LOGGER.debug("Starting user interface, waiting for commands...");
         while(client.isConnectionOpen() && client.getCurrentSession().isActive()) {
             try {
+                displayPendingNotifications(client.getCurrentSession());
                 String prompt = formatUserPrompt(client.getCurrentSession());
                 String inputCommand = promptForInput(prompt).trim();
 
@@ -120,6 +132,18 @@ public final class CLIUserInterface implements UserInterface {
         }
     }
 
+    /**
+     * Displays the notifications pushed since the last prompt, in the order they arrived.
+     *
+     * @param session The current client session.
+     */
+    private void displayPendingNotifications(ClientSession session) throws IOException {
+        Response notification;
+        while ((notification = pendingNotifications.poll()) != null) {
+            displayResponse(notification, session);
+        }
+    }
+
     /**
      * Formats the prompt for the user.
      * The prompt includes the username and a fixed string.
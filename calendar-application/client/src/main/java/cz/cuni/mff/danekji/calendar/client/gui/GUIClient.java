@@ -2,7 +2,6 @@ package cz.cuni.mff.danekji.calendar.client.gui;
 
 import cz.cuni.mff.danekji.calendar.client.AbstractClient;
 import cz.cuni.mff.danekji.calendar.client.network.NetworkHandler;
-import cz.cuni.mff.danekji.calendar.client.network.SocketNetworkHandler;
 import javafx.application.Application;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -39,7 +38,7 @@ public class GUIClient extends AbstractClient {
         final String address = args.length == 0 ? "127.0.0.1" : args[0];
         final int port = args.length == 0 ? 8080 : Integer.parseInt(args[1]);
 
-        GUIClient client = new GUIClient(new SocketNetworkHandler());
+        GUIClient client = new GUIClient(NetworkHandler.fromSystemProperties());
 
         if (!client.connect(address, port)) {
             LOGGER.fatal("Failed to connect to the server. The application will now close.");
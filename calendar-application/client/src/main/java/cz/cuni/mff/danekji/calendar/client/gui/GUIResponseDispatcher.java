@@ -3,6 +3,7 @@ package cz.cuni.mff.danekji.calendar.client.gui;
 import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
 import cz.cuni.mff.danekji.calendar.core.responses.ResponseVisitor;
 import cz.cuni.mff.danekji.calendar.core.responses.error.ErrorResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.push.EventsChangedNotification;
 import cz.cuni.mff.danekji.calendar.core.responses.success.*;
 import javafx.application.Platform;
 import javafx.scene.control.Alert;
@@ -40,7 +41,7 @@ public class GUIResponseDispatcher implements ResponseVisitor<Void, ClientSessio
     }
 
     /**
-     * Handles a generic success response by showing an alert and refreshing the event list.
+     * Handles a generic success response by showing an alert and syncing the changes of the event list.
      *
      * @param response The success response to handle.
      * @param session  The current client session.
@@ -50,7 +51,7 @@ public class GUIResponseDispatcher implements ResponseVisitor<Void, ClientSessio
     public Void visit(SuccessResponse response, ClientSession session) {
         showAlert(Alert.AlertType.INFORMATION, "Success", response.message());
         if (sceneManager.getMainController() != null) {
-            Platform.runLater(() -> sceneManager.getMainController().handleShowAllEvents());
+            Platform.runLater(() -> sceneManager.getMainController().syncEvents());
         }
         return null;
     }
@@ -112,6 +113,21 @@ public class GUIResponseDispatcher implements ResponseVisitor<Void, ClientSessio
         return null;
     }
 
+    /**
+     * Handles a chunk of a streamed event list by appending its events to the event table in the main controller.
+     *
+     * @param response The success event chunk response to handle.
+     * @param session  The current client session.
+     * @return null
+     */
+    @Override
+    public Void visit(SuccessEventChunkResponse response, ClientSession session) {
+        if (sceneManager.getMainController() != null) {
+            Platform.runLater(() -> sceneManager.getMainController().appendToEventTable(response.events()));
+        }
+        return null;
+    }
+
     /**
      * Handles a successful event creation response by showing an alert and refreshing the event list.
      *
@@ -163,4 +179,77 @@ public class GUIResponseDispatcher implements ResponseVisitor<Void, ClientSessio
         showAlert(Alert.AlertType.ERROR, "Error", response.errorMessage());
         return null;
     }
-}
\ No newline at end of file
+
+    /**
+     * Handles a successful batch response by summarizing the results in an alert and syncing the changes of the event list.
+     *
+     * @param response The success batch response to handle.
+     * @param session  The current client session.
+     * @return null
+     */
+    @Override
+    public Void visit(SuccessBatchResponse response, ClientSession session) {
+        long failed = response.results().stream().filter(result -> !result.isSuccess()).count();
+        StringBuilder message = new StringBuilder()
+                .append(response.results().size() - failed).append(" of ").append(response.results().size())
+                .append(" operations succeeded.");
+        for (var result : response.results()) {
+            if (!result.isSuccess()) {
+                message.append("\n").append(result.errorMessage());
+            }
+        }
+
+        showAlert(failed == 0 ? Alert.AlertType.INFORMATION : Alert.AlertType.WARNING, "Batch", message.toString());
+        if (sceneManager.getMainController() != null) {
+            Platform.runLater(() -> sceneManager.getMainController().syncEvents());
+        }
+        return null;
+    }
+
+    /**
+     * Handles a successful sync response by applying the changes to the event table in the main controller.
+     *
+     * @param response The success event changes response to handle.
+     * @param session  The current client session.
+     * @return null
+     */
+    @Override
+    public Void visit(SuccessEventChangesResponse response, ClientSession session) {
+        if (sceneManager.getMainController() != null) {
+            Platform.runLater(() -> sceneManager.getMainController().applyEventChanges(response.changes()));
+        }
+        return null;
+    }
+
+    /**
+     * Handles a notification about a change made by another session by syncing the event table in the main controller.
+     *
+     * @param notification The pushed notification to handle.
+     * @param session  The current client session.
+     * @return null
+     */
+    @Override
+    public Void visit(EventsChangedNotification notification, ClientSession session) {
+        if (sceneManager.getMainController() != null) {
+            Platform.runLater(() -> sceneManager.getMainController().onEventsChanged(notification.version()));
+        }
+        return null;
+    }
+
+    /**
+     * Handles a successful statistics response by showing the metrics of the server in an alert.
+     *
+     * @param response The success stats response to handle.
+     * @param session  The current client session.
+     * @return null
+     */
+    @Override
+    public Void visit(SuccessStatsResponse response, ClientSession session) {
+        var message = new StringBuilder();
+        for (var metric : response.metrics()) {
+            message.append(metric.name()).append(" = ").append(metric.value()).append("\n");
+        }
+        showAlert(Alert.AlertType.INFORMATION, "Server statistics", message.toString());
+        return null;
+    }
+}
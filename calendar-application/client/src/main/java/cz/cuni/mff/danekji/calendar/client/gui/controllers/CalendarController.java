@@ -3,11 +3,15 @@ package cz.cuni.mff.danekji.calendar.client.gui.controllers;
 import cz.cuni.mff.danekji.calendar.client.gui.GUIResponseDispatcher;
 import cz.cuni.mff.danekji.calendar.client.gui.CalendarGUIApplication;
 import cz.cuni.mff.danekji.calendar.client.gui.SceneManager;
+import cz.cuni.mff.danekji.calendar.core.client.Client;
 import cz.cuni.mff.danekji.calendar.core.commands.Command;
-import cz.cuni.mff.danekji.calendar.core.responses.Response;
-import javafx.concurrent.Task;
+import cz.cuni.mff.danekji.calendar.core.commands.SubscribeCommand;
+import cz.cuni.mff.danekji.calendar.core.responses.error.ErrorResponse;
 import javafx.scene.control.Alert;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
 import java.util.concurrent.ExecutorService;
 
 /**
@@ -15,6 +19,7 @@ import java.util.concurrent.ExecutorService;
  * Provides common functionality for sending commands and showing alerts.
  */
 public abstract class CalendarController {
+    private static final Logger LOGGER = LogManager.getLogger(CalendarController.class);
 
     SceneManager sceneManager;
     private ExecutorService executorService;
@@ -41,20 +46,56 @@ public abstract class CalendarController {
 
     /**
      * Sends a command to the server using the client instance.
-     * This method runs the command in a background task to avoid blocking the JavaFX application thread.
+     * The command is pipelined without blocking the JavaFX application thread or waiting for the previously sent
+     *  commands, its response is dispatched on the background executor once it arrives.
+     *  The partial responses to a streamed command are dispatched right as they arrive, in order,
+     *  the dispatcher only hands them over to the JavaFX application thread.
      *
      * @param command The command to be sent to the server.
      */
     protected void sendCommand(Command command) {
-        Task<Void> task = new Task<>() {
-            @Override
-            protected Void call() throws Exception {
-                Response response = CalendarGUIApplication.getClient().sendCommand(command);
-                response.accept(responseDispatcher, CalendarGUIApplication.getClient().getCurrentSession());
-                return null;
+        Client client = CalendarGUIApplication.getClient();
+        client.sendCommandAsync(command, partialResponse -> {
+            try {
+                partialResponse.accept(responseDispatcher, client.getCurrentSession());
+            } catch (IOException e) {
+                LOGGER.error("Failed to handle a partial response to command '{}'", command.getName(), e);
             }
-        };
-        executorService.submit(task);
+        }).whenCompleteAsync((response, error) -> {
+            if (error != null) {
+                LOGGER.error("Failed to send command '{}'", command.getName(), error);
+                return;
+            }
+            try {
+                response.accept(responseDispatcher, client.getCurrentSession());
+            } catch (IOException e) {
+                LOGGER.error("Failed to handle the response to command '{}'", command.getName(), e);
+            }
+        }, executorService);
+    }
+
+    /**
+     * Subscribes the session to the changes of the calendar made by the other sessions.
+     * The pushed notifications are dispatched right as they arrive, the dispatcher only hands them over
+     *  to the JavaFX application thread. The subscription is quiet, if the server cannot push the changes
+     *  the table is just refreshed by the user's own commands.
+     */
+    protected void subscribeToChanges() {
+        Client client = CalendarGUIApplication.getClient();
+        client.setNotificationListener(notification -> {
+            try {
+                notification.accept(responseDispatcher, client.getCurrentSession());
+            } catch (IOException e) {
+                LOGGER.error("Failed to handle the notification '{}'", notification, e);
+            }
+        });
+        client.sendCommandAsync(new SubscribeCommand()).whenComplete((response, error) -> {
+            if (error != null) {
+                LOGGER.error("Failed to subscribe to the changes of the calendar", error);
+            } else if (response instanceof ErrorResponse errorResponse) {
+                LOGGER.warn("The changes of the calendar are not pushed: {}", errorResponse.errorMessage());
+            }
+        });
     }
 
     /**
@@ -3,6 +3,7 @@ package cz.cuni.mff.danekji.calendar.client.gui.controllers;
 import cz.cuni.mff.danekji.calendar.client.gui.CalendarGUIApplication;
 import cz.cuni.mff.danekji.calendar.core.commands.*;
 import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.EventChanges;
 import cz.cuni.mff.danekji.calendar.core.models.User;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -20,14 +21,28 @@ import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.temporal.TemporalAdjusters;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Controller for the MainView.fxml screen.
  */
 public class MainController extends CalendarController {
     private static final Logger LOGGER = LogManager.getLogger(MainController.class);
+    /**
+     * The number of events of a chunk of the streamed event lists, the table shows each chunk as soon as it arrives.
+     */
+    private static final int EVENT_CHUNK_SIZE = 200;
+    /**
+     * The order of the events in the table, the same as the order of the streamed event lists.
+     */
+    private static final Comparator<Event> EVENT_ORDER = Comparator.comparing(Event::getDate)
+            .thenComparing(Event::getTime)
+            .thenComparing(Event::getId);
 
     @FXML private Label welcomeLabel;
     @FXML private TableView<Event> eventTable;
@@ -51,13 +66,26 @@ public class MainController extends CalendarController {
      */
     private final ObservableList<Event> eventData = FXCollections.observableArrayList();
 
+    /**
+     * The change version of the calendar the table was last synced to, null before the first sync.
+     */
+    private Long syncVersion;
+
+    /**
+     * The date range of the events shown in the table, the synced changes outside it are not shown.
+     */
+    private LocalDate viewStartDate = LocalDate.MIN;
+    private LocalDate viewEndDate = LocalDate.MAX;
+
     /**
      * Sets the user for the main controller and initializes the welcome message and event table.
+     * The table then follows the changes made by the other sessions of the user.
      * @param user The user to be set.
      */
     public void setUser(User user) {
         welcomeLabel.setText(user.username() + "'s Calendar");
         initializeTable();
+        subscribeToChanges();
     }
 
     /**
@@ -111,6 +139,68 @@ public class MainController extends CalendarController {
         eventData.setAll(events);
     }
 
+    /**
+     * Appends a chunk of a streamed event list to the event table.
+     *
+     * @param events The events of the chunk.
+     */
+    public void appendToEventTable(List<Event> events) {
+        eventData.addAll(events);
+    }
+
+    /**
+     * Requests the changes of the calendar since the last sync, so the table is refreshed
+     *  without downloading all the events again.
+     */
+    public void syncEvents() {
+        sendCommand(new SyncEventsCommand(syncVersion));
+    }
+
+    /**
+     * Syncs the event table once another session changed the calendar, unless the table already shows the change.
+     *
+     * @param version The change version of the calendar after the change.
+     */
+    public void onEventsChanged(long version) {
+        if (syncVersion == null || version > syncVersion) {
+            syncEvents();
+        }
+    }
+
+    /**
+     * Applies the synced changes of the calendar onto the event table.
+     * The changed events replace the shown events with the same ID (or are inserted in order if they are within
+     *  the shown date range) and the deleted events are removed. A complete snapshot replaces all shown events.
+     *  Changes older than the last applied sync (e.g. of a sync answered late) are ignored.
+     *
+     * @param changes The changes since the last sync.
+     */
+    public void applyEventChanges(EventChanges changes) {
+        if (!changes.complete() && syncVersion != null && changes.version() <= syncVersion) {
+            return;
+        }
+        syncVersion = changes.version();
+
+        if (changes.complete()) {
+            eventData.setAll(changes.changedEvents().stream().filter(this::isShown).sorted(EVENT_ORDER).toList());
+            return;
+        }
+
+        Set<Long> changedEventIds = new HashSet<>(changes.deletedEventIds());
+        changes.changedEvents().forEach(event -> changedEventIds.add(event.getId()));
+        eventData.removeIf(event -> changedEventIds.contains(event.getId()));
+        for (var event : changes.changedEvents()) {
+            if (isShown(event)) {
+                int index = Collections.binarySearch(eventData, event, EVENT_ORDER);
+                eventData.add(index < 0 ? -index - 1 : index, event);
+            }
+        }
+    }
+
+    private boolean isShown(Event event) {
+        return !event.getDate().isBefore(viewStartDate) && !event.getDate().isAfter(viewEndDate);
+    }
+
     /**
      * Handles the selection of a filter from the combo box.
      * It determines the date range based on the selected filter and sends a command to show future events.
@@ -124,7 +214,10 @@ public class MainController extends CalendarController {
 
         switch (selection) {
             case SHOW_ALL:
-                sendCommand(new ShowEventsCommand());
+                viewStartDate = LocalDate.MIN;
+                viewEndDate = LocalDate.MAX;
+                eventData.clear();
+                sendCommand(new ShowEventsCommand(EVENT_CHUNK_SIZE, null, true));
                 return;
             case TODAY:
                 startDate = today;
@@ -149,7 +242,10 @@ public class MainController extends CalendarController {
             default:
                 return;
         }
-        sendCommand(new ShowFutureEventsCommand(startDate, endDate));
+        viewStartDate = startDate;
+        viewEndDate = endDate;
+        eventData.clear();
+        sendCommand(new ShowFutureEventsCommand(startDate, endDate, EVENT_CHUNK_SIZE, null, true));
     }
 
     /**
@@ -256,7 +352,6 @@ public class MainController extends CalendarController {
                 } else {
                     sendCommand(new UpdateEventCommand(Event.withId(event.getId(), eventData)));
                 }
-                sendCommand(new ShowEventsCommand());
             });
 
         } catch (IOException e) {
@@ -0,0 +1,115 @@
+package cz.cuni.mff.danekji.calendar.client.load;
+
+/**
+ * Histogram of the latencies measured by a single simulated client.
+ * <p>
+ * The latencies (in nanoseconds) are counted in log-linear buckets: every power of two is split into
+ *  {@value #SUB_BUCKETS} equal buckets, so a percentile is off by at most about 3% while the histogram
+ *  has a fixed size regardless of the number of the samples. The recorder is not thread-safe,
+ *  every client records into its own and the recorders are merged once the run ends.
+ */
+public final class LatencyRecorder {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sumNanos;
+    private long maxNanos;
+
+    /**
+     * Records a single latency.
+     *
+     * @param nanos The latency in nanoseconds, a negative one is recorded as zero
+     */
+    public void record(long nanos) {
+        nanos = Math.max(nanos, 0);
+        counts[bucketOf(nanos)]++;
+        count++;
+        sumNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    /**
+     * Adds all the latencies recorded by another recorder.
+     *
+     * @param other The recorder to merge, it is not modified
+     */
+    public void merge(LatencyRecorder other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sumNanos += other.sumNanos;
+        maxNanos = Math.max(maxNanos, other.maxNanos);
+    }
+
+    /**
+     * Gets the number of the recorded latencies.
+     *
+     * @return The count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the mean of the recorded latencies.
+     *
+     * @return The mean in nanoseconds, 0 if nothing was recorded
+     */
+    public double getMeanNanos() {
+        return count == 0 ? 0 : (double) sumNanos / count;
+    }
+
+    /**
+     * Gets the maximum of the recorded latencies.
+     *
+     * @return The maximum in nanoseconds, 0 if nothing was recorded
+     */
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * Gets the latency which the given fraction of the recorded latencies does not exceed.
+     *
+     * @param quantile The fraction, e.g. {@code 0.99} for the 99th percentile
+     * @return The upper bound of the bucket of the percentile in nanoseconds (at most the maximum), 0 if nothing was recorded
+     */
+    public long getPercentileNanos(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), maxNanos);
+            }
+        }
+        return maxNanos;
+    }
+
+    static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        long subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        long upper = ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper; // the last bucket ends at the largest long
+    }
+}
@@ -0,0 +1,180 @@
+package cz.cuni.mff.danekji.calendar.client.load;
+
+import cz.cuni.mff.danekji.calendar.core.exceptions.client.InvalidInputException;
+
+import java.time.Duration;
+import java.util.Properties;
+
+/**
+ * The configuration of the load generator, read from the properties (usually the JVM system properties).
+ */
+public final class LoadConfiguration {
+    /**
+     * The number of the simulated clients, each on its own connection and virtual thread.
+     */
+    public static final String CLIENTS = "calendar.load.clients";
+
+    /**
+     * The default number of the simulated clients.
+     */
+    public static final int DEFAULT_CLIENTS = 50;
+
+    /**
+     * The duration (in seconds) of the measured run, the accounts are set up before it starts.
+     */
+    public static final String DURATION_SECONDS = "calendar.load.durationSeconds";
+
+    /**
+     * The default duration of the measured run in seconds.
+     */
+    public static final long DEFAULT_DURATION_SECONDS = 30;
+
+    /**
+     * The mix of the operations, see {@link OperationMix#parse(String)}.
+     */
+    public static final String MIX = "calendar.load.mix";
+
+    /**
+     * The default mix of the operations, a read-mostly calendar usage.
+     */
+    public static final String DEFAULT_MIX = "add_event=20,update_event=15,delete_event=5,show_events=30,show_future_events=30";
+
+    /**
+     * The number of the events every client adds to its calendar before the measured run starts.
+     */
+    public static final String INITIAL_EVENTS = "calendar.load.initialEvents";
+
+    /**
+     * The default number of the initial events of a client.
+     */
+    public static final int DEFAULT_INITIAL_EVENTS = 20;
+
+    /**
+     * The pause (in milliseconds) of a client between two operations, {@code 0} to issue them back to back.
+     */
+    public static final String THINK_TIME_MILLIS = "calendar.load.thinkTimeMillis";
+
+    /**
+     * The default pause between two operations in milliseconds.
+     */
+    public static final long DEFAULT_THINK_TIME_MILLIS = 0;
+
+    /**
+     * The prefix of the usernames of the accounts created by the clients.
+     */
+    public static final String USER_PREFIX = "calendar.load.userPrefix";
+
+    /**
+     * The default prefix of the usernames.
+     */
+    public static final String DEFAULT_USER_PREFIX = "load";
+
+    private final Properties properties;
+
+    /**
+     * Constructor for LoadConfiguration.
+     *
+     * @param properties The properties from which the configuration values are read.
+     */
+    public LoadConfiguration(Properties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Creates a configuration backed by the JVM system properties.
+     *
+     * @return The load configuration read from the system properties.
+     */
+    public static LoadConfiguration fromSystemProperties() {
+        return new LoadConfiguration(System.getProperties());
+    }
+
+    /**
+     * Gets the number of the simulated clients.
+     *
+     * @return The number of the clients.
+     * @throws InvalidInputException if the configured value is not a positive number
+     */
+    public int getClients() {
+        long value = getLong(CLIENTS, DEFAULT_CLIENTS);
+        if (value <= 0 || value > Integer.MAX_VALUE) {
+            throw new InvalidInputException("Property '" + CLIENTS + "' must be a positive number");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Gets the duration of the measured run.
+     *
+     * @return The duration.
+     * @throws InvalidInputException if the configured value is not a positive number
+     */
+    public Duration getDuration() {
+        long value = getLong(DURATION_SECONDS, DEFAULT_DURATION_SECONDS);
+        if (value <= 0) {
+            throw new InvalidInputException("Property '" + DURATION_SECONDS + "' must be positive");
+        }
+        return Duration.ofSeconds(value);
+    }
+
+    /**
+     * Gets the mix of the operations.
+     *
+     * @return The mix.
+     * @throws InvalidInputException if the configured value is not a valid mix
+     */
+    public OperationMix getMix() {
+        return OperationMix.parse(properties.getProperty(MIX, DEFAULT_MIX));
+    }
+
+    /**
+     * Gets the number of the events every client adds before the measured run.
+     *
+     * @return The number of the initial events.
+     * @throws InvalidInputException if the configured value is not a non-negative number
+     */
+    public int getInitialEvents() {
+        long value = getLong(INITIAL_EVENTS, DEFAULT_INITIAL_EVENTS);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new InvalidInputException("Property '" + INITIAL_EVENTS + "' cannot be negative");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Gets the pause of a client between two operations.
+     *
+     * @return The think time in milliseconds, {@code 0} if the operations are issued back to back.
+     * @throws InvalidInputException if the configured value is not a non-negative number
+     */
+    public long getThinkTimeMillis() {
+        long value = getLong(THINK_TIME_MILLIS, DEFAULT_THINK_TIME_MILLIS);
+        if (value < 0) {
+            throw new InvalidInputException("Property '" + THINK_TIME_MILLIS + "' cannot be negative");
+        }
+        return value;
+    }
+
+    /**
+     * Gets the prefix of the usernames of the created accounts.
+     *
+     * @return The username prefix.
+     */
+    public String getUserPrefix() {
+        String value = properties.getProperty(USER_PREFIX);
+        return value == null || value.isBlank() ? DEFAULT_USER_PREFIX : value.trim();
+    }
+
+    private long getLong(String name, long defaultValue) {
+        String value = properties.getProperty(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidInputException("Property '" + name + "' is not a valid number: " + value);
+        }
+    }
+}
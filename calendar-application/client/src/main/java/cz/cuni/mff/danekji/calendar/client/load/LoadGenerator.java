@@ -0,0 +1,274 @@
+package cz.cuni.mff.danekji.calendar.client.load;
+
+import cz.cuni.mff.danekji.calendar.client.network.NetworkHandler;
+import cz.cuni.mff.danekji.calendar.core.commands.AddEventCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.Command;
+import cz.cuni.mff.danekji.calendar.core.commands.CreateAccountCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.DeleteEventCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.DeleteUserCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.LoginCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.ShowEventsCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.ShowFutureEventsCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.UpdateEventCommand;
+import cz.cuni.mff.danekji.calendar.core.exceptions.CalendarException;
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.User;
+import cz.cuni.mff.danekji.calendar.core.responses.Response;
+import cz.cuni.mff.danekji.calendar.core.responses.error.ErrorResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessEventListResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Headless load generator driving a running server with many concurrent clients.
+ * <p>
+ * Every simulated client runs on its own virtual thread with its own connection (created by the same
+ *  {@link NetworkHandler} as the CLI client), creates its own account, logs in and adds the initial events.
+ *  Once all the clients are set up, the measured run starts and every client issues the operations of the
+ *  {@link OperationMix} one after another until the run ends, measuring the latency from sending the command
+ *  to receiving its response. The clients are closed-loop, so the throughput is the one the server sustains
+ *  under the given concurrency. Finally every client deletes its account and disconnects.
+ */
+public final class LoadGenerator {
+    private static final Logger LOGGER = LogManager.getLogger(LoadGenerator.class);
+    private static final int PASSWORD_HASH = "load".hashCode();
+    private static final int FUTURE_DAYS = 30;
+
+    private final LoadConfiguration configuration;
+    private final Supplier<NetworkHandler> networkHandlers;
+
+    /**
+     * Constructor for LoadGenerator.
+     *
+     * @param configuration The configuration of the run
+     * @param networkHandlers Creates the network handler of every simulated client
+     */
+    public LoadGenerator(LoadConfiguration configuration, Supplier<NetworkHandler> networkHandlers) {
+        this.configuration = configuration;
+        this.networkHandlers = networkHandlers;
+    }
+
+    /**
+     * Runs the load against the server, blocking until all the clients finish.
+     *
+     * @param host The hostname or IP address of the server
+     * @param port The port of the server
+     * @return The report of the measured run
+     * @throws InterruptedException if interrupted while waiting for the clients
+     * @throws CalendarException if the configuration is invalid
+     */
+    public LoadReport run(String host, int port) throws InterruptedException {
+        int clientCount = configuration.getClients();
+        var mix = configuration.getMix();
+        long durationNanos = configuration.getDuration().toNanos();
+        String runId = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+        var ready = new CountDownLatch(clientCount);
+        var start = new CountDownLatch(1);
+        var failedClients = new AtomicInteger();
+        long runStarted;
+        List<SimulatedClient> clients = new ArrayList<>(clientCount);
+        for (int i = 0; i < clientCount; i++) {
+            var user = new User(configuration.getUserPrefix() + "-" + runId + "-" + i, PASSWORD_HASH);
+            clients.add(new SimulatedClient(user, mix, new SplittableRandom(i)));
+        }
+
+        LOGGER.info("Setting up {} clients against '{}:{}' with the mix '{}'.", clientCount, host, port, mix);
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var client : clients) {
+                executor.execute(() -> {
+                    if (!client.run(host, port, ready, start)) {
+                        failedClients.incrementAndGet();
+                    }
+                });
+            }
+
+            ready.await();
+            LOGGER.info("Running the load for {} s.", configuration.getDuration().toSeconds());
+            runStarted = System.nanoTime();
+            for (var client : clients) {
+                client.deadline = runStarted + durationNanos;
+            }
+            start.countDown();
+        } // waits for all the clients to finish
+
+        Map<LoadOperation, LatencyRecorder> latencies = new EnumMap<>(LoadOperation.class);
+        Map<LoadOperation, Long> errors = new EnumMap<>(LoadOperation.class);
+        long runFinished = runStarted;
+        for (var client : clients) {
+            client.latencies.forEach((operation, recorder) -> latencies.computeIfAbsent(operation, ignored -> new LatencyRecorder()).merge(recorder));
+            client.errors.forEach((operation, count) -> errors.merge(operation, count, Long::sum));
+            runFinished = Math.max(runFinished, client.lastOperationFinished);
+        }
+        // the last operations overrun the deadline, so the throughput is computed over the actual run
+        return new LoadReport(clientCount, Duration.ofNanos(runFinished - runStarted), failedClients.get(), latencies, errors);
+    }
+
+    /**
+     * A single simulated client with its own connection, account and statistics.
+     */
+    private final class SimulatedClient {
+        private final User user;
+        private final OperationMix mix;
+        private final SplittableRandom random;
+        private final Map<LoadOperation, LatencyRecorder> latencies = new EnumMap<>(LoadOperation.class);
+        private final Map<LoadOperation, Long> errors = new EnumMap<>(LoadOperation.class);
+        private final List<Long> knownEventIds = new ArrayList<>();
+        private volatile long deadline;
+        private long lastOperationFinished; // read once the client's thread is done
+        private int nextEvent;
+
+        private SimulatedClient(User user, OperationMix mix, SplittableRandom random) {
+            this.user = user;
+            this.mix = mix;
+            this.random = random;
+        }
+
+        /**
+         * Sets up the client, waits for the start of the run, issues the operations and cleans up.
+         *
+         * @return true if the client finished without losing its connection, false otherwise
+         */
+        private boolean run(String host, int port, CountDownLatch ready, CountDownLatch start) {
+            NetworkHandler networkHandler = networkHandlers.get();
+            boolean accountCreated = false;
+            try {
+                try {
+                    networkHandler.connect(host, port);
+                    expectSuccess(networkHandler.sendCommand(new CreateAccountCommand(user)));
+                    accountCreated = true;
+                    expectSuccess(networkHandler.sendCommand(new LoginCommand(user)));
+                    for (int i = 0; i < configuration.getInitialEvents(); i++) {
+                        expectSuccess(networkHandler.sendCommand(new AddEventCommand(nextEvent())));
+                    }
+                    refreshKnownEvents(networkHandler.sendCommand(new ShowEventsCommand()));
+                } finally {
+                    ready.countDown();
+                }
+
+                start.await();
+                long thinkTimeMillis = configuration.getThinkTimeMillis();
+                while (System.nanoTime() < deadline) {
+                    issue(networkHandler, mix.pick(random));
+                    if (thinkTimeMillis > 0) {
+                        Thread.sleep(thinkTimeMillis);
+                    }
+                }
+                return true;
+            } catch (IOException | ClassNotFoundException | CalendarException e) {
+                LOGGER.error("Client '{}' failed: {}", user.username(), e.getMessage());
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                cleanUp(networkHandler, accountCreated);
+            }
+        }
+
+        private void issue(NetworkHandler networkHandler, LoadOperation operation) throws IOException, ClassNotFoundException {
+            if ((operation == LoadOperation.UPDATE || operation == LoadOperation.DELETE) && knownEventIds.isEmpty()) {
+                operation = LoadOperation.ADD; // nothing to modify until the client adds and lists an event
+            }
+
+            Command command = switch (operation) {
+                case ADD -> new AddEventCommand(nextEvent());
+                case UPDATE -> new UpdateEventCommand(Event.withId(knownEventIds.get(random.nextInt(knownEventIds.size())), nextEvent()));
+                case DELETE -> new DeleteEventCommand(knownEventIds.remove(random.nextInt(knownEventIds.size())));
+                case SHOW -> new ShowEventsCommand();
+                case SHOW_FUTURE -> new ShowFutureEventsCommand(LocalDate.now(), LocalDate.now().plusDays(FUTURE_DAYS));
+            };
+
+            long started = System.nanoTime();
+            Response response;
+            try {
+                response = networkHandler.sendCommand(command);
+            } catch (IOException | ClassNotFoundException e) {
+                record(operation, started, true); // the lost operation is counted before the client gives up
+                throw e;
+            }
+            record(operation, started, response instanceof ErrorResponse);
+            if (operation == LoadOperation.SHOW) {
+                refreshKnownEvents(response);
+            }
+        }
+
+        private void record(LoadOperation operation, long started, boolean failed) {
+            lastOperationFinished = System.nanoTime();
+            latencies.computeIfAbsent(operation, ignored -> new LatencyRecorder()).record(lastOperationFinished - started);
+            if (failed) {
+                errors.merge(operation, 1L, Long::sum);
+            }
+        }
+
+        private void refreshKnownEvents(Response response) {
+            if (response instanceof SuccessEventListResponse(List<Event> events, var ignored)) {
+                knownEventIds.clear();
+                events.forEach(event -> knownEventIds.add(event.getId()));
+            }
+        }
+
+        private Event nextEvent() {
+            int index = nextEvent++;
+            return new Event(
+                    "Load event " + index,
+                    LocalDate.now().plusDays(random.nextInt(365)),
+                    LocalTime.of(random.nextInt(24), random.nextInt(4) * 15),
+                    "Room " + random.nextInt(100),
+                    "Generated by the load generator for '" + user.username() + "'."
+            );
+        }
+
+        private void expectSuccess(Response response) throws IOException {
+            if (response instanceof ErrorResponse(String errorMessage)) {
+                throw new IOException("Setup of the account failed: " + errorMessage);
+            }
+        }
+
+        private void cleanUp(NetworkHandler networkHandler, boolean accountCreated) {
+            try {
+                if (accountCreated && networkHandler.isConnected()) {
+                    networkHandler.sendCommand(new DeleteUserCommand(user));
+                }
+                networkHandler.disconnect();
+            } catch (IOException | ClassNotFoundException e) {
+                LOGGER.warn("Client '{}' failed to clean up: {}", user.username(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * The main method to run the load generator.
+     * It accepts server address and port as command-line arguments, the load is configured by the system properties
+     *  (see {@link LoadConfiguration}), and prints the report to the standard output.
+     *
+     * @param args Command-line arguments: [server-address] [port]
+     * @throws InterruptedException if interrupted while waiting for the clients
+     */
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length > 2 || args.length == 1) {
+            LOGGER.error("Usage: mvn exec:java@load -Dexec.args=\"<server-address> <port>\"");
+            return;
+        }
+
+        final String address = args.length == 0 ? "127.0.0.1" : args[0];
+        final int port = args.length == 0 ? 8080 : Integer.parseInt(args[1]);
+
+        var generator = new LoadGenerator(LoadConfiguration.fromSystemProperties(), NetworkHandler::fromSystemProperties);
+        System.out.print(generator.run(address, port).format());
+    }
+}
@@ -0,0 +1,63 @@
+package cz.cuni.mff.danekji.calendar.client.load;
+
+import cz.cuni.mff.danekji.calendar.core.commands.AddEventCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.DeleteEventCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.ShowEventsCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.ShowFutureEventsCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.UpdateEventCommand;
+
+/**
+ * The operations issued by the simulated clients, named after the commands they send.
+ */
+public enum LoadOperation {
+    /**
+     * Adds a new event.
+     */
+    ADD(AddEventCommand.COMMAND_NAME),
+    /**
+     * Updates an event the client knows of.
+     */
+    UPDATE(UpdateEventCommand.COMMAND_NAME),
+    /**
+     * Deletes an event the client knows of.
+     */
+    DELETE(DeleteEventCommand.COMMAND_NAME),
+    /**
+     * Lists all the events, refreshing the events the client knows of.
+     */
+    SHOW(ShowEventsCommand.COMMAND_NAME),
+    /**
+     * Lists the events of the next month.
+     */
+    SHOW_FUTURE(ShowFutureEventsCommand.COMMAND_NAME);
+
+    private final String commandName;
+
+    LoadOperation(String commandName) {
+        this.commandName = commandName;
+    }
+
+    /**
+     * Gets the name of the command the operation sends.
+     *
+     * @return The command name
+     */
+    public String getCommandName() {
+        return commandName;
+    }
+
+    /**
+     * Finds the operation sending the command of the given name.
+     *
+     * @param commandName The command name
+     * @return The operation, or null if no operation sends the command
+     */
+    public static LoadOperation ofCommandName(String commandName) {
+        for (var operation : values()) {
+            if (operation.commandName.equals(commandName)) {
+                return operation;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,79 @@
+package cz.cuni.mff.danekji.calendar.client.load;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The results of a load run: the latencies and the errors of every operation issued during the measured run.
+ *
+ * @param clients The number of the simulated clients
+ * @param duration The measured duration of the run, from its start until the last operation completed
+ * @param failedClients The number of the clients which failed to connect, set up their account or lost their connection
+ * @param latencies The latencies of the issued operations, by operation
+ * @param errors The number of the operations answered with an error or lost with the connection, by operation
+ */
+public record LoadReport(int clients, Duration duration, int failedClients,
+                         Map<LoadOperation, LatencyRecorder> latencies, Map<LoadOperation, Long> errors) {
+    /**
+     * Gets the latencies of all the issued operations together.
+     *
+     * @return The merged latencies
+     */
+    public LatencyRecorder totalLatencies() {
+        var total = new LatencyRecorder();
+        latencies.values().forEach(total::merge);
+        return total;
+    }
+
+    /**
+     * Gets the number of all the operations answered with an error.
+     *
+     * @return The number of the errors
+     */
+    public long totalErrors() {
+        return errors.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * Gets the number of the operations completed per second of the measured run.
+     *
+     * @param count The number of the operations
+     * @return The throughput
+     */
+    public double throughput(long count) {
+        return duration.isZero() ? 0 : count / (duration.toNanos() / 1e9);
+    }
+
+    /**
+     * Formats the report as a table with a row per operation and the total.
+     *
+     * @return The formatted report
+     */
+    public String format() {
+        var builder = new StringBuilder();
+        builder.append(String.format(Locale.ROOT, "Load run: %d clients (%d failed), %.1f s%n", clients, failedClients, duration.toNanos() / 1e9));
+        builder.append(String.format(Locale.ROOT, "%-20s %10s %10s %10s %10s %10s %10s %10s %10s%n",
+                "operation", "count", "errors", "error %", "ops/s", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        for (var operation : LoadOperation.values()) {
+            var recorder = latencies.get(operation);
+            if (recorder != null && recorder.getCount() > 0) {
+                appendRow(builder, operation.getCommandName(), recorder, errors.getOrDefault(operation, 0L));
+            }
+        }
+        appendRow(builder, "total", totalLatencies(), totalErrors());
+        return builder.toString();
+    }
+
+    private void appendRow(StringBuilder builder, String name, LatencyRecorder recorder, long errorCount) {
+        long count = recorder.getCount();
+        builder.append(String.format(Locale.ROOT, "%-20s %10d %10d %10.2f %10.1f %10.3f %10.3f %10.3f %10.3f%n",
+                name, count, errorCount, count == 0 ? 0 : 100.0 * errorCount / count, throughput(count),
+                millis(recorder.getPercentileNanos(0.50)), millis(recorder.getPercentileNanos(0.99)),
+                millis(recorder.getPercentileNanos(0.999)), millis(recorder.getMaxNanos())));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
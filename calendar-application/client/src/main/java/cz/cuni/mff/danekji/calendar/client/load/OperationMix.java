@@ -0,0 +1,97 @@
+package cz.cuni.mff.danekji.calendar.client.load;
+
+import cz.cuni.mff.danekji.calendar.core.exceptions.client.InvalidInputException;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+/**
+ * The relative weights of the operations issued by the simulated clients.
+ */
+public final class OperationMix {
+    private final Map<LoadOperation, Integer> weights;
+    private final LoadOperation[] operations;
+    private final int[] cumulativeWeights;
+
+    private OperationMix(Map<LoadOperation, Integer> weights) {
+        this.weights = weights;
+        this.operations = weights.keySet().toArray(LoadOperation[]::new);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += weights.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * Parses the mix from comma separated {@code command=weight} pairs,
+     *  e.g. {@code add_event=20,update_event=20,delete_event=10,show_events=30,show_future_events=20}.
+     * The operations which are not listed are not issued.
+     *
+     * @param mix The mix
+     * @return The parsed mix
+     * @throws InvalidInputException if a command is unknown, a weight is not a non-negative number or all weights are zero
+     */
+    public static OperationMix parse(String mix) {
+        Map<LoadOperation, Integer> weights = new EnumMap<>(LoadOperation.class);
+        for (String pair : mix.split(",")) {
+            String[] parts = pair.split("=", 2);
+            LoadOperation operation = LoadOperation.ofCommandName(parts[0].trim());
+            if (operation == null || parts.length != 2) {
+                throw new InvalidInputException("Invalid operation in the mix: '" + pair.trim() + "'");
+            }
+
+            try {
+                int weight = Integer.parseInt(parts[1].trim());
+                if (weight < 0) {
+                    throw new InvalidInputException("The weight of '" + operation.getCommandName() + "' cannot be negative");
+                }
+                if (weight > 0) {
+                    weights.merge(operation, weight, Integer::sum);
+                }
+            } catch (NumberFormatException e) {
+                throw new InvalidInputException("Invalid weight in the mix: '" + pair.trim() + "'");
+            }
+        }
+
+        if (weights.isEmpty()) {
+            throw new InvalidInputException("The mix must contain an operation with a positive weight");
+        }
+        return new OperationMix(weights);
+    }
+
+    /**
+     * Picks an operation with the probability proportional to its weight.
+     *
+     * @param random The random generator of the client
+     * @return The operation
+     */
+    public LoadOperation pick(RandomGenerator random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < operations.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        throw new AssertionError("The cumulative weights end with the total");
+    }
+
+    /**
+     * Formats the mix the way it is parsed.
+     *
+     * @return The mix
+     */
+    @Override
+    public String toString() {
+        var builder = new StringBuilder();
+        weights.forEach((operation, weight) -> {
+            if (!builder.isEmpty()) {
+                builder.append(',');
+            }
+            builder.append(operation.getCommandName()).append('=').append(weight);
+        });
+        return builder.toString();
+    }
+}
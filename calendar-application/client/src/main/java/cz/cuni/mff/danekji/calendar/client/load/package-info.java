@@ -0,0 +1,6 @@
+/**
+ * Contains the headless load generator of the calendar application.
+ * This package provides the tool driving a running server with many concurrent clients, which issue a configurable
+ * mix of the real commands, and the report of the throughput, latencies and error rates it measured.
+ */
+package cz.cuni.mff.danekji.calendar.client.load;
@@ -0,0 +1,93 @@
+package cz.cuni.mff.danekji.calendar.client.network;
+
+import cz.cuni.mff.danekji.calendar.core.network.BinaryCodec;
+import cz.cuni.mff.danekji.calendar.core.network.FrameCodec;
+import cz.cuni.mff.danekji.calendar.core.network.WireProtocol;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * Represents a network handler that exchanges length-prefixed frames (see {@link FrameCodec}) over a socket.
+ * This handler is used to talk to the server running the non-blocking transport, the commands are encoded
+ *  by the {@link BinaryCodec}. The commands are pipelined and correlated by request IDs if the codec version
+ *  of the server (the one its session ID frame is encoded in) supports it.
+ */
+public class FramedNetworkHandler extends PipeliningNetworkHandler {
+    private Socket socket = null;
+    private DataOutputStream out = null;
+    private DataInputStream in = null;
+
+    /**
+     * Default constructor for FramedNetworkHandler.
+     * The initialization of the socket streams will be done in the connect method.
+     */
+    public FramedNetworkHandler() {}
+
+    /**
+     * Establishes a connection to the server at the specified host and port.
+     *
+     * @param host The hostname or IP address of the server.
+     * @param port The port number on which the server is listening.
+     * @return The session ID received from the server.
+     * @throws IOException While invalid session ID is received or if an I/O error occurs during connection.
+     * @throws ClassNotFoundException If the session ID cannot be deserialized.
+     */
+    @Override
+    public int connect(String host, int port) throws IOException, ClassNotFoundException {
+        socket = new Socket(host, port);
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+        byte[] payload = FrameCodec.readPayload(in);
+        Object obj = FrameCodec.decode(payload);
+        if (!(obj instanceof Integer sessionId)) {
+            throw new IOException("Expected session ID but received: " + obj);
+        }
+        startReading(FrameCodec.codecVersionOf(payload) >= BinaryCodec.CORRELATION_VERSION);
+        return sessionId;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void writeMessage(Object message) throws IOException {
+        FrameCodec.writeFrame(out, message, WireProtocol.BINARY);
+        out.flush();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Object readMessage() throws IOException, ClassNotFoundException {
+        return FrameCodec.readFrame(in);
+    }
+
+    /**
+     * Closes the connection to the server.
+     *
+     * @throws IOException If an I/O error occurs while closing the socket.
+     */
+    @Override
+    public void disconnect() throws IOException {
+        if (socket != null && !socket.isClosed()) {
+            socket.close();
+        }
+    }
+
+    /**
+     * Checks if the network handler is currently connected to the server.
+     *
+     * @return true if connected, false otherwise.
+     */
+    @Override
+    public boolean isConnected() {
+        return socket != null && socket.isConnected() && !socket.isClosed();
+    }
+}
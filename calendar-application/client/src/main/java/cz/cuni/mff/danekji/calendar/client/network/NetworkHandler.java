@@ -4,6 +4,8 @@ import cz.cuni.mff.danekji.calendar.core.commands.Command;
 import cz.cuni.mff.danekji.calendar.core.responses.Response;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Interface for handling network operations in the calendar client.
@@ -11,6 +13,23 @@ import java.io.IOException;
  * receiving responses, and managing the connection state.
  */
 public interface NetworkHandler {
+    /**
+     * The system property selecting the protocol of the server, either {@code object} (object streams, the default)
+     *  or {@code framed} (length-prefixed frames of the non-blocking server).
+     */
+    String TRANSPORT_PROPERTY = "calendar.client.transport";
+
+    /**
+     * Creates the network handler selected by the {@link #TRANSPORT_PROPERTY} system property.
+     *
+     * @return The {@link FramedNetworkHandler} if the {@code framed} protocol is selected, the {@link SocketNetworkHandler} otherwise.
+     */
+    static NetworkHandler fromSystemProperties() {
+        return "framed".equalsIgnoreCase(System.getProperty(TRANSPORT_PROPERTY, "").trim())
+                ? new FramedNetworkHandler()
+                : new SocketNetworkHandler();
+    }
+
     /**
      * Connects to the server at the specified host and port.
      *
@@ -32,6 +51,39 @@ public interface NetworkHandler {
      */
     Response sendCommand(Command command) throws IOException, ClassNotFoundException;
 
+    /**
+     * Sends a command to the server without waiting for the response.
+     * Many commands may be pipelined on the connection, their responses complete the returned futures.
+     *
+     * @param command The command to send.
+     * @return The future completed with the response, or exceptionally with the {@link IOException}
+     *  if the command cannot be sent or its response cannot be received.
+     */
+    default CompletableFuture<Response> sendCommandAsync(Command command) {
+        return sendCommandAsync(command, partialResponse -> {});
+    }
+
+    /**
+     * Sends a command to the server without waiting for the response, receiving its partial responses.
+     * A streamed command is answered with partial responses (see {@link Response#isPartial()})
+     *  followed by the final one, which completes the returned future.
+     *
+     * @param command The command to send.
+     * @param partialResponses Receives the partial responses in order, it must not block.
+     * @return The future completed with the final response, or exceptionally with the {@link IOException}
+     *  if the command cannot be sent or its response cannot be received.
+     */
+    CompletableFuture<Response> sendCommandAsync(Command command, Consumer<Response> partialResponses);
+
+    /**
+     * Sets the receiver of the notifications pushed by the server without a request, replacing the previous one.
+     * The notifications are tagged with the {@link cz.cuni.mff.danekji.calendar.core.network.CorrelatedMessage#PUSH_REQUEST_ID},
+     *  so they are pushed only to the clients which correlate their requests.
+     *
+     * @param notifications Receives the pushed notifications in order, it must not block.
+     */
+    void setNotificationListener(Consumer<Response> notifications);
+
     /**
      * Closes the connection to the server.
      *
@@ -0,0 +1,215 @@
+package cz.cuni.mff.danekji.calendar.client.network;
+
+import cz.cuni.mff.danekji.calendar.core.commands.Command;
+import cz.cuni.mff.danekji.calendar.core.network.CorrelatedMessage;
+import cz.cuni.mff.danekji.calendar.core.responses.Response;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Base of the network handlers which pipeline the commands over a single connection.
+ * <p>
+ * A command is written as soon as it is sent, without waiting for the responses to the previous ones,
+ *  and a reader thread completes the futures as the responses arrive. If the server supports correlated messages,
+ *  every command is wrapped in a {@link CorrelatedMessage} with a new request ID and its response is matched
+ *  by the ID, so the server may answer out of order. Otherwise the responses are matched in the order the commands
+ *  were sent, which is the order such a server answers them in. The partial responses to a streamed command
+ *  (see {@link Response#isPartial()}) are handed to the consumer of the command, the final one completes its future.
+ *  The notifications pushed by the server (tagged with the {@link CorrelatedMessage#PUSH_REQUEST_ID}) are handed
+ *  to the notification listener.
+ */
+abstract class PipeliningNetworkHandler implements NetworkHandler {
+    private static final Logger LOGGER = LogManager.getLogger(PipeliningNetworkHandler.class);
+
+    private final Map<Long, PendingCommand> pendingById = new ConcurrentHashMap<>();
+    private final Queue<PendingCommand> pendingInOrder = new ConcurrentLinkedQueue<>();
+    private final Object writeLock = new Object();
+    private long nextRequestId = 1; // guarded by writeLock
+    private boolean correlated;
+    private IOException failure; // guarded by writeLock
+    private volatile Consumer<Response> notifications = notification -> {};
+
+    /**
+     * A sent command waiting for its final response.
+     */
+    private record PendingCommand(CompletableFuture<Response> future, Consumer<Response> partialResponses) {
+    }
+
+    /**
+     * Writes a single message to the server and flushes it.
+     *
+     * @param message The command, possibly wrapped in a {@link CorrelatedMessage}
+     * @throws IOException if an I/O error occurs
+     */
+    protected abstract void writeMessage(Object message) throws IOException;
+
+    /**
+     * Reads a single message from the server, blocking until it arrives.
+     *
+     * @return The response, possibly wrapped in a {@link CorrelatedMessage}
+     * @throws IOException if an I/O error occurs or the connection is closed
+     * @throws ClassNotFoundException if the response cannot be deserialized
+     */
+    protected abstract Object readMessage() throws IOException, ClassNotFoundException;
+
+    /**
+     * Starts reading the responses once the connection is established.
+     *
+     * @param correlated Whether the server supports correlated messages
+     */
+    protected void startReading(boolean correlated) {
+        synchronized (writeLock) {
+            this.correlated = correlated;
+            this.failure = null;
+        }
+        Thread.ofVirtual().name("response-reader").start(this::readResponses);
+    }
+
+    /**
+     * Sends a command to the server without waiting for the responses to the previously sent commands.
+     *
+     * @param command The command to send.
+     * @param partialResponses Receives the partial responses in order, it is called by the reader thread and must not block.
+     * @return The future completed with the final response, or exceptionally if the connection fails before it arrives.
+     */
+    @Override
+    public CompletableFuture<Response> sendCommandAsync(Command command, Consumer<Response> partialResponses) {
+        var future = new CompletableFuture<Response>();
+        var pending = new PendingCommand(future, partialResponses);
+        synchronized (writeLock) {
+            if (failure != null) {
+                future.completeExceptionally(failure);
+                return future;
+            }
+            try {
+                if (correlated) {
+                    long requestId = nextRequestId++;
+                    pendingById.put(requestId, pending);
+                    writeMessage(new CorrelatedMessage(requestId, command));
+                } else {
+                    pendingInOrder.add(pending);
+                    writeMessage(command);
+                }
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+        return future;
+    }
+
+    /**
+     * Sets the receiver of the notifications pushed by the server, it is called by the reader thread.
+     *
+     * @param notifications Receives the pushed notifications in order, it must not block.
+     */
+    @Override
+    public void setNotificationListener(Consumer<Response> notifications) {
+        this.notifications = notifications;
+    }
+
+    /**
+     * Sends a command to the server and waits for its response.
+     *
+     * @param command The command to send.
+     * @return The response from the server.
+     * @throws IOException            If an I/O error occurs while sending or receiving data.
+     * @throws ClassNotFoundException If the response cannot be deserialized.
+     */
+    @Override
+    public Response sendCommand(Command command) throws IOException, ClassNotFoundException {
+        try {
+            return sendCommandAsync(command).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the response to: " + command.getName());
+        } catch (ExecutionException e) {
+            switch (e.getCause()) {
+                case IOException cause -> throw cause;
+                case ClassNotFoundException cause -> throw cause;
+                default -> throw new IOException("Failed to receive the response to: " + command.getName(), e.getCause());
+            }
+        }
+    }
+
+    private void readResponses() {
+        try {
+            while (true) {
+                Object message = readMessage();
+                Long requestId = null;
+                if (message instanceof CorrelatedMessage(long id, Object response)) {
+                    requestId = id;
+                    message = response;
+                }
+                if (requestId != null && requestId == CorrelatedMessage.PUSH_REQUEST_ID) {
+                    if (!(message instanceof Response notification)) {
+                        throw new IOException("Expected a notification but received: " + message);
+                    }
+                    try {
+                        notifications.accept(notification);
+                    } catch (RuntimeException e) {
+                        LOGGER.error("Failed to handle the notification '{}'", notification, e);
+                    }
+                    continue;
+                }
+
+                // the command keeps waiting until its final response arrives
+                boolean partial = message instanceof Response response && response.isPartial();
+                PendingCommand pending;
+                if (requestId != null) {
+                    pending = partial ? pendingById.get(requestId) : pendingById.remove(requestId);
+                } else {
+                    pending = partial ? pendingInOrder.peek() : pendingInOrder.poll();
+                }
+
+                if (pending == null) {
+                    throw new IOException("Received a response to no sent command: " + message);
+                }
+                if (!(message instanceof Response response)) {
+                    pending.future().completeExceptionally(new IOException("Expected a response but received: " + message));
+                } else if (partial) {
+                    try {
+                        pending.partialResponses().accept(response);
+                    } catch (RuntimeException e) {
+                        pending.future().completeExceptionally(e); // a failing consumer must not stop the reader
+                    }
+                } else {
+                    pending.future().complete(response);
+                }
+            }
+        } catch (IOException e) {
+            synchronized (writeLock) {
+                fail(e);
+            }
+        } catch (ClassNotFoundException e) {
+            synchronized (writeLock) {
+                fail(new IOException("Failed to deserialize a response", e));
+            }
+        }
+    }
+
+    /**
+     * Fails all the pending commands and the commands sent later, as the connection is no longer usable.
+     * Must be called while holding the write lock.
+     */
+    private void fail(IOException cause) {
+        if (failure == null) {
+            failure = cause;
+        }
+        pendingById.values().forEach(pending -> pending.future().completeExceptionally(cause));
+        pendingById.clear();
+        PendingCommand pending;
+        while ((pending = pendingInOrder.poll()) != null) {
+            pending.future().completeExceptionally(cause);
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package cz.cuni.mff.danekji.calendar.client.network;
 
-import cz.cuni.mff.danekji.calendar.core.commands.Command;
-import cz.cuni.mff.danekji.calendar.core.responses.Response;
+import cz.cuni.mff.danekji.calendar.core.network.BinaryCodec;
+import cz.cuni.mff.danekji.calendar.core.network.ProtocolNegotiation;
+import cz.cuni.mff.danekji.calendar.core.network.WireProtocol;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
@@ -11,11 +13,15 @@ import java.net.Socket;
 /**
  * Represents a network handler that communicates using object streams over a socket.
  * This handler is responsible for connecting to a server, sending commands, receiving responses,
+ * The messages are encoded by the {@link WireProtocol} negotiated right after connecting,
+ *  the binary codec unless the server answers with Java serialization. The commands are pipelined
+ *  and correlated by request IDs if the negotiated codec supports it.
  */
-public class SocketNetworkHandler implements NetworkHandler {
+public class SocketNetworkHandler extends PipeliningNetworkHandler {
     private Socket socket = null;
     private ObjectOutputStream out = null;
     private ObjectInputStream in = null;
+    private WireProtocol protocol = WireProtocol.SERIALIZATION;
 
     /**
      * Default constructor for SocketNetworkHandler.
@@ -35,30 +41,41 @@ public class SocketNetworkHandler implements NetworkHandler {
     @Override
     public int connect(String host, int port) throws IOException, ClassNotFoundException {
         socket = new Socket(host, port);
-        out = new ObjectOutputStream(socket.getOutputStream());
+        out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.flush(); // sends the stream header, the buffer would hold it back
         in = new ObjectInputStream(socket.getInputStream());
 
         Object obj = in.readObject();
-        if (obj instanceof Integer sessionId) {
-            return sessionId;
-        } else {
+        if (!(obj instanceof Integer sessionId)) {
             throw new IOException("Expected session ID but received: " + obj);
         }
+
+        out.writeObject(new ProtocolNegotiation(BinaryCodec.VERSION));
+        out.flush();
+        Object answer = in.readObject();
+        if (!(answer instanceof ProtocolNegotiation negotiation)) {
+            throw new IOException("Expected protocol negotiation but received: " + answer);
+        }
+        protocol = WireProtocol.ofCodecVersion(negotiation.codecVersion());
+        startReading(negotiation.codecVersion() >= BinaryCodec.CORRELATION_VERSION);
+        return sessionId;
     }
 
     /**
-     * Sends a command to the server and waits for a response.
-     *
-     * @param command The command to send.
-     * @return The response from the server.
-     * @throws IOException            If an I/O error occurs while sending or receiving data.
-     * @throws ClassNotFoundException If the response cannot be deserialized.
+     * {@inheritDoc}
      */
     @Override
-    public Response sendCommand(Command command) throws IOException, ClassNotFoundException {
-        out.writeObject(command);
+    protected void writeMessage(Object message) throws IOException {
+        protocol.write(out, message);
         out.flush();
-        return (Response) in.readObject();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Object readMessage() throws IOException, ClassNotFoundException {
+        return protocol.read(in);
     }
 
     /**
@@ -14,6 +14,7 @@ module cz.cuni.mff.danekji.calendar.client {
     exports cz.cuni.mff.danekji.calendar.client.cli;
     exports cz.cuni.mff.danekji.calendar.client.cli.ui;
     exports cz.cuni.mff.danekji.calendar.client.network;
+    exports cz.cuni.mff.danekji.calendar.client.load;
     exports cz.cuni.mff.danekji.calendar.client.gui;
     exports cz.cuni.mff.danekji.calendar.client.gui.controllers;
 }
\ No newline at end of file
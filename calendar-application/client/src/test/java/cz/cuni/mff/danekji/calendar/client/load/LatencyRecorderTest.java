@@ -0,0 +1,62 @@
+package cz.cuni.mff.danekji.calendar.client.load;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyRecorderTest {
+
+    @Test
+    void getPercentileNanos_isWithinTheBucketPrecision() {
+        // arrange
+        var recorder = new LatencyRecorder();
+
+        // act
+        for (long micros = 1; micros <= 10_000; micros++) {
+            recorder.record(micros * 1000);
+        }
+
+        // assert
+        assertEquals(10_000, recorder.getCount());
+        assertEquals(5_000_000, recorder.getPercentileNanos(0.50), 5_000_000 * 0.04);
+        assertEquals(9_900_000, recorder.getPercentileNanos(0.99), 9_900_000 * 0.04);
+        assertEquals(9_990_000, recorder.getPercentileNanos(0.999), 9_990_000 * 0.04);
+        assertEquals(10_000_000, recorder.getMaxNanos());
+        assertEquals(5_000_500, recorder.getMeanNanos(), 1);
+    }
+
+    @Test
+    void merge_combinesTheRecordedLatencies() {
+        // arrange
+        var fast = new LatencyRecorder();
+        var slow = new LatencyRecorder();
+        for (int i = 0; i < 99; i++) {
+            fast.record(1000);
+        }
+        slow.record(1_000_000);
+
+        // act
+        fast.merge(slow);
+
+        // assert
+        assertEquals(100, fast.getCount());
+        assertEquals(1000, fast.getPercentileNanos(0.99), 1000 * 0.04);
+        assertEquals(1_000_000, fast.getPercentileNanos(1.0));
+        assertEquals(1_000_000, fast.getMaxNanos());
+    }
+
+    @Test
+    void bucketOf_coversEveryLatencyByIncreasingBuckets() {
+        // arrange
+        long[] latencies = {0, 1, 31, 32, 33, 1000, 123_456_789, Long.MAX_VALUE};
+
+        // act & assert
+        int previous = -1;
+        for (long latency : latencies) {
+            int bucket = LatencyRecorder.bucketOf(latency);
+            assertTrue(bucket > previous);
+            assertTrue(LatencyRecorder.upperBoundOf(bucket) >= latency);
+            previous = bucket;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package cz.cuni.mff.danekji.calendar.client.load;
+
+import cz.cuni.mff.danekji.calendar.client.network.NetworkHandler;
+import cz.cuni.mff.danekji.calendar.core.commands.AddEventCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.Command;
+import cz.cuni.mff.danekji.calendar.core.commands.CreateAccountCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.DeleteEventCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.DeleteUserCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.LoginCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.ShowEventsCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.ShowFutureEventsCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.UpdateEventCommand;
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.responses.Response;
+import cz.cuni.mff.danekji.calendar.core.responses.error.ErrorResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessEventListResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadGeneratorTest {
+
+    /**
+     * Answers the commands of a single client like the server would, optionally failing the connection, the updates
+     *  or losing the connection on the first query of the future events.
+     */
+    private static final class FakeServerConnection implements NetworkHandler {
+        private final boolean failConnect;
+        private final boolean failUpdates;
+        private final boolean loseConnection;
+        private final Map<Long, Event> events = new TreeMap<>();
+        private final List<Command> commands = new ArrayList<>();
+        private long nextId = 1;
+        private boolean connected;
+
+        private FakeServerConnection(boolean failConnect, boolean failUpdates, boolean loseConnection) {
+            this.failConnect = failConnect;
+            this.failUpdates = failUpdates;
+            this.loseConnection = loseConnection;
+        }
+
+        @Override
+        public int connect(String host, int port) throws IOException {
+            if (failConnect) {
+                throw new IOException("Connection refused");
+            }
+            connected = true;
+            return 1;
+        }
+
+        @Override
+        public Response sendCommand(Command command) throws IOException {
+            commands.add(command);
+            if (loseConnection && command instanceof ShowFutureEventsCommand) {
+                connected = false;
+                throw new IOException("Connection reset");
+            }
+            return switch (command) {
+                case AddEventCommand add -> {
+                    long id = nextId++;
+                    events.put(id, Event.withId(id, add.getEvent()));
+                    yield new SuccessResponse("Event with id '" + id + "' added successfully.");
+                }
+                case UpdateEventCommand ignored when failUpdates -> new ErrorResponse("Failed to update event");
+                case DeleteEventCommand delete -> events.remove(delete.getEventId()) != null
+                        ? new SuccessResponse("Deleted")
+                        : new ErrorResponse("Event not found");
+                case ShowEventsCommand ignored -> new SuccessEventListResponse(List.copyOf(events.values()));
+                default -> new SuccessResponse("OK");
+            };
+        }
+
+        @Override
+        public CompletableFuture<Response> sendCommandAsync(Command command, Consumer<Response> partialResponses) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setNotificationListener(Consumer<Response> notifications) {
+        }
+
+        @Override
+        public void disconnect() {
+            connected = false;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return connected;
+        }
+    }
+
+    private static LoadConfiguration configuration(int clients, String mix) {
+        var properties = new Properties();
+        properties.setProperty(LoadConfiguration.CLIENTS, String.valueOf(clients));
+        properties.setProperty(LoadConfiguration.DURATION_SECONDS, "1");
+        properties.setProperty(LoadConfiguration.MIX, mix);
+        properties.setProperty(LoadConfiguration.INITIAL_EVENTS, "3");
+        return new LoadConfiguration(properties);
+    }
+
+    @Test
+    void run_issuesTheMixAndCleansUpTheAccounts() throws InterruptedException {
+        // arrange
+        List<FakeServerConnection> connections = new CopyOnWriteArrayList<>();
+        var generator = new LoadGenerator(configuration(3, "add_event=1,delete_event=1,show_events=1,show_future_events=1"), () -> {
+            var connection = new FakeServerConnection(false, false, false);
+            connections.add(connection);
+            return connection;
+        });
+
+        // act
+        LoadReport report = generator.run("localhost", 8080);
+
+        // assert
+        assertEquals(0, report.failedClients());
+        assertEquals(0, report.totalErrors());
+        assertTrue(report.totalLatencies().getCount() > 0);
+        assertTrue(report.latencies().get(LoadOperation.DELETE).getCount() > 0);
+        assertFalse(report.latencies().containsKey(LoadOperation.UPDATE));
+        assertEquals(3, connections.size());
+        for (var connection : connections) {
+            assertInstanceOf(CreateAccountCommand.class, connection.commands.getFirst());
+            assertInstanceOf(LoginCommand.class, connection.commands.get(1));
+            assertInstanceOf(DeleteUserCommand.class, connection.commands.getLast());
+            assertFalse(connection.isConnected());
+        }
+        assertTrue(report.format().contains("delete_event"));
+    }
+
+    @Test
+    void run_reportsErrorResponsesAndFailedClients() throws InterruptedException {
+        // arrange
+        var created = new AtomicInteger();
+        var generator = new LoadGenerator(configuration(2, "update_event=1"),
+                () -> new FakeServerConnection(created.getAndIncrement() == 0, true, false));
+
+        // act
+        LoadReport report = generator.run("localhost", 8080);
+
+        // assert
+        assertEquals(1, report.failedClients());
+        long updates = report.latencies().get(LoadOperation.UPDATE).getCount();
+        assertTrue(updates > 0);
+        assertEquals(updates, report.errors().get(LoadOperation.UPDATE));
+    }
+
+    @Test
+    void run_countsOperationLostWithConnectionAndMeasuresActualDuration() throws InterruptedException {
+        // arrange
+        var generator = new LoadGenerator(configuration(1, "show_future_events=1"), () -> new FakeServerConnection(false, false, true));
+
+        // act
+        LoadReport report = generator.run("localhost", 8080);
+
+        // assert
+        assertEquals(1, report.failedClients());
+        assertEquals(1, report.latencies().get(LoadOperation.SHOW_FUTURE).getCount(), "The lost operation should be counted");
+        assertEquals(1, report.errors().get(LoadOperation.SHOW_FUTURE), "The lost operation should be an error");
+        assertTrue(report.duration().toMillis() < 1000, "The duration should end with the last operation, not the configured one");
+    }
+}
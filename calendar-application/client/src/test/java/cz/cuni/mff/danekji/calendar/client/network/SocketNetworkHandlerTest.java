@@ -0,0 +1,172 @@
+package cz.cuni.mff.danekji.calendar.client.network;
+
+import cz.cuni.mff.danekji.calendar.core.commands.ShowEventsCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.LogoutCommand;
+import cz.cuni.mff.danekji.calendar.core.network.BinaryCodec;
+import cz.cuni.mff.danekji.calendar.core.network.CorrelatedMessage;
+import cz.cuni.mff.danekji.calendar.core.network.ProtocolNegotiation;
+import cz.cuni.mff.danekji.calendar.core.network.WireProtocol;
+import cz.cuni.mff.danekji.calendar.core.responses.Response;
+import cz.cuni.mff.danekji.calendar.core.responses.push.EventsChangedNotification;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessEventChunkResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessEventListResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessLogoutResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SocketNetworkHandlerTest {
+
+    /**
+     * A scripted server accepting a single connection, which negotiates the given codec version.
+     */
+    private interface ScriptedServer {
+        void serve(ObjectInputStream in, ObjectOutputStream out, WireProtocol protocol) throws Exception;
+    }
+
+    private static CompletableFuture<Void> startServer(ServerSocket serverSocket, int codecVersion, ScriptedServer script) {
+        return CompletableFuture.runAsync(() -> {
+            try (var socket = serverSocket.accept();
+                 var in = new ObjectInputStream(socket.getInputStream());
+                 var out = new ObjectOutputStream(socket.getOutputStream())) {
+                out.writeObject(42);
+                out.flush();
+                assertInstanceOf(ProtocolNegotiation.class, in.readObject());
+                out.writeObject(new ProtocolNegotiation(codecVersion));
+                out.flush();
+                script.serve(in, out, WireProtocol.ofCodecVersion(codecVersion));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    @Test
+    void sendCommandAsync_matchesResponsesAnsweredOutOfOrder() throws Exception {
+        // arrange
+        try (var serverSocket = new ServerSocket(0)) {
+            var server = startServer(serverSocket, BinaryCodec.VERSION, (in, out, protocol) -> {
+                var first = (CorrelatedMessage) protocol.read(in);
+                var second = (CorrelatedMessage) protocol.read(in);
+                protocol.write(out, new CorrelatedMessage(second.requestId(), new SuccessLogoutResponse("Bye")));
+                protocol.write(out, new CorrelatedMessage(first.requestId(), new SuccessEventListResponse(List.of())));
+                out.flush();
+            });
+            var handler = new SocketNetworkHandler();
+
+            // act
+            int sessionId = handler.connect("localhost", serverSocket.getLocalPort());
+            CompletableFuture<Response> events = handler.sendCommandAsync(new ShowEventsCommand());
+            CompletableFuture<Response> logout = handler.sendCommandAsync(new LogoutCommand());
+
+            // assert
+            assertEquals(42, sessionId);
+            assertInstanceOf(SuccessEventListResponse.class, events.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(SuccessLogoutResponse.class, logout.get(5, TimeUnit.SECONDS));
+
+            // cleanup
+            server.get(5, TimeUnit.SECONDS);
+            handler.disconnect();
+        }
+    }
+
+    @Test
+    void sendCommandAsync_matchesResponsesInOrderWithoutCorrelation() throws Exception {
+        // arrange
+        try (var serverSocket = new ServerSocket(0)) {
+            var server = startServer(serverSocket, BinaryCodec.CORRELATION_VERSION - 1, (in, out, protocol) -> {
+                assertInstanceOf(ShowEventsCommand.class, protocol.read(in), "Commands should not be wrapped");
+                assertInstanceOf(LogoutCommand.class, protocol.read(in));
+                protocol.write(out, new SuccessEventListResponse(List.of()));
+                protocol.write(out, new SuccessLogoutResponse("Bye"));
+                out.flush();
+            });
+            var handler = new SocketNetworkHandler();
+
+            // act
+            handler.connect("localhost", serverSocket.getLocalPort());
+            CompletableFuture<Response> events = handler.sendCommandAsync(new ShowEventsCommand());
+            CompletableFuture<Response> logout = handler.sendCommandAsync(new LogoutCommand());
+            Response eventsResponse = events.get(5, TimeUnit.SECONDS);
+            Response logoutResponse = logout.get(5, TimeUnit.SECONDS);
+            server.get(5, TimeUnit.SECONDS); // the server closes the connection
+            CompletableFuture<Response> afterClose = handler.sendCommandAsync(new ShowEventsCommand());
+
+            // assert
+            assertInstanceOf(SuccessEventListResponse.class, eventsResponse);
+            assertInstanceOf(SuccessLogoutResponse.class, logoutResponse);
+            var failure = assertThrows(ExecutionException.class, () -> afterClose.get(5, TimeUnit.SECONDS),
+                    "Command sent over a closed connection should fail");
+            assertInstanceOf(IOException.class, failure.getCause());
+
+            // cleanup
+            handler.disconnect();
+        }
+    }
+
+    @Test
+    void sendCommandAsync_deliversPartialResponsesBeforeCompleting() throws Exception {
+        // arrange
+        try (var serverSocket = new ServerSocket(0)) {
+            var server = startServer(serverSocket, BinaryCodec.VERSION, (in, out, protocol) -> {
+                var query = (CorrelatedMessage) protocol.read(in);
+                protocol.write(out, new CorrelatedMessage(query.requestId(), new SuccessEventChunkResponse(List.of(), false)));
+                protocol.write(out, new CorrelatedMessage(query.requestId(), new SuccessEventChunkResponse(List.of(), false)));
+                protocol.write(out, new CorrelatedMessage(query.requestId(), new SuccessEventChunkResponse(List.of(), true)));
+                out.flush();
+            });
+            var handler = new SocketNetworkHandler();
+            List<Response> partialResponses = new CopyOnWriteArrayList<>();
+
+            // act
+            handler.connect("localhost", serverSocket.getLocalPort());
+            Response last = handler.sendCommandAsync(new ShowEventsCommand(10, null, true), partialResponses::add).get(5, TimeUnit.SECONDS);
+
+            // assert
+            assertEquals(2, partialResponses.size(), "Partial responses should be handed to the consumer");
+            assertFalse(last.isPartial(), "The future should complete with the final chunk");
+
+            // cleanup
+            server.get(5, TimeUnit.SECONDS);
+            handler.disconnect();
+        }
+    }
+
+    @Test
+    void setNotificationListener_receivesPushedNotificationsBetweenResponses() throws Exception {
+        // arrange
+        try (var serverSocket = new ServerSocket(0)) {
+            var server = startServer(serverSocket, BinaryCodec.VERSION, (in, out, protocol) -> {
+                var logout = (CorrelatedMessage) protocol.read(in);
+                protocol.write(out, new CorrelatedMessage(CorrelatedMessage.PUSH_REQUEST_ID, new EventsChangedNotification(7)));
+                protocol.write(out, new CorrelatedMessage(logout.requestId(), new SuccessLogoutResponse("Logout successful.")));
+                out.flush();
+            });
+            var handler = new SocketNetworkHandler();
+            List<Response> notifications = new CopyOnWriteArrayList<>();
+            handler.setNotificationListener(notifications::add);
+
+            // act
+            handler.connect("localhost", serverSocket.getLocalPort());
+            Response response = handler.sendCommandAsync(new LogoutCommand()).get(5, TimeUnit.SECONDS);
+
+            // assert
+            assertInstanceOf(SuccessLogoutResponse.class, response, "A pushed notification should not be taken for a response");
+            assertEquals(List.of(new EventsChangedNotification(7)), notifications);
+
+            // cleanup
+            server.get(5, TimeUnit.SECONDS);
+            handler.disconnect();
+        }
+    }
+}
@@ -5,6 +5,8 @@ import cz.cuni.mff.danekji.calendar.core.responses.Response;
 import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Interface for the client application.
@@ -48,4 +50,35 @@ public interface Client {
      * @throws IOException if an I/O error occurs
      */
     Response sendCommand(Command command) throws ClassNotFoundException, IOException;
+
+    /**
+     * Sends a command to the server without waiting for the response,
+     *  so more commands can be pipelined on the connection.
+     *
+     * @param command The command to be sent
+     * @return The future completed with the response from the server,
+     *  or exceptionally with the {@link IOException} if the communication fails
+     */
+    default CompletableFuture<Response> sendCommandAsync(Command command) {
+        return sendCommandAsync(command, partialResponse -> {});
+    }
+
+    /**
+     * Sends a command to the server without waiting for the response, receiving its partial responses.
+     * A streamed command (e.g. a streamed event query) is answered with partial responses followed by the final one.
+     *
+     * @param command The command to be sent
+     * @param partialResponses Receives the partial responses in the order they arrive, it must not block
+     * @return The future completed with the final response from the server,
+     *  or exceptionally with the {@link IOException} if the communication fails
+     */
+    CompletableFuture<Response> sendCommandAsync(Command command, Consumer<Response> partialResponses);
+
+    /**
+     * Sets the receiver of the notifications pushed by the server without a request
+     *  (e.g. the changes of a subscribed calendar), replacing the previous one.
+     *
+     * @param notifications Receives the pushed notifications in the order they arrive, it must not block
+     */
+    void setNotificationListener(Consumer<Response> notifications);
 }
@@ -14,7 +14,7 @@ import java.time.format.DateTimeParseException;
 /**
  * Command to add an event to the calendar.
  */
-public final class AddEventCommand implements Command {
+public final class AddEventCommand implements BatchOperation {
 
     /**
      * The name of the command.
@@ -0,0 +1,126 @@
+package cz.cuni.mff.danekji.calendar.core.commands;
+
+import cz.cuni.mff.danekji.calendar.core.exceptions.InsufficientCommandPrivilegesException;
+import cz.cuni.mff.danekji.calendar.core.exceptions.client.InvalidInputException;
+import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
+import cz.cuni.mff.danekji.calendar.core.client.ui.UserInterface;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command carrying many event operations (additions, updates and deletions) which are sent in a single request.
+ * The server applies all of them under a single lock of the user's calendar and persists the calendar once,
+ *  so e.g. importing many events does not rewrite the calendar file for every event.
+ *  The operations are applied in order, a failed operation does not stop the following ones.
+ */
+public final class BatchCommand implements Command {
+    /**
+     * The name of the command.
+     */
+    public static final String COMMAND_NAME = "batch";
+    /**
+     * The operations to be applied, in order.
+     */
+    private final List<BatchOperation> operations;
+
+    /**
+     * Constructor for BatchCommand.
+     *
+     * @param operations The operations to be applied, in order.
+     */
+    public BatchCommand(List<BatchOperation> operations) {
+        this.operations = operations != null ? List.copyOf(operations) : null;
+    }
+
+    // Default constructor for reflection API to build command
+    BatchCommand() {
+        this(null);
+    }
+
+    /**
+     * Builds the command by repeatedly prompting the user for an operation and its details
+     *  until an empty operation name is entered.
+     * If the user is not logged in or invalid input is provided, an exception is thrown.
+     *
+     * @param ui The user interface
+     * @param session The client session
+     * @return The {@link BatchCommand} command
+     * @throws IOException If an I/O error occurs
+     * @throws InsufficientCommandPrivilegesException If the user is not logged in
+     * @throws InvalidInputException If an unknown operation is entered, the batch is empty
+     *  or the details of an operation are invalid
+     */
+    @Override
+    public Command buildCommand(UserInterface ui, ClientSession session)
+            throws IOException, InsufficientCommandPrivilegesException, InvalidInputException {
+        if (!session.isLoggedIn()) {
+            throw new InsufficientCommandPrivilegesException("You must be logged in to run a batch");
+        }
+
+        List<BatchOperation> builtOperations = new ArrayList<>();
+        while (true) {
+            String name = ui.promptForInput("Enter operation (" + AddEventCommand.COMMAND_NAME + ", "
+                    + UpdateEventCommand.COMMAND_NAME + ", " + DeleteEventCommand.COMMAND_NAME
+                    + ") or left empty to send the batch: ").trim();
+            BatchOperation operation = switch (name) {
+                case "" -> null;
+                case AddEventCommand.COMMAND_NAME -> (BatchOperation) new AddEventCommand().buildCommand(ui, session);
+                case UpdateEventCommand.COMMAND_NAME -> (BatchOperation) new UpdateEventCommand().buildCommand(ui, session);
+                case DeleteEventCommand.COMMAND_NAME -> (BatchOperation) new DeleteEventCommand().buildCommand(ui, session);
+                default -> throw new InvalidInputException("Unknown batch operation: " + name);
+            };
+            if (operation == null) {
+                break;
+            }
+            builtOperations.add(operation);
+        }
+
+        if (builtOperations.isEmpty()) {
+            throw new InvalidInputException("The batch must contain at least one operation");
+        }
+        return new BatchCommand(builtOperations);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+        return COMMAND_NAME;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getDescription() {
+        return "Adds, updates and deletes many events of the logged users calendar at once.";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Privileges getPrivileges() {
+        return Privileges.LOGGED;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <R, C> R accept(CommandVisitor<R, C> visitor, C session) {
+        return visitor.visit(this, session);
+    }
+
+    /**
+     * Returns the operations to be applied, in order.
+     *
+     * @return The unmodifiable list of operations.
+     */
+    public List<BatchOperation> getOperations() {
+        return operations;
+    }
+}
@@ -0,0 +1,8 @@
+package cz.cuni.mff.danekji.calendar.core.commands;
+
+/**
+ * A command which modifies a single event and may therefore be carried by a {@link BatchCommand}.
+ */
+public sealed interface BatchOperation extends Command
+        permits AddEventCommand, UpdateEventCommand, DeleteEventCommand {
+}
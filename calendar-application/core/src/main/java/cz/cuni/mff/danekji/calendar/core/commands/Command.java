@@ -55,6 +55,16 @@ public interface Command extends Serializable {
      */
     <R, S> R accept(CommandVisitor<R, S> visitor, S session);
 
+    /**
+     * Returns whether the command only reads the calendar and the session, so the server may execute it
+     *  concurrently with the other read-only commands pipelined by the same client.
+     *
+     * @return true if the command modifies nothing, false otherwise
+     */
+    default boolean isReadOnly() {
+        return false;
+    }
+
     /**
      * Helper method to get a user from the prompting UI.
      *
@@ -0,0 +1,53 @@
+package cz.cuni.mff.danekji.calendar.core.commands;
+
+import java.util.Map;
+
+/**
+ * The registry of all commands known to the client and the server, keyed by their names.
+ * <p>
+ * The commands named by a peer (e.g. the commands listed by a {@link HelpCommand}) are resolved by this registry only,
+ *  so no class named by the peer is ever loaded or instantiated.
+ */
+public final class CommandRegistry {
+    private static final Map<String, Class<? extends Command>> COMMANDS = Map.ofEntries(
+            Map.entry(AddEventCommand.COMMAND_NAME, AddEventCommand.class),
+            Map.entry(BatchCommand.COMMAND_NAME, BatchCommand.class),
+            Map.entry(CreateAccountCommand.COMMAND_NAME, CreateAccountCommand.class),
+            Map.entry(DeleteEventCommand.COMMAND_NAME, DeleteEventCommand.class),
+            Map.entry(DeleteUserCommand.COMMAND_NAME, DeleteUserCommand.class),
+            Map.entry(HelpCommand.COMMAND_NAME, HelpCommand.class),
+            Map.entry(LoginCommand.COMMAND_NAME, LoginCommand.class),
+            Map.entry(LogoutCommand.COMMAND_NAME, LogoutCommand.class),
+            Map.entry(QuitCommand.COMMAND_NAME, QuitCommand.class),
+            Map.entry(ShowEventsCommand.COMMAND_NAME, ShowEventsCommand.class),
+            Map.entry(ShowFutureEventsCommand.COMMAND_NAME, ShowFutureEventsCommand.class),
+            Map.entry(StatsCommand.COMMAND_NAME, StatsCommand.class),
+            Map.entry(SubscribeCommand.COMMAND_NAME, SubscribeCommand.class),
+            Map.entry(SyncEventsCommand.COMMAND_NAME, SyncEventsCommand.class),
+            Map.entry(UnsubscribeCommand.COMMAND_NAME, UnsubscribeCommand.class),
+            Map.entry(UpdateEventCommand.COMMAND_NAME, UpdateEventCommand.class));
+
+    private CommandRegistry() {
+    }
+
+    /**
+     * Looks up the class of the command with the given name.
+     *
+     * @param name The name of the command
+     * @return The class of the command, or null if no such command is known
+     */
+    public static Class<? extends Command> lookup(String name) {
+        return COMMANDS.get(name);
+    }
+
+    /**
+     * Checks whether the command of the given name is known and implemented by the given class.
+     *
+     * @param name The name of the command
+     * @param commandClass The class claimed to implement the command
+     * @return true if the class is the known class of the command
+     */
+    public static boolean isKnown(String name, Class<?> commandClass) {
+        return commandClass != null && commandClass == COMMANDS.get(name);
+    }
+}
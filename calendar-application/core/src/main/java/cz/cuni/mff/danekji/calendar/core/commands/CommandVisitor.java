@@ -105,5 +105,50 @@ public interface CommandVisitor<R, S> {
      */
     R visit(ShowFutureEventsCommand command, S session);
 
+    /**
+     * Apply many event operations to the calendar of the logged user at once.
+     *
+     * @param command The {@link BatchCommand} to be processed.
+     * @param session The session in which the command will be processed.
+     * @return The result of the command execution.
+     */
+    R visit(BatchCommand command, S session);
+
+    /**
+     * Show the events which changed since a change version for the logged user.
+     *
+     * @param command The {@link SyncEventsCommand} to be processed.
+     * @param session The session in which the command will be processed.
+     * @return The result of the command execution.
+     */
+    R visit(SyncEventsCommand command, S session);
+
+    /**
+     * Subscribe the session to the changes of the logged user's calendar.
+     *
+     * @param command The {@link SubscribeCommand} to be processed.
+     * @param session The session in which the command will be processed.
+     * @return The result of the command execution.
+     */
+    R visit(SubscribeCommand command, S session);
+
+    /**
+     * Cancel the subscription of the session to the changes of the logged user's calendar.
+     *
+     * @param command The {@link UnsubscribeCommand} to be processed.
+     * @param session The session in which the command will be processed.
+     * @return The result of the command execution.
+     */
+    R visit(UnsubscribeCommand command, S session);
+
+    /**
+     * Show the statistics of the server to its administrator.
+     *
+     * @param command The {@link StatsCommand} to be processed.
+     * @param session The session in which the command will be processed.
+     * @return The result of the command execution.
+     */
+    R visit(StatsCommand command, S session);
+
     // more to be added as needed...
 }
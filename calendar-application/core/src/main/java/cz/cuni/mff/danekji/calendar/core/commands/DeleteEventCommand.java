@@ -11,7 +11,7 @@ import java.io.IOException;
  * Command to delete an event from the user's calendar.
  * This command requires the user to be logged in. It prompts the user for the ID of the event to delete.
  */
-public final class DeleteEventCommand implements Command {
+public final class DeleteEventCommand implements BatchOperation {
     /**
      * The name of the command.
      */
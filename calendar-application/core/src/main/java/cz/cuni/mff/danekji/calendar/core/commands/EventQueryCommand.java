@@ -0,0 +1,41 @@
+package cz.cuni.mff.danekji.calendar.core.commands;
+
+import cz.cuni.mff.danekji.calendar.core.models.EventCursor;
+
+/**
+ * A command listing the events of the logged user, optionally page by page.
+ * <p>
+ * Without a limit all the events are returned at once. With a limit at most that many events, ordered by their date,
+ *  time and ID, are returned together with the cursor of the next page. A streamed query is answered
+ *  with all the pages, each sent as soon as it is read, so the client can render them incrementally.
+ */
+public sealed interface EventQueryCommand extends Command permits ShowEventsCommand, ShowFutureEventsCommand {
+    /**
+     * Returns the maximum number of events of a page (the size of a chunk of a streamed query).
+     *
+     * @return The limit, or null to return all the events at once
+     */
+    Integer getLimit();
+
+    /**
+     * Returns the cursor after which the page starts.
+     *
+     * @return The cursor, or null to start with the first event
+     */
+    EventCursor getAfter();
+
+    /**
+     * Returns whether the server should send all the pages, not just the first one.
+     *
+     * @return true if the query is streamed
+     */
+    boolean isStreamed();
+
+    /**
+     * Creates the same query of the page starting after the given cursor.
+     *
+     * @param cursor The cursor of the next page
+     * @return The query of the next page
+     */
+    EventQueryCommand continueAfter(EventCursor cursor);
+}
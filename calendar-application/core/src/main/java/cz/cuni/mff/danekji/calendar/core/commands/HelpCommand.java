@@ -69,6 +69,14 @@ public final class HelpCommand implements Command {
         return Privileges.ALL;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
     /**
      * {@inheritDoc}
      */
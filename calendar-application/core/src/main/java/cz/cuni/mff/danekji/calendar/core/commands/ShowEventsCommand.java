@@ -3,20 +3,52 @@ package cz.cuni.mff.danekji.calendar.core.commands;
 import cz.cuni.mff.danekji.calendar.core.exceptions.InsufficientCommandPrivilegesException;
 import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
 import cz.cuni.mff.danekji.calendar.core.client.ui.UserInterface;
+import cz.cuni.mff.danekji.calendar.core.models.EventCursor;
 
 /**
  * Command to retrieve and display a list of all events added to the calendar.
+ * The events may be listed page by page, see {@link EventQueryCommand}.
  */
-public final class ShowEventsCommand implements Command {
+public final class ShowEventsCommand implements EventQueryCommand {
     /**
      * The name of the command.
      */
     public static final String COMMAND_NAME = "show_events";
 
     /**
-     * The default constructor for the ShowEventsCommand class.
+     * The maximum number of events of a page, null for all events at once.
      */
-    public ShowEventsCommand() {}
+    private final Integer limit;
+
+    /**
+     * The cursor after which the page starts, null for the first page.
+     */
+    private final EventCursor after;
+
+    /**
+     * Whether all the pages should be streamed.
+     */
+    private final boolean streamed;
+
+    /**
+     * The default constructor for the ShowEventsCommand class, which lists all events at once.
+     */
+    public ShowEventsCommand() {
+        this(null, null, false);
+    }
+
+    /**
+     * Constructor for the ShowEventsCommand class listing the events page by page.
+     *
+     * @param limit The maximum number of events of a page, null for all events at once.
+     * @param after The cursor after which the page starts, null for the first page.
+     * @param streamed Whether all the pages should be streamed.
+     */
+    public ShowEventsCommand(Integer limit, EventCursor after, boolean streamed) {
+        this.limit = limit;
+        this.after = after;
+        this.streamed = streamed;
+    }
 
     /**
      * The method builds the command by checking if the user is logged in.
@@ -59,6 +91,14 @@ public final class ShowEventsCommand implements Command {
         return Privileges.LOGGED;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -66,4 +106,36 @@ public final class ShowEventsCommand implements Command {
     public <R, C> R accept(CommandVisitor<R, C> visitor, C session) {
         return visitor.visit(this, session);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Integer getLimit() {
+        return limit;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public EventCursor getAfter() {
+        return after;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isStreamed() {
+        return streamed;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ShowEventsCommand continueAfter(EventCursor cursor) {
+        return new ShowEventsCommand(limit, cursor, streamed);
+    }
 }
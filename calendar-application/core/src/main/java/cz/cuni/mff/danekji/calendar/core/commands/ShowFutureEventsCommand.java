@@ -4,6 +4,7 @@ import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
 import cz.cuni.mff.danekji.calendar.core.client.ui.UserInterface;
 import cz.cuni.mff.danekji.calendar.core.exceptions.InsufficientCommandPrivilegesException;
 import cz.cuni.mff.danekji.calendar.core.exceptions.client.InvalidInputException;
+import cz.cuni.mff.danekji.calendar.core.models.EventCursor;
 
 import java.io.IOException;
 import java.time.DayOfWeek;
@@ -13,8 +14,9 @@ import java.time.temporal.TemporalAdjusters;
 
 /**
  * Command to retrieve and display a list of events for a specific future period.
+ * The events may be listed page by page, see {@link EventQueryCommand}.
  */
-public final class ShowFutureEventsCommand implements Command {
+public final class ShowFutureEventsCommand implements EventQueryCommand {
     /**
      * The name of the command used to identify it in the command registry.
      */
@@ -30,6 +32,21 @@ public final class ShowFutureEventsCommand implements Command {
      */
     private final LocalDate endDate;
 
+    /**
+     * The maximum number of events of a page, null for all events at once.
+     */
+    private final Integer limit;
+
+    /**
+     * The cursor after which the page starts, null for the first page.
+     */
+    private final EventCursor after;
+
+    /**
+     * Whether all the pages should be streamed.
+     */
+    private final boolean streamed;
+
     /**
      * Constructor for creating the command with a specified date range.
      *
@@ -37,8 +54,24 @@ public final class ShowFutureEventsCommand implements Command {
      * @param endDate The end date of the period.
      */
     public ShowFutureEventsCommand(LocalDate startDate, LocalDate endDate) {
+        this(startDate, endDate, null, null, false);
+    }
+
+    /**
+     * Constructor for creating the command with a specified date range listing the events page by page.
+     *
+     * @param startDate The start date of the period.
+     * @param endDate The end date of the period.
+     * @param limit The maximum number of events of a page, null for all events at once.
+     * @param after The cursor after which the page starts, null for the first page.
+     * @param streamed Whether all the pages should be streamed.
+     */
+    public ShowFutureEventsCommand(LocalDate startDate, LocalDate endDate, Integer limit, EventCursor after, boolean streamed) {
         this.startDate = startDate;
         this.endDate = endDate;
+        this.limit = limit;
+        this.after = after;
+        this.streamed = streamed;
     }
 
     // Default constructor for reflection
@@ -143,6 +176,14 @@ public final class ShowFutureEventsCommand implements Command {
         return Privileges.LOGGED;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -168,4 +209,36 @@ public final class ShowFutureEventsCommand implements Command {
     public LocalDate getEndDate() {
         return endDate;
     }
-}
\ No newline at end of file
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Integer getLimit() {
+        return limit;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public EventCursor getAfter() {
+        return after;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isStreamed() {
+        return streamed;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ShowFutureEventsCommand continueAfter(EventCursor cursor) {
+        return new ShowFutureEventsCommand(startDate, endDate, limit, cursor, streamed);
+    }
+}
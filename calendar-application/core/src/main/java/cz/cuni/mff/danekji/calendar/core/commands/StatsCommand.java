@@ -0,0 +1,79 @@
+package cz.cuni.mff.danekji.calendar.core.commands;
+
+import cz.cuni.mff.danekji.calendar.core.exceptions.InsufficientCommandPrivilegesException;
+import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
+import cz.cuni.mff.danekji.calendar.core.client.ui.UserInterface;
+
+/**
+ * Command to retrieve the statistics of the server, e.g. the counts and latencies of the executed commands,
+ *  the timings of the storage or the traffic of the sessions.
+ *  Only the users configured as the administrators of the server are allowed to retrieve them.
+ */
+public final class StatsCommand implements Command {
+    /**
+     * The name of the command.
+     */
+    public static final String COMMAND_NAME = "stats";
+
+    /**
+     * The default constructor for the StatsCommand.
+     */
+    public StatsCommand() {}
+
+    /**
+     * The method builds the command by checking if the user is logged in.
+     *
+     * @param ui The user interface
+     * @param session The client session
+     * @return The {@link StatsCommand} command
+     * @throws InsufficientCommandPrivilegesException If the user is not logged in
+     */
+    @Override
+    public Command buildCommand(UserInterface ui, ClientSession session) throws InsufficientCommandPrivilegesException {
+        if (!session.isLoggedIn()) {
+            throw new InsufficientCommandPrivilegesException("You must be logged in to show the server statistics.");
+        }
+
+        return new StatsCommand();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+        return COMMAND_NAME;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getDescription() {
+        return "Displays the statistics of the server (administrators only).";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Privileges getPrivileges() {
+        return Privileges.LOGGED;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <R, C> R accept(CommandVisitor<R, C> visitor, C session) {
+        return visitor.visit(this, session);
+    }
+}
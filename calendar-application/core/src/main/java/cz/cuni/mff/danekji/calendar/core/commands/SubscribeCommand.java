@@ -0,0 +1,72 @@
+package cz.cuni.mff.danekji.calendar.core.commands;
+
+import cz.cuni.mff.danekji.calendar.core.exceptions.InsufficientCommandPrivilegesException;
+import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
+import cz.cuni.mff.danekji.calendar.core.client.ui.UserInterface;
+
+/**
+ * Command to subscribe the session to the changes of the logged user's calendar.
+ * Once subscribed, the server pushes an {@link cz.cuni.mff.danekji.calendar.core.responses.push.EventsChangedNotification}
+ *  over the connection whenever another session changes the calendar, so the client does not need to poll for the changes.
+ *  The subscription ends with the {@link UnsubscribeCommand}, the logout or the end of the connection.
+ */
+public final class SubscribeCommand implements Command {
+    /**
+     * The name of the command.
+     */
+    public static final String COMMAND_NAME = "subscribe";
+
+    /**
+     * The default constructor for the SubscribeCommand.
+     */
+    public SubscribeCommand() {}
+
+    /**
+     * The method builds the command by checking if the user is logged in.
+     *
+     * @param ui The user interface
+     * @param session The client session
+     * @return The {@link SubscribeCommand} command
+     * @throws InsufficientCommandPrivilegesException If the user is not logged in
+     */
+    @Override
+    public Command buildCommand(UserInterface ui, ClientSession session) throws InsufficientCommandPrivilegesException {
+        if (!session.isLoggedIn()) {
+            throw new InsufficientCommandPrivilegesException("You must be logged in to subscribe to the changes.");
+        }
+
+        return new SubscribeCommand();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+        return COMMAND_NAME;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getDescription() {
+        return "Notifies about the changes of the logged users calendar made by other sessions.";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Privileges getPrivileges() {
+        return Privileges.LOGGED;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <R, C> R accept(CommandVisitor<R, C> visitor, C session) {
+        return visitor.visit(this, session);
+    }
+}
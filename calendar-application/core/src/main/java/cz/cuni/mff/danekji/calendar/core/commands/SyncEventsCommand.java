@@ -0,0 +1,118 @@
+package cz.cuni.mff.danekji.calendar.core.commands;
+
+import cz.cuni.mff.danekji.calendar.core.exceptions.InsufficientCommandPrivilegesException;
+import cz.cuni.mff.danekji.calendar.core.exceptions.client.InvalidInputException;
+import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
+import cz.cuni.mff.danekji.calendar.core.client.ui.UserInterface;
+
+import java.io.IOException;
+
+/**
+ * Command to retrieve only the events of the user's calendar which changed since a known change version.
+ * The server answers with the created and updated events and the IDs of the deleted ones together with the new version,
+ *  so a client keeping the events can apply the changes instead of downloading the whole calendar again.
+ *  If the changes since the version are not known (e.g. the version is null or comes from a previous run of the server),
+ *  the server answers with a complete snapshot of the calendar.
+ */
+public final class SyncEventsCommand implements Command {
+    /**
+     * The name of the command.
+     */
+    public static final String COMMAND_NAME = "sync_events";
+    /**
+     * The change version of the last sync, null if the client knows no version.
+     */
+    private final Long sinceVersion;
+
+    /**
+     * Constructor for SyncEventsCommand.
+     *
+     * @param sinceVersion The change version of the last sync, null if the client knows no version
+     */
+    public SyncEventsCommand(Long sinceVersion) {
+        this.sinceVersion = sinceVersion;
+    }
+
+    // Default constructor for reflection API to build command
+    SyncEventsCommand() {
+        this(null);
+    }
+
+    /**
+     * Builds the command by prompting the user for the change version of the last sync.
+     * If the user is not logged in or invalid version is provided, an exception is thrown.
+     *
+     * @param ui The user interface
+     * @param session The client session
+     * @return The {@link SyncEventsCommand} command
+     * @throws IOException If an I/O error occurs
+     * @throws InsufficientCommandPrivilegesException If the user is not logged in
+     * @throws InvalidInputException If the version is not a valid number
+     */
+    @Override
+    public Command buildCommand(UserInterface ui, ClientSession session)
+            throws IOException, InsufficientCommandPrivilegesException, InvalidInputException {
+        if (!session.isLoggedIn()) {
+            throw new InsufficientCommandPrivilegesException("You must be logged in to sync events.");
+        }
+
+        String inputVersion = ui.promptForInput("Enter the version of the last sync (or left empty for all events): ").trim();
+        if (inputVersion.isEmpty()) {
+            return new SyncEventsCommand(null);
+        }
+        try {
+            return new SyncEventsCommand(Long.parseLong(inputVersion));
+        } catch (NumberFormatException e) {
+            throw new InvalidInputException("Version is not a valid number: " + inputVersion);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+        return COMMAND_NAME;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getDescription() {
+        return "Displays the events which changed since the given version of the logged users calendar.";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Privileges getPrivileges() {
+        return Privileges.LOGGED;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <R, C> R accept(CommandVisitor<R, C> visitor, C session) {
+        return visitor.visit(this, session);
+    }
+
+    /**
+     * Returns the change version of the last sync.
+     *
+     * @return The version, null if the client knows no version
+     */
+    public Long getSinceVersion() {
+        return sinceVersion;
+    }
+}
@@ -0,0 +1,70 @@
+package cz.cuni.mff.danekji.calendar.core.commands;
+
+import cz.cuni.mff.danekji.calendar.core.exceptions.InsufficientCommandPrivilegesException;
+import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
+import cz.cuni.mff.danekji.calendar.core.client.ui.UserInterface;
+
+/**
+ * Command to cancel the subscription of the session to the changes of the logged user's calendar
+ *  (see {@link SubscribeCommand}).
+ */
+public final class UnsubscribeCommand implements Command {
+    /**
+     * The name of the command.
+     */
+    public static final String COMMAND_NAME = "unsubscribe";
+
+    /**
+     * The default constructor for the UnsubscribeCommand.
+     */
+    public UnsubscribeCommand() {}
+
+    /**
+     * The method builds the command by checking if the user is logged in.
+     *
+     * @param ui The user interface
+     * @param session The client session
+     * @return The {@link UnsubscribeCommand} command
+     * @throws InsufficientCommandPrivilegesException If the user is not logged in
+     */
+    @Override
+    public Command buildCommand(UserInterface ui, ClientSession session) throws InsufficientCommandPrivilegesException {
+        if (!session.isLoggedIn()) {
+            throw new InsufficientCommandPrivilegesException("You must be logged in to unsubscribe from the changes.");
+        }
+
+        return new UnsubscribeCommand();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+        return COMMAND_NAME;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getDescription() {
+        return "Stops the notifications about the changes of the logged users calendar.";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Privileges getPrivileges() {
+        return Privileges.LOGGED;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <R, C> R accept(CommandVisitor<R, C> visitor, C session) {
+        return visitor.visit(this, session);
+    }
+}
@@ -16,7 +16,7 @@ import java.time.format.DateTimeParseException;
  * This command allows the user to modify an existing event by providing its ID and new details,
  *  if details are not provided, the previous values are used.
  */
-public final class UpdateEventCommand implements Command {
+public final class UpdateEventCommand implements BatchOperation {
     /**
      * The name of the command.
      */
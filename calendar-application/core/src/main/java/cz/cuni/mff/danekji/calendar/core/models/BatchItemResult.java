@@ -0,0 +1,41 @@
+package cz.cuni.mff.danekji.calendar.core.models;
+
+import java.io.Serializable;
+
+/**
+ * The result of a single operation of a batch.
+ *
+ * @param eventId The ID of the added, updated or deleted event, null if the failed operation had no ID
+ * @param errorMessage The reason why the operation failed, null if it succeeded
+ */
+public record BatchItemResult(Long eventId, String errorMessage) implements Serializable {
+    /**
+     * Creates the result of a successful operation.
+     *
+     * @param eventId The ID of the added, updated or deleted event
+     * @return The successful result
+     */
+    public static BatchItemResult success(long eventId) {
+        return new BatchItemResult(eventId, null);
+    }
+
+    /**
+     * Creates the result of a failed operation.
+     *
+     * @param eventId The ID of the event the operation targeted, null if it had none
+     * @param errorMessage The reason why the operation failed
+     * @return The failed result
+     */
+    public static BatchItemResult failure(Long eventId, String errorMessage) {
+        return new BatchItemResult(eventId, errorMessage);
+    }
+
+    /**
+     * Checks whether the operation succeeded.
+     *
+     * @return true if the operation succeeded, false otherwise
+     */
+    public boolean isSuccess() {
+        return errorMessage == null;
+    }
+}
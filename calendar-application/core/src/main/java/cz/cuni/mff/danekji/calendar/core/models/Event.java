@@ -141,6 +141,15 @@ public final class Event implements Serializable {
         }
     }
 
+    /**
+     * Checks whether the event has an ID assigned (events created by the client before they are stored do not).
+     *
+     * @return true if the event has an ID.
+     */
+    public boolean hasId() {
+        return id != null;
+    }
+
     /**
      * Gets the ID of the event.
      *
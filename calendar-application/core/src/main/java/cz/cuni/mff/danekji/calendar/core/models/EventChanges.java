@@ -0,0 +1,28 @@
+package cz.cuni.mff.danekji.calendar.core.models;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The changes of a user's calendar since a known change version.
+ * A complete snapshot (see {@link #complete()}) replaces all the events known to the receiver,
+ *  otherwise the changed events replace the events with the same ID and the deleted events are removed.
+ *
+ * @param version The change version of the calendar including these changes, the next sync starts from it
+ * @param complete Whether the changes are a complete snapshot of the calendar, as the changes since
+ *  the requested version are no longer known
+ * @param changedEvents The events created or updated since the requested version (or all events of a snapshot)
+ * @param deletedEventIds The IDs of the events deleted since the requested version
+ */
+public record EventChanges(long version, boolean complete, List<Event> changedEvents, List<Long> deletedEventIds) implements Serializable {
+    /**
+     * Creates a complete snapshot of the calendar.
+     *
+     * @param version The change version of the calendar
+     * @param events All events of the calendar
+     * @return The snapshot
+     */
+    public static EventChanges snapshot(long version, List<Event> events) {
+        return new EventChanges(version, true, events, List.of());
+    }
+}
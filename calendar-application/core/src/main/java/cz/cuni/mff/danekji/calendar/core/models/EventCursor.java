@@ -0,0 +1,44 @@
+package cz.cuni.mff.danekji.calendar.core.models;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Continuation token of a paginated event list.
+ * The events are listed in the order of their date, time and ID, the cursor holds these of the last listed event,
+ *  so the next page starts right after it even if events were added or deleted in the meantime.
+ *
+ * @param date The date of the last listed event
+ * @param time The time of the last listed event
+ * @param eventId The ID of the last listed event
+ */
+public record EventCursor(LocalDate date, LocalTime time, long eventId) implements Serializable {
+    /**
+     * Creates the cursor pointing right after the given event.
+     *
+     * @param event The last listed event, with ID
+     * @return The cursor of the next page
+     */
+    public static EventCursor after(Event event) {
+        return new EventCursor(event.getDate(), event.getTime(), event.getId());
+    }
+
+    /**
+     * Checks whether the event is listed after the cursor, i.e. belongs to the page the cursor points to or a later one.
+     *
+     * @param event The event with ID
+     * @return true if the event is ordered after the cursor by its date, time and ID
+     */
+    public boolean precedes(Event event) {
+        int byDate = event.getDate().compareTo(date);
+        if (byDate != 0) {
+            return byDate > 0;
+        }
+        int byTime = event.getTime().compareTo(time);
+        if (byTime != 0) {
+            return byTime > 0;
+        }
+        return event.getId() > eventId;
+    }
+}
@@ -0,0 +1,14 @@
+package cz.cuni.mff.danekji.calendar.core.models;
+
+import java.io.Serializable;
+
+/**
+ * A single named value of the server statistics, e.g. the number of executed commands
+ *  or a percentile of their latency.
+ * The names are dot-separated paths (e.g. {@code command.show_events.p99_us}), the unit (if any) is the last suffix.
+ *
+ * @param name The name of the metric
+ * @param value The value of the metric at the time of the snapshot
+ */
+public record Metric(String name, long value) implements Serializable {
+}
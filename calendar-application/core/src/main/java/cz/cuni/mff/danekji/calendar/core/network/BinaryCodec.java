@@ -0,0 +1,738 @@
+package cz.cuni.mff.danekji.calendar.core.network;
+
+import cz.cuni.mff.danekji.calendar.core.commands.AddEventCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.BatchCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.BatchOperation;
+import cz.cuni.mff.danekji.calendar.core.commands.Command;
+import cz.cuni.mff.danekji.calendar.core.commands.CommandRegistry;
+import cz.cuni.mff.danekji.calendar.core.commands.CreateAccountCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.DeleteEventCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.DeleteUserCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.EventQueryCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.HelpCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.LoginCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.LogoutCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.QuitCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.ShowEventsCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.ShowFutureEventsCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.StatsCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.SubscribeCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.SyncEventsCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.UnsubscribeCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.UpdateEventCommand;
+import cz.cuni.mff.danekji.calendar.core.models.BatchItemResult;
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.EventChanges;
+import cz.cuni.mff.danekji.calendar.core.models.EventCursor;
+import cz.cuni.mff.danekji.calendar.core.models.Metric;
+import cz.cuni.mff.danekji.calendar.core.models.User;
+import cz.cuni.mff.danekji.calendar.core.responses.error.ErrorResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.push.EventsChangedNotification;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessBatchResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessDeleteUserResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessEventChangesResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessEventChunkResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessEventListResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessLoginResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessLogoutResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessQuit;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessStatsResponse;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hand-written binary codec of the messages exchanged by the client and the server.
+ * <p>
+ * Every message starts with a one-byte tag identifying its type followed by its fields. Event IDs, counts and
+ *  lengths are stored as variable-length integers (7 bits per byte), so small values take a single byte. Dates are
+ *  stored as epoch days, times as minutes of day (or nanos of day if they have seconds) and strings as their
+ *  UTF-8 length plus one (or {@code 0} for null) followed by the bytes. Optional event details are announced
+ *  by a presence bitmask, so partial events (e.g. of an update) cost only the present fields. Unlike Java serialization, no class descriptors are written and no reflection is used.
+ *  The codec is versioned by {@link #VERSION}, which is negotiated when the connection is established.
+ *  The messages are written in the negotiated version: the commands changed since it are written in their older encoding
+ *  and the messages the version does not support at all are refused, so a peer never receives a tag it cannot decode.
+ */
+public final class BinaryCodec {
+    /**
+     * The version of the codec. Changes of the encoding must increase it, the decoder reads all older versions.
+     */
+    public static final int VERSION = 8;
+
+    /**
+     * The first version supporting the {@link CorrelatedMessage}.
+     */
+    public static final int CORRELATION_VERSION = 2;
+
+    /**
+     * The first version supporting the {@link BatchCommand} and its {@link SuccessBatchResponse}.
+     */
+    public static final int BATCH_VERSION = 3;
+
+    /**
+     * The first version supporting the paginated and streamed event queries (see {@link EventQueryCommand}).
+     */
+    public static final int PAGING_VERSION = 4;
+
+    /**
+     * The first version supporting the {@link SyncEventsCommand} and its {@link SuccessEventChangesResponse}.
+     */
+    public static final int SYNC_VERSION = 5;
+
+    /**
+     * The first version supporting the subscriptions and the {@link EventsChangedNotification}.
+     */
+    public static final int PUSH_VERSION = 6;
+
+    /**
+     * The first version supporting the {@link StatsCommand} and its {@link SuccessStatsResponse}.
+     */
+    public static final int STATS_VERSION = 7;
+
+    /**
+     * The first version listing the commands of the {@link HelpCommand} by their names only.
+     */
+    public static final int HELP_NAMES_VERSION = 8;
+
+    private static final int SESSION_ID = 1;
+    private static final int CORRELATED = 2;
+    private static final int ADD_EVENT = 10;
+    private static final int CREATE_ACCOUNT = 11;
+    private static final int DELETE_EVENT = 12;
+    private static final int DELETE_USER = 13;
+    private static final int HELP = 14;
+    private static final int LOGIN = 15;
+    private static final int LOGOUT = 16;
+    private static final int QUIT = 17;
+    private static final int SHOW_EVENTS = 18;
+    private static final int SHOW_FUTURE_EVENTS = 19;
+    private static final int UPDATE_EVENT = 20;
+    private static final int BATCH = 21;
+    private static final int SHOW_EVENTS_PAGE = 22;
+    private static final int SHOW_FUTURE_EVENTS_PAGE = 23;
+    private static final int SYNC_EVENTS = 24;
+    private static final int SUBSCRIBE = 25;
+    private static final int UNSUBSCRIBE = 26;
+    private static final int STATS = 27;
+    private static final int HELP_NAMES = 28;
+    private static final int ERROR = 64;
+    private static final int SUCCESS = 65;
+    private static final int SUCCESS_DELETE_USER = 66;
+    private static final int SUCCESS_EVENT_LIST = 67;
+    private static final int SUCCESS_LOGIN = 68;
+    private static final int SUCCESS_LOGOUT = 69;
+    private static final int SUCCESS_QUIT = 70;
+    private static final int SUCCESS_BATCH = 71;
+    private static final int SUCCESS_EVENT_PAGE = 72;
+    private static final int SUCCESS_EVENT_CHUNK = 73;
+    private static final int SUCCESS_EVENT_CHANGES = 74;
+    private static final int EVENTS_CHANGED = 75;
+    private static final int SUCCESS_STATS = 76;
+
+    private static final int ID_PRESENT = 1;
+    private static final int TITLE_PRESENT = 1 << 1;
+    private static final int DATE_PRESENT = 1 << 2;
+    private static final int TIME_PRESENT = 1 << 3;
+    private static final int LOCATION_PRESENT = 1 << 4;
+    private static final int DESCRIPTION_PRESENT = 1 << 5;
+
+    private static final int NULL_STRING = 0;
+
+    private BinaryCodec() {
+    }
+
+    /**
+     * Writes the message (a session ID, a command or a response) in the current {@link #VERSION}.
+     *
+     * @param output The output to write into
+     * @param message The message to write
+     * @throws IOException if an I/O error occurs or the message type is not supported
+     */
+    public static void write(DataOutput output, Object message) throws IOException {
+        write(output, message, VERSION);
+    }
+
+    /**
+     * Writes the message (a session ID, a command or a response) in the given version, so the peer supporting
+     *  only that version can decode it.
+     *
+     * @param output The output to write into
+     * @param message The message to write
+     * @param version The codec version negotiated with the peer
+     * @throws IOException if an I/O error occurs or the message type is not supported (by the version)
+     */
+    public static void write(DataOutput output, Object message, int version) throws IOException {
+        switch (message) {
+            case Integer sessionId -> {
+                output.writeByte(SESSION_ID);
+                output.writeInt(sessionId);
+            }
+            case CorrelatedMessage correlated -> {
+                requireVersion(version, CORRELATION_VERSION, message);
+                output.writeByte(CORRELATED);
+                writeVarLong(output, correlated.requestId());
+                write(output, correlated.message(), version);
+            }
+            case AddEventCommand command -> {
+                output.writeByte(ADD_EVENT);
+                writeEvent(output, command.getEvent());
+            }
+            case CreateAccountCommand command -> {
+                output.writeByte(CREATE_ACCOUNT);
+                writeUser(output, command.getUser());
+            }
+            case DeleteEventCommand command -> {
+                output.writeByte(DELETE_EVENT);
+                output.writeBoolean(command.getEventId() != null);
+                if (command.getEventId() != null) {
+                    writeVarLong(output, command.getEventId());
+                }
+            }
+            case DeleteUserCommand command -> {
+                output.writeByte(DELETE_USER);
+                writeUser(output, command.getUser());
+            }
+            case HelpCommand command when version < HELP_NAMES_VERSION -> {
+                output.writeByte(HELP);
+                writeCommandRegistry(output, command.getAvailableCommands());
+            }
+            case HelpCommand command -> {
+                output.writeByte(HELP_NAMES);
+                writeCommandNames(output, command.getAvailableCommands());
+            }
+            case LoginCommand command -> {
+                output.writeByte(LOGIN);
+                writeUser(output, command.getUser());
+            }
+            case LogoutCommand ignored -> output.writeByte(LOGOUT);
+            case QuitCommand ignored -> output.writeByte(QUIT);
+            case ShowEventsCommand command -> {
+                if (isPaged(command)) {
+                    requireVersion(version, PAGING_VERSION, message);
+                }
+                output.writeByte(isPaged(command) ? SHOW_EVENTS_PAGE : SHOW_EVENTS);
+                if (isPaged(command)) {
+                    writePageQuery(output, command);
+                }
+            }
+            case ShowFutureEventsCommand command -> {
+                if (isPaged(command)) {
+                    requireVersion(version, PAGING_VERSION, message);
+                }
+                output.writeByte(isPaged(command) ? SHOW_FUTURE_EVENTS_PAGE : SHOW_FUTURE_EVENTS);
+                writeDate(output, command.getStartDate());
+                writeDate(output, command.getEndDate());
+                if (isPaged(command)) {
+                    writePageQuery(output, command);
+                }
+            }
+            case UpdateEventCommand command -> {
+                output.writeByte(UPDATE_EVENT);
+                writeEvent(output, command.getEvent());
+            }
+            case BatchCommand command -> {
+                requireVersion(version, BATCH_VERSION, message);
+                output.writeByte(BATCH);
+                writeVarLong(output, command.getOperations().size());
+                for (var operation : command.getOperations()) {
+                    write(output, operation, version);
+                }
+            }
+            case SyncEventsCommand command -> {
+                requireVersion(version, SYNC_VERSION, message);
+                output.writeByte(SYNC_EVENTS);
+                output.writeBoolean(command.getSinceVersion() != null);
+                if (command.getSinceVersion() != null) {
+                    writeVarLong(output, command.getSinceVersion());
+                }
+            }
+            case SubscribeCommand ignored -> {
+                requireVersion(version, PUSH_VERSION, message);
+                output.writeByte(SUBSCRIBE);
+            }
+            case UnsubscribeCommand ignored -> {
+                requireVersion(version, PUSH_VERSION, message);
+                output.writeByte(UNSUBSCRIBE);
+            }
+            case StatsCommand ignored -> {
+                requireVersion(version, STATS_VERSION, message);
+                output.writeByte(STATS);
+            }
+            case ErrorResponse response -> {
+                output.writeByte(ERROR);
+                writeString(output, response.errorMessage());
+            }
+            case SuccessResponse response -> {
+                output.writeByte(SUCCESS);
+                writeString(output, response.message());
+            }
+            case SuccessDeleteUserResponse response -> {
+                output.writeByte(SUCCESS_DELETE_USER);
+                writeString(output, response.message());
+            }
+            case SuccessEventListResponse response -> {
+                if (response.nextCursor() != null) {
+                    requireVersion(version, PAGING_VERSION, message);
+                }
+                output.writeByte(response.nextCursor() != null ? SUCCESS_EVENT_PAGE : SUCCESS_EVENT_LIST);
+                writeEvents(output, response.events());
+                if (response.nextCursor() != null) {
+                    writeCursor(output, response.nextCursor());
+                }
+            }
+            case SuccessEventChunkResponse response -> {
+                requireVersion(version, PAGING_VERSION, message);
+                output.writeByte(SUCCESS_EVENT_CHUNK);
+                writeEvents(output, response.events());
+                output.writeBoolean(response.last());
+            }
+            case SuccessLoginResponse response -> {
+                output.writeByte(SUCCESS_LOGIN);
+                writeString(output, response.message());
+                writeUser(output, response.user());
+            }
+            case SuccessLogoutResponse response -> {
+                output.writeByte(SUCCESS_LOGOUT);
+                writeString(output, response.message());
+            }
+            case SuccessQuit ignored -> output.writeByte(SUCCESS_QUIT);
+            case SuccessBatchResponse response -> {
+                requireVersion(version, BATCH_VERSION, message);
+                output.writeByte(SUCCESS_BATCH);
+                writeVarLong(output, response.results().size());
+                for (var result : response.results()) {
+                    writeBatchItemResult(output, result);
+                }
+            }
+            case SuccessEventChangesResponse response -> {
+                requireVersion(version, SYNC_VERSION, message);
+                output.writeByte(SUCCESS_EVENT_CHANGES);
+                writeEventChanges(output, response.changes());
+            }
+            case EventsChangedNotification notification -> {
+                requireVersion(version, PUSH_VERSION, message);
+                output.writeByte(EVENTS_CHANGED);
+                writeVarLong(output, notification.version());
+            }
+            case SuccessStatsResponse response -> {
+                requireVersion(version, STATS_VERSION, message);
+                output.writeByte(SUCCESS_STATS);
+                writeVarLong(output, response.metrics().size());
+                for (var metric : response.metrics()) {
+                    writeString(output, metric.name());
+                    output.writeLong(metric.value());
+                }
+            }
+            default -> throw new IOException("Unsupported message type: " + message.getClass().getName());
+        }
+    }
+
+    /**
+     * Refuses to write the message to a peer whose codec version does not support it yet.
+     */
+    private static void requireVersion(int version, int required, Object message) throws IOException {
+        if (version < required) {
+            throw new IOException("Message type " + message.getClass().getName() + " requires codec version " + required
+                    + ", the peer supports only version " + version);
+        }
+    }
+
+    /**
+     * Reads a message written by {@link #write(DataOutput, Object, int)} in any version.
+     *
+     * @param input The input to read from
+     * @return The message
+     * @throws IOException if an I/O error occurs or the message is malformed
+     */
+    public static Object read(DataInput input) throws IOException {
+        int tag = input.readUnsignedByte();
+        return switch (tag) {
+            case SESSION_ID -> input.readInt();
+            case CORRELATED -> readCorrelated(input);
+            case ADD_EVENT -> new AddEventCommand(readEvent(input));
+            case CREATE_ACCOUNT -> new CreateAccountCommand(readUser(input));
+            case DELETE_EVENT -> new DeleteEventCommand(input.readBoolean() ? readVarLong(input) : null);
+            case DELETE_USER -> new DeleteUserCommand(readUser(input));
+            case HELP -> new HelpCommand(readCommandRegistry(input));
+            case HELP_NAMES -> new HelpCommand(readCommandNames(input));
+            case LOGIN -> new LoginCommand(readUser(input));
+            case LOGOUT -> new LogoutCommand();
+            case QUIT -> new QuitCommand();
+            case SHOW_EVENTS -> new ShowEventsCommand();
+            case SHOW_FUTURE_EVENTS -> new ShowFutureEventsCommand(readDate(input), readDate(input));
+            case UPDATE_EVENT -> new UpdateEventCommand(readEvent(input));
+            case BATCH -> new BatchCommand(readBatchOperations(input));
+            case SHOW_EVENTS_PAGE -> readPageQuery(input, new ShowEventsCommand());
+            case SHOW_FUTURE_EVENTS_PAGE -> readPageQuery(input, new ShowFutureEventsCommand(readDate(input), readDate(input)));
+            case SYNC_EVENTS -> new SyncEventsCommand(input.readBoolean() ? readVarLong(input) : null);
+            case SUBSCRIBE -> new SubscribeCommand();
+            case UNSUBSCRIBE -> new UnsubscribeCommand();
+            case STATS -> new StatsCommand();
+            case ERROR -> new ErrorResponse(readString(input));
+            case SUCCESS -> new SuccessResponse(readString(input));
+            case SUCCESS_DELETE_USER -> new SuccessDeleteUserResponse(readString(input));
+            case SUCCESS_EVENT_LIST -> new SuccessEventListResponse(readEvents(input));
+            case SUCCESS_LOGIN -> new SuccessLoginResponse(readString(input), readUser(input));
+            case SUCCESS_LOGOUT -> new SuccessLogoutResponse(readString(input));
+            case SUCCESS_QUIT -> new SuccessQuit();
+            case SUCCESS_BATCH -> new SuccessBatchResponse(readBatchItemResults(input));
+            case SUCCESS_EVENT_PAGE -> new SuccessEventListResponse(readEvents(input), readCursor(input));
+            case SUCCESS_EVENT_CHUNK -> new SuccessEventChunkResponse(readEvents(input), input.readBoolean());
+            case SUCCESS_EVENT_CHANGES -> new SuccessEventChangesResponse(readEventChanges(input));
+            case EVENTS_CHANGED -> new EventsChangedNotification(readVarLong(input));
+            case SUCCESS_STATS -> new SuccessStatsResponse(readMetrics(input));
+            default -> throw new IOException("Unknown message tag: " + tag);
+        };
+    }
+
+    private static List<Metric> readMetrics(DataInput input) throws IOException {
+        int count = readCount(input);
+        List<Metric> metrics = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            metrics.add(new Metric(readString(input), input.readLong()));
+        }
+        return metrics;
+    }
+
+    private static CorrelatedMessage readCorrelated(DataInput input) throws IOException {
+        long requestId = readVarLong(input);
+        Object message = read(input);
+        if (message instanceof CorrelatedMessage) {
+            throw new IOException("Nested correlated message of request: " + requestId);
+        }
+        return new CorrelatedMessage(requestId, message);
+    }
+
+    private static List<BatchOperation> readBatchOperations(DataInput input) throws IOException {
+        int count = readCount(input);
+        List<BatchOperation> operations = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            if (!(read(input) instanceof BatchOperation operation)) {
+                throw new IOException("Unsupported operation in a batch");
+            }
+            operations.add(operation);
+        }
+        return operations;
+    }
+
+    private static void writeBatchItemResult(DataOutput output, BatchItemResult result) throws IOException {
+        output.writeBoolean(result.eventId() != null);
+        if (result.eventId() != null) {
+            writeVarLong(output, result.eventId());
+        }
+        writeString(output, result.errorMessage());
+    }
+
+    private static List<BatchItemResult> readBatchItemResults(DataInput input) throws IOException {
+        int count = readCount(input);
+        List<BatchItemResult> results = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            Long eventId = input.readBoolean() ? readVarLong(input) : null;
+            results.add(new BatchItemResult(eventId, readString(input)));
+        }
+        return results;
+    }
+
+    private static void writeEvent(DataOutput output, Event event) throws IOException {
+        int present = (event.hasId() ? ID_PRESENT : 0)
+                | (event.getTitle() != null ? TITLE_PRESENT : 0)
+                | (event.getDate() != null ? DATE_PRESENT : 0)
+                | (event.getTime() != null ? TIME_PRESENT : 0)
+                | (event.getLocation() != null ? LOCATION_PRESENT : 0)
+                | (event.getDescription() != null ? DESCRIPTION_PRESENT : 0);
+        output.writeByte(present);
+        if (event.hasId()) writeVarLong(output, event.getId());
+        if (event.getTitle() != null) writeString(output, event.getTitle());
+        if (event.getDate() != null) writeEpochDay(output, event.getDate());
+        if (event.getTime() != null) writeTime(output, event.getTime());
+        if (event.getLocation() != null) writeString(output, event.getLocation());
+        if (event.getDescription() != null) writeString(output, event.getDescription());
+    }
+
+    private static Event readEvent(DataInput input) throws IOException {
+        int present = input.readUnsignedByte();
+        Long id = (present & ID_PRESENT) != 0 ? readVarLong(input) : null;
+        String title = (present & TITLE_PRESENT) != 0 ? readString(input) : null;
+        try {
+            LocalDate date = (present & DATE_PRESENT) != 0 ? readEpochDay(input) : null;
+            LocalTime time = (present & TIME_PRESENT) != 0 ? readTime(input) : null;
+            String location = (present & LOCATION_PRESENT) != 0 ? readString(input) : null;
+            String description = (present & DESCRIPTION_PRESENT) != 0 ? readString(input) : null;
+
+            Event event = new Event(title, date, time, location, description);
+            return id != null ? Event.withId(id, event) : event;
+        } catch (DateTimeException e) {
+            throw new IOException("Invalid event date or time", e);
+        }
+    }
+
+    private static void writeEvents(DataOutput output, List<Event> events) throws IOException {
+        writeVarLong(output, events.size());
+        for (var event : events) {
+            writeEvent(output, event);
+        }
+    }
+
+    private static List<Event> readEvents(DataInput input) throws IOException {
+        int count = readCount(input);
+        List<Event> events = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            events.add(readEvent(input));
+        }
+        return events;
+    }
+
+    private static void writeEventChanges(DataOutput output, EventChanges changes) throws IOException {
+        writeVarLong(output, changes.version());
+        output.writeBoolean(changes.complete());
+        writeEvents(output, changes.changedEvents());
+        writeVarLong(output, changes.deletedEventIds().size());
+        for (long eventId : changes.deletedEventIds()) {
+            writeVarLong(output, eventId);
+        }
+    }
+
+    private static EventChanges readEventChanges(DataInput input) throws IOException {
+        long version = readVarLong(input);
+        boolean complete = input.readBoolean();
+        List<Event> changedEvents = readEvents(input);
+        int count = readCount(input);
+        List<Long> deletedEventIds = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            deletedEventIds.add(readVarLong(input));
+        }
+        return new EventChanges(version, complete, changedEvents, deletedEventIds);
+    }
+
+    private static boolean isPaged(EventQueryCommand command) {
+        return command.getLimit() != null || command.getAfter() != null || command.isStreamed();
+    }
+
+    /**
+     * Writes the limit (plus one, or {@code 0} for none), the optional cursor and the streaming flag of the query.
+     */
+    private static void writePageQuery(DataOutput output, EventQueryCommand command) throws IOException {
+        writeVarLong(output, command.getLimit() != null ? command.getLimit() + 1L : 0);
+        output.writeBoolean(command.getAfter() != null);
+        if (command.getAfter() != null) {
+            writeCursor(output, command.getAfter());
+        }
+        output.writeBoolean(command.isStreamed());
+    }
+
+    /**
+     * Reads the paging of a query written by {@link #writePageQuery(DataOutput, EventQueryCommand)}.
+     *
+     * @param input The input to read from
+     * @param query The query without paging
+     * @return The query with the paging applied
+     */
+    private static EventQueryCommand readPageQuery(DataInput input, EventQueryCommand query) throws IOException {
+        long encodedLimit = readVarLong(input);
+        if (encodedLimit < 0 || encodedLimit - 1 > Integer.MAX_VALUE) {
+            throw new IOException("Invalid page limit: " + (encodedLimit - 1));
+        }
+        Integer limit = encodedLimit == 0 ? null : (int) (encodedLimit - 1);
+        EventCursor after = input.readBoolean() ? readCursor(input) : null;
+        boolean streamed = input.readBoolean();
+        return switch (query) {
+            case ShowEventsCommand ignored -> new ShowEventsCommand(limit, after, streamed);
+            case ShowFutureEventsCommand command -> new ShowFutureEventsCommand(command.getStartDate(), command.getEndDate(), limit, after, streamed);
+        };
+    }
+
+    private static void writeCursor(DataOutput output, EventCursor cursor) throws IOException {
+        writeEpochDay(output, cursor.date());
+        writeTime(output, cursor.time());
+        writeVarLong(output, cursor.eventId());
+    }
+
+    private static EventCursor readCursor(DataInput input) throws IOException {
+        try {
+            return new EventCursor(readEpochDay(input), readTime(input), readVarLong(input));
+        } catch (DateTimeException e) {
+            throw new IOException("Invalid cursor date or time", e);
+        }
+    }
+
+    private static void writeUser(DataOutput output, User user) throws IOException {
+        output.writeBoolean(user != null);
+        if (user != null) {
+            writeString(output, user.username());
+            output.writeInt(user.passwordHash());
+        }
+    }
+
+    private static User readUser(DataInput input) throws IOException {
+        if (!input.readBoolean()) {
+            return null;
+        }
+        String username = readString(input);
+        return new User(username, input.readInt());
+    }
+
+    private static void writeDate(DataOutput output, LocalDate date) throws IOException {
+        output.writeBoolean(date != null);
+        if (date != null) {
+            writeEpochDay(output, date);
+        }
+    }
+
+    private static LocalDate readDate(DataInput input) throws IOException {
+        if (!input.readBoolean()) {
+            return null;
+        }
+        try {
+            return readEpochDay(input);
+        } catch (DateTimeException e) {
+            throw new IOException("Invalid date", e);
+        }
+    }
+
+    private static void writeEpochDay(DataOutput output, LocalDate date) throws IOException {
+        long epochDay = date.toEpochDay();
+        writeVarLong(output, (epochDay << 1) ^ (epochDay >> 63)); // zig-zag, so dates before 1970 stay short
+    }
+
+    private static LocalDate readEpochDay(DataInput input) throws IOException {
+        long zigZag = readVarLong(input);
+        return LocalDate.ofEpochDay((zigZag >>> 1) ^ -(zigZag & 1));
+    }
+
+    /**
+     * Writes the time as a minute of day shifted left by one bit, or as a nano of day with the lowest bit set
+     *  if the time has seconds, so no time is ever rounded.
+     */
+    private static void writeTime(DataOutput output, LocalTime time) throws IOException {
+        if (time.getSecond() == 0 && time.getNano() == 0) {
+            writeVarLong(output, (long) (time.getHour() * 60 + time.getMinute()) << 1);
+        } else {
+            writeVarLong(output, (time.toNanoOfDay() << 1) | 1);
+        }
+    }
+
+    private static LocalTime readTime(DataInput input) throws IOException {
+        long value = readVarLong(input);
+        if ((value & 1) != 0) {
+            return LocalTime.ofNanoOfDay(value >>> 1);
+        }
+        long minuteOfDay = value >>> 1;
+        return LocalTime.of((int) (minuteOfDay / 60), (int) (minuteOfDay % 60));
+    }
+
+    private static void writeCommandNames(DataOutput output, Map<String, Class<? extends Command>> commands) throws IOException {
+        writeVarLong(output, commands.size());
+        for (var name : commands.keySet()) {
+            writeString(output, name);
+        }
+    }
+
+    /**
+     * Writes the commands in the encoding of the versions before {@link #HELP_NAMES_VERSION}, as their names and class names.
+     */
+    private static void writeCommandRegistry(DataOutput output, Map<String, Class<? extends Command>> commands) throws IOException {
+        writeVarLong(output, commands.size());
+        for (var command : commands.entrySet()) {
+            writeString(output, command.getKey());
+            writeString(output, command.getValue().getName());
+        }
+    }
+
+    /**
+     * Reads the names of the commands and resolves them by the {@link CommandRegistry}, the unknown ones are skipped.
+     */
+    private static Map<String, Class<? extends Command>> readCommandNames(DataInput input) throws IOException {
+        int count = readCount(input);
+        Map<String, Class<? extends Command>> commands = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            resolveCommand(commands, readString(input));
+        }
+        return commands;
+    }
+
+    /**
+     * Reads the commands written by the versions before {@link #HELP_NAMES_VERSION} as their names and class names.
+     * The class names are ignored, the commands are resolved by their names only, so no class named by the peer is loaded.
+     */
+    private static Map<String, Class<? extends Command>> readCommandRegistry(DataInput input) throws IOException {
+        int count = readCount(input);
+        Map<String, Class<? extends Command>> commands = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String name = readString(input);
+            readString(input); // the class name
+            resolveCommand(commands, name);
+        }
+        return commands;
+    }
+
+    private static void resolveCommand(Map<String, Class<? extends Command>> commands, String name) {
+        var commandClass = CommandRegistry.lookup(name);
+        if (commandClass != null) {
+            commands.put(name, commandClass);
+        }
+    }
+
+    private static void writeString(DataOutput output, String value) throws IOException {
+        if (value == null) {
+            writeVarLong(output, NULL_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(output, bytes.length + 1L);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInput input) throws IOException {
+        long encodedLength = readVarLong(input);
+        if (encodedLength == NULL_STRING) {
+            return null;
+        }
+        if (encodedLength < 0 || encodedLength - 1 > FrameCodec.MAX_PAYLOAD_BYTES) {
+            throw new IOException("Invalid string length: " + (encodedLength - 1));
+        }
+        byte[] bytes = new byte[(int) (encodedLength - 1)];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readCount(DataInput input) throws IOException {
+        long count = readVarLong(input);
+        if (count < 0 || count > FrameCodec.MAX_PAYLOAD_BYTES) {
+            throw new IOException("Invalid number of items: " + count);
+        }
+        return (int) count;
+    }
+
+    /**
+     * Writes the value in 7-bit groups, least significant first, the highest bit of a byte marks that more follow.
+     */
+    private static void writeVarLong(DataOutput output, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInput input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+}
@@ -0,0 +1,21 @@
+package cz.cuni.mff.danekji.calendar.core.network;
+
+import java.io.Serializable;
+
+/**
+ * A command or a response tagged with the ID of the request it belongs to.
+ * <p>
+ * A client pipelining its commands wraps each of them with a new request ID and the server wraps the response
+ *  with the same ID, so the responses can be matched even if the server answers them out of order.
+ *  The notifications pushed by the server without a request are tagged with the {@link #PUSH_REQUEST_ID}.
+ *  Supported since the version {@link BinaryCodec#CORRELATION_VERSION} of the binary codec.
+ *
+ * @param requestId The ID of the request, unique within the connection
+ * @param message The wrapped command or response
+ */
+public record CorrelatedMessage(long requestId, Object message) implements Serializable {
+    /**
+     * The request ID of the notifications pushed by the server, the clients never use it for their requests.
+     */
+    public static final long PUSH_REQUEST_ID = 0;
+}
@@ -0,0 +1,153 @@
+package cz.cuni.mff.danekji.calendar.core.network;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Codec of the length-prefixed frames exchanged by the framed transports.
+ * <p>
+ * Every frame is the length of its payload (a 4-byte big-endian integer) followed by the payload,
+ *  which is the codec version of its {@link WireProtocol} (one byte) and a single encoded message (the session ID,
+ *  a command or a response). Each payload is self-contained and names its own protocol, so the receiver
+ *  can buffer a complete frame without blocking, decode it on any thread and answer in the same protocol.
+ */
+public final class FrameCodec {
+    /**
+     * The size of the frame header (the payload length) in bytes.
+     */
+    public static final int HEADER_BYTES = Integer.BYTES;
+
+    /**
+     * The maximum size of a frame payload in bytes, larger frames are rejected as malformed.
+     */
+    public static final int MAX_PAYLOAD_BYTES = 16 * 1024 * 1024;
+
+    private FrameCodec() {
+    }
+
+    /**
+     * Encodes the message into a complete frame (header and payload).
+     *
+     * @param message The message to encode
+     * @param protocol The protocol encoding the message
+     * @return The frame
+     * @throws IOException if the message cannot be encoded or is too large
+     */
+    public static byte[] encode(Object message, WireProtocol protocol) throws IOException {
+        var frame = new ByteArrayOutputStream();
+        frame.write(new byte[HEADER_BYTES]); // placeholder for the payload length
+        frame.write(protocol.codecVersion());
+        if (protocol.isBinary()) {
+            BinaryCodec.write(new DataOutputStream(frame), message, protocol.codecVersion());
+        } else {
+            try (var output = new ObjectOutputStream(frame)) {
+                output.writeObject(message);
+            }
+        }
+
+        byte[] bytes = frame.toByteArray();
+        int length = checkPayloadLength(bytes.length - HEADER_BYTES);
+        bytes[0] = (byte) (length >>> 24);
+        bytes[1] = (byte) (length >>> 16);
+        bytes[2] = (byte) (length >>> 8);
+        bytes[3] = (byte) length;
+        return bytes;
+    }
+
+    /**
+     * Gets the protocol of a frame payload (without the header).
+     *
+     * @param payload The payload of the frame
+     * @return The protocol the message is encoded in
+     * @throws IOException if the protocol is not supported
+     */
+    public static WireProtocol protocolOf(byte[] payload) throws IOException {
+        return WireProtocol.ofCodecVersion(codecVersionOf(payload));
+    }
+
+    /**
+     * Gets the codec version of a frame payload (without the header).
+     * The peer encodes its messages in the highest version it supports, so the version tells its capabilities.
+     *
+     * @param payload The payload of the frame
+     * @return The codec version, {@code 0} for Java serialization
+     */
+    public static int codecVersionOf(byte[] payload) {
+        return payload[0];
+    }
+
+    /**
+     * Decodes the message from a frame payload (without the header).
+     *
+     * @param payload The payload of the frame
+     * @return The decoded message
+     * @throws IOException if the payload is malformed
+     * @throws ClassNotFoundException if the class of a serialized message is unknown
+     */
+    public static Object decode(byte[] payload) throws IOException, ClassNotFoundException {
+        var body = new ByteArrayInputStream(payload, 1, payload.length - 1);
+        if (protocolOf(payload).isBinary()) {
+            return BinaryCodec.read(new DataInputStream(body));
+        }
+        try (var input = new ObjectInputStream(body)) {
+            return input.readObject();
+        }
+    }
+
+    /**
+     * Writes the message as a single frame. The output is not flushed.
+     *
+     * @param output The output to write into
+     * @param message The message to write
+     * @param protocol The protocol encoding the message
+     * @throws IOException if an I/O error occurs or the message cannot be encoded
+     */
+    public static void writeFrame(DataOutputStream output, Object message, WireProtocol protocol) throws IOException {
+        output.write(encode(message, protocol));
+    }
+
+    /**
+     * Reads a single frame and decodes its message, blocking until the whole frame is received.
+     *
+     * @param input The input to read from
+     * @return The decoded message
+     * @throws IOException if an I/O error occurs, the stream ends or the frame is malformed
+     * @throws ClassNotFoundException if the class of the object is unknown
+     */
+    public static Object readFrame(DataInputStream input) throws IOException, ClassNotFoundException {
+        return decode(readPayload(input));
+    }
+
+    /**
+     * Reads a single frame without decoding it, blocking until the whole frame is received.
+     *
+     * @param input The input to read from
+     * @return The payload of the frame (without the header)
+     * @throws IOException if an I/O error occurs, the stream ends or the frame header is malformed
+     */
+    public static byte[] readPayload(DataInputStream input) throws IOException {
+        int length = checkPayloadLength(input.readInt());
+        byte[] payload = new byte[length];
+        input.readFully(payload);
+        return payload;
+    }
+
+    /**
+     * Checks that the payload length read from (or written into) a frame header is valid.
+     *
+     * @param length The payload length
+     * @return The same length
+     * @throws IOException if the length is not positive or exceeds {@link #MAX_PAYLOAD_BYTES}
+     */
+    public static int checkPayloadLength(int length) throws IOException {
+        if (length <= 0 || length > MAX_PAYLOAD_BYTES) {
+            throw new IOException("Invalid frame payload length: " + length);
+        }
+        return length;
+    }
+}
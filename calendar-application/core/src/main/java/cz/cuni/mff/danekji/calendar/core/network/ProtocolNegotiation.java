@@ -0,0 +1,23 @@
+package cz.cuni.mff.danekji.calendar.core.network;
+
+import java.io.Serializable;
+
+/**
+ * The message negotiating the {@link WireProtocol} of an object stream connection.
+ * <p>
+ * After receiving its session ID, the client sends the highest codec version it supports and the server answers
+ *  with the version both sides use from then on. A client which sends a command instead is served
+ *  with Java serialization, so the clients without negotiation keep working.
+ *
+ * @param codecVersion The offered (or accepted) codec version, {@code 0} stands for Java serialization.
+ */
+public record ProtocolNegotiation(int codecVersion) implements Serializable {
+    /**
+     * Creates the server's answer to this offer.
+     *
+     * @return The negotiation with the highest codec version supported by both sides
+     */
+    public ProtocolNegotiation accept() {
+        return new ProtocolNegotiation(Math.max(0, Math.min(codecVersion, BinaryCodec.VERSION)));
+    }
+}
@@ -0,0 +1,112 @@
+package cz.cuni.mff.danekji.calendar.core.network;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+
+/**
+ * The encoding of the messages exchanged over a connection, chosen by the {@link ProtocolNegotiation}.
+ * Both protocols are carried by the same object streams, the binary one uses only their primitive data methods.
+ * <p>
+ * There is a single instance per codec version, so the protocols can be compared by identity:
+ *  {@link #SERIALIZATION}, {@link #BINARY} of the current version and the binary protocols of the older versions
+ *  (see {@link #ofCodecVersion(int)}), which write the messages so the peers of those versions can decode them.
+ */
+public final class WireProtocol {
+    /**
+     * Java serialization of the message objects, used with the clients which do not negotiate.
+     * An object stream is reset after every message, otherwise its handle table would keep every message
+     *  ever sent (and, on the other side, received) reachable for the whole connection.
+     */
+    public static final WireProtocol SERIALIZATION = new WireProtocol(0);
+
+    private static final WireProtocol[] BINARY_VERSIONS = new WireProtocol[BinaryCodec.VERSION + 1];
+
+    static {
+        for (int version = 1; version <= BinaryCodec.VERSION; version++) {
+            BINARY_VERSIONS[version] = new WireProtocol(version);
+        }
+    }
+
+    /**
+     * The compact {@link BinaryCodec} in its current version.
+     */
+    public static final WireProtocol BINARY = BINARY_VERSIONS[BinaryCodec.VERSION];
+
+    private final int codecVersion;
+
+    private WireProtocol(int codecVersion) {
+        this.codecVersion = codecVersion;
+    }
+
+    /**
+     * Gets the codec version identifying the protocol in the negotiation and in the frames.
+     *
+     * @return {@code 0} for Java serialization, otherwise the version of the binary codec
+     */
+    public int codecVersion() {
+        return codecVersion;
+    }
+
+    /**
+     * Checks whether the messages are encoded by the {@link BinaryCodec} (of any version).
+     *
+     * @return true for the binary protocols, false for Java serialization
+     */
+    public boolean isBinary() {
+        return codecVersion != SERIALIZATION.codecVersion;
+    }
+
+    /**
+     * Finds the protocol of the given codec version.
+     *
+     * @param codecVersion The codec version
+     * @return The protocol, the binary one writes the messages in the given version and reads all versions
+     * @throws IOException if the version is not supported
+     */
+    public static WireProtocol ofCodecVersion(int codecVersion) throws IOException {
+        if (codecVersion == SERIALIZATION.codecVersion) {
+            return SERIALIZATION;
+        }
+        if (codecVersion >= 1 && codecVersion <= BinaryCodec.VERSION) {
+            return BINARY_VERSIONS[codecVersion];
+        }
+        throw new IOException("Unsupported codec version: " + codecVersion);
+    }
+
+    /**
+     * Writes the message. The output is not flushed.
+     *
+     * @param output The output to write into
+     * @param message The message (a session ID, a command or a response)
+     * @throws IOException if an I/O error occurs or the message cannot be encoded (in the codec version)
+     */
+    public void write(ObjectOutput output, Object message) throws IOException {
+        if (isBinary()) {
+            BinaryCodec.write(output, message, codecVersion);
+            return;
+        }
+        output.writeObject(message);
+        if (output instanceof ObjectOutputStream stream) {
+            stream.reset();
+        }
+    }
+
+    /**
+     * Reads a single message.
+     *
+     * @param input The input to read from
+     * @return The message
+     * @throws IOException if an I/O error occurs or the message is malformed
+     * @throws ClassNotFoundException if the class of a serialized message is unknown
+     */
+    public Object read(ObjectInput input) throws IOException, ClassNotFoundException {
+        return isBinary() ? BinaryCodec.read(input) : input.readObject();
+    }
+
+    @Override
+    public String toString() {
+        return isBinary() ? "BINARY(" + codecVersion + ")" : "SERIALIZATION";
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * Contains the wire format shared by the client and the server.
+ * This package includes the FrameCodec, which splits the exchanged commands and responses into length-prefixed frames.
+ */
+package cz.cuni.mff.danekji.calendar.core.network;
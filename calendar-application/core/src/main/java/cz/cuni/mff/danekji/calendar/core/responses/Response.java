@@ -20,4 +20,14 @@ public interface Response extends Serializable {
      * @throws IOException if an I/O error occurs (displaying the response)
      */
     <R, S> R accept(ResponseVisitor<R, S> visitor, S session) throws IOException;
+
+    /**
+     * Returns whether the response is only a part of the answer to a streamed command
+     *  and more responses to the same command follow.
+     *
+     * @return true if more responses to the same command follow, false for the final response
+     */
+    default boolean isPartial() {
+        return false;
+    }
 }
@@ -2,6 +2,7 @@ package cz.cuni.mff.danekji.calendar.core.responses;
 
 import cz.cuni.mff.danekji.calendar.core.commands.QuitCommand;
 import cz.cuni.mff.danekji.calendar.core.responses.error.ErrorResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.push.EventsChangedNotification;
 import cz.cuni.mff.danekji.calendar.core.responses.success.*;
 
 import java.io.IOException;
@@ -81,4 +82,54 @@ public interface ResponseVisitor<R, S> {
      * @throws IOException if an I/O error occurs
      */
     R visit(SuccessDeleteUserResponse response, S session) throws IOException;
+
+    /**
+     * Successful batch response handle presentation of the result of every operation to user
+     *
+     * @param response The {@link SuccessBatchResponse} to be processed
+     * @param session  The client session to be give a context
+     * @return The result of processing the response (in this case Void)
+     * @throws IOException if an I/O error occurs
+     */
+    R visit(SuccessBatchResponse response, S session) throws IOException;
+
+    /**
+     * Successful event chunk response handle presentation of a part of a streamed event list to user
+     *
+     * @param response The {@link SuccessEventChunkResponse} to be processed
+     * @param session  The client session to be give a context
+     * @return The result of processing the response (in this case Void)
+     * @throws IOException if an I/O error occurs
+     */
+    R visit(SuccessEventChunkResponse response, S session) throws IOException;
+
+    /**
+     * Successful event changes response handle presentation of the changes of the calendar to user
+     *
+     * @param response The {@link SuccessEventChangesResponse} to be processed
+     * @param session  The client session to be give a context
+     * @return The result of processing the response (in this case Void)
+     * @throws IOException if an I/O error occurs
+     */
+    R visit(SuccessEventChangesResponse response, S session) throws IOException;
+
+    /**
+     * Pushed notification handle presentation of a change of the calendar made by another session to user
+     *
+     * @param response The {@link EventsChangedNotification} to be processed
+     * @param session  The client session to be give a context
+     * @return The result of processing the response (in this case Void)
+     * @throws IOException if an I/O error occurs
+     */
+    R visit(EventsChangedNotification response, S session) throws IOException;
+
+    /**
+     * Successful statistics response handle presentation of the statistics of the server to user
+     *
+     * @param response The {@link SuccessStatsResponse} to be processed
+     * @param session  The client session to be give a context
+     * @return The result of processing the response (in this case Void)
+     * @throws IOException if an I/O error occurs
+     */
+    R visit(SuccessStatsResponse response, S session) throws IOException;
 }
@@ -0,0 +1,25 @@
+package cz.cuni.mff.danekji.calendar.core.responses.push;
+
+import cz.cuni.mff.danekji.calendar.core.responses.Response;
+import cz.cuni.mff.danekji.calendar.core.responses.ResponseVisitor;
+
+import java.io.IOException;
+
+/**
+ * Represents the notification pushed to the sessions subscribed to a calendar once another session changed it.
+ * The notification carries just the new change version, the subscriber syncs the changed events itself
+ *  (see {@link cz.cuni.mff.danekji.calendar.core.commands.SyncEventsCommand}). Notifications of quickly following
+ *  changes may be coalesced into a single one with the latest version.
+ *
+ * @param version The change version of the calendar after the change.
+ */
+public record EventsChangedNotification(long version) implements Response {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <R, S> R accept(ResponseVisitor<R, S> visitor, S session) throws IOException {
+        return visitor.visit(this, session);
+    }
+}
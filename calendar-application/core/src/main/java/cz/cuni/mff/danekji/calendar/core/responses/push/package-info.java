@@ -0,0 +1,6 @@
+/**
+ * Contains the notifications pushed by the server without a request.
+ * This package includes the EventsChangedNotification, which tells the sessions subscribed to a calendar
+ * that it was changed by another session.
+ */
+package cz.cuni.mff.danekji.calendar.core.responses.push;
\ No newline at end of file
@@ -0,0 +1,25 @@
+package cz.cuni.mff.danekji.calendar.core.responses.success;
+
+import cz.cuni.mff.danekji.calendar.core.models.BatchItemResult;
+import cz.cuni.mff.danekji.calendar.core.responses.Response;
+import cz.cuni.mff.danekji.calendar.core.responses.ResponseVisitor;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Represents the response to a batch of event operations.
+ * The batch was applied, but every single operation may have succeeded or failed on its own.
+ *
+ * @param results The results of the operations, in the order of the operations in the batch.
+ */
+public record SuccessBatchResponse(List<BatchItemResult> results) implements Response {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <R, S> R accept(ResponseVisitor<R, S> visitor, S session) throws IOException {
+        return visitor.visit(this, session);
+    }
+}
@@ -0,0 +1,23 @@
+package cz.cuni.mff.danekji.calendar.core.responses.success;
+
+import cz.cuni.mff.danekji.calendar.core.models.EventChanges;
+import cz.cuni.mff.danekji.calendar.core.responses.Response;
+import cz.cuni.mff.danekji.calendar.core.responses.ResponseVisitor;
+
+import java.io.IOException;
+
+/**
+ * Represents the response to a sync of the events, carrying the changes of the calendar since the requested version.
+ *
+ * @param changes The changes (or a complete snapshot) of the calendar and its new change version.
+ */
+public record SuccessEventChangesResponse(EventChanges changes) implements Response {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <R, S> R accept(ResponseVisitor<R, S> visitor, S session) throws IOException {
+        return visitor.visit(this, session);
+    }
+}
@@ -0,0 +1,35 @@
+package cz.cuni.mff.danekji.calendar.core.responses.success;
+
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.responses.Response;
+import cz.cuni.mff.danekji.calendar.core.responses.ResponseVisitor;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Represents a single chunk of the events listed by a streamed query.
+ * The chunks are sent in the order of the events, every chunk but the last is a partial response,
+ *  so the client can render the events as they arrive.
+ *
+ * @param events The events of the chunk.
+ * @param last Whether this is the final chunk of the query.
+ */
+public record SuccessEventChunkResponse(List<Event> events, boolean last) implements Response {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isPartial() {
+        return !last;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <R, S> R accept(ResponseVisitor<R, S> visitor, S session) throws IOException {
+        return visitor.visit(this, session);
+    }
+}
@@ -1,6 +1,7 @@
 package cz.cuni.mff.danekji.calendar.core.responses.success;
 
 import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.EventCursor;
 import cz.cuni.mff.danekji.calendar.core.responses.Response;
 import cz.cuni.mff.danekji.calendar.core.responses.ResponseVisitor;
 
@@ -10,10 +11,21 @@ import java.util.List;
 /**
  * Represents a successful response containing a list of events.
  * This response is used when the client requests a list of events from the server.
+ * If the events were requested page by page, the response holds a single page and the cursor of the next one.
  *
  * @param events The list of events returned in the response.
+ * @param nextCursor The cursor of the next page, null if there are no more events (or all were requested at once).
  */
-public record SuccessEventListResponse(List<Event> events) implements Response {
+public record SuccessEventListResponse(List<Event> events, EventCursor nextCursor) implements Response {
+
+    /**
+     * Constructor for the response holding all the requested events.
+     *
+     * @param events The list of events returned in the response.
+     */
+    public SuccessEventListResponse(List<Event> events) {
+        this(events, null);
+    }
 
     /**
      * {@inheritDoc}
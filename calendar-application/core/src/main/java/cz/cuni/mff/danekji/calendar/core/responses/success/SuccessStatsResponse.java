@@ -0,0 +1,24 @@
+package cz.cuni.mff.danekji.calendar.core.responses.success;
+
+import cz.cuni.mff.danekji.calendar.core.models.Metric;
+import cz.cuni.mff.danekji.calendar.core.responses.Response;
+import cz.cuni.mff.danekji.calendar.core.responses.ResponseVisitor;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Represents the response to the statistics request, carrying a snapshot of the server metrics.
+ *
+ * @param metrics The metrics of the server, ordered by their name.
+ */
+public record SuccessStatsResponse(List<Metric> metrics) implements Response {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <R, S> R accept(ResponseVisitor<R, S> visitor, S session) throws IOException {
+        return visitor.visit(this, session);
+    }
+}
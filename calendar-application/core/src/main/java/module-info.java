@@ -15,8 +15,10 @@ module cz.cuni.mff.danekji.calendar.core {
     exports cz.cuni.mff.danekji.calendar.core.xml;
     exports cz.cuni.mff.danekji.calendar.core.responses.error;
     exports cz.cuni.mff.danekji.calendar.core.responses.success;
+    exports cz.cuni.mff.danekji.calendar.core.responses.push;
     exports cz.cuni.mff.danekji.calendar.core.client.ui;
     exports cz.cuni.mff.danekji.calendar.core.client.session;
+    exports cz.cuni.mff.danekji.calendar.core.network;
 
     opens cz.cuni.mff.danekji.calendar.core.commands;
     exports cz.cuni.mff.danekji.calendar.core.client;
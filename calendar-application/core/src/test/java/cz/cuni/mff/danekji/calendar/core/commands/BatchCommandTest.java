@@ -0,0 +1,57 @@
+package cz.cuni.mff.danekji.calendar.core.commands;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
+import cz.cuni.mff.danekji.calendar.core.client.ui.UserInterface;
+import cz.cuni.mff.danekji.calendar.core.exceptions.InsufficientCommandPrivilegesException;
+import cz.cuni.mff.danekji.calendar.core.exceptions.client.InvalidInputException;
+
+public class BatchCommandTest {
+
+    @Test
+    public void buildCommand_collectsOperationsUntilEmptyInput() throws Exception {
+        // arrange
+        UserInterface mockUI = mock(UserInterface.class);
+        ClientSession mockSession = mock(ClientSession.class);
+        when(mockSession.isLoggedIn()).thenReturn(true);
+        when(mockUI.promptForInput(anyString())).thenReturn(
+                "delete_event", "4",
+                "add_event", "Party", "2023-12-31", "20:00", "Home", "",
+                "");
+
+        // act
+        BatchCommand command = (BatchCommand) new BatchCommand().buildCommand(mockUI, mockSession);
+
+        // assert
+        assertEquals(2, command.getOperations().size());
+        assertEquals(4L, ((DeleteEventCommand) command.getOperations().get(0)).getEventId());
+        assertEquals("Party", ((AddEventCommand) command.getOperations().get(1)).getEvent().getTitle());
+    }
+
+    @Test
+    public void buildCommand_failsIfNotLoggedIn() {
+        // arrange
+        UserInterface mockUI = mock(UserInterface.class);
+        ClientSession mockSession = mock(ClientSession.class);
+        when(mockSession.isLoggedIn()).thenReturn(false);
+
+        // act & assert
+        assertThrows(InsufficientCommandPrivilegesException.class, () ->
+                new BatchCommand().buildCommand(mockUI, mockSession));
+    }
+
+    @Test
+    public void buildCommand_throwsInvalidInputForUnknownOperation() throws Exception {
+        // arrange
+        UserInterface mockUI = mock(UserInterface.class);
+        ClientSession mockSession = mock(ClientSession.class);
+        when(mockSession.isLoggedIn()).thenReturn(true);
+        when(mockUI.promptForInput(anyString())).thenReturn("logout");
+
+        // act & assert
+        assertThrows(InvalidInputException.class, () ->
+                new BatchCommand().buildCommand(mockUI, mockSession));
+    }
+}
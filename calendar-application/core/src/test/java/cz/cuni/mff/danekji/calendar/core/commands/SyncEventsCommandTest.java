@@ -0,0 +1,45 @@
+package cz.cuni.mff.danekji.calendar.core.commands;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
+import cz.cuni.mff.danekji.calendar.core.client.ui.UserInterface;
+import cz.cuni.mff.danekji.calendar.core.exceptions.InsufficientCommandPrivilegesException;
+import cz.cuni.mff.danekji.calendar.core.exceptions.client.InvalidInputException;
+
+public class SyncEventsCommandTest {
+
+    @Test
+    public void buildCommand_createsCommandWithVersionOrWithoutIt() throws Exception {
+        // arrange
+        UserInterface mockUI = mock(UserInterface.class);
+        ClientSession mockSession = mock(ClientSession.class);
+        when(mockSession.isLoggedIn()).thenReturn(true);
+        when(mockUI.promptForInput(anyString())).thenReturn("1700000000000000", "");
+
+        // act
+        SyncEventsCommand sinceVersion = (SyncEventsCommand) new SyncEventsCommand().buildCommand(mockUI, mockSession);
+        SyncEventsCommand complete = (SyncEventsCommand) new SyncEventsCommand().buildCommand(mockUI, mockSession);
+
+        // assert
+        assertEquals(1700000000000000L, sinceVersion.getSinceVersion());
+        assertNull(complete.getSinceVersion(), "Empty version should request all events");
+    }
+
+    @Test
+    public void buildCommand_failsIfNotLoggedInOrVersionIsInvalid() throws Exception {
+        // arrange
+        UserInterface mockUI = mock(UserInterface.class);
+        ClientSession unlogged = mock(ClientSession.class);
+        ClientSession logged = mock(ClientSession.class);
+        when(logged.isLoggedIn()).thenReturn(true);
+        when(mockUI.promptForInput(anyString())).thenReturn("yesterday");
+
+        // act & assert
+        assertThrows(InsufficientCommandPrivilegesException.class, () ->
+                new SyncEventsCommand().buildCommand(mockUI, unlogged));
+        assertThrows(InvalidInputException.class, () ->
+                new SyncEventsCommand().buildCommand(mockUI, logged));
+    }
+}
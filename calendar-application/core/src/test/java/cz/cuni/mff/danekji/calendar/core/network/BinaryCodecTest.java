@@ -0,0 +1,299 @@
+package cz.cuni.mff.danekji.calendar.core.network;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import cz.cuni.mff.danekji.calendar.core.commands.*;
+import cz.cuni.mff.danekji.calendar.core.models.BatchItemResult;
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.EventChanges;
+import cz.cuni.mff.danekji.calendar.core.models.EventCursor;
+import cz.cuni.mff.danekji.calendar.core.models.Metric;
+import cz.cuni.mff.danekji.calendar.core.models.User;
+import cz.cuni.mff.danekji.calendar.core.responses.error.ErrorResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.push.EventsChangedNotification;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessBatchResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessEventChangesResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessEventChunkResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessEventListResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessLoginResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessQuit;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessStatsResponse;
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class BinaryCodecTest {
+
+    private static Object roundTrip(Object message) throws Exception {
+        var bytes = new ByteArrayOutputStream();
+        BinaryCodec.write(new DataOutputStream(bytes), message);
+        return BinaryCodec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    @Test
+    public void read_decodesCommands() throws Exception {
+        // arrange
+        User user = new User("alice", 123);
+        Event partialEvent = Event.withId(7L, new Event("Renamed", null, null, null, null));
+
+        // act
+        var login = (LoginCommand) roundTrip(new LoginCommand(user));
+        var update = (UpdateEventCommand) roundTrip(new UpdateEventCommand(partialEvent));
+        var add = (AddEventCommand) roundTrip(new AddEventCommand(new Event("Party", LocalDate.of(2023, 12, 31), LocalTime.of(20, 0), "Home", "")));
+        var delete = (DeleteEventCommand) roundTrip(new DeleteEventCommand(3L));
+        var range = (ShowFutureEventsCommand) roundTrip(new ShowFutureEventsCommand(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 7)));
+        var help = (HelpCommand) roundTrip(new HelpCommand(Map.of(QuitCommand.COMMAND_NAME, QuitCommand.class)));
+
+        // assert
+        assertEquals(user, login.getUser());
+        assertEquals(7L, update.getEvent().getId());
+        assertEquals("Renamed", update.getEvent().getTitle());
+        assertNull(update.getEvent().getDate(), "Missing details of an update should stay missing");
+        assertFalse(add.getEvent().hasId(), "New event should stay without ID");
+        assertEquals(LocalTime.of(20, 0), add.getEvent().getTime());
+        assertEquals(3L, delete.getEventId());
+        assertEquals(LocalDate.of(2024, 1, 7), range.getEndDate());
+        assertEquals(QuitCommand.class, help.getAvailableCommands().get(QuitCommand.COMMAND_NAME));
+        assertInstanceOf(LogoutCommand.class, roundTrip(new LogoutCommand()));
+        assertNull(((DeleteUserCommand) roundTrip(new DeleteUserCommand())).getUser());
+    }
+
+    @Test
+    public void read_resolvesHelpCommandsByNameWithoutLoadingPeerClasses() throws Exception {
+        // arrange
+        var legacyBytes = new ByteArrayOutputStream();
+        var output = new DataOutputStream(legacyBytes);
+        output.writeByte(14); // the help command before HELP_NAMES_VERSION, with the class names
+        output.writeByte(2);
+        for (String value : List.of(QuitCommand.COMMAND_NAME, "java.lang.Runtime", "shutdown", "com.example.Unknown")) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            output.writeByte(bytes.length + 1);
+            output.write(bytes);
+        }
+
+        // act
+        var legacy = (HelpCommand) BinaryCodec.read(new DataInputStream(new ByteArrayInputStream(legacyBytes.toByteArray())));
+        var current = (HelpCommand) roundTrip(new HelpCommand(Map.of(QuitCommand.COMMAND_NAME, QuitCommand.class, "shutdown", QuitCommand.class)));
+
+        // assert
+        assertEquals(Map.of(QuitCommand.COMMAND_NAME, QuitCommand.class), legacy.getAvailableCommands(),
+                "The command should be resolved by its name, ignoring the class name sent by the peer");
+        assertEquals(Map.of(QuitCommand.COMMAND_NAME, QuitCommand.class), current.getAvailableCommands(),
+                "Unknown command names should be skipped");
+    }
+
+    @Test
+    public void read_decodesResponses() throws Exception {
+        // arrange
+        List<Event> events = List.of(
+                Event.withId(1L, new Event("Party", LocalDate.of(2023, 12, 31), LocalTime.of(20, 0), "Home", "New Year")),
+                Event.withId(2L, new Event("Landing", LocalDate.of(1969, 7, 20), LocalTime.of(12, 30, 15), "", "")));
+
+        // act
+        var list = (SuccessEventListResponse) roundTrip(new SuccessEventListResponse(events));
+        var login = (SuccessLoginResponse) roundTrip(new SuccessLoginResponse("Welcome", new User("alice", 123)));
+        var error = (ErrorResponse) roundTrip(new ErrorResponse("Nope"));
+
+        // assert
+        assertEquals(2, list.events().size());
+        assertEquals("New Year", list.events().getFirst().getDescription());
+        assertEquals(LocalTime.of(12, 30, 15), list.events().getLast().getTime());
+        assertEquals(LocalDate.of(1969, 7, 20), list.events().getLast().getDate());
+        assertEquals(new SuccessLoginResponse("Welcome", new User("alice", 123)), login);
+        assertEquals("Nope", error.errorMessage());
+        assertInstanceOf(SuccessQuit.class, roundTrip(new SuccessQuit()));
+    }
+
+    @Test
+    public void read_decodesCorrelatedMessages() throws Exception {
+        // arrange
+        var request = new CorrelatedMessage(300, new DeleteEventCommand(5L));
+
+        // act
+        var decoded = (CorrelatedMessage) roundTrip(request);
+
+        // assert
+        assertEquals(300, decoded.requestId());
+        assertEquals(5L, ((DeleteEventCommand) decoded.message()).getEventId());
+        assertTrue(WireProtocol.ofCodecVersion(BinaryCodec.CORRELATION_VERSION - 1).isBinary(),
+                "Older binary codec versions should still be decoded");
+    }
+
+    @Test
+    public void write_encodesMessagesInNegotiatedVersion() throws Exception {
+        // arrange
+        var olderPeer = WireProtocol.ofCodecVersion(BinaryCodec.HELP_NAMES_VERSION - 1);
+        var bytes = new ByteArrayOutputStream();
+
+        // act
+        try (var output = new ObjectOutputStream(bytes)) {
+            olderPeer.write(output, new HelpCommand(Map.of(QuitCommand.COMMAND_NAME, QuitCommand.class)));
+        }
+        var input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        int tag = input.readUnsignedByte();
+        var help = (HelpCommand) BinaryCodec.read(new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        // assert
+        assertEquals(14, tag, "The help command should be written in the encoding the older peer decodes");
+        assertEquals(Map.of(QuitCommand.COMMAND_NAME, QuitCommand.class), help.getAvailableCommands());
+        assertThrows(IOException.class, () -> BinaryCodec.write(new DataOutputStream(new ByteArrayOutputStream()),
+                new StatsCommand(), BinaryCodec.STATS_VERSION - 1), "A peer should never receive a message it cannot decode");
+        assertThrows(IOException.class, () -> BinaryCodec.write(new DataOutputStream(new ByteArrayOutputStream()),
+                new BatchCommand(List.of(new DeleteEventCommand(1L))), BinaryCodec.BATCH_VERSION - 1));
+        assertNotSame(WireProtocol.BINARY, olderPeer);
+        assertSame(olderPeer, WireProtocol.ofCodecVersion(BinaryCodec.HELP_NAMES_VERSION - 1));
+    }
+
+    @Test
+    public void read_decodesBatches() throws Exception {
+        // arrange
+        var batch = new BatchCommand(List.of(
+                new AddEventCommand(new Event("Party", LocalDate.of(2023, 12, 31), LocalTime.of(20, 0), "Home", "")),
+                new UpdateEventCommand(Event.withId(7L, new Event("Renamed", null, null, null, null))),
+                new DeleteEventCommand(3L)));
+        var response = new SuccessBatchResponse(List.of(BatchItemResult.success(8L), BatchItemResult.failure(null, "Missing")));
+
+        // act
+        var decodedBatch = (BatchCommand) roundTrip(batch);
+        var decodedResponse = (SuccessBatchResponse) roundTrip(response);
+
+        // assert
+        assertEquals(3, decodedBatch.getOperations().size());
+        assertEquals("Party", ((AddEventCommand) decodedBatch.getOperations().get(0)).getEvent().getTitle());
+        assertEquals(7L, ((UpdateEventCommand) decodedBatch.getOperations().get(1)).getEvent().getId());
+        assertEquals(3L, ((DeleteEventCommand) decodedBatch.getOperations().get(2)).getEventId());
+        assertEquals(response, decodedResponse);
+    }
+
+    @Test
+    public void read_decodesPagedQueriesAndChunks() throws Exception {
+        // arrange
+        var cursor = new EventCursor(LocalDate.of(2024, 1, 2), LocalTime.of(9, 30), 17L);
+        var page = List.of(Event.withId(18L, new Event("Next", LocalDate.of(2024, 1, 3), LocalTime.of(8, 0), "", "")));
+
+        // act
+        var showEvents = (ShowEventsCommand) roundTrip(new ShowEventsCommand(50, cursor, true));
+        var showRange = (ShowFutureEventsCommand) roundTrip(new ShowFutureEventsCommand(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 7), 10, null, false));
+        var unpaged = (ShowEventsCommand) roundTrip(new ShowEventsCommand());
+        var pageResponse = (SuccessEventListResponse) roundTrip(new SuccessEventListResponse(page, cursor));
+        var chunk = (SuccessEventChunkResponse) roundTrip(new SuccessEventChunkResponse(page, false));
+
+        // assert
+        assertEquals(50, showEvents.getLimit());
+        assertEquals(cursor, showEvents.getAfter());
+        assertTrue(showEvents.isStreamed());
+        assertEquals(LocalDate.of(2024, 1, 7), showRange.getEndDate());
+        assertEquals(10, showRange.getLimit());
+        assertNull(showRange.getAfter());
+        assertNull(unpaged.getLimit(), "Query without paging should stay without a limit");
+        assertEquals(cursor, pageResponse.nextCursor());
+        assertEquals(18L, pageResponse.events().getFirst().getId());
+        assertTrue(chunk.isPartial(), "Chunk which is not the last should be partial");
+    }
+
+    @Test
+    public void read_decodesSyncsAndChanges() throws Exception {
+        // arrange
+        long version = System.currentTimeMillis() * 1000;
+        var changed = List.of(Event.withId(5L, new Event("Moved", LocalDate.of(2024, 2, 1), LocalTime.of(10, 0), "", "")));
+
+        // act
+        var sync = (SyncEventsCommand) roundTrip(new SyncEventsCommand(version));
+        var firstSync = (SyncEventsCommand) roundTrip(new SyncEventsCommand(null));
+        var changes = ((SuccessEventChangesResponse) roundTrip(new SuccessEventChangesResponse(
+                new EventChanges(version + 2, false, changed, List.of(6L, 7L))))).changes();
+
+        // assert
+        assertEquals(version, sync.getSinceVersion());
+        assertNull(firstSync.getSinceVersion());
+        assertEquals(version + 2, changes.version());
+        assertFalse(changes.complete());
+        assertEquals(5L, changes.changedEvents().getFirst().getId());
+        assertEquals(List.of(6L, 7L), changes.deletedEventIds());
+    }
+
+    @Test
+    public void read_decodesSubscriptionsAndPushedNotifications() throws Exception {
+        // arrange
+        long version = System.currentTimeMillis() * 1000;
+
+        // act
+        Object subscribe = roundTrip(new SubscribeCommand());
+        Object unsubscribe = roundTrip(new UnsubscribeCommand());
+        var pushed = (CorrelatedMessage) roundTrip(new CorrelatedMessage(CorrelatedMessage.PUSH_REQUEST_ID, new EventsChangedNotification(version)));
+
+        // assert
+        assertInstanceOf(SubscribeCommand.class, subscribe);
+        assertInstanceOf(UnsubscribeCommand.class, unsubscribe);
+        assertEquals(CorrelatedMessage.PUSH_REQUEST_ID, pushed.requestId());
+        assertEquals(new EventsChangedNotification(version), pushed.message());
+    }
+
+    @Test
+    public void read_decodesStats() throws Exception {
+        // arrange
+        var metrics = List.of(new Metric("command.login.count", 3), new Metric("network.bytes_in", Long.MAX_VALUE));
+
+        // act
+        Object command = roundTrip(new StatsCommand());
+        var response = (SuccessStatsResponse) roundTrip(new SuccessStatsResponse(metrics));
+
+        // assert
+        assertInstanceOf(StatsCommand.class, command);
+        assertEquals(metrics, response.metrics());
+    }
+
+    @Test
+    public void write_encodesEventListSmallerThanSerialization() throws Exception {
+        // arrange
+        List<Event> events = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            events.add(Event.withId(id, new Event("Event " + id, LocalDate.of(2024, 1, 1).plusDays(id), LocalTime.of(9, 0), "Office", "")));
+        }
+        var response = new SuccessEventListResponse(events);
+
+        // act
+        var binary = new ByteArrayOutputStream();
+        BinaryCodec.write(new DataOutputStream(binary), response);
+        var serialized = new ByteArrayOutputStream();
+        try (var output = new ObjectOutputStream(serialized)) {
+            output.writeObject(response);
+        }
+
+        // assert
+        assertTrue(binary.size() * 2 < serialized.size(),
+                "Binary encoding (" + binary.size() + " B) should be much smaller than serialization (" + serialized.size() + " B)");
+    }
+
+    @Test
+    public void binaryProtocol_sharesObjectStreamWithNegotiation() throws Exception {
+        // arrange
+        var bytes = new ByteArrayOutputStream();
+        try (var output = new ObjectOutputStream(bytes)) {
+            output.writeObject(new ProtocolNegotiation(BinaryCodec.VERSION + 1));
+            WireProtocol.BINARY.write(output, new QuitCommand());
+            WireProtocol.BINARY.write(output, new ShowEventsCommand());
+        }
+
+        // act
+        var input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        var offer = (ProtocolNegotiation) input.readObject();
+        WireProtocol protocol = WireProtocol.ofCodecVersion(offer.accept().codecVersion());
+
+        // assert
+        assertEquals(WireProtocol.BINARY, protocol, "Newer offer should be answered with the supported version");
+        assertInstanceOf(QuitCommand.class, protocol.read(input));
+        assertInstanceOf(ShowEventsCommand.class, protocol.read(input));
+    }
+}
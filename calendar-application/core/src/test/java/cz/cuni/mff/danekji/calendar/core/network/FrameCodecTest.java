@@ -0,0 +1,59 @@
+package cz.cuni.mff.danekji.calendar.core.network;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import cz.cuni.mff.danekji.calendar.core.models.User;
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class FrameCodecTest {
+
+    @Test
+    public void readFrame_readsConsecutiveFrames() throws Exception {
+        // arrange
+        var bytes = new ByteArrayOutputStream();
+        var output = new DataOutputStream(bytes);
+        FrameCodec.writeFrame(output, 42, WireProtocol.BINARY);
+        FrameCodec.writeFrame(output, new User("alice", 123), WireProtocol.SERIALIZATION);
+        var input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+
+        // act
+        Object first = FrameCodec.readFrame(input);
+        Object second = FrameCodec.readFrame(input);
+
+        // assert
+        assertEquals(42, first);
+        assertEquals(new User("alice", 123), second);
+    }
+
+    @Test
+    public void decode_decodesPayloadOfEncodedFrame() throws Exception {
+        // arrange
+        byte[] frame = FrameCodec.encode("hello", WireProtocol.SERIALIZATION);
+
+        // act
+        int length = new DataInputStream(new ByteArrayInputStream(frame)).readInt();
+        byte[] payload = Arrays.copyOfRange(frame, FrameCodec.HEADER_BYTES, frame.length);
+        Object decoded = FrameCodec.decode(payload);
+
+        // assert
+        assertEquals(frame.length - FrameCodec.HEADER_BYTES, length, "Header should hold the payload length");
+        assertEquals(WireProtocol.SERIALIZATION, FrameCodec.protocolOf(payload), "Payload should name its protocol");
+        assertEquals("hello", decoded);
+    }
+
+    @Test
+    public void readFrame_rejectsOversizedFrame() {
+        // arrange
+        byte[] header = {0x7F, 0, 0, 0};
+        var input = new DataInputStream(new ByteArrayInputStream(header));
+
+        // act & assert
+        assertThrows(IOException.class, () -> FrameCodec.readFrame(input), "Should reject a frame larger than the limit");
+    }
+}
@@ -0,0 +1,190 @@
+package cz.cuni.mff.danekji.calendar.server;
+
+import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
+import cz.cuni.mff.danekji.calendar.core.responses.Response;
+import cz.cuni.mff.danekji.calendar.core.responses.push.EventsChangedNotification;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The subscriptions of the sessions to the changes of their users' calendars.
+ * <p>
+ * A transport attaches a {@link PushChannel} to every session whose connection can carry the pushed notifications.
+ *  A subscribed session is notified by an {@link EventsChangedNotification} whenever another session commits
+ *  a change of the same calendar. The fan-out never blocks the committing session: every subscription has
+ *  at most one delivery in flight, running on its own virtual thread, and the changes committed meanwhile
+ *  are coalesced into a single notification with the latest version. So a slow subscriber delays only
+ *  its own notifications and holds at most one of them.
+ *  The subscriptions are indexed by the username too, so a change visits only the subscribers of its calendar.
+ */
+final class ChangeSubscriptions {
+    private static final Logger LOGGER = LogManager.getLogger(ChangeSubscriptions.class);
+    private static final ThreadFactory DELIVERY_THREADS = Thread.ofVirtual().name("change-push-", 0).factory();
+
+    private final Map<Integer, PushChannel> channels = new ConcurrentHashMap<>();
+    private final Map<Integer, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private final Map<String, Set<Subscription>> subscriptionsByUser = new ConcurrentHashMap<>();
+
+    /**
+     * Sends the pushed notifications over the connection of a session.
+     */
+    @FunctionalInterface
+    interface PushChannel {
+        /**
+         * Sends a notification to the client, it may block until the notification is written.
+         *
+         * @param notification The notification
+         * @throws IOException if the notification cannot be sent
+         */
+        void push(Response notification) throws IOException;
+    }
+
+    /**
+     * The subscription of a single session to the calendar of its user.
+     */
+    private final class Subscription {
+        private final int sessionId;
+        private final String username;
+        private final PushChannel channel;
+        private final AtomicLong pendingVersion = new AtomicLong(); // 0 if there is no change to deliver
+        private final AtomicBoolean delivering = new AtomicBoolean();
+
+        private Subscription(int sessionId, String username, PushChannel channel) {
+            this.sessionId = sessionId;
+            this.username = username;
+            this.channel = channel;
+        }
+
+        /**
+         * Schedules the delivery of the change, unless a delivery is already in flight, which then delivers it too.
+         */
+        private void offer(long version) {
+            pendingVersion.accumulateAndGet(version, Math::max);
+            if (delivering.compareAndSet(false, true)) {
+                DELIVERY_THREADS.newThread(this::deliver).start();
+            }
+        }
+
+        private void deliver() {
+            while (true) {
+                long version = pendingVersion.getAndSet(0);
+                if (version == 0) {
+                    delivering.set(false);
+                    // a change offered right before the flag was cleared did not schedule a delivery
+                    if (pendingVersion.get() == 0 || !delivering.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+
+                try {
+                    channel.push(new EventsChangedNotification(version));
+                } catch (IOException e) {
+                    LOGGER.error("Client session '{}': Failed to push change notification, cancelling subscription.", sessionId, e);
+                    if (subscriptions.remove(sessionId, this)) {
+                        unindex(this);
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Attaches the channel carrying the pushed notifications to the session.
+     *
+     * @param session The session of the connection
+     * @param channel The channel writing into the connection
+     */
+    void attach(ClientSession session, PushChannel channel) {
+        channels.put(session.getSessionId(), channel);
+    }
+
+    /**
+     * Cancels the subscription of the session and detaches its channel, once its connection is closed.
+     *
+     * @param session The session of the closed connection
+     */
+    void detach(ClientSession session) {
+        unsubscribe(session);
+        channels.remove(session.getSessionId());
+    }
+
+    /**
+     * Subscribes the session to the changes of the calendar of its current user,
+     *  replacing its previous subscription.
+     *
+     * @param session The logged session
+     * @return true if subscribed, false if the connection of the session cannot carry the pushed notifications
+     */
+    boolean subscribe(ClientSession session) {
+        PushChannel channel = channels.get(session.getSessionId());
+        if (channel == null) {
+            return false;
+        }
+        var subscription = new Subscription(session.getSessionId(), session.getCurrentUser().username(), channel);
+        var previous = subscriptions.put(session.getSessionId(), subscription);
+        if (previous != null) {
+            unindex(previous);
+        }
+        subscriptionsByUser.compute(subscription.username, (username, userSubscriptions) -> {
+            var updated = userSubscriptions != null ? userSubscriptions : ConcurrentHashMap.<Subscription>newKeySet();
+            updated.add(subscription);
+            return updated;
+        });
+        return true;
+    }
+
+    /**
+     * Cancels the subscription of the session, if it has any.
+     *
+     * @param session The session
+     * @return true if the session was subscribed, false otherwise
+     */
+    boolean unsubscribe(ClientSession session) {
+        var subscription = subscriptions.remove(session.getSessionId());
+        if (subscription == null) {
+            return false;
+        }
+        unindex(subscription);
+        return true;
+    }
+
+    /**
+     * Removes the cancelled subscription from the index of its user, dropping the index of a user without subscriptions.
+     */
+    private void unindex(Subscription subscription) {
+        subscriptionsByUser.computeIfPresent(subscription.username, (username, userSubscriptions) -> {
+            userSubscriptions.remove(subscription);
+            return userSubscriptions.isEmpty() ? null : userSubscriptions;
+        });
+    }
+
+    /**
+     * Notifies the sessions subscribed to the calendar about its change, except the session which made it.
+     * Only schedules the deliveries, it never blocks.
+     *
+     * @param username The owner of the changed calendar
+     * @param version The change version after the change
+     * @param origin The session which made the change
+     */
+    void publish(String username, long version, ClientSession origin) {
+        var userSubscriptions = subscriptionsByUser.get(username);
+        if (userSubscriptions == null) {
+            return;
+        }
+        for (var subscription : userSubscriptions) {
+            if (subscription.sessionId != origin.getSessionId()) {
+                subscription.offer(version);
+            }
+        }
+    }
+}
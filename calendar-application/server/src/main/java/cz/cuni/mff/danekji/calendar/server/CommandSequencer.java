@@ -0,0 +1,92 @@
+package cz.cuni.mff.danekji.calendar.server;
+
+import cz.cuni.mff.danekji.calendar.core.commands.Command;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Orders the execution of the commands received over a single connection.
+ * <p>
+ * The commands start in the order in which they were received. A read-only command (see {@link Command#isReadOnly()})
+ *  of a client which correlates its requests runs concurrently with the read-only commands received right before it.
+ *  Any other command waits until all the previous commands are done and the later commands wait for it.
+ *  So a slow query does not delay the queries pipelined behind it, while every command still sees the effects
+ *  of the modifications sent before it. The commands of the clients which do not correlate their requests
+ *  are executed one by one, as such clients expect the responses in order.
+ * <p>
+ * The sequencer is not thread-safe, the commands must be submitted by the single thread reading the connection.
+ */
+final class CommandSequencer {
+    private final Executor executor;
+    private final List<CompletableFuture<?>> runningQueries = new ArrayList<>();
+    private CompletableFuture<?> lastExclusive = CompletableFuture.completedFuture(null);
+
+    /**
+     * Constructor for CommandSequencer.
+     *
+     * @param executor The executor running the commands
+     */
+    CommandSequencer(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Schedules the execution of a received command.
+     *
+     * @param command The received command
+     * @param correlated Whether the command was tagged with a request ID, so its response may be sent out of order
+     * @param execution Executes the command and returns its result, it should not throw
+     * @param <T> The type of the result
+     * @return The future completed with the result once the command is executed
+     */
+    <T> CompletableFuture<T> submit(Command command, boolean correlated, Supplier<T> execution) {
+        return submitAsync(command, correlated, () -> CompletableFuture.completedFuture(execution.get()));
+    }
+
+    /**
+     * Schedules the execution of a received command which completes asynchronously.
+     * The command counts as running until the future returned by its execution is completed,
+     *  so the commands ordered after it wait for that future, not just for the execution to return.
+     *
+     * @param command The received command
+     * @param correlated Whether the command was tagged with a request ID, so its response may be sent out of order
+     * @param execution Starts the execution of the command and returns the future of its result, it should not throw
+     * @param <T> The type of the result
+     * @return The future completed with the result once the command is executed
+     */
+    <T> CompletableFuture<T> submitAsync(Command command, boolean correlated, Supplier<CompletableFuture<T>> execution) {
+        runningQueries.removeIf(CompletableFuture::isDone);
+
+        if (correlated && command.isReadOnly()) {
+            CompletableFuture<T> query = lastExclusive.handleAsync((ignored, error) -> execution.get(), executor)
+                    .thenCompose(Function.identity());
+            runningQueries.add(query);
+            return query;
+        }
+
+        runningQueries.add(lastExclusive);
+        var previous = CompletableFuture.allOf(runningQueries.toArray(CompletableFuture[]::new));
+        runningQueries.clear();
+        CompletableFuture<T> exclusive = previous.handleAsync((ignored, error) -> execution.get(), executor)
+                .thenCompose(Function.identity());
+        lastExclusive = exclusive;
+        return exclusive;
+    }
+
+    /**
+     * Returns a future completed once all the submitted commands are executed (successfully or not).
+     *
+     * @return The future of all the submitted commands
+     */
+    CompletableFuture<Void> whenIdle() {
+        runningQueries.add(lastExclusive);
+        var all = CompletableFuture.allOf(runningQueries.toArray(CompletableFuture[]::new));
+        runningQueries.remove(runningQueries.size() - 1);
+        return all.handle((ignored, error) -> null);
+    }
+}
@@ -1,13 +1,19 @@
 package cz.cuni.mff.danekji.calendar.server;
 
 import cz.cuni.mff.danekji.calendar.core.commands.*;
+import cz.cuni.mff.danekji.calendar.core.models.BatchItemResult;
 import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.EventChanges;
+import cz.cuni.mff.danekji.calendar.core.models.EventCursor;
 import cz.cuni.mff.danekji.calendar.core.models.User;
 import cz.cuni.mff.danekji.calendar.core.responses.success.*;
 import cz.cuni.mff.danekji.calendar.core.exceptions.CalendarException;
 import cz.cuni.mff.danekji.calendar.core.exceptions.server.XmlDatabaseException;
 import cz.cuni.mff.danekji.calendar.core.responses.error.ErrorResponse;
 import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
+import cz.cuni.mff.danekji.calendar.server.metrics.LatencyHistogram;
+import cz.cuni.mff.danekji.calendar.server.metrics.MetricsRegistry;
+import cz.cuni.mff.danekji.calendar.server.storage.AsyncEventRepository;
 import cz.cuni.mff.danekji.calendar.server.storage.EventRepository;
 import cz.cuni.mff.danekji.calendar.core.responses.Response;
 import org.apache.logging.log4j.LogManager;
@@ -17,25 +23,137 @@ import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.time.LocalDate;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Default implementation of the {@link CommandVisitor} interface.
  * This class is responsible for dispatching commands to their respective handlers.
  * It implements the {@link CommandVisitor} interface to handle different command types.
+ * <p>
+ * The commands reading or modifying the events may also be dispatched asynchronously (see {@link #dispatchAsync}),
+ *  their storage operations run through the {@link AsyncEventRepository} and the dispatching thread is released
+ *  until the response is composed from their results.
  */
 public class DefaultCommandDispatcher implements CommandVisitor<Response, ClientSession> {
     private static final Logger LOGGER = LogManager.getLogger(DefaultCommandDispatcher.class);
+    private static final String UPDATE_FAILED = "Failed to update event: ";
+    private static final String DELETE_FAILED = "Failed to delete event: ";
+    private static final String RETRIEVE_FAILED = "Failed to retrieve events: ";
+    private static final String BATCH_FAILED = "Failed to apply batch: ";
+    private static final String SYNC_FAILED = "Failed to sync events: ";
     private final EventRepository eventRepository;
+    private final AsyncEventRepository asyncEventRepository;
+    private final ChangeSubscriptions subscriptions;
+    private final MetricsRegistry metrics;
+    private final Set<String> admins;
+    private final Map<String, CommandMetrics> commandMetrics = new ConcurrentHashMap<>();
+
+    /**
+     * The metrics of a single command type.
+     *
+     * @param latency The latencies of the executions
+     * @param errors The number of executions answered with an {@link ErrorResponse}
+     */
+    private record CommandMetrics(LatencyHistogram latency, LongAdder errors) {
+    }
 
     /**
      * Constructor for DefaultCommandDispatcher.
-     * Initializes the event repository.
+     * Initializes the event repository, no connection can subscribe to the changes of the calendars
+     *  and nobody can retrieve the statistics.
      *
      * @param eventRepository The {@link EventRepository} instance used for event storage and retrieval.
      */
     public DefaultCommandDispatcher(EventRepository eventRepository) {
+        this(eventRepository, new ChangeSubscriptions(), new MetricsRegistry(), Set.of());
+    }
+
+    /**
+     * Constructor for DefaultCommandDispatcher.
+     * Initializes the event repository, the subscriptions to the changes of the calendars and the metrics.
+     * The asynchronous dispatching uses the repository directly if it implements {@link AsyncEventRepository},
+     *  otherwise it runs its synchronous operations on virtual threads.
+     *
+     * @param eventRepository The {@link EventRepository} instance used for event storage and retrieval.
+     * @param subscriptions The subscriptions of the sessions, the channels of their connections are attached by the transport.
+     * @param metrics The registry of the server metrics, the dispatcher records the count, errors and latency of every command.
+     * @param admins The usernames of the users allowed to retrieve the statistics.
+     */
+    DefaultCommandDispatcher(EventRepository eventRepository, ChangeSubscriptions subscriptions, MetricsRegistry metrics, Set<String> admins) {
         this.eventRepository = eventRepository;
+        this.asyncEventRepository = eventRepository instanceof AsyncEventRepository async ? async : AsyncEventRepository.of(eventRepository);
+        this.subscriptions = subscriptions;
+        this.metrics = metrics;
+        this.admins = admins;
+    }
+
+    /**
+     * Executes the command within the session and records its latency and outcome,
+     *  a command which throws is recorded as an error.
+     *
+     * @param command The received command
+     * @param session The client session
+     * @return The response to the command
+     */
+    public Response dispatch(Command command, ClientSession session) {
+        long start = System.nanoTime();
+        Response response = null;
+        try {
+            response = command.accept(this, session);
+            return response;
+        } finally {
+            record(command, start, response);
+        }
+    }
+
+    /**
+     * Executes the command within the session without waiting for its storage operations
+     *  and records its latency and outcome once it is done.
+     * The commands reading or modifying the events of the logged-in user are composed from the futures
+     *  of the {@link AsyncEventRepository}, any other command is executed at once by the calling thread.
+     *
+     * @param command The received command
+     * @param session The client session
+     * @return The future completed with the response to the command
+     */
+    public CompletableFuture<Response> dispatchAsync(Command command, ClientSession session) {
+        long start = System.nanoTime();
+        CompletableFuture<Response> response;
+        try {
+            response = visitAsync(command, session);
+            if (response == null) {
+                response = CompletableFuture.completedFuture(command.accept(this, session));
+            }
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        return response.whenComplete((result, error) -> record(command, start, result));
+    }
+
+    /**
+     * Records the latency of the command and counts its error response, or its failure if the response is null.
+     */
+    private void record(Command command, long start, Response response) {
+        var measured = metricsOf(command.getName());
+        measured.latency().record(System.nanoTime() - start);
+        if (response == null || response instanceof ErrorResponse) {
+            measured.errors().increment();
+        }
+    }
+
+    private CommandMetrics metricsOf(String commandName) {
+        var measured = commandMetrics.get(commandName); // the common case, without allocating the lambda
+        if (measured == null) {
+            measured = commandMetrics.computeIfAbsent(commandName, name -> new CommandMetrics(
+                    metrics.histogram("command." + name), metrics.counter("command." + name + ".errors")));
+        }
+        return measured;
     }
 
     /**
@@ -109,7 +227,7 @@ public class DefaultCommandDispatcher implements CommandVisitor<Response, Client
 
         try {
             long newEventId = eventRepository.addEvent(session.getCurrentUser(), command.getEvent(), session);
-            return new SuccessResponse("Event with id '" + newEventId + "' added successfully.");
+            return eventAdded(newEventId);
         } catch (CalendarException | IOException e) {
             return new ErrorResponse(e.getMessage());
         }
@@ -132,6 +250,7 @@ public class DefaultCommandDispatcher implements CommandVisitor<Response, Client
         }
 
         User currentUser = session.getCurrentUser();
+        subscriptions.unsubscribe(session);
         session.unsetCurrentUser();
         LOGGER.info("Client session '{}': User '{}' logged out.", session.getSessionId(), currentUser.username());
         return new SuccessLogoutResponse("Logout successful.");
@@ -140,6 +259,7 @@ public class DefaultCommandDispatcher implements CommandVisitor<Response, Client
     /**
      * The implementation of the CommandVisitor endpoint for HelpCommand.
      * Generates a help message with all available commands and their descriptions.
+     * Only the commands known to the {@link CommandRegistry} are described.
      *
      * @param command The {@link HelpCommand} command
      * @param context The client session
@@ -150,9 +270,13 @@ public class DefaultCommandDispatcher implements CommandVisitor<Response, Client
         StringBuilder helpMessage = new StringBuilder();
         helpMessage.append("Available commands:\n");
 
-        for (var commandClass : command.getAvailableCommands().values()) {
+        for (var entry : command.getAvailableCommands().entrySet()) {
+            if (!CommandRegistry.isKnown(entry.getKey(), entry.getValue())) {
+                LOGGER.warn("Client session '{}': Skipping unknown command '{}' in help request", context.getSessionId(), entry.getKey());
+                continue; // never instantiate a class named by the client
+            }
             try {
-                Constructor<? extends Command> constructor = commandClass.getDeclaredConstructor();
+                Constructor<? extends Command> constructor = entry.getValue().getDeclaredConstructor();
                 constructor.setAccessible(true);
                 Command tempCommand = constructor.newInstance();
 
@@ -172,7 +296,7 @@ public class DefaultCommandDispatcher implements CommandVisitor<Response, Client
 
     /**
      * The implementation of the CommandVisitor endpoint for ShowEventsCommand.
-     * Checks if user logged and if so, retrieves all events from the server (xml) event-database
+     * Checks if user logged and if so, retrieves all events (or a single page of them) from the server (xml) event-database
      *  and returns them in a successful response.
      * Otherwise, returns error response.
      *
@@ -187,11 +311,15 @@ public class DefaultCommandDispatcher implements CommandVisitor<Response, Client
             return new ErrorResponse("You must be logged in to show events.");
         }
 
+        if (isPaged(command)) {
+            return listPage(command, LocalDate.MIN, LocalDate.MAX, session);
+        }
+
         try {
             var events = eventRepository.getAllEvents(session.getCurrentUser(), session);
-            return new SuccessEventListResponse(events);
+            return eventsListed(events);
         } catch (XmlDatabaseException e) {
-            return new ErrorResponse("Failed to retrieve events: " + e.getMessage());
+            return new ErrorResponse(RETRIEVE_FAILED + e.getMessage());
         }
     }
 
@@ -214,9 +342,9 @@ public class DefaultCommandDispatcher implements CommandVisitor<Response, Client
 
         try {
             eventRepository.deleteEvent(session.getCurrentUser(), command.getEventId(), session);
-            return new SuccessResponse("Event with id '" + command.getEventId() + "' deleted successfully.");
+            return eventDeleted(command);
         } catch (XmlDatabaseException e) {
-            return new ErrorResponse("Failed to delete event: " + e.getMessage());
+            return new ErrorResponse(DELETE_FAILED + e.getMessage());
         }
     }
 
@@ -239,9 +367,9 @@ public class DefaultCommandDispatcher implements CommandVisitor<Response, Client
 
         try {
             eventRepository.updateEvent(session.getCurrentUser(), command.getEvent(), session);
-            return new SuccessResponse("Event with id '" + command.getEvent().getId() + "' updated successfully.");
+            return eventUpdated(command);
         } catch (XmlDatabaseException e) {
-            return new ErrorResponse("Failed to update event: " + e.getMessage());
+            return new ErrorResponse(UPDATE_FAILED + e.getMessage());
         }
     }
 
@@ -279,6 +407,7 @@ public class DefaultCommandDispatcher implements CommandVisitor<Response, Client
             // The user from the command contains the correct username and the verification password hash
             eventRepository.deleteUser(command.getUser(), session);
             String deletedUsername = session.getCurrentUser().username();
+            subscriptions.unsubscribe(session);
             session.unsetCurrentUser(); // Log the user out after deletion
             return new SuccessDeleteUserResponse("Account '" + deletedUsername + "' has been successfully deleted.");
         } catch (CalendarException | IOException e) {
@@ -289,7 +418,7 @@ public class DefaultCommandDispatcher implements CommandVisitor<Response, Client
 
     /**
      * The implementation of the CommandVisitor endpoint for ShowFutureEventsCommand.
-     * Retrieves all events for the logged-in user and filters them based on the provided date range.
+     * Retrieves the events (or a single page of them) of the logged-in user within the provided date range.
      *
      * @param command The {@link ShowFutureEventsCommand} command
      * @param session The client session
@@ -302,20 +431,285 @@ public class DefaultCommandDispatcher implements CommandVisitor<Response, Client
             return new ErrorResponse("You must be logged in to show events.");
         }
 
+        if (isPaged(command)) {
+            return listPage(command, command.getStartDate(), command.getEndDate(), session);
+        }
+
+        try {
+            List<Event> events = eventRepository.getEventsInRange(session.getCurrentUser(),
+                    command.getStartDate(), command.getEndDate(), session);
+            return eventsListed(events);
+        } catch (XmlDatabaseException e) {
+            return new ErrorResponse(RETRIEVE_FAILED + e.getMessage());
+        }
+    }
+
+    private static boolean isPaged(EventQueryCommand query) {
+        return query.getLimit() != null || query.getAfter() != null || query.isStreamed();
+    }
+
+    /**
+     * Retrieves a single page of the events of the logged-in user within the date range.
+     * One more event than the limit is retrieved, so the cursor of the next page is returned only if there is one.
+     *
+     * @param query The paginated query
+     * @param startDate The first day of the range (inclusive)
+     * @param endDate The last day of the range (inclusive)
+     * @param session The client session
+     * @return A {@link SuccessEventListResponse} with the page, or an {@link ErrorResponse} on failure.
+     */
+    private Response listPage(EventQueryCommand query, LocalDate startDate, LocalDate endDate, ClientSession session) {
+        if (!hasValidLimit(query)) {
+            LOGGER.error("Client session '{}': Requested events page with an invalid limit '{}'.", session.getSessionId(), query.getLimit());
+            return new ErrorResponse("The page limit must be a positive number.");
+        }
+
         try {
-            List<Event> allEvents = eventRepository.getAllEvents(session.getCurrentUser(), session);
+            List<Event> events = eventRepository.getEventsPage(session.getCurrentUser(), startDate, endDate,
+                    query.getAfter(), fetchLimitOf(query), session);
+            return pageOf(events, query.getLimit());
+        } catch (XmlDatabaseException e) {
+            return new ErrorResponse(RETRIEVE_FAILED + e.getMessage());
+        }
+    }
 
-            final LocalDate startDate = command.getStartDate();
-            final LocalDate endDate = command.getEndDate();
+    private static boolean hasValidLimit(EventQueryCommand query) {
+        return query.getLimit() != null && query.getLimit() > 0;
+    }
+
+    /**
+     * Gets the number of events to retrieve for a page, one more than the limit tells whether there is a next page.
+     */
+    private static int fetchLimitOf(EventQueryCommand query) {
+        int limit = query.getLimit();
+        return limit == Integer.MAX_VALUE ? limit : limit + 1;
+    }
+
+    private static Response pageOf(List<Event> events, int limit) {
+        if (events.size() <= limit) {
+            return new SuccessEventListResponse(events);
+        }
+
+        List<Event> page = List.copyOf(events.subList(0, limit));
+        return new SuccessEventListResponse(page, EventCursor.after(page.getLast()));
+    }
+
+    /**
+     * The implementation of the CommandVisitor endpoint for BatchCommand.
+     * Checks if user logged and if so, applies all operations of the batch to the server event-database at once
+     *  and returns the result of every operation in a single response.
+     * Otherwise, returns error response.
+     *
+     * @param command The {@link BatchCommand} command
+     * @param session The client session
+     * @return A {@link SuccessBatchResponse} with the per-operation results, or an {@link ErrorResponse} on failure.
+     */
+    @Override
+    public Response visit(BatchCommand command, ClientSession session) {
+        if (!session.isLoggedIn()) {
+            LOGGER.error("Client session '{}': Attempt to apply batch while not logged in.", session.getSessionId());
+            return new ErrorResponse("You must be logged in to apply a batch.");
+        }
+        if (command.getOperations() == null || command.getOperations().isEmpty()) {
+            return new ErrorResponse("The batch must contain at least one operation.");
+        }
 
-            List<Event> filteredEvents = allEvents.stream()
-                    .filter(event -> !event.getDate().isBefore(startDate) && !event.getDate().isAfter(endDate))
-                    .collect(Collectors.toList());
+        try {
+            var results = eventRepository.applyBatch(session.getCurrentUser(), command.getOperations(), session);
+            return batchApplied(results);
+        } catch (XmlDatabaseException e) {
+            return new ErrorResponse(BATCH_FAILED + e.getMessage());
+        }
+    }
 
-            return new SuccessEventListResponse(filteredEvents);
+    /**
+     * The implementation of the CommandVisitor endpoint for SyncEventsCommand.
+     * Checks if user logged and if so, retrieves the events changed since the version provided in command
+     *  (or all events, if the changes are not known) and returns them in a successful response.
+     * Otherwise, returns error response.
+     *
+     * @param command The {@link SyncEventsCommand} command
+     * @param session The client session
+     * @return The {@link ErrorResponse} if the retrieval failed, otherwise {@link SuccessEventChangesResponse}
+     */
+    @Override
+    public Response visit(SyncEventsCommand command, ClientSession session) {
+        if (!session.isLoggedIn()) {
+            LOGGER.error("Client session '{}': Attempt to sync events while not logged in.", session.getSessionId());
+            return new ErrorResponse("You must be logged in to sync events.");
+        }
 
+        try {
+            var changes = eventRepository.getChangesSince(session.getCurrentUser(), command.getSinceVersion(), session);
+            return eventsChanged(changes);
         } catch (XmlDatabaseException e) {
-            return new ErrorResponse("Failed to retrieve events: " + e.getMessage());
+            return new ErrorResponse(SYNC_FAILED + e.getMessage());
+        }
+    }
+
+    /**
+     * The implementation of the CommandVisitor endpoint for SubscribeCommand.
+     * Checks if user logged and if so, subscribes the session to the changes of the user's calendar
+     *  made by the other sessions and returns successful response.
+     * Otherwise, or if the connection cannot carry the pushed notifications, returns error response.
+     *
+     * @param command The {@link SubscribeCommand} command
+     * @param session The client session
+     * @return The {@link ErrorResponse} if the subscription failed, otherwise {@link SuccessResponse}
+     */
+    @Override
+    public Response visit(SubscribeCommand command, ClientSession session) {
+        if (!session.isLoggedIn()) {
+            LOGGER.error("Client session '{}': Attempt to subscribe while not logged in.", session.getSessionId());
+            return new ErrorResponse("You must be logged in to subscribe to the changes.");
+        }
+
+        if (!subscriptions.subscribe(session)) {
+            LOGGER.error("Client session '{}': Attempt to subscribe over a connection without pushed notifications.", session.getSessionId());
+            return new ErrorResponse("This connection does not support pushed notifications.");
+        }
+        LOGGER.info("Client session '{}': Subscribed to the changes of user '{}'.", session.getSessionId(), session.getCurrentUser().username());
+        return new SuccessResponse("Subscribed to the changes of the calendar.");
+    }
+
+    /**
+     * The implementation of the CommandVisitor endpoint for UnsubscribeCommand.
+     * Checks if user logged and if so, cancels the subscription of the session and returns successful response.
+     * Otherwise, returns error response.
+     *
+     * @param command The {@link UnsubscribeCommand} command
+     * @param session The client session
+     * @return The {@link ErrorResponse} if the session is not subscribed, otherwise {@link SuccessResponse}
+     */
+    @Override
+    public Response visit(UnsubscribeCommand command, ClientSession session) {
+        if (!session.isLoggedIn()) {
+            LOGGER.error("Client session '{}': Attempt to unsubscribe while not logged in.", session.getSessionId());
+            return new ErrorResponse("You are not logged in.");
         }
+
+        if (!subscriptions.unsubscribe(session)) {
+            return new ErrorResponse("You are not subscribed to the changes.");
+        }
+        LOGGER.info("Client session '{}': Unsubscribed from the changes.", session.getSessionId());
+        return new SuccessResponse("Unsubscribed from the changes of the calendar.");
+    }
+
+    /**
+     * The implementation of the CommandVisitor endpoint for StatsCommand.
+     * Checks if user logged as an administrator and if so, returns the snapshot of the server metrics
+     *  in a successful response.
+     * Otherwise, returns error response.
+     *
+     * @param command The {@link StatsCommand} command
+     * @param session The client session
+     * @return The {@link ErrorResponse} if the user is not an administrator, otherwise {@link SuccessStatsResponse}
+     */
+    @Override
+    public Response visit(StatsCommand command, ClientSession session) {
+        if (!session.isLoggedIn()) {
+            LOGGER.error("Client session '{}': Attempt to show statistics while not logged in.", session.getSessionId());
+            return new ErrorResponse("You must be logged in to show the server statistics.");
+        }
+        if (!admins.contains(session.getCurrentUser().username())) {
+            LOGGER.error("Client session '{}': User '{}' is not allowed to show statistics.", session.getSessionId(), session.getCurrentUser().username());
+            return new ErrorResponse("Only the administrators may show the server statistics.");
+        }
+
+        return new SuccessStatsResponse(metrics.snapshot());
+    }
+
+    private static Response eventAdded(long eventId) {
+        return new SuccessResponse("Event with id '" + eventId + "' added successfully.");
+    }
+
+    private static Response eventUpdated(UpdateEventCommand command) {
+        return new SuccessResponse("Event with id '" + command.getEvent().getId() + "' updated successfully.");
+    }
+
+    private static Response eventDeleted(DeleteEventCommand command) {
+        return new SuccessResponse("Event with id '" + command.getEventId() + "' deleted successfully.");
+    }
+
+    private static Response eventsListed(List<Event> events) {
+        return new SuccessEventListResponse(events);
+    }
+
+    private static Response batchApplied(List<BatchItemResult> results) {
+        return new SuccessBatchResponse(results);
+    }
+
+    private static Response eventsChanged(EventChanges changes) {
+        return new SuccessEventChangesResponse(changes);
+    }
+
+    /**
+     * Starts the storage operations of a command reading or modifying the events of the logged-in user.
+     * The responses are built by the same helpers and with the same error messages as in the synchronous visitors.
+     * The commands failing their preconditions are left to the synchronous visitor, which answers them without the storage.
+     *
+     * @param command The received command
+     * @param session The client session
+     * @return The future of the response, or null if the command is executed synchronously
+     */
+    private CompletableFuture<Response> visitAsync(Command command, ClientSession session) {
+        if (!session.isLoggedIn()) {
+            return null;
+        }
+
+        User user = session.getCurrentUser();
+        return switch (command) {
+            case AddEventCommand add -> answer(asyncEventRepository.addEventAsync(user, add.getEvent(), session),
+                    DefaultCommandDispatcher::eventAdded, CalendarException.class, "");
+            case UpdateEventCommand update -> answer(asyncEventRepository.updateEventAsync(user, update.getEvent(), session),
+                    ignored -> eventUpdated(update), XmlDatabaseException.class, UPDATE_FAILED);
+            case DeleteEventCommand delete -> answer(asyncEventRepository.deleteEventAsync(user, delete.getEventId(), session),
+                    ignored -> eventDeleted(delete), XmlDatabaseException.class, DELETE_FAILED);
+            case ShowEventsCommand show when !isPaged(show) -> answer(asyncEventRepository.getEventsAsync(user, session),
+                    DefaultCommandDispatcher::eventsListed, XmlDatabaseException.class, RETRIEVE_FAILED);
+            case ShowFutureEventsCommand show when !isPaged(show) -> answer(
+                    asyncEventRepository.getEventsInRangeAsync(user, show.getStartDate(), show.getEndDate(), session),
+                    DefaultCommandDispatcher::eventsListed, XmlDatabaseException.class, RETRIEVE_FAILED);
+            case ShowEventsCommand show when hasValidLimit(show) -> listPageAsync(show, LocalDate.MIN, LocalDate.MAX, session);
+            case ShowFutureEventsCommand show when hasValidLimit(show) -> listPageAsync(show, show.getStartDate(), show.getEndDate(), session);
+            case BatchCommand batch when batch.getOperations() != null && !batch.getOperations().isEmpty() -> answer(
+                    asyncEventRepository.applyBatchAsync(user, batch.getOperations(), session),
+                    DefaultCommandDispatcher::batchApplied, XmlDatabaseException.class, BATCH_FAILED);
+            case SyncEventsCommand sync -> answer(asyncEventRepository.getChangesSinceAsync(user, sync.getSinceVersion(), session),
+                    DefaultCommandDispatcher::eventsChanged, XmlDatabaseException.class, SYNC_FAILED);
+            default -> null;
+        };
+    }
+
+    private CompletableFuture<Response> listPageAsync(EventQueryCommand query, LocalDate startDate, LocalDate endDate, ClientSession session) {
+        var events = asyncEventRepository.getEventsPageAsync(session.getCurrentUser(), startDate, endDate,
+                query.getAfter(), fetchLimitOf(query), session);
+        return answer(events, page -> pageOf(page, query.getLimit()), XmlDatabaseException.class, RETRIEVE_FAILED);
+    }
+
+    /**
+     * Composes the response from the result of a storage operation.
+     * The failures the synchronous visitor answers by an {@link ErrorResponse} are answered the same way,
+     *  any other failure completes the response exceptionally.
+     *
+     * @param result The future of the storage operation
+     * @param success Creates the response from the result
+     * @param handled The type of the failures answered by an {@link ErrorResponse} ({@link IOException} is always answered)
+     * @param failurePrefix The prefix of the error message
+     * @param <T> The type of the result
+     * @return The future of the response
+     */
+    private static <T> CompletableFuture<Response> answer(CompletableFuture<T> result, Function<? super T, Response> success,
+                                                          Class<? extends CalendarException> handled, String failurePrefix) {
+        return result.handle((value, error) -> {
+            if (error == null) {
+                return success.apply(value);
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (handled.isInstance(cause) || cause instanceof IOException) {
+                return new ErrorResponse(failurePrefix + cause.getMessage());
+            }
+            throw cause instanceof CompletionException completion ? completion : new CompletionException(cause);
+        });
     }
 }
@@ -0,0 +1,546 @@
+package cz.cuni.mff.danekji.calendar.server;
+
+import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
+import cz.cuni.mff.danekji.calendar.core.commands.Command;
+import cz.cuni.mff.danekji.calendar.core.commands.EventQueryCommand;
+import cz.cuni.mff.danekji.calendar.core.network.CorrelatedMessage;
+import cz.cuni.mff.danekji.calendar.core.network.FrameCodec;
+import cz.cuni.mff.danekji.calendar.core.network.WireProtocol;
+import cz.cuni.mff.danekji.calendar.core.responses.Response;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Non-blocking transport of the {@link Server}.
+ * <p>
+ * A single selector thread accepts the connections and reads and writes the length-prefixed frames
+ *  of the {@link FrameCodec}. Complete frames are decoded and scheduled by the {@link CommandSequencer}
+ *  of the connection on a worker pool, the encoded responses are handed back to the selector thread, which writes them.
+ *  A worker only starts the storage operations of a command (see {@link Server#dispatchAsync}), so a small pool
+ *  serves many connections waiting for the storage.
+ *  A client may pipeline its commands, the connection stops reading once {@link #MAX_IN_FLIGHT_COMMANDS}
+ *  of them are not answered yet, which bounds the memory held by a connection. An idle connection holds just
+ *  its channel and a 4-byte header buffer. The notifications pushed to a connection are queued like the responses.
+ *  The frames queued for writing are bounded by {@link #MAX_QUEUED_BYTES}: a streamed query runs on its own virtual thread,
+ *  so it does not hold a worker while it waits until the client drains the connection before it reads the next page.
+ *  A client which does not drain a streamed query within the drain timeout, or does not keep up
+ *  with its pushed notifications, is disconnected.
+ */
+final class NioServerTransport implements AutoCloseable {
+    private static final Logger LOGGER = LogManager.getLogger(NioServerTransport.class);
+    /**
+     * The maximum number of received commands of a connection which are not answered yet.
+     */
+    static final int MAX_IN_FLIGHT_COMMANDS = 32;
+    /**
+     * The number of encoded bytes queued for writing to a connection from which the producers of the frames back off.
+     */
+    static final long MAX_QUEUED_BYTES = 1024 * 1024;
+    /**
+     * The interval in which a worker waiting for a connection to drain checks whether the transport was closed.
+     */
+    private static final long DRAIN_CHECK_MILLIS = 100;
+    /**
+     * The default time a streamed query waits for the client to drain the connection before the connection is closed.
+     */
+    static final long DRAIN_TIMEOUT_MILLIS = 30_000;
+
+    private final Server server;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final ExecutorService workers;
+    private final ExecutorService streams;
+    private final long drainTimeoutMillis;
+    private final Queue<Connection> pendingConnections = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    /**
+     * A single client connection, owned by the selector thread.
+     * Only the outgoing frames (with their size), the in-flight counter and the close request are touched by the workers.
+     */
+    private static final class Connection {
+        private final SocketChannel channel;
+        private final ClientSession session;
+        private final SessionTraffic traffic;
+        private final CommandSequencer sequencer;
+        private final ByteBuffer header = ByteBuffer.allocate(FrameCodec.HEADER_BYTES);
+        private final Queue<ByteBuffer> outgoing = new ConcurrentLinkedQueue<>();
+        private final AtomicLong queuedBytes = new AtomicLong();
+        private final Lock drainLock = new ReentrantLock();
+        private final Condition drained = drainLock.newCondition();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private ByteBuffer payload;
+        private SelectionKey key;
+        private boolean pushing;
+        private volatile boolean closeRequested;
+        private volatile boolean stalled;
+
+        private Connection(SocketChannel channel, ClientSession session, SessionTraffic traffic, Executor workers) {
+            this.channel = channel;
+            this.session = session;
+            this.traffic = traffic;
+            this.sequencer = new CommandSequencer(workers);
+        }
+    }
+
+    /**
+     * Constructor for NioServerTransport.
+     * Binds the listening socket, the connections are served once {@link #run()} is called.
+     *
+     * @param server The server whose sessions and dispatcher are used
+     * @param port The port to listen on, {@code 0} picks a free port
+     * @param workerThreads The number of threads dispatching the commands
+     * @throws IOException if the socket cannot be bound
+     */
+    NioServerTransport(Server server, int port, int workerThreads) throws IOException {
+        this(server, port, workerThreads, DRAIN_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Constructor for NioServerTransport.
+     * Binds the listening socket, the connections are served once {@link #run()} is called.
+     *
+     * @param server The server whose sessions and dispatcher are used
+     * @param port The port to listen on, {@code 0} picks a free port
+     * @param workerThreads The number of threads dispatching the commands
+     * @param drainTimeoutMillis The time a streamed query waits for the client to drain the connection before it is closed
+     * @throws IOException if the socket cannot be bound
+     */
+    NioServerTransport(Server server, int port, int workerThreads, long drainTimeoutMillis) throws IOException {
+        this.server = server;
+        this.drainTimeoutMillis = drainTimeoutMillis;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(new InetSocketAddress(port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            serverChannel.close();
+            selector.close();
+            throw e;
+        }
+        this.workers = Executors.newFixedThreadPool(workerThreads, Thread.ofPlatform().name("nio-worker-", 0).factory());
+        this.streams = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("nio-stream-", 0).factory());
+    }
+
+    /**
+     * Gets the port the transport listens on.
+     *
+     * @return The local port
+     * @throws IOException if the port cannot be determined
+     */
+    int getLocalPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Runs the event loop until the transport is closed, then closes all connections and the listening socket.
+     *
+     * @throws IOException if the selector fails
+     */
+    void run() throws IOException {
+        LOGGER.info("Non-blocking server started on port {}", getLocalPort());
+        try {
+            loop();
+        } finally {
+            shutdown();
+        }
+    }
+
+    private void loop() throws IOException {
+        while (running) {
+            selector.select();
+            registerPendingConnections();
+
+            var keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (!key.isValid()) {
+                    continue;
+                }
+
+                if (key.isAcceptable()) {
+                    try {
+                        accept();
+                    } catch (IOException e) {
+                        LOGGER.error("Failed to accept a client connection.", e);
+                    }
+                    continue;
+                }
+                var connection = (Connection) key.attachment();
+                try {
+                    if (key.isReadable()) {
+                        read(connection);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        write(connection);
+                    }
+                } catch (IOException e) {
+                    LOGGER.error("Client session '{}' encountered an IO error.", connection.session.getSessionId(), e);
+                    close(connection);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the event loop. The loop closes the connections once it exits.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Waits for the running commands and closes all connections, the listening socket and the selector.
+     */
+    private void shutdown() {
+        workers.close();
+        streams.close();
+        for (var key : selector.keys()) {
+            if (key.attachment() instanceof Connection connection) {
+                close(connection);
+            }
+        }
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            LOGGER.error("Failed to close the non-blocking transport.", e);
+        }
+        LOGGER.info("Non-blocking server stopped");
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+
+        var session = server.openSession(channel.getRemoteAddress());
+        var connection = new Connection(channel, session, server.trafficOf(session), workers);
+        ByteBuffer sessionId = encode(connection.session.getSessionId(), WireProtocol.BINARY);
+        connection.queuedBytes.addAndGet(sessionId.capacity());
+        connection.outgoing.add(sessionId);
+        connection.key = channel.register(selector, SelectionKey.OP_WRITE, connection);
+        LOGGER.info("Client address '{}' connected with sessionId '{}'", connection.session.getClientAddress(), connection.session.getSessionId());
+    }
+
+    /**
+     * Reads the available frames and schedules their commands. The connection stops reading
+     *  once the limit of the commands in flight is reached.
+     */
+    private void read(Connection connection) throws IOException {
+        while (true) {
+            ByteBuffer target = connection.payload != null ? connection.payload : connection.header;
+            int read = connection.channel.read(target);
+            if (read < 0) {
+                LOGGER.info("Client session '{}' closed the connection.", connection.session.getSessionId());
+                close(connection);
+                return;
+            }
+            connection.traffic.received(read);
+            if (target.hasRemaining()) {
+                return; // wait for the rest of the frame
+            }
+
+            if (target == connection.header) {
+                int length = FrameCodec.checkPayloadLength(connection.header.flip().getInt());
+                connection.header.clear();
+                connection.payload = ByteBuffer.allocate(length);
+                continue;
+            }
+
+            byte[] frame = connection.payload.array();
+            connection.payload = null;
+            schedule(connection, frame);
+            if (connection.inFlight.get() >= MAX_IN_FLIGHT_COMMANDS) {
+                updateInterest(connection);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Decodes the command of a frame and schedules its execution by the sequencer of the connection.
+     */
+    private void schedule(Connection connection, byte[] frame) throws IOException {
+        WireProtocol protocol = FrameCodec.protocolOf(frame);
+        Object message;
+        try {
+            message = FrameCodec.decode(frame);
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Failed to decode the command", e);
+        }
+
+        if (message instanceof CorrelatedMessage(long requestId, Object command)) {
+            attachPushChannel(connection, protocol);
+            schedule(connection, command, requestId, protocol);
+        } else {
+            schedule(connection, message, null, protocol);
+        }
+    }
+
+    /**
+     * Attaches the push channel to a connection once it sends a correlated command,
+     *  as such a client tells the pushed notifications apart from the responses.
+     *  The notifications are queued like the responses and written by the selector thread.
+     */
+    private void attachPushChannel(Connection connection, WireProtocol protocol) {
+        if (connection.pushing) {
+            return;
+        }
+        connection.pushing = true;
+        server.attachPushChannel(connection.session, notification -> {
+            if (connection.queuedBytes.get() > MAX_QUEUED_BYTES) {
+                LOGGER.warn("Client session '{}' does not keep up with its notifications, closing the connection.", connection.session.getSessionId());
+                connection.closeRequested = true;
+            } else {
+                queue(connection, notification, CorrelatedMessage.PUSH_REQUEST_ID, protocol);
+            }
+            pendingConnections.add(connection);
+            selector.wakeup();
+        });
+    }
+
+    private void schedule(Connection connection, Object message, Long requestId, WireProtocol protocol) throws IOException {
+        if (!(message instanceof Command command)) {
+            throw new IOException("Expected a command but received: " + message);
+        }
+        LOGGER.info("Client session '{}': Received command '{}'.", connection.session.getSessionId(), command);
+
+        connection.inFlight.incrementAndGet();
+        connection.sequencer.submitAsync(command, requestId != null, () -> process(connection, command, requestId, protocol));
+    }
+
+    /**
+     * Dispatches a single command on a worker thread and queues its response once it is done.
+     * The worker does not wait for the storage operations of the command. A streamed query is handed over
+     *  to a virtual thread, which queues its pages one by one as they are read and only as fast as the client drains them.
+     */
+    private CompletableFuture<Void> process(Connection connection, Command command, Long requestId, WireProtocol protocol) {
+        ClientSession session = connection.session;
+        CompletableFuture<Response> response;
+        try {
+            if (!server.isSessionValid(session.getSessionId())) {
+                response = CompletableFuture.completedFuture(null);
+            } else if (command instanceof EventQueryCommand query && query.isStreamed()) {
+                response = stream(connection, query, requestId, protocol);
+            } else {
+                response = server.dispatchAsync(command, session);
+            }
+        } catch (Exception e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        return response.handle((result, error) -> {
+            complete(connection, result, error, requestId, protocol);
+            return null;
+        });
+    }
+
+    /**
+     * Dispatches a streamed query on a virtual thread of its own, so the thread blocked until the client drains
+     *  the connection is not taken from the worker pool.
+     */
+    private CompletableFuture<Response> stream(Connection connection, EventQueryCommand query, Long requestId, WireProtocol protocol) {
+        var response = new CompletableFuture<Response>();
+        streams.execute(() -> {
+            try {
+                response.complete(server.dispatch(query, connection.session, partial -> {
+                    queue(connection, partial, requestId, protocol);
+                    pendingConnections.add(connection);
+                    selector.wakeup();
+                    awaitDrained(connection);
+                }));
+            } catch (Throwable e) {
+                response.completeExceptionally(e);
+            }
+        });
+        return response;
+    }
+
+    /**
+     * Queues the response of a dispatched command, or closes the connection if the command failed or ended the session.
+     */
+    private void complete(Connection connection, Response response, Throwable error, Long requestId, WireProtocol protocol) {
+        ClientSession session = connection.session;
+        try {
+            if (error != null) {
+                throw error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            }
+            if (response != null) {
+                queue(connection, response, requestId, protocol);
+            }
+            if (!server.isSessionValid(session.getSessionId())) {
+                connection.closeRequested = true;
+            }
+        } catch (Throwable e) {
+            LOGGER.error("Client session '{}' encountered an unexpected error.", session.getSessionId(), e);
+            connection.closeRequested = true;
+        } finally {
+            connection.inFlight.decrementAndGet();
+        }
+
+        pendingConnections.add(connection);
+        selector.wakeup();
+    }
+
+    /**
+     * Queues a response to be written by the selector thread, answered in the protocol of the command.
+     */
+    private static void queue(Connection connection, Response response, Long requestId, WireProtocol protocol) throws IOException {
+        Object message = requestId != null ? new CorrelatedMessage(requestId, response) : response;
+        ByteBuffer frame = encode(message, protocol);
+        connection.queuedBytes.addAndGet(frame.capacity());
+        connection.outgoing.add(frame);
+    }
+
+    /**
+     * Blocks the streaming thread until the frames queued for the connection drop to {@link #MAX_QUEUED_BYTES}.
+     * If the client does not drain the connection within the drain timeout, the connection is closed
+     *  without writing the queued frames.
+     *
+     * @throws IOException if the connection or the transport is closed meanwhile, or the drain timeout expires
+     */
+    private void awaitDrained(Connection connection) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMillis);
+        connection.drainLock.lock();
+        try {
+            while (connection.queuedBytes.get() > MAX_QUEUED_BYTES) {
+                if (!running || !connection.channel.isOpen()) {
+                    throw new IOException("The connection was closed before its queued responses were written");
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    LOGGER.warn("Client session '{}' does not drain its streamed query, closing the connection.", connection.session.getSessionId());
+                    connection.stalled = true;
+                    pendingConnections.add(connection);
+                    selector.wakeup();
+                    throw new IOException("The client did not drain the connection within " + drainTimeoutMillis + " ms");
+                }
+                connection.drained.await(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(DRAIN_CHECK_MILLIS)), TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the connection to drain");
+        } finally {
+            connection.drainLock.unlock();
+        }
+    }
+
+    /**
+     * Subtracts the written frames from the queued bytes and wakes up the workers waiting for the connection to drain.
+     */
+    private static void release(Connection connection, long writtenBytes) {
+        if (connection.queuedBytes.addAndGet(-writtenBytes) > MAX_QUEUED_BYTES) {
+            return;
+        }
+        connection.drainLock.lock();
+        try {
+            connection.drained.signalAll();
+        } finally {
+            connection.drainLock.unlock();
+        }
+    }
+
+    /**
+     * Updates the interest of the connections with queued responses, finished commands or close requests.
+     */
+    private void registerPendingConnections() {
+        Connection connection;
+        while ((connection = pendingConnections.poll()) != null) {
+            if (connection.key.isValid()) {
+                updateInterest(connection);
+            }
+        }
+    }
+
+    /**
+     * Writes while there are queued responses and reads while the limit of the commands in flight is not reached.
+     * A connection whose session has ended is closed once all its responses are written,
+     *  a connection whose client stopped draining a streamed query is closed at once.
+     */
+    private void updateInterest(Connection connection) {
+        if (connection.stalled) {
+            close(connection);
+            return;
+        }
+        boolean writing = !connection.outgoing.isEmpty();
+        if (connection.closeRequested) {
+            if (!writing && connection.inFlight.get() == 0) {
+                close(connection);
+            } else {
+                connection.key.interestOps(writing ? SelectionKey.OP_WRITE : 0);
+            }
+            return;
+        }
+
+        boolean reading = connection.inFlight.get() < MAX_IN_FLIGHT_COMMANDS;
+        connection.key.interestOps((writing ? SelectionKey.OP_WRITE : 0) | (reading ? SelectionKey.OP_READ : 0));
+    }
+
+    /**
+     * Writes the queued frames. Once all are written, the connection either keeps reading the commands
+     *  or is closed if its session has ended.
+     */
+    private void write(Connection connection) throws IOException {
+        ByteBuffer frame;
+        long writtenBytes = 0;
+        try {
+            while ((frame = connection.outgoing.peek()) != null) {
+                connection.traffic.sent(connection.channel.write(frame));
+                if (frame.hasRemaining()) {
+                    return; // the socket buffer is full, wait until it drains
+                }
+                connection.outgoing.poll();
+                writtenBytes += frame.capacity();
+            }
+        } finally {
+            if (writtenBytes > 0) {
+                release(connection, writtenBytes);
+            }
+        }
+        updateInterest(connection);
+    }
+
+    private void close(Connection connection) {
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            LOGGER.error("Client session '{}' failed to close socket.", connection.session.getSessionId(), e);
+        }
+        release(connection, 0); // the waiting workers give up on the closed connection
+        server.closeSession(connection.session);
+    }
+
+    private static ByteBuffer encode(Object message, WireProtocol protocol) throws IOException {
+        return ByteBuffer.wrap(FrameCodec.encode(message, protocol));
+    }
+}
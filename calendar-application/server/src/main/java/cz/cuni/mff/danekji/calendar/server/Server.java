@@ -1,22 +1,40 @@
 package cz.cuni.mff.danekji.calendar.server;
 
+import java.io.BufferedOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.ServerSocket;
+import java.net.SocketAddress;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
 
-import cz.cuni.mff.danekji.calendar.core.commands.CommandVisitor;
+import cz.cuni.mff.danekji.calendar.core.commands.EventQueryCommand;
 import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
+import cz.cuni.mff.danekji.calendar.core.network.CorrelatedMessage;
+import cz.cuni.mff.danekji.calendar.core.network.ProtocolNegotiation;
+import cz.cuni.mff.danekji.calendar.core.network.WireProtocol;
+import cz.cuni.mff.danekji.calendar.server.metrics.MetricsRegistry;
+import cz.cuni.mff.danekji.calendar.server.metrics.MetricsReporter;
+import cz.cuni.mff.danekji.calendar.server.storage.BinaryEventRepository;
+import cz.cuni.mff.danekji.calendar.server.storage.FileEventRepository;
+import cz.cuni.mff.danekji.calendar.server.storage.StorageConfiguration;
 import cz.cuni.mff.danekji.calendar.server.storage.XMLEventRepository;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -24,6 +42,8 @@ import org.apache.logging.log4j.Logger;
 import cz.cuni.mff.danekji.calendar.server.storage.EventRepository;
 import cz.cuni.mff.danekji.calendar.core.commands.Command;
 import cz.cuni.mff.danekji.calendar.core.responses.Response;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessEventChunkResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessEventListResponse;
 
 /**
  * Main server class that manages client connections and dispatches commands.
@@ -33,16 +53,42 @@ public class Server {
 
     private static final Random RANDOM = new Random(42);
     private final Map<Integer, ClientSession> sessions = Collections.synchronizedMap(new HashMap<>());
-    private final CommandVisitor<Response, ClientSession> commandDispatcher;
+    private final Map<Integer, SessionTraffic> traffic = new ConcurrentHashMap<>();
+    private final ChangeSubscriptions subscriptions = new ChangeSubscriptions();
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final LongAdder bytesReceived = metrics.counter("network.bytes_in");
+    private final LongAdder bytesSent = metrics.counter("network.bytes_out");
+    private final DefaultCommandDispatcher commandDispatcher;
 
     /**
-     * Constructor for the server.
-     * Initializes the command dispatcher with the provided event repository.
+     * Constructor for the server with the default configuration.
+     * Initializes the command dispatcher with the provided event repository
+     *  and pushes the changes of its calendars to the subscribed sessions.
      *
      * @param eventRepository The event repository to be used for storing events.
      */
     public Server(EventRepository eventRepository) {
-        this.commandDispatcher = new DefaultCommandDispatcher(eventRepository);
+        this(eventRepository, new ServerConfiguration(new Properties()));
+    }
+
+    /**
+     * Constructor for the server.
+     * Initializes the command dispatcher with the provided event repository
+     *  and pushes the changes of its calendars to the subscribed sessions.
+     *  The metrics of the server and of the repository are collected into a single registry.
+     *  The traffic of the sessions is reported by the totals and by the busiest session only,
+     *  so the size of the statistics does not grow with the number of the connected clients.
+     *
+     * @param eventRepository The event repository to be used for storing events.
+     * @param configuration The configuration of the server (e.g. its administrators).
+     */
+    public Server(EventRepository eventRepository, ServerConfiguration configuration) {
+        this.commandDispatcher = new DefaultCommandDispatcher(eventRepository, subscriptions, metrics, configuration.getAdmins());
+        eventRepository.addChangeListener(subscriptions::publish);
+        eventRepository.registerMetrics(metrics);
+        metrics.gauge("sessions.active", sessions::size);
+        metrics.gauge("sessions.max_bytes_in", () -> maxTraffic(SessionTraffic::getBytesReceived));
+        metrics.gauge("sessions.max_bytes_out", () -> maxTraffic(SessionTraffic::getBytesSent));
         LOGGER.info("Server initialized with event repository: {}", eventRepository.getClass().getSimpleName());
     }
 
@@ -65,43 +111,206 @@ public class Server {
      * @param port The port on which the server will listen for incoming connections.
      */
     public void start(int port) {
-        try (ServerSocket serverSocket = new ServerSocket(port);
-             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+        try (ServerSocket serverSocket = new ServerSocket(port)) {
             LOGGER.info("Server started on port {}", port);
+            serve(serverSocket);
+        } catch (Exception e) {
+            LOGGER.fatal("Failed to start server on port '{}'", port, e);
+        }
+    }
 
-            while (true) {
-                Socket clientSocket = serverSocket.accept();
-                int sessionId = getUniqueSessionId();
-                var newSession = new ClientSession(sessionId, clientSocket.getRemoteSocketAddress());
-                var retrievedSession = sessions.put(sessionId, newSession);
-                assert retrievedSession == null;
+    /**
+     * Accepts the connections of the bound socket until it is closed.
+     * Each connection is handled in a separate virtual thread, the handlers are awaited before returning.
+     *
+     * @param serverSocket The bound listening socket.
+     * @throws IOException if accepting a connection fails.
+     */
+    void serve(ServerSocket serverSocket) throws IOException {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (!serverSocket.isClosed()) {
+                Socket clientSocket;
+                try {
+                    clientSocket = serverSocket.accept();
+                } catch (SocketException e) {
+                    if (serverSocket.isClosed()) {
+                        return;
+                    }
+                    throw e;
+                }
+                var newSession = openSession(clientSocket.getRemoteSocketAddress());
 
                 executor.submit(() -> handleClient(clientSocket, newSession));
             }
+        }
+    }
+
+    /**
+     * Starts the server with the non-blocking transport and serves the connections on the current thread.
+     * The clients must use the framed protocol of the {@link cz.cuni.mff.danekji.calendar.core.network.FrameCodec}.
+     *
+     * @param port The port on which the server will listen for incoming connections.
+     * @param workerThreads The number of threads dispatching the received commands.
+     */
+    public void startNonBlocking(int port, int workerThreads) {
+        try (var transport = new NioServerTransport(this, port, workerThreads)) {
+            transport.run();
         } catch (Exception e) {
-            LOGGER.fatal("Failed to start server on port '{}'", port, e);
+            LOGGER.fatal("Failed to start non-blocking server on port '{}'", port, e);
+        }
+    }
+
+    /**
+     * Creates and registers a new session for a connected client.
+     *
+     * @param clientAddress The address of the client.
+     * @return The new session.
+     */
+    ClientSession openSession(SocketAddress clientAddress) {
+        var newSession = new ClientSession(getUniqueSessionId(), clientAddress);
+        var sessionTraffic = new SessionTraffic(bytesReceived, bytesSent);
+        traffic.put(newSession.getSessionId(), sessionTraffic);
+        var retrievedSession = sessions.put(newSession.getSessionId(), newSession);
+        assert retrievedSession == null;
+        return newSession;
+    }
+
+    /**
+     * Gets the counters of the bytes received from and sent to the session.
+     *
+     * @param session The open session.
+     * @return The traffic of the session.
+     */
+    SessionTraffic trafficOf(ClientSession session) {
+        return traffic.get(session.getSessionId());
+    }
+
+    /**
+     * Finds the largest byte count of the open sessions.
+     *
+     * @param bytes Gets one of the byte counts of a session.
+     * @return The largest count, 0 if there is no open session.
+     */
+    private long maxTraffic(ToLongFunction<SessionTraffic> bytes) {
+        return traffic.values().stream().mapToLong(bytes).max().orElse(0);
+    }
+
+    /**
+     * Gets the registry of the server metrics.
+     *
+     * @return The metrics registry.
+     */
+    MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Removes the session of a disconnected client.
+     *
+     * @param session The session to remove.
+     */
+    void closeSession(ClientSession session) {
+        subscriptions.detach(session);
+        traffic.remove(session.getSessionId());
+        if (sessions.remove(session.getSessionId()) != null) {
+            LOGGER.info("Client session '{}': Terminated and removed from sessions map.", session.getSessionId());
         }
     }
 
+    /**
+     * Attaches the channel carrying the pushed notifications to the connection of the session,
+     *  so the session can subscribe to the changes of its calendar.
+     *
+     * @param session The session of the connection.
+     * @param channel The channel writing the notifications into the connection.
+     */
+    void attachPushChannel(ClientSession session, ChangeSubscriptions.PushChannel channel) {
+        subscriptions.attach(session, channel);
+    }
+
+    /**
+     * Executes the command within the session.
+     *
+     * @param command The received command.
+     * @param session The session of the client which sent the command.
+     * @return The response to send back.
+     */
+    Response dispatch(Command command, ClientSession session) {
+        return commandDispatcher.dispatch(command, session);
+    }
+
+    /**
+     * Executes the command within the session without holding the calling thread while its storage operations run.
+     *
+     * @param command The received command.
+     * @param session The session of the client which sent the command.
+     * @return The future completed with the response to send back.
+     */
+    CompletableFuture<Response> dispatchAsync(Command command, ClientSession session) {
+        return commandDispatcher.dispatchAsync(command, session);
+    }
+
+    /**
+     * Receives the partial responses to a streamed command, in order.
+     */
+    @FunctionalInterface
+    interface PartialResponseSink {
+        /**
+         * Sends a partial response to the client.
+         *
+         * @param response The partial response
+         * @throws IOException if the response cannot be sent
+         */
+        void send(Response response) throws IOException;
+    }
+
+    /**
+     * Executes the command within the session, streaming the pages of a streamed {@link EventQueryCommand}.
+     * Every page but the last is sent to the sink as a partial {@link SuccessEventChunkResponse} as soon as it is read,
+     *  so neither side holds the whole event list. Each next page is queried after the cursor of the previous one.
+     *
+     * @param command The received command.
+     * @param session The session of the client which sent the command.
+     * @param partialResponses The sink of the partial responses.
+     * @return The final response to send back.
+     * @throws IOException if a partial response cannot be sent
+     */
+    Response dispatch(Command command, ClientSession session, PartialResponseSink partialResponses) throws IOException {
+        Response response = dispatch(command, session);
+        if (!(command instanceof EventQueryCommand query) || !query.isStreamed()) {
+            return response;
+        }
+
+        while (response instanceof SuccessEventListResponse page && page.nextCursor() != null) {
+            partialResponses.send(new SuccessEventChunkResponse(page.events(), false));
+            query = query.continueAfter(page.nextCursor());
+            response = dispatch(query, session);
+        }
+        return response instanceof SuccessEventListResponse page ? new SuccessEventChunkResponse(page.events(), true) : response;
+    }
+
     /**
      * Handles client connections in a separate thread.
      * Sets up the connection, processes commands, and ensures proper cleanup.
      */
     private void handleClient(Socket clientSocket, ClientSession session) {
-        try (ObjectInputStream in = new ObjectInputStream(clientSocket.getInputStream());
-             ObjectOutputStream out = new ObjectOutputStream(clientSocket.getOutputStream())) {
+        var sessionTraffic = trafficOf(session);
+        try (ObjectInputStream in = new ObjectInputStream(sessionTraffic.countReceived(clientSocket.getInputStream()));
+             ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(sessionTraffic.countSent(clientSocket.getOutputStream())))) {
             sendSessionId(out, session);
-            runSessionLoop(in, out, session);
-        } catch (IOException e) {
+            WireProtocol protocol = negotiateProtocol(in, out, session);
+            runSessionLoop(clientSocket, in, out, session, protocol);
+        } catch (EOFException e) {
+            LOGGER.info("Client session '{}' closed the connection.", session.getSessionId());
+        } catch (IOException | ClassNotFoundException e) {
             LOGGER.error("Client session '{}' encountered an IO error.", session.getSessionId(), e);
         } finally {
-            sessions.remove(session.getSessionId());
             try {
                 clientSocket.close();
             } catch (IOException e) {
                 LOGGER.error("Client session '{}' failed to close socket.", session.getSessionId(), e);
             }
-            LOGGER.info("Client session '{}': Terminated and removed from sessions map.", session.getSessionId());
+            closeSession(session);
         }
     }
 
@@ -114,25 +323,113 @@ public class Server {
         LOGGER.info("Client address '{}' connected with sessionId '{}'", session.getClientAddress(), session.getSessionId());
     }
 
+    /**
+     * Negotiates the wire protocol with the client (see {@link ProtocolNegotiation}).
+     * A client which sends its first command instead of negotiating is served with Java serialization,
+     *  its command is processed right away.
+     */
+    private WireProtocol negotiateProtocol(ObjectInputStream in, ObjectOutputStream out, ClientSession session) throws IOException, ClassNotFoundException {
+        Object first = in.readObject();
+        if (first instanceof ProtocolNegotiation offer) {
+            ProtocolNegotiation accepted = offer.accept();
+            out.writeObject(accepted);
+            out.flush();
+            WireProtocol protocol = WireProtocol.ofCodecVersion(accepted.codecVersion());
+            LOGGER.info("Client session '{}': Negotiated wire protocol '{}'.", session.getSessionId(), protocol);
+            return protocol;
+        }
+
+        LOGGER.info("Client session '{}': Client did not negotiate, using Java serialization.", session.getSessionId());
+        Command command = (Command) first;
+        LOGGER.info("Client session '{}': Received command '{}'.", session.getSessionId(), command);
+        WireProtocol.SERIALIZATION.write(out, dispatch(command, session));
+        out.flush();
+        return WireProtocol.SERIALIZATION;
+    }
+
     /**
      * Runs the loop to process commands while the session is valid.
+     * The commands are read as they arrive and executed in the order given by the {@link CommandSequencer},
+     *  the loop returns once all the received commands are answered. Like the non-blocking transport, the loop stops
+     *  reading once {@link NioServerTransport#MAX_IN_FLIGHT_COMMANDS} of the pipelined commands are not answered yet.
+     *  A client sending the correlated commands tells the pushed notifications apart from the responses,
+     *  so its connection gets a push channel.
      */
-    private void runSessionLoop(ObjectInputStream in, ObjectOutputStream out, ClientSession session) throws IOException {
-        while (isSessionValid(session.getSessionId())) {
+    private void runSessionLoop(Socket clientSocket, ObjectInputStream in, ObjectOutputStream out, ClientSession session, WireProtocol protocol) {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var sequencer = new CommandSequencer(executor);
+            var writer = new ResponseWriter(out, protocol, new ReentrantLock());
+            var inFlight = new Semaphore(NioServerTransport.MAX_IN_FLIGHT_COMMANDS);
+            boolean pushing = false;
             try {
-                Command command = (Command) in.readObject();
-                LOGGER.info("Client session '{}': Received command '{}'.", session.getSessionId(), command);
+                while (isSessionValid(session.getSessionId())) {
+                    inFlight.acquire();
+                    Object message = protocol.read(in);
+                    Long requestId = null;
+                    if (message instanceof CorrelatedMessage(long id, Object wrapped)) {
+                        if (!pushing) {
+                            attachPushChannel(session, notification -> writer.send(notification, CorrelatedMessage.PUSH_REQUEST_ID));
+                            pushing = true;
+                        }
+                        requestId = id;
+                        message = wrapped;
+                    }
+                    Command command = (Command) message;
+                    LOGGER.info("Client session '{}': Received command '{}'.", session.getSessionId(), command);
 
-                Response response = command.accept(commandDispatcher, session);
-                out.writeObject(response);
-                out.flush();
+                    Long correlationId = requestId;
+                    sequencer.submit(command, correlationId != null, () -> {
+                        try {
+                            respond(clientSocket, writer, session, command, correlationId);
+                        } finally {
+                            inFlight.release();
+                        }
+                        return null;
+                    });
+                }
             } catch (EOFException e) {
                 LOGGER.info("Client session '{}' closed the connection.", session.getSessionId());
-                return;
             } catch (Exception e) {
                 LOGGER.error("Client session '{}' encountered an unexpected error.", session.getSessionId(), e);
+            }
+            sequencer.whenIdle().join();
+        }
+    }
+
+    /**
+     * Executes a single command and writes its response, tagged with the request ID if the command was.
+     * Once the session ends, the reading of the next command is interrupted.
+     */
+    private void respond(Socket clientSocket, ResponseWriter writer, ClientSession session, Command command, Long requestId) {
+        try {
+            if (!isSessionValid(session.getSessionId())) {
                 return;
             }
+            Response response = dispatch(command, session, partial -> writer.send(partial, requestId));
+            writer.send(response, requestId);
+            if (!isSessionValid(session.getSessionId())) {
+                clientSocket.shutdownInput(); // the loop reading the next command gets the end of the stream
+            }
+        } catch (IOException e) {
+            LOGGER.error("Client session '{}' failed to send the response.", session.getSessionId(), e);
+        }
+    }
+
+    /**
+     * Writes the responses of a single session, tagged with the request ID if the command was.
+     * The writes of the concurrently executed commands (and of the pushed notifications) are serialized
+     *  by a {@link ReentrantLock}. A write blocks until the client drains the connection, and a virtual thread
+     *  blocked inside a {@code synchronized} block would stay pinned to its carrier thread meanwhile.
+     */
+    private record ResponseWriter(ObjectOutputStream out, WireProtocol protocol, Lock lock) {
+        private void send(Response response, Long requestId) throws IOException {
+            lock.lock();
+            try {
+                protocol.write(out, requestId != null ? new CorrelatedMessage(requestId, response) : response);
+                out.flush();
+            } finally {
+                lock.unlock();
+            }
         }
     }
 
@@ -142,14 +439,16 @@ public class Server {
      * @param sessionId The ID of the session to check.
      * @return true if the session is valid, false otherwise.
      */
-    private boolean isSessionValid(int sessionId) {
+    boolean isSessionValid(int sessionId) {
         ClientSession session = sessions.get(sessionId);
         return session != null && session.isActive();
     }
 
     /**
      * Main method to start the server.
-     * Initializes the server with an XML event repository and starts listening on the specified port.
+     * Initializes the server with an XML (or, if configured, binary) event repository and starts listening on the specified port.
+     * The storage is configured by the system properties described in {@link StorageConfiguration},
+     *  the transport by the ones described in {@link ServerConfiguration}.
      *
      * @param args Command line arguments (not used).
      */
@@ -161,7 +460,22 @@ public class Server {
 
         final int port = args.length == 0 ? 8080 : Integer.parseInt(args[0]);
 
-        Server server = new Server(new XMLEventRepository());
-        server.start(port);
+        var configuration = StorageConfiguration.fromSystemProperties();
+        FileEventRepository repository = switch (configuration.getEngine()) {
+            case XML -> new XMLEventRepository(configuration);
+            case BINARY -> new BinaryEventRepository(configuration);
+        };
+        Runtime.getRuntime().addShutdownHook(new Thread(repository::close, "repository-shutdown"));
+
+        var serverConfiguration = ServerConfiguration.fromSystemProperties();
+        Server server = new Server(repository, serverConfiguration);
+        if (serverConfiguration.getStatsIntervalSeconds() > 0) {
+            var reporter = new MetricsReporter(server.getMetrics(), serverConfiguration.getStatsIntervalSeconds(), serverConfiguration.getStatsFile());
+            Runtime.getRuntime().addShutdownHook(new Thread(reporter::close, "metrics-shutdown"));
+        }
+        switch (serverConfiguration.getTransport()) {
+            case BLOCKING -> server.start(port);
+            case NIO -> server.startNonBlocking(port, serverConfiguration.getWorkerThreads());
+        }
     }
 }
\ No newline at end of file
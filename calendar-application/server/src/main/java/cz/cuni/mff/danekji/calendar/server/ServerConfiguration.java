@@ -0,0 +1,132 @@
+package cz.cuni.mff.danekji.calendar.server;
+
+import cz.cuni.mff.danekji.calendar.core.exceptions.server.ServerException;
+import cz.cuni.mff.danekji.calendar.server.config.PropertiesReader;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Configuration of the server's network layer.
+ * <p>
+ * The values are read from a {@link Properties} instance (usually the JVM system properties, so they can be passed
+ *  as {@code -Dname=value} to {@code mvn exec:java}). Missing properties fall back to the documented defaults.
+ */
+public final class ServerConfiguration {
+    /**
+     * How the server talks to its clients, either {@code blocking} or {@code nio}.
+     */
+    public static final String TRANSPORT = "calendar.server.transport";
+
+    /**
+     * The default transport.
+     */
+    public static final Transport DEFAULT_TRANSPORT = Transport.BLOCKING;
+
+    /**
+     * The number of worker threads dispatching the commands received by the {@code nio} transport.
+     */
+    public static final String WORKER_THREADS = "calendar.server.nio.workerThreads";
+
+    /**
+     * The comma-separated usernames of the administrators, who are allowed to retrieve the server statistics.
+     */
+    public static final String ADMINS = "calendar.server.admins";
+
+    /**
+     * The interval in seconds between the dumps of the server statistics, {@code 0} disables the dumps.
+     */
+    public static final String STATS_INTERVAL_SECONDS = "calendar.server.stats.intervalSeconds";
+
+    /**
+     * The CSV file the dumps of the server statistics are appended to, if not set the statistics are only logged.
+     */
+    public static final String STATS_FILE = "calendar.server.stats.file";
+
+    private final PropertiesReader properties;
+
+    /**
+     * Constructor for ServerConfiguration.
+     *
+     * @param properties The properties from which the configuration values are read.
+     */
+    public ServerConfiguration(Properties properties) {
+        this.properties = new PropertiesReader(properties);
+    }
+
+    /**
+     * Creates a configuration backed by the JVM system properties.
+     *
+     * @return The server configuration read from the system properties.
+     */
+    public static ServerConfiguration fromSystemProperties() {
+        return new ServerConfiguration(System.getProperties());
+    }
+
+    /**
+     * Gets how the server talks to its clients.
+     *
+     * @return The transport.
+     * @throws ServerException if the configured value is not a known transport
+     */
+    public Transport getTransport() {
+        return properties.getEnum(TRANSPORT, Transport.class, DEFAULT_TRANSPORT);
+    }
+
+    /**
+     * Gets the number of worker threads of the {@code nio} transport.
+     *
+     * @return The number of worker threads, by default the number of available processors.
+     * @throws ServerException if the configured value is not a positive number
+     */
+    public int getWorkerThreads() {
+        int workerThreads = properties.getInt(WORKER_THREADS, Runtime.getRuntime().availableProcessors());
+        if (workerThreads <= 0) {
+            throw new ServerException("Property '" + WORKER_THREADS + "' must be positive");
+        }
+        return workerThreads;
+    }
+
+    /**
+     * Gets the usernames of the administrators of the server.
+     *
+     * @return The usernames, by default none.
+     */
+    public Set<String> getAdmins() {
+        String value = properties.getString(ADMINS);
+        if (value == null) {
+            return Set.of();
+        }
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(username -> !username.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * Gets the interval between the dumps of the server statistics.
+     *
+     * @return The interval in seconds, {@code 0} (the default) if the statistics are not dumped.
+     * @throws ServerException if the configured value is not a non-negative number
+     */
+    public long getStatsIntervalSeconds() {
+        long interval = properties.getLong(STATS_INTERVAL_SECONDS, 0);
+        if (interval < 0) {
+            throw new ServerException("Property '" + STATS_INTERVAL_SECONDS + "' must not be negative");
+        }
+        return interval;
+    }
+
+    /**
+     * Gets the CSV file the dumps of the server statistics are appended to.
+     *
+     * @return The file, or null if the statistics are only logged.
+     */
+    public Path getStatsFile() {
+        String value = properties.getString(STATS_FILE);
+        return value == null ? null : Path.of(value);
+    }
+}
@@ -0,0 +1,122 @@
+package cz.cuni.mff.danekji.calendar.server;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The number of bytes received from and sent to a single session, added to the totals of the server as well.
+ * The bytes of a session are counted by a single thread at a time (its reader or the writer holding its stream),
+ *  so its own counters never contend, only the totals are striped.
+ */
+final class SessionTraffic {
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final LongAdder totalReceived;
+    private final LongAdder totalSent;
+
+    /**
+     * Constructor for SessionTraffic.
+     *
+     * @param totalReceived The total number of bytes received by the server
+     * @param totalSent The total number of bytes sent by the server
+     */
+    SessionTraffic(LongAdder totalReceived, LongAdder totalSent) {
+        this.totalReceived = totalReceived;
+        this.totalSent = totalSent;
+    }
+
+    /**
+     * Counts the bytes received from the session.
+     *
+     * @param bytes The number of received bytes
+     */
+    void received(long bytes) {
+        if (bytes > 0) {
+            bytesReceived.addAndGet(bytes);
+            totalReceived.add(bytes);
+        }
+    }
+
+    /**
+     * Counts the bytes sent to the session.
+     *
+     * @param bytes The number of sent bytes
+     */
+    void sent(long bytes) {
+        if (bytes > 0) {
+            bytesSent.addAndGet(bytes);
+            totalSent.add(bytes);
+        }
+    }
+
+    /**
+     * Gets the number of bytes received from the session.
+     *
+     * @return The number of received bytes
+     */
+    long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    /**
+     * Gets the number of bytes sent to the session.
+     *
+     * @return The number of sent bytes
+     */
+    long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    /**
+     * Wraps the input stream of the session's socket, so the bytes read from it are counted.
+     *
+     * @param input The input stream of the socket
+     * @return The counting stream
+     */
+    InputStream countReceived(InputStream input) {
+        return new FilterInputStream(input) {
+            @Override
+            public int read() throws IOException {
+                int value = super.read();
+                if (value >= 0) {
+                    received(1);
+                }
+                return value;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int read = super.read(buffer, offset, length);
+                received(read);
+                return read;
+            }
+        };
+    }
+
+    /**
+     * Wraps the output stream of the session's socket, so the bytes written to it are counted.
+     *
+     * @param output The output stream of the socket
+     * @return The counting stream
+     */
+    OutputStream countSent(OutputStream output) {
+        return new FilterOutputStream(output) {
+            @Override
+            public void write(int value) throws IOException {
+                out.write(value);
+                sent(1);
+            }
+
+            @Override
+            public void write(byte[] buffer, int offset, int length) throws IOException {
+                out.write(buffer, offset, length);
+                sent(length);
+            }
+        };
+    }
+}
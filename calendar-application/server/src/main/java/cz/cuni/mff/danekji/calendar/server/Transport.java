@@ -0,0 +1,16 @@
+package cz.cuni.mff.danekji.calendar.server;
+
+/**
+ * Determines how the server talks to its clients.
+ */
+public enum Transport {
+    /**
+     * Every client gets a virtual thread blocking on a pair of object streams.
+     */
+    BLOCKING,
+    /**
+     * A single selector thread multiplexes all connections and exchanges length-prefixed frames,
+     *  the complete frames are dispatched on a worker pool. Idle clients only hold their socket and a frame header buffer.
+     */
+    NIO,
+}
@@ -0,0 +1,101 @@
+package cz.cuni.mff.danekji.calendar.server.config;
+
+import cz.cuni.mff.danekji.calendar.core.exceptions.server.ServerException;
+
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Reads the typed configuration values from a {@link Properties} instance.
+ * <p>
+ * A missing or blank property falls back to the given default value, the values are trimmed
+ *  and an unparsable value is reported by a {@link ServerException} naming the property.
+ */
+public final class PropertiesReader {
+    private final Properties properties;
+
+    /**
+     * Constructor for PropertiesReader.
+     *
+     * @param properties The properties from which the configuration values are read.
+     */
+    public PropertiesReader(Properties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Gets the trimmed value of the property.
+     *
+     * @param name The name of the property
+     * @return The value, or null if the property is missing or blank
+     */
+    public String getString(String name) {
+        String value = properties.getProperty(name);
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    /**
+     * Gets the value of the property as an int.
+     *
+     * @param name The name of the property
+     * @param defaultValue The value of a missing property
+     * @return The value
+     * @throws ServerException if the value is not a valid number
+     */
+    public int getInt(String name, int defaultValue) {
+        String value = getString(name);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ServerException("Property '" + name + "' is not a valid number: " + value);
+        }
+    }
+
+    /**
+     * Gets the value of the property as a long.
+     *
+     * @param name The name of the property
+     * @param defaultValue The value of a missing property
+     * @return The value
+     * @throws ServerException if the value is not a valid number
+     */
+    public long getLong(String name, long defaultValue) {
+        String value = getString(name);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new ServerException("Property '" + name + "' is not a valid number: " + value);
+        }
+    }
+
+    /**
+     * Gets the value of the property as a constant of the enum, matched case-insensitively.
+     *
+     * @param name The name of the property
+     * @param type The type of the enum
+     * @param defaultValue The value of a missing property
+     * @param <E> The type of the enum
+     * @return The value
+     * @throws ServerException if the value is not a constant of the enum
+     */
+    public <E extends Enum<E>> E getEnum(String name, Class<E> type, E defaultValue) {
+        String value = getString(name);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ServerException("Property '" + name + "' is not a valid value: " + value);
+        }
+    }
+}
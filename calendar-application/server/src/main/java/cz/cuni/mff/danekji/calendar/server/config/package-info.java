@@ -0,0 +1,6 @@
+/**
+ * Contains the shared support of the server configuration.
+ * This package includes the PropertiesReader parsing the typed configuration values of the server and storage
+ * configurations from their properties.
+ */
+package cz.cuni.mff.danekji.calendar.server.config;
@@ -0,0 +1,136 @@
+package cz.cuni.mff.danekji.calendar.server.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of latencies with a bounded relative error.
+ * <p>
+ * The latencies are counted in microseconds into log-linear buckets: every power of two is split
+ *  into {@value #SUB_BUCKETS} equal buckets, so a percentile is reported with at most 12.5% error
+ *  while the whole range up to days fits into a few hundred buckets. Recording is a handful of increments
+ *  of striped counters, the threads record into different stripes chosen by their ID, so the concurrent
+ *  recorders do not contend on the same cache lines. Only the snapshot walks all the stripes.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40; // ~12 days in microseconds, longer latencies are clamped
+    private static final long MAX_MICROS = (1L << MAX_EXPONENT) - 1;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+    private static final int STRIPES = Integer.highestOneBit(Math.min(Runtime.getRuntime().availableProcessors(), 16) * 2 - 1);
+
+    private final AtomicLongArray[] stripes = new AtomicLongArray[STRIPES];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+    /**
+     * A point-in-time view of the histogram. The percentiles are the upper bounds of their buckets,
+     *  never above the maximum.
+     *
+     * @param count The number of recorded latencies
+     * @param meanMicros The mean latency in microseconds
+     * @param p50Micros The median latency in microseconds
+     * @param p90Micros The 90th percentile of the latency in microseconds
+     * @param p99Micros The 99th percentile of the latency in microseconds
+     * @param maxMicros The maximum latency in microseconds
+     */
+    public record Snapshot(long count, long meanMicros, long p50Micros, long p90Micros, long p99Micros, long maxMicros) {
+    }
+
+    /**
+     * Constructor for LatencyHistogram.
+     */
+    public LatencyHistogram() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new AtomicLongArray(BUCKETS);
+        }
+    }
+
+    /**
+     * Records a single latency.
+     *
+     * @param nanos The latency in nanoseconds, e.g. the difference of two {@link System#nanoTime()} calls
+     */
+    public void record(long nanos) {
+        long micros = Math.min(Math.max(nanos / 1000, 0), MAX_MICROS);
+        stripes[(int) Thread.currentThread().threadId() & (STRIPES - 1)].incrementAndGet(bucketOf(micros));
+        count.increment();
+        sumMicros.add(micros);
+        maxMicros.accumulate(micros);
+    }
+
+    /**
+     * Gets the number of recorded latencies.
+     *
+     * @return The number of recorded latencies
+     */
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * Takes a snapshot of the histogram. The latencies recorded concurrently may or may not be included.
+     *
+     * @return The snapshot
+     */
+    public Snapshot snapshot() {
+        long[] buckets = new long[BUCKETS];
+        long total = 0;
+        for (var stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                long bucketCount = stripe.get(i);
+                buckets[i] += bucketCount;
+                total += bucketCount;
+            }
+        }
+        long max = maxMicros.get();
+        long mean = total == 0 ? 0 : sumMicros.sum() / Math.max(count.sum(), 1);
+        return new Snapshot(total, mean,
+                percentile(buckets, total, 0.50, max),
+                percentile(buckets, total, 0.90, max),
+                percentile(buckets, total, 0.99, max),
+                max);
+    }
+
+    private static long percentile(long[] buckets, long total, double quantile, long max) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Gets the bucket of a latency, the latencies below {@value #SUB_BUCKETS} microseconds have a bucket each.
+     */
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Gets the largest latency counted into the bucket.
+     */
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        return ((SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -0,0 +1,89 @@
+package cz.cuni.mff.danekji.calendar.server.metrics;
+
+import cz.cuni.mff.danekji.calendar.core.models.Metric;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry of the named metrics of the server.
+ * <p>
+ * The components look their counters and histograms up once (or register their own) and then update them
+ *  directly, so the hot paths only touch striped {@link LongAdder}s and {@link LatencyHistogram}s, never a lock
+ *  or the registry itself. The gauges are read only when a snapshot is taken.
+ *  A snapshot expands every histogram into its count, mean, percentiles and maximum
+ *  (e.g. {@code command.login.count}, {@code command.login.p99_us}).
+ */
+public final class MetricsRegistry {
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the counter of the given name, creating it if it does not exist yet.
+     *
+     * @param name The name of the counter
+     * @return The counter
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, ignored -> new LongAdder());
+    }
+
+    /**
+     * Gets the histogram of the given name, creating it if it does not exist yet.
+     *
+     * @param name The name prefix of the histogram metrics
+     * @return The histogram
+     */
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, ignored -> new LatencyHistogram());
+    }
+
+    /**
+     * Registers a histogram owned by a component, replacing the histogram of the same name.
+     *
+     * @param name The name prefix of the histogram metrics
+     * @param histogram The histogram
+     */
+    public void register(String name, LatencyHistogram histogram) {
+        histograms.put(name, histogram);
+    }
+
+    /**
+     * Registers a gauge, replacing the gauge of the same name. The gauge is read by every snapshot
+     *  and must not block.
+     *
+     * @param name The name of the gauge
+     * @param value The supplier of the current value
+     */
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Takes a snapshot of all the metrics. The updates made concurrently may or may not be included.
+     *
+     * @return The metrics, ordered by their name
+     */
+    public List<Metric> snapshot() {
+        List<Metric> metrics = new ArrayList<>();
+        counters.forEach((name, counter) -> metrics.add(new Metric(name, counter.sum())));
+        gauges.forEach((name, gauge) -> metrics.add(new Metric(name, gauge.getAsLong())));
+        histograms.forEach((name, histogram) -> {
+            var snapshot = histogram.snapshot();
+            metrics.add(new Metric(name + ".count", snapshot.count()));
+            metrics.add(new Metric(name + ".mean_us", snapshot.meanMicros()));
+            metrics.add(new Metric(name + ".p50_us", snapshot.p50Micros()));
+            metrics.add(new Metric(name + ".p90_us", snapshot.p90Micros()));
+            metrics.add(new Metric(name + ".p99_us", snapshot.p99Micros()));
+            metrics.add(new Metric(name + ".max_us", snapshot.maxMicros()));
+        });
+        metrics.sort(Comparator.comparing(Metric::name));
+        return metrics;
+    }
+}
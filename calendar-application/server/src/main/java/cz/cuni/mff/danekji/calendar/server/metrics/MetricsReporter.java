@@ -0,0 +1,83 @@
+package cz.cuni.mff.danekji.calendar.server.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Periodically dumps the snapshot of the {@link MetricsRegistry} into the log and, if configured, appends it to a CSV file.
+ * <p>
+ * The CSV file has a {@code timestamp,metric,value} row for every metric of every dump, so it can be loaded
+ *  into a spreadsheet or a plotting tool as it is. The header is written when the file is created.
+ *  The dumps run on their own daemon thread, the metered code is never blocked by them.
+ */
+public final class MetricsReporter implements AutoCloseable {
+    private static final Logger LOGGER = LogManager.getLogger(MetricsReporter.class);
+    private static final String CSV_HEADER = "timestamp,metric,value\n";
+
+    private final MetricsRegistry registry;
+    private final Path csvFile;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Constructor for MetricsReporter.
+     * Starts dumping the metrics right away.
+     *
+     * @param registry The registry to dump
+     * @param intervalSeconds The interval between the dumps in seconds
+     * @param csvFile The CSV file to append the dumps to, null to dump into the log only
+     */
+    public MetricsReporter(MetricsRegistry registry, long intervalSeconds, Path csvFile) {
+        assert intervalSeconds > 0;
+        this.registry = registry;
+        this.csvFile = csvFile;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("metrics-reporter").daemon().factory());
+        scheduler.scheduleAtFixedRate(this::report, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        LOGGER.info("Dumping server statistics every {} s{}", intervalSeconds, csvFile != null ? " into '" + csvFile.toAbsolutePath() + "'" : "");
+    }
+
+    /**
+     * Dumps the current snapshot of the metrics. A failure is logged, so the next dumps still run.
+     */
+    void report() {
+        var metrics = registry.snapshot();
+        LOGGER.info("Server statistics: {}", metrics.stream()
+                .map(metric -> metric.name() + "=" + metric.value())
+                .collect(Collectors.joining(", ")));
+        if (csvFile == null) {
+            return;
+        }
+
+        String timestamp = Instant.now().toString();
+        var rows = new StringBuilder();
+        if (Files.notExists(csvFile)) {
+            rows.append(CSV_HEADER);
+        }
+        for (var metric : metrics) {
+            rows.append(timestamp).append(',').append(metric.name()).append(',').append(metric.value()).append('\n');
+        }
+        try {
+            Files.writeString(csvFile, rows, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            LOGGER.error("Failed to append server statistics to '{}'", csvFile.toAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Stops the dumps.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
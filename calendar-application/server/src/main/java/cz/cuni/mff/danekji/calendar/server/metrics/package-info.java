@@ -0,0 +1,6 @@
+/**
+ * Contains the instrumentation of the server.
+ * This package includes the MetricsRegistry collecting the counters, gauges and latency histograms of the server
+ * components and the MetricsReporter periodically dumping them into the log or a CSV file.
+ */
+package cz.cuni.mff.danekji.calendar.server.metrics;
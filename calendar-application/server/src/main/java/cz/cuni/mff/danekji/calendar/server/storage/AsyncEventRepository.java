@@ -0,0 +1,137 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
+import cz.cuni.mff.danekji.calendar.core.commands.BatchOperation;
+import cz.cuni.mff.danekji.calendar.core.models.BatchItemResult;
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.EventChanges;
+import cz.cuni.mff.danekji.calendar.core.models.EventCursor;
+import cz.cuni.mff.danekji.calendar.core.models.User;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Asynchronous variant of the event operations of the {@link EventRepository}.
+ * <p>
+ * Every operation returns at once and its future is completed once the operation is done, so the caller
+ *  does not hold a thread while the calendar is read or persisted and may compose the results of several operations.
+ *  A failed operation completes its future exceptionally with the exception the synchronous operation would throw
+ *  (e.g. {@link cz.cuni.mff.danekji.calendar.core.exceptions.server.XmlDatabaseException} or {@link java.io.IOException}).
+ *  The operations of the same user keep the ordering guarantees of the synchronous ones only once the previous
+ *  future is completed, the caller must wait for it before starting an operation that depends on it.
+ * <p>
+ * The account operations (creating, authenticating and deleting a user) change the state of the session
+ *  and stay synchronous. A synchronous repository is adapted by {@link #of(EventRepository)}.
+ */
+public interface AsyncEventRepository {
+    /**
+     * Adds an event to the repository.
+     *
+     * @param user the user for which the given event will be added
+     * @param event the event to add
+     * @param session the client session
+     * @return the future completed with the ID of the added event
+     */
+    CompletableFuture<Long> addEventAsync(User user, Event event, ClientSession session);
+
+    /**
+     * Updates an event in the repository.
+     *
+     * @param user the user for which the event will be updated
+     * @param event the event to update
+     * @param session the client session
+     * @return the future completed once the event is updated
+     */
+    CompletableFuture<Void> updateEventAsync(User user, Event event, ClientSession session);
+
+    /**
+     * Deletes an event from the repository.
+     *
+     * @param user the user for which the given event will be deleted
+     * @param eventId the ID of the event to delete
+     * @param session the client session
+     * @return the future completed once the event is deleted
+     */
+    CompletableFuture<Void> deleteEventAsync(User user, Long eventId, ClientSession session);
+
+    /**
+     * Retrieves all events for the given user.
+     *
+     * @param user the user for which to retrieve events
+     * @param session the client session
+     * @return the future completed with the events of the user
+     */
+    CompletableFuture<List<Event>> getEventsAsync(User user, ClientSession session);
+
+    /**
+     * Retrieves the events of the given user which take place within the given date range.
+     *
+     * @param user the user for which to retrieve events
+     * @param startDate the first day of the range (inclusive)
+     * @param endDate the last day of the range (inclusive)
+     * @param session the client session
+     * @return the future completed with the events within the range
+     */
+    CompletableFuture<List<Event>> getEventsInRangeAsync(User user, LocalDate startDate, LocalDate endDate, ClientSession session);
+
+    /**
+     * Retrieves a page of the events of the given user which take place within the given date range,
+     *  see {@link EventRepository#getEventsPage}.
+     *
+     * @param user the user for which to retrieve events
+     * @param startDate the first day of the range (inclusive)
+     * @param endDate the last day of the range (inclusive)
+     * @param after the cursor after which the page starts, null for the first page
+     * @param limit the maximum number of returned events
+     * @param session the client session
+     * @return the future completed with at most {@code limit} events
+     */
+    CompletableFuture<List<Event>> getEventsPageAsync(User user, LocalDate startDate, LocalDate endDate, EventCursor after, int limit, ClientSession session);
+
+    /**
+     * Retrieves the changes of the given user's events since the given change version,
+     *  see {@link EventRepository#getChangesSince}.
+     *
+     * @param user the user for which to retrieve the changes
+     * @param sinceVersion the change version the caller knows, null if it knows none
+     * @param session the client session
+     * @return the future completed with the changes since the version, or a complete snapshot
+     */
+    CompletableFuture<EventChanges> getChangesSinceAsync(User user, Long sinceVersion, ClientSession session);
+
+    /**
+     * Applies a batch of event operations in order, see {@link EventRepository#applyBatch}.
+     *
+     * @param user the user whose events will be modified
+     * @param operations the operations to apply, in order
+     * @param session the client session
+     * @return the future completed with the results of the operations, in the order of the operations
+     */
+    CompletableFuture<List<BatchItemResult>> applyBatchAsync(User user, List<BatchOperation> operations, ClientSession session);
+
+    /**
+     * Adapts a synchronous repository, running each operation on its own virtual thread.
+     * A virtual thread blocked on the storage I/O holds no platform thread, so the operations of many sessions
+     *  overlap without a thread pool sized for them.
+     *
+     * @param repository the synchronous repository
+     * @return the asynchronous view of the repository
+     */
+    static AsyncEventRepository of(EventRepository repository) {
+        return of(repository, ExecutorAsyncEventRepository.VIRTUAL_THREADS);
+    }
+
+    /**
+     * Adapts a synchronous repository, running each operation by the executor.
+     *
+     * @param repository the synchronous repository
+     * @param executor the executor running the blocking operations
+     * @return the asynchronous view of the repository
+     */
+    static AsyncEventRepository of(EventRepository repository, Executor executor) {
+        return new ExecutorAsyncEventRepository(repository, executor);
+    }
+}
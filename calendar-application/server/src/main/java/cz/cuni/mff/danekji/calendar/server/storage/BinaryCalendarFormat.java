@@ -0,0 +1,317 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import cz.cuni.mff.danekji.calendar.core.exceptions.server.XmlDatabaseException;
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.User;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The compact binary calendar format.
+ * <p>
+ * A file starts with a fixed header (magic number, format version, next event ID, password hash, username
+ *  and the number of events) followed by the length-prefixed event records. Every record starts with the date
+ *  of the event as an epoch day, so the records outside a queried date range are skipped without being decoded.
+ *  The time is stored as a minute of day, times with seconds are stored with the {@link #PRECISE_TIME} marker
+ *  followed by the nano of day, so no time is ever rounded. Strings are stored as their UTF-8 length
+ *  (or {@code -1} for null) followed by the bytes.
+ * <p>
+ * The events are decoded from a byte buffer, which is either filled by regular reads or, in the {@link ReadMode#MMAP}
+ *  read mode, is the memory mapping of the file itself. Files smaller than the mapping threshold are always read,
+ *  as mapping them costs more than copying them.
+ */
+final class BinaryCalendarFormat implements CalendarFormat {
+    private final static Logger LOGGER = LogManager.getLogger(BinaryCalendarFormat.class);
+    /**
+     * The extension of the binary calendar files.
+     */
+    static final String FILE_EXTENSION = ".cal";
+
+    private static final int MAGIC = 0x43414C42; // "CALB"
+    private static final short VERSION = 1;
+    // magic, version, next event ID, password hash and the username length
+    private static final int FIXED_HEADER_BYTES = Integer.BYTES + Short.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES;
+    private static final short PRECISE_TIME = -1;
+    private static final int NULL_STRING = -1;
+
+    private final MappedFileCache mappedFiles;
+    private final long minMappedFileBytes;
+
+    /**
+     * Constructor for BinaryCalendarFormat which reads the files with regular reads.
+     */
+    BinaryCalendarFormat() {
+        this(ReadMode.STREAM, 0);
+    }
+
+    /**
+     * Constructor for BinaryCalendarFormat.
+     *
+     * @param readMode How the files are read
+     * @param minMappedFileBytes The size from which the files are memory-mapped in the {@link ReadMode#MMAP} read mode
+     */
+    BinaryCalendarFormat(ReadMode readMode, long minMappedFileBytes) {
+        this.mappedFiles = readMode == ReadMode.MMAP ? new MappedFileCache() : null;
+        this.minMappedFileBytes = minMappedFileBytes;
+    }
+
+    @Override
+    public String fileExtension() {
+        return FILE_EXTENSION;
+    }
+
+    @Override
+    public UserCalendar read(Path file) throws XmlDatabaseException {
+        try {
+            ByteBuffer buffer = load(file);
+            long nextEventId = readHeader(buffer);
+            User user = readUser(buffer);
+            List<Event> events = readEvents(buffer, LocalDate.MIN, LocalDate.MAX);
+            return new UserCalendar(user, nextEventId, events);
+        } catch (IOException | BufferUnderflowException e) {
+            LOGGER.error("Failed to read calendar file '{}'", file, e);
+            throw new XmlDatabaseException("Failed to read calendar file: " + file);
+        }
+    }
+
+    @Override
+    public List<Event> readEvents(Path file, LocalDate startDate, LocalDate endDate) throws XmlDatabaseException {
+        try {
+            ByteBuffer buffer = load(file);
+            readHeader(buffer);
+            readUser(buffer);
+            return readEvents(buffer, startDate, endDate);
+        } catch (IOException | BufferUnderflowException e) {
+            LOGGER.error("Failed to read calendar file '{}'", file, e);
+            throw new XmlDatabaseException("Failed to read calendar file: " + file);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * Only the header is read, even in the {@link ReadMode#MMAP} read mode, so a login does not map the whole file.
+     */
+    @Override
+    public User readUser(Path file) throws XmlDatabaseException {
+        try {
+            ByteBuffer buffer = loadHeader(file);
+            readHeader(buffer);
+            return readUser(buffer);
+        } catch (IOException | BufferUnderflowException e) {
+            LOGGER.error("Failed to read user from calendar file '{}'", file, e);
+            throw new XmlDatabaseException("Failed to read calendar file: " + file);
+        }
+    }
+
+    @Override
+    public void write(UserCalendar calendar, OutputStream output) throws IOException {
+        var data = new DataOutputStream(output);
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeLong(calendar.getNextEventId());
+        data.writeInt(calendar.getUser().passwordHash());
+        writeString(data, calendar.getUser().username());
+
+        List<Event> events = calendar.getEvents();
+        data.writeInt(events.size());
+        var record = new ByteArrayOutputStream();
+        var recordData = new DataOutputStream(record);
+        for (var event : events) {
+            record.reset();
+            writeEvent(recordData, event);
+            data.writeInt(record.size());
+            record.writeTo(data);
+        }
+        data.flush();
+    }
+
+    @Override
+    public void invalidate(Path file) {
+        if (mappedFiles != null) {
+            mappedFiles.invalidate(file);
+        }
+    }
+
+    /**
+     * Gets the number of currently memory-mapped calendar files.
+     *
+     * @return The number of mapped files, always 0 in the {@link ReadMode#STREAM} read mode
+     */
+    int getMappedFileCount() {
+        return mappedFiles != null ? mappedFiles.size() : 0;
+    }
+
+    private boolean isMapped(Path file) throws IOException {
+        return mappedFiles != null && Files.size(file) >= minMappedFileBytes;
+    }
+
+    /**
+     * Returns the whole file, either memory-mapped or read into the heap.
+     *
+     * @param file The path to the calendar file
+     * @return The buffer positioned at the beginning of the file
+     * @throws IOException if the file cannot be read
+     */
+    private ByteBuffer load(Path file) throws IOException {
+        if (isMapped(file)) {
+            return mappedFiles.map(file);
+        }
+        return ByteBuffer.wrap(Files.readAllBytes(file));
+    }
+
+    /**
+     * Reads only the header of the file (up to the end of the username) into the heap.
+     *
+     * @param file The path to the calendar file
+     * @return The buffer with the header
+     * @throws IOException if the file cannot be read or is shorter than its header
+     */
+    private static ByteBuffer loadHeader(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var fixedHeader = ByteBuffer.allocate(FIXED_HEADER_BYTES);
+            readFully(channel, fixedHeader);
+            int usernameLength = fixedHeader.getInt(FIXED_HEADER_BYTES - Integer.BYTES);
+            if (usernameLength < 0 || usernameLength > channel.size()) {
+                throw new IOException("Invalid username length in calendar file: " + usernameLength);
+            }
+
+            var header = ByteBuffer.allocate(FIXED_HEADER_BYTES + usernameLength);
+            header.put(fixedHeader.flip());
+            readFully(channel, header);
+            return header.flip();
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Unexpected end of calendar file");
+            }
+        }
+    }
+
+    /**
+     * Checks the magic number and the version of the file.
+     *
+     * @param buffer The buffer positioned at the beginning of the file
+     * @return The next event ID
+     * @throws IOException if the file is not a binary calendar of a supported version
+     */
+    private static long readHeader(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < FIXED_HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a binary calendar file");
+        }
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary calendar version: " + version);
+        }
+        return buffer.getLong();
+    }
+
+    private static User readUser(ByteBuffer buffer) throws IOException {
+        int passwordHash = buffer.getInt();
+        String username = readString(buffer);
+        if (username == null || username.isEmpty()) {
+            throw new IOException("Missing username in the calendar header");
+        }
+        return new User(username, passwordHash);
+    }
+
+    private static List<Event> readEvents(ByteBuffer buffer, LocalDate startDate, LocalDate endDate) throws IOException {
+        long startDay = startDate.toEpochDay();
+        long endDay = endDate.toEpochDay();
+
+        int count = buffer.getInt();
+        if (count < 0) {
+            throw new IOException("Negative number of events: " + count);
+        }
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int length = buffer.getInt();
+            if (length < Integer.BYTES || length > buffer.remaining()) {
+                throw new IOException("Invalid event record length: " + length);
+            }
+            int recordEnd = buffer.position() + length;
+            int epochDay = buffer.getInt();
+            if (epochDay >= startDay && epochDay <= endDay) {
+                events.add(readEvent(buffer, epochDay));
+            }
+            buffer.position(recordEnd);
+        }
+        return events;
+    }
+
+    private static void writeEvent(DataOutput output, Event event) throws IOException {
+        output.writeInt(Math.toIntExact(event.getDate().toEpochDay()));
+        LocalTime time = event.getTime();
+        if (time.getSecond() == 0 && time.getNano() == 0) {
+            output.writeShort(time.getHour() * 60 + time.getMinute());
+        } else {
+            output.writeShort(PRECISE_TIME);
+            output.writeLong(time.toNanoOfDay());
+        }
+        output.writeLong(event.getId());
+        writeString(output, event.getTitle());
+        writeString(output, event.getLocation());
+        writeString(output, event.getDescription());
+    }
+
+    private static Event readEvent(ByteBuffer buffer, int epochDay) throws IOException {
+        short minuteOfDay = buffer.getShort();
+        LocalTime time;
+        try {
+            time = minuteOfDay == PRECISE_TIME
+                    ? LocalTime.ofNanoOfDay(buffer.getLong())
+                    : LocalTime.of(minuteOfDay / 60, minuteOfDay % 60);
+        } catch (DateTimeException e) {
+            throw new IOException("Invalid event time in calendar file", e);
+        }
+        long id = buffer.getLong();
+        String title = readString(buffer);
+        String location = readString(buffer);
+        String description = readString(buffer);
+        return Event.withId(id, new Event(title, LocalDate.ofEpochDay(epochDay), time, location, description));
+    }
+
+    private static void writeString(DataOutput output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(NULL_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        int length = buffer.getInt();
+        if (length == NULL_STRING) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("Invalid string length in calendar file: " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
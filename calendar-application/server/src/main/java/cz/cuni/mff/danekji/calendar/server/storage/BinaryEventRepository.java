@@ -0,0 +1,65 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import cz.cuni.mff.danekji.calendar.core.exceptions.server.XmlDatabaseException;
+
+import java.nio.file.Path;
+
+/**
+ * BinaryEventRepository is a class that implements the EventRepository interface.
+ * It provides methods for managing user calendars stored in the compact {@link BinaryCalendarFormat},
+ *  which is smaller and faster to read than the XML files and lets date range queries skip the events
+ *  outside the range without decoding them.
+ * The files can be memory-mapped instead of read (see {@link ReadMode}).
+ * The caching, locking, journaling and durability are inherited from the {@link FileEventRepository}.
+ * The existing XML calendars can be converted by the {@link XmlToBinaryMigration} tool.
+ */
+public final class BinaryEventRepository extends FileEventRepository {
+    /**
+     * The default folder where binary calendar files are stored, the {@code binary} subdirectory of the data directory.
+     * It is separate from the XML file folder, so the journals and credentials of the two engines never mix.
+     */
+    public static final Path BINARY_FILE_FOLDER = StorageConfiguration.DEFAULT_DATA_DIR.resolve("binary");
+
+    /**
+     * Constructor for BinaryEventRepository with the default storage configuration.
+     * Creates the binary file folder if it does not exist.
+     *
+     * @throws XmlDatabaseException if an error occurs while creating the folder
+     */
+    public BinaryEventRepository() throws XmlDatabaseException {
+        this(StorageConfiguration.defaults());
+    }
+
+    /**
+     * Constructor for BinaryEventRepository.
+     * The binary files are stored in the {@code binary} subdirectory of the configured data directory.
+     * Creates the binary file folder if it does not exist and folds the journals left behind by a previous run.
+     *
+     * @param configuration The storage configuration (e.g. the data directory, the cache capacity or the write mode)
+     * @throws XmlDatabaseException if an error occurs while creating the folder or recovering the journals
+     */
+    public BinaryEventRepository(StorageConfiguration configuration) throws XmlDatabaseException {
+        this(folderOf(configuration), configuration);
+    }
+
+    /**
+     * Returns the folder where the binary files are stored.
+     *
+     * @param configuration The storage configuration
+     * @return The {@code binary} subdirectory of the configured data directory
+     */
+    static Path folderOf(StorageConfiguration configuration) {
+        return configuration.getDataDir().resolve("binary");
+    }
+
+    /**
+     * Constructor for BinaryEventRepository storing the calendars in the given folder.
+     *
+     * @param folder The folder where the binary calendar files are stored
+     * @param configuration The storage configuration
+     * @throws XmlDatabaseException if an error occurs while creating the folder or recovering the journals
+     */
+    BinaryEventRepository(Path folder, StorageConfiguration configuration) throws XmlDatabaseException {
+        super(folder, new BinaryCalendarFormat(configuration.getReadMode(), configuration.getMmapMinFileBytes()), configuration);
+    }
+}
@@ -0,0 +1,23 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+/**
+ * Point-in-time statistics of the in-memory calendar cache, used to size the cache.
+ *
+ * @param hits The number of lookups served from memory.
+ * @param misses The number of lookups which had to parse the calendar file.
+ * @param evictions The number of calendars dropped because the cache was full.
+ * @param size The number of calendars currently cached.
+ * @param capacity The maximum number of calendars the cache can hold.
+ */
+public record CacheStatistics(long hits, long misses, long evictions, int size, int capacity) {
+
+    /**
+     * Computes the ratio of lookups served from memory.
+     *
+     * @return The hit ratio in range [0, 1], or 0 if there were no lookups yet
+     */
+    public double hitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
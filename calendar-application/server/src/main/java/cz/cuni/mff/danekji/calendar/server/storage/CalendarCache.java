@@ -0,0 +1,128 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded least-recently-used cache of parsed user calendars.
+ * The cache keeps at most {@code capacity} calendars, the least recently accessed one is evicted first.
+ * A capacity of zero disables the cache completely (every lookup is a miss and nothing is stored).
+ */
+final class CalendarCache {
+    private static final Logger LOGGER = LogManager.getLogger(CalendarCache.class);
+
+    private final int capacity;
+    private final Map<String, UserCalendar> calendars;
+    private final Lock lock = new ReentrantLock(); // guards the calendars, every repository call takes it
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructor for CalendarCache.
+     *
+     * @param capacity The maximum number of calendars kept in memory
+     */
+    CalendarCache(int capacity) {
+        assert capacity >= 0;
+        this.capacity = capacity;
+        this.calendars = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserCalendar> eldest) {
+                boolean evict = size() > CalendarCache.this.capacity;
+                if (evict) {
+                    evictions.increment();
+                    LOGGER.debug("Evicted calendar of user '{}' from the cache", eldest.getKey());
+                }
+                return evict;
+            }
+        };
+    }
+
+    /**
+     * Looks up the cached calendar of the given user and records a hit or a miss.
+     *
+     * @param username The owner of the calendar
+     * @return The cached calendar, or null if it is not cached
+     */
+    UserCalendar get(String username) {
+        UserCalendar calendar;
+        lock.lock();
+        try {
+            calendar = calendars.get(username);
+        } finally {
+            lock.unlock();
+        }
+
+        if (calendar == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return calendar;
+    }
+
+    /**
+     * Checks whether the cache stores any calendars at all.
+     *
+     * @return false if the capacity is zero
+     */
+    boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    /**
+     * Stores the calendar of the given user, possibly evicting the least recently used one.
+     *
+     * @param username The owner of the calendar
+     * @param calendar The calendar to store
+     */
+    void put(String username, UserCalendar calendar) {
+        if (capacity == 0) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            calendars.put(username, calendar);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the calendar of the given user from the cache.
+     *
+     * @param username The owner of the calendar
+     */
+    void invalidate(String username) {
+        lock.lock();
+        try {
+            calendars.remove(username);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes a snapshot of the cache counters.
+     *
+     * @return The current cache statistics
+     */
+    CacheStatistics getStatistics() {
+        int size;
+        lock.lock();
+        try {
+            size = calendars.size();
+        } finally {
+            lock.unlock();
+        }
+        return new CacheStatistics(hits.sum(), misses.sum(), evictions.sum(), size, capacity);
+    }
+}
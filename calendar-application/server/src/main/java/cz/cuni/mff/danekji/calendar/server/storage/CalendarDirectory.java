@@ -0,0 +1,112 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The data directory of a repository and the {@link DirectoryLayout} of the users' files within it.
+ * A user's file is named by the username and the extension of its kind (e.g. {@code alice.xml} or {@code alice.journal}).
+ *
+ * @param root The data directory
+ * @param layout The layout of the users' files
+ */
+record CalendarDirectory(Path root, DirectoryLayout layout) {
+    /**
+     * The file left in the data directory by a repository closed with all its journals folded and calendars flushed.
+     */
+    static final String CLEAN_SHUTDOWN_MARKER = ".clean-shutdown";
+
+    /**
+     * Returns the path to the user's file of the given kind, its directory may not exist yet.
+     *
+     * @param username The owner of the file
+     * @param extension The extension of the file, including the dot
+     * @return The path to the file
+     */
+    Path fileOf(String username, String extension) {
+        return layout.directoryOf(root, username).resolve(username + extension);
+    }
+
+    /**
+     * Lists the existing directories holding the users' files.
+     *
+     * @return The directories of the users' files
+     * @throws IOException if an error occurs while listing the data directory
+     */
+    List<Path> folders() throws IOException {
+        return layout.directories(root);
+    }
+
+    /**
+     * Finds the users' files of the given kind in all the directories.
+     *
+     * @param extension The extension of the files, including the dot
+     * @return The found files
+     * @throws IOException if an error occurs while listing the directories
+     */
+    List<Path> findFiles(String extension) throws IOException {
+        List<Path> found = new ArrayList<>();
+        for (var folder : folders()) {
+            try (var files = Files.newDirectoryStream(folder, "*" + extension)) {
+                files.forEach(found::add);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Checks whether any user's file of the given kinds is stored in the other layout, e.g. left there when the layout
+     *  was changed without moving the files by the {@link DirectoryLayoutMigration}. Stops at the first found file.
+     *
+     * @param other The layout other than the one of the directory
+     * @param extensions The extensions of the files, including the dot
+     * @return true if a user's file is found in the other layout
+     * @throws IOException if an error occurs while listing the directories
+     */
+    boolean hasFilesIn(DirectoryLayout other, List<String> extensions) throws IOException {
+        for (var folder : other.directories(root)) {
+            for (var extension : extensions) {
+                try (var files = Files.newDirectoryStream(folder, "*" + extension)) {
+                    if (files.iterator().hasNext()) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Deletes the marker of the clean shutdown of the previous run, so a crash of this run does not leave it behind.
+     *
+     * @return true if the previous run was shut down cleanly
+     * @throws IOException if an error occurs while deleting the marker
+     */
+    boolean consumeCleanShutdownMarker() throws IOException {
+        return Files.deleteIfExists(root.resolve(CLEAN_SHUTDOWN_MARKER));
+    }
+
+    /**
+     * Leaves the marker of the clean shutdown for the next run.
+     *
+     * @throws IOException if an error occurs while creating the marker
+     */
+    void markCleanShutdown() throws IOException {
+        Files.write(root.resolve(CLEAN_SHUTDOWN_MARKER), new byte[0]);
+    }
+
+    /**
+     * Returns the owner of a user's file.
+     *
+     * @param file The user's file
+     * @param extension The extension of the file, including the dot
+     * @return The username the file is named by
+     */
+    static String usernameOf(Path file, String extension) {
+        String fileName = file.getFileName().toString();
+        return fileName.substring(0, fileName.length() - extension.length());
+    }
+}
@@ -0,0 +1,296 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Durable low-level writes of the storage files.
+ * <p>
+ * Whole files are replaced atomically: the content is written into a temporary file next to the target,
+ *  (optionally) synced and renamed over the target, so readers and crashes only ever see the old or the new content.
+ *  Every write returns a future which completes once the write is as durable as the configured {@link Durability} requires.
+ *  In the {@link Durability#GROUPED} mode the syncs are collected for the group commit window and each file
+ *  (or directory) is synced only once for the whole group, the caller should therefore wait for the future
+ *  only after releasing its locks, so other writes can join the group.
+ */
+final class CalendarFileStore implements AutoCloseable {
+    private final static Logger LOGGER = LogManager.getLogger(CalendarFileStore.class);
+    /**
+     * The extension appended to the name of the target file to get the name of the temporary file.
+     */
+    static final String TEMPORARY_FILE_EXTENSION = ".tmp";
+
+    private static final CompletableFuture<Void> DURABLE = CompletableFuture.completedFuture(null);
+
+    /**
+     * Writes the content of a file.
+     */
+    @FunctionalInterface
+    interface ContentWriter {
+        /**
+         * Writes the content into the output.
+         *
+         * @param output The output stream of the file
+         * @throws IOException if an I/O error occurs
+         */
+        void writeTo(OutputStream output) throws IOException;
+    }
+
+    private final Durability durability;
+    private final long groupCommitWindowMillis;
+    private final ScheduledExecutorService syncer;
+    private final Map<Path, CompletableFuture<Void>> pendingSyncs = new HashMap<>(); // guarded by pendingSyncsLock
+    private final Lock pendingSyncsLock = new ReentrantLock();
+    private final LongAdder syncs = new LongAdder();
+
+    /**
+     * Constructor for CalendarFileStore.
+     *
+     * @param durability The durability level of the writes
+     * @param groupCommitWindowMillis How long the syncs are collected in the {@link Durability#GROUPED} mode
+     */
+    CalendarFileStore(Durability durability, long groupCommitWindowMillis) {
+        this.durability = durability;
+        this.groupCommitWindowMillis = groupCommitWindowMillis;
+        this.syncer = durability == Durability.GROUPED
+                ? Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("group-commit").daemon().factory())
+                : null;
+    }
+
+    /**
+     * Atomically replaces the content of the target file.
+     * With a durability other than {@link Durability#NONE} the temporary file is synced before the rename,
+     *  so the renamed file is never empty after a crash, and the returned future completes once the rename is synced.
+     *
+     * @param target The file to replace (or create)
+     * @param writer Writes the new content
+     * @return The future completed once the write is durable
+     * @throws IOException if an error occurs while writing or renaming the file
+     */
+    CompletableFuture<Void> replace(Path target, ContentWriter writer) throws IOException {
+        Path temporary = target.resolveSibling(target.getFileName() + TEMPORARY_FILE_EXTENSION);
+        try (var channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            var output = new BufferedOutputStream(Channels.newOutputStream(channel));
+            writer.writeTo(output);
+            output.flush();
+            if (durability != Durability.NONE) {
+                channel.force(true);
+                syncs.increment();
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return sync(target.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Appends the data to the end of the target file, creating the file if it does not exist.
+     * A write failing part-way is rolled back by truncating the file to its previous size (or deleting the created file),
+     *  so the partially written data never ends up in front of the data of the later appends.
+     *
+     * @param target The file to append to
+     * @param writer Writes the appended data
+     * @return The future completed once the appended data is durable
+     * @throws IOException if an error occurs while writing the file
+     */
+    CompletableFuture<Void> append(Path target, ContentWriter writer) throws IOException {
+        boolean created = Files.notExists(target);
+        try (var channel = FileChannel.open(target,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            long size = channel.size();
+            try {
+                var output = new BufferedOutputStream(Channels.newOutputStream(channel));
+                writer.writeTo(output);
+                output.flush();
+            } catch (IOException | RuntimeException e) {
+                rollBack(channel, target, size, created, e);
+                throw e;
+            }
+        }
+
+        var synced = sync(target);
+        return created ? CompletableFuture.allOf(synced, sync(target.toAbsolutePath().getParent())) : synced;
+    }
+
+    /**
+     * Removes the part of a failed append, the original failure is kept and a failed rollback is only added to it.
+     */
+    private static void rollBack(FileChannel channel, Path target, long size, boolean created, Exception failure) {
+        try {
+            if (created) {
+                channel.close();
+                Files.deleteIfExists(target);
+            } else {
+                channel.truncate(size);
+            }
+            LOGGER.warn("Rolled back a failed append to '{}'", target);
+        } catch (IOException e) {
+            LOGGER.error("Failed to roll back a failed append to '{}'", target, e);
+            failure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Makes the creations, renames and deletions of the files in the folder durable.
+     *
+     * @param folder The folder of the files
+     * @return The future completed once the folder is synced
+     */
+    CompletableFuture<Void> syncFolder(Path folder) {
+        return sync(folder);
+    }
+
+    /**
+     * Removes the temporary files left in the folder by writes interrupted by a crash.
+     *
+     * @param folder The folder with the storage files
+     * @throws IOException if an error occurs while listing or deleting the files
+     */
+    void deleteTemporaryFiles(Path folder) throws IOException {
+        try (var files = Files.newDirectoryStream(folder, "*" + TEMPORARY_FILE_EXTENSION)) {
+            for (var file : files) {
+                Files.deleteIfExists(file);
+                LOGGER.info("Deleted temporary file '{}' of an interrupted write", file);
+            }
+        }
+    }
+
+    /**
+     * Waits until the write is durable.
+     *
+     * @param written The future returned by the write
+     * @throws IOException if the data could not be synced
+     */
+    static void await(CompletableFuture<Void> written) throws IOException {
+        try {
+            written.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Failed to sync written data", e.getCause());
+        }
+    }
+
+    /**
+     * Gets the number of syncs issued so far.
+     *
+     * @return The number of syncs
+     */
+    long getSyncCount() {
+        return syncs.sum();
+    }
+
+    private CompletableFuture<Void> sync(Path path) {
+        return switch (durability) {
+            case NONE -> DURABLE;
+            case PER_WRITE -> syncNow(path);
+            // the writes made once the store is closed are synced at once, since nobody syncs the group anymore
+            case GROUPED -> syncer.isShutdown() ? syncNow(path) : scheduleSync(path.toAbsolutePath().normalize());
+        };
+    }
+
+    private CompletableFuture<Void> syncNow(Path path) {
+        try {
+            force(path);
+            return DURABLE;
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private CompletableFuture<Void> scheduleSync(Path path) {
+        pendingSyncsLock.lock();
+        try {
+            var pending = pendingSyncs.get(path);
+            if (pending == null) {
+                if (pendingSyncs.isEmpty()) {
+                    syncer.schedule(this::syncPending, groupCommitWindowMillis, TimeUnit.MILLISECONDS);
+                }
+                pending = new CompletableFuture<>();
+                pendingSyncs.put(path, pending);
+            }
+            return pending;
+        } finally {
+            pendingSyncsLock.unlock();
+        }
+    }
+
+    private void syncPending() {
+        List<Map.Entry<Path, CompletableFuture<Void>>> group;
+        pendingSyncsLock.lock();
+        try {
+            group = List.copyOf(pendingSyncs.entrySet());
+            pendingSyncs.clear();
+        } finally {
+            pendingSyncsLock.unlock();
+        }
+
+        for (var pending : group) {
+            try {
+                force(pending.getKey());
+                pending.getValue().complete(null);
+            } catch (IOException e) {
+                LOGGER.error("Failed to sync '{}'", pending.getKey(), e);
+                pending.getValue().completeExceptionally(e);
+            }
+        }
+    }
+
+    private void force(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (NoSuchFileException e) {
+            return; // deleted in the meantime, there is nothing to sync
+        } catch (IOException e) {
+            if (!Files.isDirectory(path)) {
+                throw e;
+            }
+            LOGGER.debug("Directory '{}' cannot be synced on this platform", path);
+            return;
+        }
+        syncs.increment();
+    }
+
+    /**
+     * Stops the group commit thread after syncing all pending writes.
+     */
+    @Override
+    public void close() {
+        if (syncer != null) {
+            syncer.shutdown();
+            try {
+                syncer.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            syncPending();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import cz.cuni.mff.danekji.calendar.core.exceptions.server.XmlDatabaseException;
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.User;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * On-disk format of the calendar files used by a {@link FileEventRepository}.
+ */
+interface CalendarFormat {
+    /**
+     * Gets the extension of the calendar files (including the dot).
+     *
+     * @return The file extension
+     */
+    String fileExtension();
+
+    /**
+     * Reads the whole calendar from the file.
+     *
+     * @param file The path to the calendar file
+     * @return The calendar
+     * @throws XmlDatabaseException if the file cannot be read or is not a valid calendar
+     */
+    UserCalendar read(Path file) throws XmlDatabaseException;
+
+    /**
+     * Reads the events from the file which take place within the given date range (both inclusive).
+     * The events outside the range should not be created at all.
+     *
+     * @param file The path to the calendar file
+     * @param startDate The first day of the range
+     * @param endDate The last day of the range
+     * @return The events within the range, in the order they are stored in
+     * @throws XmlDatabaseException if the file cannot be read or is not a valid calendar
+     */
+    List<Event> readEvents(Path file, LocalDate startDate, LocalDate endDate) throws XmlDatabaseException;
+
+    /**
+     * Reads only the owner of the calendar from the file.
+     *
+     * @param file The path to the calendar file
+     * @return The user (username and password hash)
+     * @throws XmlDatabaseException if the file cannot be read or does not contain a valid user
+     */
+    User readUser(Path file) throws XmlDatabaseException;
+
+    /**
+     * Writes the calendar into the output.
+     *
+     * @param calendar The calendar to write
+     * @param output The output stream of the calendar file
+     * @throws IOException if an I/O error occurs
+     */
+    void write(UserCalendar calendar, OutputStream output) throws IOException;
+
+    /**
+     * Drops any state the format keeps about the file (e.g. its memory mapping).
+     * Called after the file is replaced or deleted.
+     *
+     * @param file The path to the calendar file
+     */
+    default void invalidate(Path file) {
+    }
+}
@@ -0,0 +1,209 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Append-only per-user journals of calendar modifications.
+ * <p>
+ * Every record is stored as its length followed by the record itself, so a record torn by a crash
+ *  in the middle of an append is detected and ignored when the journal is read back.
+ *  An append failing without a crash is rolled back by the {@link CalendarFileStore}, so the torn record
+ *  can only ever be the last one.
+ *  The journals are not thread-safe, the caller must hold the user's write lock while appending or deleting.
+ */
+final class CalendarJournal {
+    private final static Logger LOGGER = LogManager.getLogger(CalendarJournal.class);
+    /**
+     * The file extension of journal files.
+     */
+    static final String JOURNAL_FILE_EXTENSION = ".journal";
+
+    private final CalendarDirectory directory;
+    private final CalendarFileStore fileStore;
+
+    /**
+     * Constructor for CalendarJournal.
+     *
+     * @param directory The directory where the journal files are stored, next to the calendar files
+     * @param fileStore The file store used to append (and sync) the records
+     */
+    CalendarJournal(CalendarDirectory directory, CalendarFileStore fileStore) {
+        this.directory = directory;
+        this.fileStore = fileStore;
+    }
+
+    /**
+     * Returns the path to the journal file of the given user.
+     *
+     * @param username The owner of the journal
+     * @return The path to the journal file
+     */
+    Path getJournalFilePath(String username) {
+        return directory.fileOf(username, JOURNAL_FILE_EXTENSION);
+    }
+
+    /**
+     * Appends a record to the user's journal, creating the journal if it does not exist.
+     *
+     * @param username The owner of the journal
+     * @param record The record to append
+     * @return The future completed once the record is durable
+     * @throws IOException if an error occurs while writing the journal
+     */
+    CompletableFuture<Void> append(String username, JournalRecord record) throws IOException {
+        return append(username, List.of(record));
+    }
+
+    /**
+     * Appends the records to the user's journal in a single write, creating the journal if it does not exist.
+     *
+     * @param username The owner of the journal
+     * @param records The records to append, in order
+     * @return The future completed once the records are durable
+     * @throws IOException if an error occurs while writing the journal
+     */
+    CompletableFuture<Void> append(String username, List<JournalRecord> records) throws IOException {
+        return fileStore.append(getJournalFilePath(username), output -> {
+            var framedOutput = new DataOutputStream(output);
+            var payload = new ByteArrayOutputStream();
+            var payloadOutput = new DataOutputStream(payload);
+            for (var record : records) {
+                payload.reset();
+                record.writeTo(payloadOutput);
+                framedOutput.writeInt(payload.size());
+                payload.writeTo(framedOutput);
+            }
+            framedOutput.flush();
+        });
+    }
+
+    /**
+     * Reads all complete records of the user's journal in the order they were appended.
+     * An incomplete record at the end of the journal (an interrupted append) is ignored.
+     *
+     * @param username The owner of the journal
+     * @return The records, empty if the journal does not exist
+     * @throws IOException if an error occurs while reading the journal or a complete record is malformed
+     */
+    List<JournalRecord> read(String username) throws IOException {
+        List<JournalRecord> records = new ArrayList<>();
+        try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(getJournalFilePath(username))))) {
+            while (true) {
+                byte[] payload;
+                try {
+                    int length = input.readInt();
+                    if (length <= 0) {
+                        throw new IOException("Invalid journal record length: " + length);
+                    }
+                    payload = input.readNBytes(length);
+                    if (payload.length < length) {
+                        LOGGER.warn("Ignoring incomplete record at the end of the journal of user '{}'", username);
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break; // the end of the journal, possibly with a torn length prefix
+                }
+                records.add(JournalRecord.readFrom(new DataInputStream(new ByteArrayInputStream(payload))));
+            }
+        } catch (NoSuchFileException e) {
+            return List.of();
+        }
+        return records;
+    }
+
+    /**
+     * Applies all records of the user's journal onto the calendar.
+     *
+     * @param username The owner of the journal
+     * @param calendar The calendar read from the base file
+     * @throws IOException if an error occurs while reading the journal
+     */
+    void replay(String username, UserCalendar calendar) throws IOException {
+        for (var record : read(username)) {
+            record.applyTo(calendar);
+        }
+    }
+
+    /**
+     * Checks whether the user has a journal which has not been compacted yet.
+     *
+     * @param username The owner of the journal
+     * @return true if the journal exists
+     */
+    boolean exists(String username) {
+        return Files.exists(getJournalFilePath(username));
+    }
+
+    /**
+     * Reads the attributes of the user's journal, so it can be later checked whether the journal was modified meanwhile.
+     *
+     * @param username The owner of the journal
+     * @return The attributes of the journal file
+     * @throws IOException if the journal does not exist or its attributes cannot be read
+     */
+    BasicFileAttributes attributes(String username) throws IOException {
+        return Files.readAttributes(getJournalFilePath(username), BasicFileAttributes.class);
+    }
+
+    /**
+     * Checks whether the user's journal is still the same file of the same size as when its attributes were read,
+     *  i.e. no record was appended and the journal was not deleted (or re-created) meanwhile.
+     *
+     * @param username The owner of the journal
+     * @param before The attributes read before
+     * @return true if the journal was not modified
+     * @throws IOException if the attributes of the journal cannot be read
+     */
+    boolean isUnchanged(String username, BasicFileAttributes before) throws IOException {
+        BasicFileAttributes now;
+        try {
+            now = attributes(username);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        return now.size() == before.size()
+                && Objects.equals(now.fileKey(), before.fileKey())
+                && now.lastModifiedTime().equals(before.lastModifiedTime());
+    }
+
+    /**
+     * Deletes the user's journal if it exists.
+     *
+     * @param username The owner of the journal
+     * @throws IOException if an error occurs while deleting the journal
+     */
+    void delete(String username) throws IOException {
+        Files.deleteIfExists(getJournalFilePath(username));
+    }
+
+    /**
+     * Finds the users which have a journal in the directory.
+     *
+     * @return The usernames of the journal owners
+     * @throws IOException if an error occurs while listing the directory
+     */
+    List<String> findJournaledUsers() throws IOException {
+        List<String> usernames = new ArrayList<>();
+        for (var file : directory.findFiles(JOURNAL_FILE_EXTENSION)) {
+            usernames.add(CalendarDirectory.usernameOf(file, JOURNAL_FILE_EXTENSION));
+        }
+        return usernames;
+    }
+}
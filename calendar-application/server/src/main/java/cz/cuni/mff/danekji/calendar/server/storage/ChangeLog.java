@@ -0,0 +1,207 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SequencedMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory log of the recent changes of the users' calendars, used to answer the delta syncs.
+ * <p>
+ * Every modification of a calendar gets the next change version of its owner and the log remembers
+ *  the last version in which each event was changed (and whether it was deleted), so the changes since any
+ *  retained version are found without touching the calendar. Only the last {@link #DEFAULT_CAPACITY} changed events
+ *  of a user are retained, the changes since an older version are no longer known and the caller must answer
+ *  with a complete snapshot instead.
+ * <p>
+ * The log is not persisted. A new log starts above every version handed out by this log before
+ *  and at least at the time (in microseconds) it was created, so the versions handed out by a previous run of the server,
+ *  or by a dropped log of the same user (e.g. before the account was re-created), are older than any retained version
+ *  and force a complete snapshot as well.
+ *  The log of a user is created by its first recorded modification, a user without a log is at {@link #SNAPSHOT_VERSION}.
+ *  At most {@link #DEFAULT_MAX_USERS} logs are kept, the log of the least recently used user is dropped first,
+ *  so its clients get a complete snapshot on their next sync.
+ * <p>
+ * The log of a user is guarded by the owner's lock in {@link UserLocks}:
+ *  recording requires the write lock, reading the read lock.
+ */
+final class ChangeLog {
+    /**
+     * The default number of changed events retained per user.
+     */
+    static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * The default number of users whose logs are kept.
+     */
+    static final int DEFAULT_MAX_USERS = 4096;
+
+    /**
+     * The version of a user without a log, the changes since it are never known.
+     */
+    static final long SNAPSHOT_VERSION = 0;
+
+    private final int capacity;
+    private final Map<String, UserChanges> users;
+    private final Lock lock = new ReentrantLock(); // guards the map of the users, not their logs
+    private final AtomicLong lastVersion = new AtomicLong(SNAPSHOT_VERSION); // the highest version handed out to any user
+
+    /**
+     * The changes of a single user.
+     */
+    private static final class UserChanges {
+        private long version;
+        private long oldestKnownVersion; // the changes since an older version are no longer known
+        private final SequencedMap<Long, Change> changesByEventId = new LinkedHashMap<>(); // ordered by version
+
+        private UserChanges(long startVersion) {
+            this.version = startVersion;
+            this.oldestKnownVersion = startVersion;
+        }
+    }
+
+    /**
+     * The last change of an event.
+     *
+     * @param version The version in which the event was changed
+     * @param deleted Whether the event was deleted
+     */
+    private record Change(long version, boolean deleted) {
+    }
+
+    /**
+     * The IDs of the events changed since a version.
+     *
+     * @param version The current version
+     * @param changedEventIds The IDs of the created or updated events which still exist, ordered by the version of their change
+     * @param deletedEventIds The IDs of the deleted events
+     */
+    record Delta(long version, List<Long> changedEventIds, List<Long> deletedEventIds) {
+    }
+
+    /**
+     * Constructor for ChangeLog with the default capacities.
+     */
+    ChangeLog() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_USERS);
+    }
+
+    /**
+     * Constructor for ChangeLog.
+     *
+     * @param capacity The number of changed events retained per user
+     * @param maxUsers The number of users whose logs are kept
+     */
+    ChangeLog(int capacity, int maxUsers) {
+        assert capacity > 0 && maxUsers > 0;
+        this.capacity = capacity;
+        this.users = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserChanges> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    private UserChanges find(String username) {
+        lock.lock();
+        try {
+            return users.get(username);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private UserChanges findOrCreate(String username) {
+        lock.lock();
+        try {
+            return users.computeIfAbsent(username, ignored -> new UserChanges(nextStartVersion()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reserves the start version of a new log, above every version handed out before.
+     *
+     * @return The start version
+     */
+    private long nextStartVersion() {
+        long now = System.currentTimeMillis() * 1000;
+        return lastVersion.updateAndGet(previous -> Math.max(previous + 1, now));
+    }
+
+    /**
+     * Records the persisted modifications of a calendar, each under the next version of its owner.
+     *
+     * @param username The owner of the calendar, the caller must hold its write lock
+     * @param records The modifications, in the order they were applied
+     * @return The version of the last modification
+     */
+    long record(String username, List<JournalRecord> records) {
+        UserChanges changes = findOrCreate(username);
+        for (var record : records) {
+            long eventId = record.event().getId();
+            changes.changesByEventId.remove(eventId); // moves the event to the end
+            changes.changesByEventId.put(eventId, new Change(++changes.version, record.type() == JournalRecord.Type.DELETE));
+        }
+        while (changes.changesByEventId.size() > capacity) {
+            changes.oldestKnownVersion = changes.changesByEventId.pollFirstEntry().getValue().version();
+        }
+        lastVersion.accumulateAndGet(changes.version, Math::max);
+        return changes.version;
+    }
+
+    /**
+     * Gets the current version of the user's calendar.
+     *
+     * @param username The owner of the calendar, the caller must hold its read or write lock
+     * @return The version of the last modification, or {@link #SNAPSHOT_VERSION} if the user has no log
+     */
+    long currentVersion(String username) {
+        UserChanges changes = find(username);
+        return changes != null ? changes.version : SNAPSHOT_VERSION;
+    }
+
+    /**
+     * Finds the events changed since the given version.
+     *
+     * @param username The owner of the calendar, the caller must hold its read or write lock
+     * @param sinceVersion The version the caller knows, null if it knows none
+     * @return The changes since the version, or null if they are not known
+     */
+    Delta changesSince(String username, Long sinceVersion) {
+        UserChanges changes = find(username);
+        if (changes == null || sinceVersion == null || sinceVersion < changes.oldestKnownVersion || sinceVersion > changes.version) {
+            return null;
+        }
+
+        List<Long> changed = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        for (var entry : changes.changesByEventId.reversed().entrySet()) {
+            if (entry.getValue().version() <= sinceVersion) {
+                break; // the older changes are already known
+            }
+            (entry.getValue().deleted() ? deleted : changed).add(entry.getKey());
+        }
+        return new Delta(changes.version, changed.reversed(), deleted);
+    }
+
+    /**
+     * Forgets the changes of a deleted or re-created calendar.
+     *
+     * @param username The owner of the calendar, the caller must hold its write lock
+     */
+    void forget(String username) {
+        lock.lock();
+        try {
+            users.remove(username);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
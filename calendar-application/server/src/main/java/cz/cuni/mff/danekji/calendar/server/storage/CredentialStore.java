@@ -0,0 +1,118 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import cz.cuni.mff.danekji.calendar.core.exceptions.server.XmlDatabaseException;
+import cz.cuni.mff.danekji.calendar.core.models.User;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of the users' credentials, loaded lazily.
+ * <p>
+ * The credentials of a user are read from the {@code <user>} header of the calendar file on the first lookup
+ *  (the rest of the file is never read) and kept in memory, so the later logins and account existence checks
+ *  neither touch the filesystem nor depend on the size of the user's calendar, and the startup does not depend
+ *  on the number of users. The usernames without a calendar file are remembered too (at most {@link #MAX_CACHED_MISSES}
+ *  of them), so the repeated logins of an unknown user do not touch the filesystem either.
+ * <p>
+ * The index is thread-safe. A lookup must not race with the creation or deletion of the same account,
+ *  the caller must hold the user's read or write lock in {@link UserLocks}.
+ */
+final class CredentialStore {
+    private final static Logger LOGGER = LogManager.getLogger(CredentialStore.class);
+    /**
+     * The maximum number of remembered usernames without an account, the whole set is dropped once it is exceeded.
+     */
+    static final int MAX_CACHED_MISSES = 4096;
+
+    private final CalendarDirectory directory;
+    private final CalendarFormat format;
+    private final Map<String, User> users = new ConcurrentHashMap<>();
+    private final Set<String> missing = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructor for CredentialStore.
+     *
+     * @param directory The directory with the calendar files
+     * @param format The format of the calendar files
+     */
+    CredentialStore(CalendarDirectory directory, CalendarFormat format) {
+        this.directory = directory;
+        this.format = format;
+    }
+
+    /**
+     * Looks up the credentials of the user, reading the header of the calendar file on the first lookup.
+     * A file without a valid user header is treated as a missing account.
+     *
+     * @param username The username, the caller must hold its read or write lock
+     * @return The user with the stored credentials, or null if the account does not exist
+     */
+    private User lookup(String username) {
+        User user = users.get(username);
+        if (user != null || missing.contains(username)) {
+            return user;
+        }
+
+        var file = directory.fileOf(username, format.fileExtension());
+        if (Files.exists(file)) {
+            try {
+                user = format.readUser(file);
+                users.put(username, user);
+                return user;
+            } catch (XmlDatabaseException e) {
+                LOGGER.warn("Ignoring credentials of calendar file '{}': {}", file, e.getMessage());
+            }
+        }
+
+        if (missing.size() >= MAX_CACHED_MISSES) {
+            missing.clear();
+        }
+        missing.add(username);
+        return null;
+    }
+
+    /**
+     * Checks whether an account with the given username exists.
+     *
+     * @param username The username, the caller must hold its read or write lock
+     * @return true if the account exists
+     */
+    boolean contains(String username) {
+        return lookup(username) != null;
+    }
+
+    /**
+     * Checks whether the user's username and password hash match the stored credentials.
+     *
+     * @param user The user with the credentials to verify, the caller must hold its read or write lock
+     * @return true if the credentials match
+     */
+    boolean verify(User user) {
+        return user.equals(lookup(user.username()));
+    }
+
+    /**
+     * Stores the credentials of a newly created account.
+     *
+     * @param user The user with the username and password hash, the caller must hold its write lock
+     */
+    void add(User user) {
+        missing.remove(user.username());
+        users.put(user.username(), user);
+    }
+
+    /**
+     * Removes the credentials of a deleted account.
+     *
+     * @param username The username of the deleted account, the caller must hold its write lock
+     */
+    void remove(String username) {
+        users.remove(username);
+        missing.add(username);
+    }
+}
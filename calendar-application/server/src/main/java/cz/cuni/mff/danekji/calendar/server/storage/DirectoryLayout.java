@@ -0,0 +1,101 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Determines in which directory under the data directory the files of a user (the calendar and its journal) are stored.
+ */
+public enum DirectoryLayout {
+    /**
+     * All files are stored directly in the data directory.
+     * Simple to inspect, but the lookups and listings of a directory with many thousands of files get slow.
+     */
+    FLAT {
+        @Override
+        Path directoryOf(Path root, String username) {
+            return root;
+        }
+
+        @Override
+        List<Path> directories(Path root) {
+            return List.of(root);
+        }
+    },
+    /**
+     * The files are spread over two levels of subdirectories named by the hash of the username,
+     *  e.g. {@code data/3f/a2/alice.xml}. The 65536 leaf directories keep even hundreds of thousands of users
+     *  at a few files per directory.
+     */
+    SHARDED {
+        @Override
+        Path directoryOf(Path root, String username) {
+            int hash = hashOf(username);
+            return root.resolve(shardName(hash >>> 8)).resolve(shardName(hash));
+        }
+
+        @Override
+        List<Path> directories(Path root) throws IOException {
+            List<Path> directories = new ArrayList<>();
+            for (var first : shardsIn(root)) {
+                directories.addAll(shardsIn(first));
+            }
+            return directories;
+        }
+    };
+
+    private static final String HEX_DIGITS = "0123456789abcdef";
+
+    /**
+     * Returns the directory in which the files of the user are stored, it may not exist yet.
+     *
+     * @param root The data directory
+     * @param username The owner of the files
+     * @return The directory of the user's files
+     */
+    abstract Path directoryOf(Path root, String username);
+
+    /**
+     * Lists the existing directories in which the files of the users are stored.
+     *
+     * @param root The data directory
+     * @return The directories of the users' files
+     * @throws IOException if an error occurs while listing the data directory
+     */
+    abstract List<Path> directories(Path root) throws IOException;
+
+    /**
+     * Hashes the username into the 16 bits which name its shards.
+     * {@link String#hashCode()} is specified, so the shards of a user never change between the runs of the server.
+     *  Its bits are mixed, so the usernames differing in their last characters only spread over the first level too.
+     */
+    private static int hashOf(String username) {
+        int hash = username.hashCode();
+        hash ^= hash >>> 16;
+        hash *= 0x45d9f3b;
+        hash ^= hash >>> 16;
+        return hash & 0xffff;
+    }
+
+    private static String shardName(int bits) {
+        return new String(new char[] {HEX_DIGITS.charAt((bits >>> 4) & 0xf), HEX_DIGITS.charAt(bits & 0xf)});
+    }
+
+    /**
+     * Lists the subdirectories named like a shard, so the other subdirectories (e.g. of another storage engine) are skipped.
+     */
+    private static List<Path> shardsIn(Path directory) throws IOException {
+        List<Path> shards = new ArrayList<>();
+        try (var entries = Files.newDirectoryStream(directory, "[0-9a-f][0-9a-f]")) {
+            for (var entry : entries) {
+                if (Files.isDirectory(entry)) {
+                    shards.add(entry);
+                }
+            }
+        }
+        return shards;
+    }
+}
@@ -0,0 +1,111 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import cz.cuni.mff.danekji.calendar.core.exceptions.server.XmlDatabaseException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * One-shot tool moving the users' files of a data directory from one {@link DirectoryLayout} into another,
+ *  e.g. from the flat directory of an older server into the sharded one.
+ * <p>
+ * The calendar files and the journals are renamed into the directories of the target layout, so their content
+ *  is never rewritten and the pending journals stay next to their calendars. A file which already exists in the target
+ *  layout is skipped, so the tool can be safely run again (e.g. after an interrupted run). The shard directories
+ *  emptied by the migration are deleted. The server must not be running during the migration.
+ */
+public final class DirectoryLayoutMigration {
+    private final static Logger LOGGER = LogManager.getLogger(DirectoryLayoutMigration.class);
+    private static final List<String> USER_FILE_EXTENSIONS = List.of(
+            XmlCalendarFormat.FILE_EXTENSION, BinaryCalendarFormat.FILE_EXTENSION, CalendarJournal.JOURNAL_FILE_EXTENSION);
+
+    private DirectoryLayoutMigration() {
+    }
+
+    /**
+     * Moves the files of the XML and binary folders of the storage configuration read from the system properties
+     *  into the configured layout (e.g. {@code -Dcalendar.storage.layout=sharded}) from the other one.
+     *
+     * @param args Command line arguments (not used).
+     */
+    public static void main(String[] args) {
+        var configuration = StorageConfiguration.fromSystemProperties();
+        DirectoryLayout target = configuration.getLayout();
+        DirectoryLayout source = target == DirectoryLayout.FLAT ? DirectoryLayout.SHARDED : DirectoryLayout.FLAT;
+
+        for (var folder : List.of(XMLEventRepository.folderOf(configuration), BinaryEventRepository.folderOf(configuration))) {
+            if (Files.isDirectory(folder)) {
+                int moved = migrate(folder, source, target);
+                LOGGER.info("Moved {} files of '{}' from the {} into the {} layout", moved, folder.toAbsolutePath(), source, target);
+            }
+        }
+    }
+
+    /**
+     * Moves the users' files of the folder from the source layout into the target layout.
+     *
+     * @param folder The folder with the users' files
+     * @param source The current layout of the files
+     * @param target The new layout of the files
+     * @return The number of moved files
+     * @throws XmlDatabaseException if the folder cannot be listed or a file cannot be moved
+     */
+    static int migrate(Path folder, DirectoryLayout source, DirectoryLayout target) throws XmlDatabaseException {
+        int moved = 0;
+        try {
+            for (var directory : source.directories(folder)) {
+                for (var extension : USER_FILE_EXTENSIONS) {
+                    try (var files = Files.newDirectoryStream(directory, "*" + extension)) {
+                        for (var file : files) {
+                            if (move(folder, file, extension, target)) {
+                                moved++;
+                            }
+                        }
+                    }
+                }
+                if (source == DirectoryLayout.SHARDED) {
+                    deleteIfEmpty(directory);
+                    deleteIfEmpty(directory.getParent());
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to move the files of '{}' from the {} into the {} layout", folder.toAbsolutePath(), source, target, e);
+            throw new XmlDatabaseException("Failed to migrate the data directory layout.");
+        }
+        return moved;
+    }
+
+    /**
+     * Moves a single user's file into its directory of the target layout, unless it is already there.
+     */
+    private static boolean move(Path folder, Path file, String extension, DirectoryLayout target) throws IOException {
+        String username = CalendarDirectory.usernameOf(file, extension);
+        Path destination = target.directoryOf(folder, username).resolve(file.getFileName());
+        if (destination.equals(file)) {
+            return false;
+        }
+        if (Files.exists(destination)) {
+            LOGGER.warn("Skipping file '{}', it already exists in the target layout", file);
+            return false;
+        }
+
+        Files.createDirectories(destination.getParent());
+        Files.move(file, destination, StandardCopyOption.ATOMIC_MOVE);
+        LOGGER.debug("Moved file '{}' to '{}'", file, destination);
+        return true;
+    }
+
+    private static void deleteIfEmpty(Path directory) throws IOException {
+        try {
+            Files.deleteIfExists(directory);
+        } catch (DirectoryNotEmptyException e) {
+            // still holds other files (or shards)
+        }
+    }
+}
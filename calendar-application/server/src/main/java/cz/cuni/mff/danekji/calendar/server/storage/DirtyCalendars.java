@@ -0,0 +1,163 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded set of the modified calendars not written to their files yet, used by the {@link WriteMode#WRITE_BEHIND} write mode.
+ * <p>
+ * A dirty calendar is the only up-to-date copy of the user's events, so it is held until it is flushed
+ *  and it is never evicted like the calendars of the {@link CalendarCache}. At most {@code capacity} calendars
+ *  are dirty at once, a modification of another calendar must be written through by the caller.
+ *  The modifications of an already dirty calendar are coalesced into its next flush.
+ * <p>
+ * The calendar of a user is marked and flushed under the owner's write lock in {@link UserLocks},
+ *  looking it up requires the read lock.
+ */
+final class DirtyCalendars {
+    private final int capacity;
+    private final Map<String, Entry> calendars = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger(); // the number of dirty calendars, reserved before insertion
+    private final AtomicLong unflushedChanges = new AtomicLong();
+
+    /**
+     * A dirty calendar and the number of its modifications since it was last written.
+     */
+    private static final class Entry {
+        private final UserCalendar calendar;
+        private long changes;
+
+        private Entry(UserCalendar calendar) {
+            this.calendar = calendar;
+        }
+    }
+
+    /**
+     * Constructor for DirtyCalendars.
+     *
+     * @param capacity The maximum number of dirty calendars
+     */
+    DirtyCalendars(int capacity) {
+        assert capacity > 0;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Marks the modified calendar as dirty, unless the set is full and the calendar is not dirty yet.
+     *
+     * @param calendar The modified calendar, the caller must hold its owner's write lock
+     * @param changes The number of the modifications
+     * @return true if the calendar is dirty, false if the caller must write it through
+     */
+    boolean mark(UserCalendar calendar, int changes) {
+        String username = calendar.getUser().username();
+        Entry entry = calendars.get(username);
+        if (entry == null) {
+            if (size.incrementAndGet() > capacity) {
+                size.decrementAndGet();
+                return false;
+            }
+            entry = new Entry(calendar);
+            calendars.put(username, entry);
+        }
+        entry.changes += changes;
+        unflushedChanges.addAndGet(changes);
+        return true;
+    }
+
+    /**
+     * Marks the calendar as dirty again once its flush failed, even if the set is full,
+     *  since the calendar is the only up-to-date copy of the user's events.
+     *
+     * @param calendar The calendar whose flush failed, the caller must hold its owner's write lock
+     * @param changes The number of the modifications which were flushed
+     */
+    void restore(UserCalendar calendar, long changes) {
+        String username = calendar.getUser().username();
+        Entry entry = calendars.get(username);
+        if (entry == null) {
+            size.incrementAndGet();
+            entry = new Entry(calendar);
+            calendars.put(username, entry);
+        }
+        entry.changes += changes;
+        unflushedChanges.addAndGet(changes);
+    }
+
+    /**
+     * Looks up the dirty calendar of the user.
+     *
+     * @param username The owner of the calendar, the caller must hold its read or write lock
+     * @return The dirty calendar, or null if the user's calendar is not dirty
+     */
+    UserCalendar get(String username) {
+        Entry entry = calendars.get(username);
+        return entry == null ? null : entry.calendar;
+    }
+
+    /**
+     * Gets the number of the modifications of the user's calendar since it was last written.
+     *
+     * @param username The owner of the calendar, the caller must hold its read or write lock
+     * @return The number of the unflushed modifications, 0 if the user's calendar is not dirty
+     */
+    long changesOf(String username) {
+        Entry entry = calendars.get(username);
+        return entry == null ? 0 : entry.changes;
+    }
+
+    /**
+     * Removes the calendar once it is written (or its user deleted), so it is no longer dirty.
+     *
+     * @param username The owner of the calendar, the caller must hold its write lock
+     * @return The removed calendar, or null if the user's calendar was not dirty
+     */
+    UserCalendar remove(String username) {
+        Entry entry = calendars.remove(username);
+        if (entry == null) {
+            return null;
+        }
+        size.decrementAndGet();
+        unflushedChanges.addAndGet(-entry.changes);
+        return entry.calendar;
+    }
+
+    /**
+     * Gets the owners of the dirty calendars.
+     *
+     * @return The snapshot of the usernames, the calendars may be flushed or marked meanwhile
+     */
+    List<String> usernames() {
+        return List.copyOf(calendars.keySet());
+    }
+
+    /**
+     * Checks whether no other calendar can be marked as dirty.
+     *
+     * @return true if the set holds {@code capacity} calendars
+     */
+    boolean isFull() {
+        return size.get() >= capacity;
+    }
+
+    /**
+     * Gets the number of the dirty calendars.
+     *
+     * @return The number of the calendars waiting for a flush
+     */
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * Gets the number of the modifications not written to the calendar files yet.
+     *
+     * @return The number of the unflushed modifications
+     */
+    long getUnflushedChanges() {
+        return unflushedChanges.get();
+    }
+}
@@ -0,0 +1,23 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+/**
+ * Determines how hard the storage tries to make a completed write survive a crash of the machine.
+ * Calendar files are always replaced atomically (written into a temporary file which is then renamed),
+ *  so a crash never leaves a half-written calendar behind, the durability level only decides when the data is synced to the disk.
+ */
+public enum Durability {
+    /**
+     * The data is never explicitly synced, the operating system writes it back whenever it decides to.
+     * The fastest level, a power loss may lose the last modifications.
+     */
+    NONE,
+    /**
+     * Every write is synced to the disk before it completes.
+     */
+    PER_WRITE,
+    /**
+     * Writes wait for a shared sync which is issued once per group commit window,
+     *  so several writes (e.g. of the same user) completing within the window share a single sync.
+     */
+    GROUPED,
+}
@@ -0,0 +1,19 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
+
+/**
+ * Listener of the committed changes of the users' calendars (see {@link EventRepository#addChangeListener}).
+ */
+@FunctionalInterface
+public interface EventChangeListener {
+    /**
+     * Called once the modifications of a calendar are durable.
+     * It is called by the thread of the modifying session after releasing the calendar's lock, so it must not block.
+     *
+     * @param username The owner of the changed calendar
+     * @param version The change version of the calendar after the modifications
+     * @param origin The session which made the modifications
+     */
+    void eventsChanged(String username, long version, ClientSession origin);
+}
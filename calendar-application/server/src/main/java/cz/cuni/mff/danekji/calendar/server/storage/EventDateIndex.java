@@ -0,0 +1,99 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.EventCursor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Index of a calendar's events sorted by {@code (date, time, id)}.
+ * <p>
+ * Both modifications and the boundaries of a date range query cost O(log n),
+ *  so a query costs O(log n + k) for k returned events. Like {@link UserCalendar}, the index is not thread-safe.
+ */
+final class EventDateIndex {
+    /**
+     * The order of the events in the index.
+     */
+    static final Comparator<Event> ORDER = Comparator.comparing(Event::getDate)
+            .thenComparing(Event::getTime)
+            .thenComparing(Event::getId);
+
+    private final NavigableSet<Event> sortedEvents = new TreeSet<>(ORDER);
+
+    /**
+     * Inserts the event at its position.
+     *
+     * @param event The event to insert
+     */
+    void add(Event event) {
+        sortedEvents.add(event);
+    }
+
+    /**
+     * Removes the event.
+     *
+     * @param event The event to remove (as it is stored in the index)
+     */
+    void remove(Event event) {
+        sortedEvents.remove(event);
+    }
+
+    /**
+     * Returns the events taking place within the given date range.
+     *
+     * @param startDate The first day of the range (inclusive)
+     * @param endDate The last day of the range (inclusive)
+     * @return A new unmodifiable list of the events within the range, sorted by date, time and ID
+     */
+    List<Event> range(LocalDate startDate, LocalDate endDate) {
+        if (startDate.isAfter(endDate)) {
+            return List.of();
+        }
+        return List.copyOf(sortedEvents.subSet(bound(startDate, LocalTime.MIN, Long.MIN_VALUE), true,
+                bound(endDate, LocalTime.MAX, Long.MAX_VALUE), true));
+    }
+
+    /**
+     * Returns a page of the events taking place within the given date range.
+     * Only the returned events are visited, so a page costs O(log n + limit).
+     *
+     * @param startDate The first day of the range (inclusive)
+     * @param endDate The last day of the range (inclusive)
+     * @param after The cursor after which the page starts, null for the first page
+     * @param limit The maximum number of returned events
+     * @return A new unmodifiable list of at most {@code limit} events, sorted by date, time and ID
+     */
+    List<Event> page(LocalDate startDate, LocalDate endDate, EventCursor after, int limit) {
+        Event from = bound(startDate, LocalTime.MIN, Long.MIN_VALUE);
+        boolean fromInclusive = true;
+        if (after != null && ORDER.compare(bound(after.date(), after.time(), after.eventId()), from) >= 0) {
+            from = bound(after.date(), after.time(), after.eventId());
+            fromInclusive = false;
+        }
+        Event to = bound(endDate, LocalTime.MAX, Long.MAX_VALUE);
+        if (ORDER.compare(from, to) > 0) {
+            return List.of();
+        }
+
+        List<Event> page = new ArrayList<>(Math.min(limit, 1024));
+        for (Event event : sortedEvents.subSet(from, fromInclusive, to, true)) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(event);
+        }
+        return Collections.unmodifiableList(page);
+    }
+
+    private static Event bound(LocalDate date, LocalTime time, long id) {
+        return Event.withId(id, new Event(null, date, time, null, null));
+    }
+}
@@ -1,14 +1,26 @@
 package cz.cuni.mff.danekji.calendar.server.storage;
 
+import cz.cuni.mff.danekji.calendar.server.metrics.MetricsRegistry;
+import cz.cuni.mff.danekji.calendar.core.commands.AddEventCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.BatchOperation;
+import cz.cuni.mff.danekji.calendar.core.commands.DeleteEventCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.UpdateEventCommand;
+import cz.cuni.mff.danekji.calendar.core.exceptions.CalendarException;
 import cz.cuni.mff.danekji.calendar.core.exceptions.server.ServerException;
 import cz.cuni.mff.danekji.calendar.core.exceptions.server.XmlDatabaseException;
+import cz.cuni.mff.danekji.calendar.core.models.BatchItemResult;
 import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.EventChanges;
+import cz.cuni.mff.danekji.calendar.core.models.EventCursor;
 import cz.cuni.mff.danekji.calendar.core.models.User;
 import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -68,6 +80,78 @@ public interface EventRepository {
      */
     List<Event> getAllEvents(User user, ClientSession session);
 
+    /**
+     * Retrieves the events of the given user which take place within the given date range.
+     * The default implementation filters all events of the user, implementations should override it
+     *  if they can avoid loading the events outside the range.
+     *
+     * @param user the user for which to retrieve events
+     * @param startDate the first day of the range (inclusive)
+     * @param endDate the last day of the range (inclusive)
+     * @param session the client session
+     * @return a list of events within the range
+     */
+    default List<Event> getEventsInRange(User user, LocalDate startDate, LocalDate endDate, ClientSession session) {
+        return getAllEvents(user, session).stream()
+                .filter(event -> !event.getDate().isBefore(startDate) && !event.getDate().isAfter(endDate))
+                .toList();
+    }
+
+    /**
+     * Retrieves a page of the events of the given user which take place within the given date range.
+     * The events are ordered by their date, time and ID and the page starts right after the cursor.
+     * The default implementation sorts all events within the range, implementations should override it
+     *  if they keep the events sorted.
+     *
+     * @param user the user for which to retrieve events
+     * @param startDate the first day of the range (inclusive)
+     * @param endDate the last day of the range (inclusive)
+     * @param after the cursor after which the page starts, null for the first page
+     * @param limit the maximum number of returned events
+     * @param session the client session
+     * @return a list of at most {@code limit} events
+     */
+    default List<Event> getEventsPage(User user, LocalDate startDate, LocalDate endDate, EventCursor after, int limit, ClientSession session) {
+        return getEventsInRange(user, startDate, endDate, session).stream()
+                .filter(event -> after == null || after.precedes(event))
+                .sorted(Comparator.comparing(Event::getDate).thenComparing(Event::getTime).thenComparing(Event::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Retrieves the changes of the given user's events since the given change version.
+     * If the changes since the version are not known, a complete snapshot of the events is returned.
+     * The default implementation does not track the changes and always returns a snapshot,
+     *  implementations should override it if they can find the changed events.
+     *
+     * @param user the user for which to retrieve the changes
+     * @param sinceVersion the change version the caller knows, null if it knows none
+     * @param session the client session
+     * @return the changes since the version, or a complete snapshot
+     */
+    default EventChanges getChangesSince(User user, Long sinceVersion, ClientSession session) {
+        return EventChanges.snapshot(0, getAllEvents(user, session));
+    }
+
+    /**
+     * Registers a listener notified once the modifications of any calendar are committed.
+     * The default implementation does not track the changes and never notifies the listener.
+     *
+     * @param listener the listener to register
+     */
+    default void addChangeListener(EventChangeListener listener) {
+    }
+
+    /**
+     * Registers the metrics of the repository (e.g. the parse timings or the cache statistics) into the registry.
+     * The default implementation has no metrics.
+     *
+     * @param metrics the registry of the server metrics
+     */
+    default void registerMetrics(MetricsRegistry metrics) {
+    }
+
     /**
      * Updates an event in the repository.
      *
@@ -77,6 +161,39 @@ public interface EventRepository {
      */
     void updateEvent(User user, Event event, ClientSession session);
 
+    /**
+     * Applies a batch of event operations (additions, updates and deletions) in order.
+     * A failed operation is reported in its result and does not stop the following ones.
+     * The default implementation applies the operations one by one, implementations should override it
+     *  if they can apply the whole batch under a single lock and persist it at once.
+     *
+     * @param user the user whose events will be modified
+     * @param operations the operations to apply, in order
+     * @param session the client session
+     * @return the results of the operations, in the order of the operations
+     */
+    default List<BatchItemResult> applyBatch(User user, List<BatchOperation> operations, ClientSession session) {
+        List<BatchItemResult> results = new ArrayList<>(operations.size());
+        for (var operation : operations) {
+            try {
+                results.add(switch (operation) {
+                    case AddEventCommand command -> BatchItemResult.success(addEvent(user, command.getEvent(), session));
+                    case UpdateEventCommand command -> {
+                        updateEvent(user, command.getEvent(), session);
+                        yield BatchItemResult.success(command.getEvent().getId());
+                    }
+                    case DeleteEventCommand command -> {
+                        deleteEvent(user, command.getEventId(), session);
+                        yield BatchItemResult.success(command.getEventId());
+                    }
+                });
+            } catch (CalendarException | IOException e) {
+                results.add(BatchItemResult.failure(eventIdOf(operation), e.getMessage()));
+            }
+        }
+        return results;
+    }
+
     /**
      * Validates the username of the user.
      *
@@ -100,4 +217,20 @@ public interface EventRepository {
      * @throws IOException if an I/O error occurs.
      */
     void deleteUser(User user, ClientSession session) throws XmlDatabaseException, IOException;
+
+    /**
+     * Gets the ID of the event modified by the operation, so a failed operation can be told apart in the batch results.
+     *
+     * @param operation the batch operation
+     * @return the ID of the event, or null if the operation adds a new event (which has no ID yet)
+     *  or carries no event with an ID
+     */
+    private static Long eventIdOf(BatchOperation operation) {
+        return switch (operation) {
+            case AddEventCommand command -> null;
+            case UpdateEventCommand command ->
+                    command.getEvent() != null && command.getEvent().hasId() ? command.getEvent().getId() : null;
+            case DeleteEventCommand command -> command.getEventId();
+        };
+    }
 }
@@ -0,0 +1,109 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
+import cz.cuni.mff.danekji.calendar.core.commands.BatchOperation;
+import cz.cuni.mff.danekji.calendar.core.models.BatchItemResult;
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.EventChanges;
+import cz.cuni.mff.danekji.calendar.core.models.EventCursor;
+import cz.cuni.mff.danekji.calendar.core.models.User;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Adapter running the operations of a synchronous {@link EventRepository} by an executor.
+ */
+final class ExecutorAsyncEventRepository implements AsyncEventRepository {
+    private static final ThreadFactory STORAGE_THREADS = Thread.ofVirtual().name("storage-", 0).factory();
+    /**
+     * Runs every task on a new virtual thread.
+     */
+    static final Executor VIRTUAL_THREADS = task -> STORAGE_THREADS.newThread(task).start();
+
+    private final EventRepository repository;
+    private final Executor executor;
+
+    /**
+     * A synchronous operation of the repository, which may throw any exception.
+     */
+    @FunctionalInterface
+    private interface Operation<T> {
+        T run() throws Exception;
+    }
+
+    /**
+     * Constructor for ExecutorAsyncEventRepository.
+     *
+     * @param repository The adapted synchronous repository
+     * @param executor The executor running the blocking operations
+     */
+    ExecutorAsyncEventRepository(EventRepository repository, Executor executor) {
+        this.repository = repository;
+        this.executor = executor;
+    }
+
+    /**
+     * Runs the operation by the executor, completing the future with its result or with the thrown exception as is.
+     */
+    private <T> CompletableFuture<T> submit(Operation<T> operation) {
+        var future = new CompletableFuture<T>();
+        executor.execute(() -> {
+            try {
+                future.complete(operation.run());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Long> addEventAsync(User user, Event event, ClientSession session) {
+        return submit(() -> repository.addEvent(user, event, session));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateEventAsync(User user, Event event, ClientSession session) {
+        return submit(() -> {
+            repository.updateEvent(user, event, session);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteEventAsync(User user, Long eventId, ClientSession session) {
+        return submit(() -> {
+            repository.deleteEvent(user, eventId, session);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<Event>> getEventsAsync(User user, ClientSession session) {
+        return submit(() -> repository.getAllEvents(user, session));
+    }
+
+    @Override
+    public CompletableFuture<List<Event>> getEventsInRangeAsync(User user, LocalDate startDate, LocalDate endDate, ClientSession session) {
+        return submit(() -> repository.getEventsInRange(user, startDate, endDate, session));
+    }
+
+    @Override
+    public CompletableFuture<List<Event>> getEventsPageAsync(User user, LocalDate startDate, LocalDate endDate, EventCursor after, int limit, ClientSession session) {
+        return submit(() -> repository.getEventsPage(user, startDate, endDate, after, limit, session));
+    }
+
+    @Override
+    public CompletableFuture<EventChanges> getChangesSinceAsync(User user, Long sinceVersion, ClientSession session) {
+        return submit(() -> repository.getChangesSince(user, sinceVersion, session));
+    }
+
+    @Override
+    public CompletableFuture<List<BatchItemResult>> applyBatchAsync(User user, List<BatchOperation> operations, ClientSession session) {
+        return submit(() -> repository.applyBatch(user, operations, session));
+    }
+}
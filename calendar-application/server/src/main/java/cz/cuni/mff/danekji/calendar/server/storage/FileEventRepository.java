@@ -0,0 +1,1173 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import cz.cuni.mff.danekji.calendar.core.commands.AddEventCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.BatchOperation;
+import cz.cuni.mff.danekji.calendar.core.commands.DeleteEventCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.UpdateEventCommand;
+import cz.cuni.mff.danekji.calendar.core.exceptions.client.InvalidInputException;
+import cz.cuni.mff.danekji.calendar.core.exceptions.server.XmlDatabaseException;
+import cz.cuni.mff.danekji.calendar.core.models.BatchItemResult;
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.EventChanges;
+import cz.cuni.mff.danekji.calendar.core.models.EventCursor;
+import cz.cuni.mff.danekji.calendar.core.models.User;
+import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
+import cz.cuni.mff.danekji.calendar.server.metrics.LatencyHistogram;
+import cz.cuni.mff.danekji.calendar.server.metrics.MetricsRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Base of the event repositories which store every user's calendar in its own file.
+ * The subclasses only choose the folder and the {@link CalendarFormat} of the files,
+ *  the files of a user are placed within the folder according to the configured {@link DirectoryLayout}.
+ * Loaded calendars are kept in a bounded in-memory cache, so repeated requests of the same user
+ *  do not re-read the whole file.
+ * Each user's calendar is guarded by its own read/write lock, so operations of unrelated users run in parallel
+ *  and readers never observe a partially written file. The file I/O is done under these locks only, never inside
+ *  a {@code synchronized} block, so the virtual threads of the sessions unmount from their carriers while they wait.
+ * The calendar files are replaced atomically and synced according to the configured {@link Durability},
+ *  so a crash never leaves a half-written calendar behind.
+ * In the {@link WriteMode#JOURNAL} write mode the modifications are appended to a per-user journal instead
+ *  of rewriting the calendar file, and a background compactor periodically folds the journals into the calendar files.
+ *  Journals left behind by a previous run are folded into the calendar files when the repository is constructed.
+ * In the {@link WriteMode#WRITE_BEHIND} write mode the modified calendars are only marked dirty (see {@link DirtyCalendars})
+ *  and a background flusher rewrites each of them once per flush, however many modifications it got meanwhile.
+ *  The dirty calendars are flushed when the repository is closed, the modifications made while it is closing are written through.
+ * A repository closed without leaving any journal or dirty calendar behind marks its clean shutdown, so the next run
+ *  does not search all the directories for the journals and the temporary files of the interrupted writes.
+ * The repository refuses to start over the users' files stored in another {@link DirectoryLayout} than the configured one.
+ * Every persisted modification is recorded in the {@link ChangeLog}, so the clients can sync just the events
+ *  changed since the version they know, and the registered {@link EventChangeListener}s are notified once it is durable
+ *  (or, in the write-behind write mode, once it is applied to the dirty calendar). A modification which fails to become
+ *  durable is discarded from the cache and the change log, so the other sessions do not keep seeing it.
+ * The parsing and serialization of the calendar files are timed, see {@link #registerMetrics(MetricsRegistry)}.
+ */
+public abstract class FileEventRepository implements EventRepository, AutoCloseable {
+    private final static Logger LOGGER = LogManager.getLogger(FileEventRepository.class);
+
+    private final CalendarDirectory directory;
+    private final CalendarFormat format;
+    private final CalendarCache cache;
+    private final UserLocks locks = new UserLocks();
+    private final ChangeLog changes = new ChangeLog();
+    private final List<EventChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    private final LatencyHistogram parseTimes = new LatencyHistogram();
+    private final LatencyHistogram serializeTimes = new LatencyHistogram();
+    private final CalendarFileStore fileStore;
+    private final CalendarJournal journal;
+    private final CredentialStore credentials;
+    private final WriteMode writeMode;
+    private final ScheduledExecutorService compactor;
+    private final DirtyCalendars dirtyCalendars; // null unless in the write-behind write mode
+    private final ScheduledExecutorService flusher;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ReadWriteLock closing = new ReentrantReadWriteLock(); // the write lock is taken only by close
+    private boolean closed; // guarded by the closing lock, the modifications are written through once closed
+
+    /**
+     * Constructor for FileEventRepository.
+     * Creates the folder if it does not exist and folds the journals left behind by a previous run.
+     *
+     * @param folder The folder where the calendar files are stored
+     * @param format The format of the calendar files
+     * @param configuration The storage configuration (e.g. the cache capacity, the write mode or the directory layout)
+     * @throws XmlDatabaseException if an error occurs while creating the folder or recovering the journals
+     */
+    FileEventRepository(Path folder, CalendarFormat format, StorageConfiguration configuration) throws XmlDatabaseException {
+        this.directory = new CalendarDirectory(folder, configuration.getLayout());
+        this.format = format;
+        this.cache = new CalendarCache(configuration.getCacheMaxCalendars());
+        this.writeMode = configuration.getWriteMode();
+        this.dirtyCalendars = writeMode == WriteMode.WRITE_BEHIND ? new DirtyCalendars(configuration.getWriteBehindMaxDirtyCalendars()) : null;
+        this.fileStore = new CalendarFileStore(configuration.getDurability(), configuration.getGroupCommitWindowMillis());
+        this.journal = new CalendarJournal(directory, fileStore);
+        if (Files.notExists(folder)) {
+            try {
+                Files.createDirectories(folder);
+                LOGGER.info("Created calendar file folder '{}'", directory.root().toAbsolutePath());
+            } catch (IOException e) {
+                LOGGER.error("Could not create calendar file folder '{}': {}", directory.root().toAbsolutePath(), e.getMessage());
+                throw new XmlDatabaseException("FATAL ERROR: Failed to create calendar file folder.");
+            }
+        }
+
+        checkLayout(configuration.getLayout());
+        if (consumeCleanShutdownMarker()) {
+            LOGGER.info("Calendar file folder '{}' was closed cleanly, skipping the recovery", directory.root().toAbsolutePath());
+        } else {
+            try {
+                for (var subfolder : directory.folders()) {
+                    fileStore.deleteTemporaryFiles(subfolder);
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Could not delete temporary files in folder '{}'", directory.root().toAbsolutePath(), e);
+            }
+            recoverJournals();
+        }
+        this.credentials = new CredentialStore(directory, format);
+
+        if (writeMode == WriteMode.JOURNAL) {
+            long interval = configuration.getJournalCompactionIntervalMillis();
+            this.compactor = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("journal-compactor").daemon().factory());
+            compactor.scheduleWithFixedDelay(this::compactJournals, interval, interval, TimeUnit.MILLISECONDS);
+            LOGGER.info("Journal write mode enabled, compacting every {} ms", interval);
+        } else {
+            this.compactor = null;
+        }
+
+        if (writeMode == WriteMode.WRITE_BEHIND) {
+            long interval = configuration.getWriteBehindFlushIntervalMillis();
+            this.flusher = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("write-behind-flusher").daemon().factory());
+            flusher.scheduleWithFixedDelay(this::flushDirtyCalendars, interval, interval, TimeUnit.MILLISECONDS);
+            LOGGER.info("Write-behind write mode enabled, flushing every {} ms", interval);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    /**
+     * Refuses to start if the users' files are stored in the other layout than the configured one,
+     *  since the users would be missing and their usernames could be taken again.
+     *
+     * @param layout The configured layout
+     * @throws XmlDatabaseException if a user's file is found in the other layout or the folder cannot be listed
+     */
+    private void checkLayout(DirectoryLayout layout) throws XmlDatabaseException {
+        DirectoryLayout other = layout == DirectoryLayout.FLAT ? DirectoryLayout.SHARDED : DirectoryLayout.FLAT;
+        boolean misplaced;
+        try {
+            misplaced = directory.hasFilesIn(other, List.of(format.fileExtension(), CalendarJournal.JOURNAL_FILE_EXTENSION));
+        } catch (IOException e) {
+            LOGGER.error("Could not list calendar file folder '{}'", directory.root().toAbsolutePath(), e);
+            throw new XmlDatabaseException("FATAL ERROR: Failed to check the layout of calendar file folder.");
+        }
+        if (misplaced) {
+            LOGGER.fatal("Calendar file folder '{}' holds users' files in the {} layout, but the {} layout is configured. "
+                    + "Move them by the DirectoryLayoutMigration tool or configure the {} layout by '{}'.",
+                    directory.root().toAbsolutePath(), other, layout, other, StorageConfiguration.LAYOUT);
+            throw new XmlDatabaseException("FATAL ERROR: Calendar files are stored in the " + other + " layout, not in the configured " + layout + " one.");
+        }
+    }
+
+    /**
+     * Consumes the marker of the clean shutdown of the previous run, durably, so a crash of this run is always recovered.
+     * After a clean shutdown, there are no temporary files nor journals to look for in all the directories.
+     *
+     * @return true if the previous run was shut down cleanly
+     */
+    private boolean consumeCleanShutdownMarker() {
+        try {
+            if (!directory.consumeCleanShutdownMarker()) {
+                return false;
+            }
+            CalendarFileStore.await(fileStore.syncFolder(directory.root()));
+            return true;
+        } catch (IOException e) {
+            LOGGER.warn("Could not consume clean shutdown marker in folder '{}'", directory.root().toAbsolutePath(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Folds every journal found in the folder into its calendar file.
+     *
+     * @throws XmlDatabaseException if the folder cannot be listed
+     */
+    private void recoverJournals() throws XmlDatabaseException {
+        List<String> usernames;
+        try {
+            usernames = journal.findJournaledUsers();
+        } catch (IOException e) {
+            LOGGER.error("Could not list journals in folder '{}'", directory.root().toAbsolutePath(), e);
+            throw new XmlDatabaseException("FATAL ERROR: Failed to recover calendar journals.");
+        }
+
+        for (var username : usernames) {
+            compactJournal(username);
+            LOGGER.info("Recovered journal of user '{}'", username);
+        }
+    }
+
+    /**
+     * Folds all journals into their calendar files. Failures are logged, so one broken journal
+     *  does not stop the compaction of the others (nor the periodic compactor).
+     *
+     * @return true if every journal was folded
+     */
+    private boolean compactJournals() {
+        boolean compacted = true;
+        try {
+            for (var username : journal.findJournaledUsers()) {
+                try {
+                    compactJournal(username);
+                } catch (RuntimeException e) {
+                    LOGGER.error("Failed to compact journal of user '{}'", username, e);
+                    compacted = false;
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Could not list journals in folder '{}'", directory.root().toAbsolutePath(), e);
+            return false;
+        }
+        return compacted;
+    }
+
+    /**
+     * Folds the user's journal into the calendar file and deletes the journal.
+     * A journal without a calendar file (left behind by a deleted account) is just deleted.
+     * The sync of the folded calendar is awaited without the user's lock, so the user's operations are not blocked
+     *  for the whole group commit window. The records appended meanwhile are not folded yet, so such a journal is kept
+     *  and folded again by the next compaction (replaying the already folded records again is harmless).
+     *
+     * @param username The owner of the journal
+     * @throws XmlDatabaseException if the calendar cannot be read or written
+     */
+    private void compactJournal(String username) throws XmlDatabaseException {
+        BasicFileAttributes folded;
+        CompletableFuture<Void> written;
+        var lock = locks.forUser(username).writeLock();
+        lock.lock();
+        try {
+            if (!journal.exists(username)) {
+                return;
+            }
+            if (Files.notExists(getUserFilePath(username))) {
+                journal.delete(username);
+                LOGGER.warn("Deleted journal of user '{}' without calendar file", username);
+                return;
+            }
+
+            folded = journal.attributes(username);
+            written = saveCalendar(loadCalendar(username));
+        } catch (IOException e) {
+            LOGGER.error("Failed to compact journal of user '{}'", username, e);
+            throw new XmlDatabaseException("Failed to compact journal of user '" + username + "'");
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            // the journal must not be deleted before the folded calendar is durable
+            CalendarFileStore.await(written);
+        } catch (IOException e) {
+            LOGGER.error("Failed to sync compacted calendar of user '{}'", username, e);
+            throw new XmlDatabaseException("Failed to compact journal of user '" + username + "'");
+        }
+
+        lock.lock();
+        try {
+            if (journal.isUnchanged(username, folded)) {
+                journal.delete(username);
+                LOGGER.debug("Compacted journal of user '{}'", username);
+            } else {
+                LOGGER.debug("Journal of user '{}' was appended to during its compaction, keeping it", username);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to compact journal of user '{}'", username, e);
+            throw new XmlDatabaseException("Failed to compact journal of user '" + username + "'");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes every dirty calendar into its file. Failures are logged and the calendar stays dirty,
+     *  so it is retried by the next flush.
+     */
+    private void flushDirtyCalendars() {
+        for (var username : dirtyCalendars.usernames()) {
+            try {
+                flushCalendar(username);
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed to flush calendar of user '{}'", username, e);
+            }
+        }
+    }
+
+    /**
+     * Writes the user's dirty calendar into its file, so all its modifications since the last flush cost a single write.
+     *
+     * @param username The owner of the calendar
+     */
+    private void flushCalendar(String username) {
+        CompletableFuture<Void> written;
+        UserCalendar calendar;
+        long flushedChanges;
+        long flushedVersion;
+        var lock = locks.forUser(username).writeLock();
+        lock.lock();
+        try {
+            calendar = dirtyCalendars.get(username);
+            if (calendar == null) {
+                return; // flushed meanwhile or the user was deleted
+            }
+            flushedChanges = dirtyCalendars.changesOf(username);
+            flushedVersion = changes.currentVersion(username);
+            written = saveCalendar(calendar);
+            dirtyCalendars.remove(username);
+        } catch (IOException e) {
+            LOGGER.error("Failed to flush calendar of user '{}', keeping it dirty", username, e);
+            return;
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            CalendarFileStore.await(written);
+            LOGGER.debug("Flushed calendar of user '{}'", username);
+        } catch (IOException e) {
+            LOGGER.error("Failed to sync flushed calendar of user '{}', marking it dirty again", username, e);
+            restoreDirty(calendar, flushedChanges, flushedVersion);
+        }
+    }
+
+    /**
+     * Marks the calendar whose flush failed to sync as dirty again, so it is retried by the next flush.
+     * Nothing is restored if the calendar was modified since the flush (then the newer modification persists it)
+     *  or if its user was deleted.
+     *
+     * @param calendar The flushed calendar
+     * @param flushedChanges The number of the modifications which were flushed
+     * @param flushedVersion The change version of the calendar when it was flushed
+     */
+    private void restoreDirty(UserCalendar calendar, long flushedChanges, long flushedVersion) {
+        String username = calendar.getUser().username();
+        var lock = locks.forUser(username).writeLock();
+        lock.lock();
+        try {
+            if (dirtyCalendars.get(username) == null && changes.currentVersion(username) == flushedVersion
+                    && Files.exists(getUserFilePath(username))) {
+                dirtyCalendars.restore(calendar, flushedChanges);
+                cache.put(username, calendar);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts a flush of the dirty calendars unless one is already requested.
+     * The caller must hold the read lock of the closing lock and the repository must not be closed, so the flusher runs.
+     */
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushRequested.set(false);
+                flushDirtyCalendars();
+            });
+        }
+    }
+
+    /**
+     * Stops the background compactor and flusher, flushes the dirty calendars, folds all journals into the calendar files
+     *  and waits for the pending syncs.
+     * The modifications made meanwhile are written through, so none of them is left in a dirty calendar or a journal.
+     *  If nothing is left, the clean shutdown is marked, so the next run skips the recovery.
+     */
+    @Override
+    public void close() {
+        var lock = closing.writeLock();
+        lock.lock();
+        try {
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        for (var executor : new ScheduledExecutorService[] {compactor, flusher}) {
+            if (executor != null) {
+                executor.shutdown();
+                try {
+                    executor.awaitTermination(1, TimeUnit.MINUTES);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        if (dirtyCalendars != null) {
+            flushDirtyCalendars();
+        }
+        boolean clean = compactJournals() && (dirtyCalendars == null || dirtyCalendars.size() == 0);
+        fileStore.close();
+        if (clean) {
+            try {
+                directory.markCleanShutdown();
+            } catch (IOException e) {
+                LOGGER.warn("Could not mark clean shutdown in folder '{}'", directory.root().toAbsolutePath(), e);
+            }
+        }
+    }
+
+    /**
+     * Returns the path to the calendar file for the given username.
+     *
+     * @param username the username for which to get the file path
+     * @return the path to the calendar file
+     */
+    public Path getUserFilePath(String username) {
+        return directory.fileOf(username, format.fileExtension());
+    }
+
+    /**
+     * Validates a user's calendar file path if it exists.
+     *
+     * @param user The user which calendar file will be validated
+     * @throws XmlDatabaseException if the file does not exist
+     */
+    public void validateUserRepositoryLocation(User user) throws XmlDatabaseException {
+        validateUserRepositoryLocation(user.username());
+    }
+
+    private void validateUserRepositoryLocation(String username) throws XmlDatabaseException {
+        if (!Files.exists(getUserFilePath(username))) {
+            LOGGER.error("User calendar file for username '{}' does not exist", username);
+            throw new XmlDatabaseException("The calendar for username '" + username + "' does not exist");
+        }
+    }
+
+    /**
+     * Creates a new calendar for the user with the given username and password hash.
+     * The calendar is stored in a file with the username as the filename.
+     *
+     * @param user User for which the calendar will be created
+     * @throws InvalidInputException if the username is null, empty, or "unlogged".
+     */
+    @Override
+    public void createAccount(User user, ClientSession session) throws XmlDatabaseException {
+        validateUsersUsername(user, session);
+
+        CompletableFuture<Void> written;
+        var lock = locks.forUser(user.username()).writeLock();
+        lock.lock();
+        try {
+            if (credentials.contains(user.username())) {
+                LOGGER.error("Client session '{}': The calendar for username '{}' already exists.",session.getSessionId(), user.username());
+                throw new InvalidInputException("The calendar for username '" + user.username() + "' already exists");
+            }
+
+            try {
+                journal.delete(user.username()); // a leftover of a deleted account must not be replayed
+                changes.forget(user.username());
+
+                var calendar = UserCalendar.empty(user);
+                Files.createDirectories(getUserFilePath(user.username()).getParent()); // the shard of the user may not exist yet
+                written = fileStore.replace(getUserFilePath(user.username()), output -> writeCalendar(calendar, output));
+                format.invalidate(getUserFilePath(user.username()));
+
+                cache.put(user.username(), calendar);
+                credentials.add(user);
+                LOGGER.info("Created calendar for user '{}'", user.username());
+            } catch (IOException e) {
+                LOGGER.error("Failed to create calendar for user '{}'", user.username(), e);
+                throw new XmlDatabaseException("Failed to create calendar for user '" + user.username() + "'");
+            }
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(written, user);
+    }
+
+    /**
+     * Returns the calendar of the given user, the dirty one if it is not flushed yet, from the cache if possible,
+     *  otherwise by reading its file and replaying its journal.
+     * The caller must hold the user's read or write lock, so no writer can replace the file while it is parsed
+     *  and the returned calendar may only be modified under the write lock.
+     *
+     * @param username The owner of the calendar
+     * @return The user's calendar
+     * @throws XmlDatabaseException if the calendar does not exist or cannot be parsed
+     */
+    private UserCalendar loadCalendar(String username) throws XmlDatabaseException {
+        var calendar = dirtyCalendars != null ? dirtyCalendars.get(username) : null;
+        if (calendar != null) {
+            return calendar;
+        }
+
+        calendar = cache.get(username);
+        if (calendar != null) {
+            return calendar;
+        }
+
+        validateUserRepositoryLocation(username);
+        long start = System.nanoTime();
+        calendar = format.read(getUserFilePath(username));
+        parseTimes.record(System.nanoTime() - start);
+        try {
+            journal.replay(username, calendar);
+        } catch (IOException e) {
+            LOGGER.error("Failed to replay journal of user '{}'", username, e);
+            throw new XmlDatabaseException("Failed to read the journal of user '" + username + "'");
+        }
+        cache.put(username, calendar);
+        return calendar;
+    }
+
+    /**
+     * Atomically replaces the calendar's file and (re)inserts the calendar into the cache.
+     * If the write fails, the calendar is dropped from the cache, so the next access re-reads the file.
+     *
+     * @param calendar The calendar to persist
+     * @return The future completed once the write is durable
+     * @throws IOException if an error occurs while writing the file
+     */
+    private CompletableFuture<Void> saveCalendar(UserCalendar calendar) throws IOException {
+        String username = calendar.getUser().username();
+        CompletableFuture<Void> written;
+        try {
+            written = fileStore.replace(getUserFilePath(username), output -> writeCalendar(calendar, output));
+        } catch (IOException e) {
+            format.invalidate(getUserFilePath(username));
+            cache.invalidate(username);
+            throw e;
+        }
+        format.invalidate(getUserFilePath(username));
+        cache.put(username, calendar);
+        return written;
+    }
+
+    /**
+     * Serializes the calendar into the content of its file, timing the serialization.
+     */
+    private void writeCalendar(UserCalendar calendar, OutputStream output) throws IOException {
+        long start = System.nanoTime();
+        format.write(calendar, output);
+        serializeTimes.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Streams the events within the range from the user's calendar file, timing the parsing.
+     */
+    private List<Event> readEvents(String username, LocalDate startDate, LocalDate endDate) throws XmlDatabaseException {
+        long start = System.nanoTime();
+        var events = format.readEvents(getUserFilePath(username), startDate, endDate);
+        parseTimes.record(System.nanoTime() - start);
+        return events;
+    }
+
+    /**
+     * Checks whether the user's calendar file lacks some modifications, held in the journal or in the dirty calendar.
+     *
+     * @param username The owner of the calendar, the caller must hold its read or write lock
+     * @return true if the calendar file is not up to date
+     */
+    private boolean hasUnwrittenChanges(String username) {
+        return journal.exists(username) || (dirtyCalendars != null && dirtyCalendars.get(username) != null);
+    }
+
+    /**
+     * Waits until the write is durable. Must be called after releasing the user's lock,
+     *  so the writes of the same user can share a group commit.
+     *
+     * @param written The future returned by the write
+     * @param user The owner of the written calendar
+     * @throws XmlDatabaseException if the write could not be synced to the disk
+     */
+    private void awaitDurable(CompletableFuture<Void> written, User user) throws XmlDatabaseException {
+        try {
+            awaitOrDiscard(written, user.username());
+        } catch (IOException e) {
+            throw new XmlDatabaseException("Failed to save calendar of user '" + user.username() + "'");
+        }
+    }
+
+    /**
+     * Waits until the write is durable. If it is not, the modifications already visible to the other sessions are discarded:
+     *  the calendar is dropped from the cache, so the next access re-reads what is actually stored, and the user's change log
+     *  is forgotten, so the next sync of every client is a complete snapshot of it.
+     *  Must be called after releasing the user's lock.
+     *
+     * @param written The future returned by the write
+     * @param username The owner of the written calendar
+     * @throws IOException if the write could not be synced to the disk
+     */
+    private void awaitOrDiscard(CompletableFuture<Void> written, String username) throws IOException {
+        try {
+            CalendarFileStore.await(written);
+        } catch (IOException e) {
+            LOGGER.error("Failed to sync calendar of user '{}', discarding its cached modifications", username, e);
+            var lock = locks.forUser(username).writeLock();
+            lock.lock();
+            try {
+                cache.invalidate(username);
+                format.invalidate(getUserFilePath(username));
+                changes.forget(username);
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Persists the modifications of the calendar according to the write mode,
+     *  either by rewriting the calendar file once, by appending all the records to the user's journal in a single write
+     *  or by marking the calendar dirty, and records them in the change log.
+     * If the set of the dirty calendars is full or the repository is closing, the calendar is rewritten at once,
+     *  so closing waits only for the modifications being persisted and no later one is left in a dirty calendar or a journal.
+     * The caller must hold the user's write lock. If the modifications cannot be written, the (already modified)
+     *  calendar is dropped from the cache, so the next access re-reads the file.
+     *
+     * @param modifiedCalendar The calendar with the modifications applied
+     * @param records The modifications, in the order they were applied
+     * @return The future completed once the modifications are durable
+     * @throws IOException if an error occurs while writing the file or the journal
+     */
+    private CompletableFuture<Void> persist(UserCalendar modifiedCalendar, List<JournalRecord> records) throws IOException {
+        String username = modifiedCalendar.getUser().username();
+        CompletableFuture<Void> written;
+        var lock = closing.readLock();
+        lock.lock();
+        try {
+            if (closed) {
+                written = saveCalendar(modifiedCalendar);
+                if (dirtyCalendars != null) {
+                    dirtyCalendars.remove(username); // the older dirty copy is superseded
+                }
+            } else if (writeMode == WriteMode.JOURNAL) {
+                try {
+                    written = journal.append(username, records);
+                } catch (IOException e) {
+                    cache.invalidate(username);
+                    throw e;
+                }
+                cache.put(username, modifiedCalendar);
+            } else if (writeMode == WriteMode.WRITE_BEHIND && dirtyCalendars.mark(modifiedCalendar, records.size())) {
+                written = CompletableFuture.completedFuture(null);
+                cache.put(username, modifiedCalendar);
+                if (dirtyCalendars.isFull()) {
+                    requestFlush();
+                }
+            } else {
+                if (writeMode == WriteMode.WRITE_BEHIND) {
+                    requestFlush();
+                }
+                written = saveCalendar(modifiedCalendar);
+            }
+        } finally {
+            lock.unlock();
+        }
+        changes.record(username, records);
+        return written;
+    }
+
+    /**
+     * Notifies the change listeners about the durable modifications of the user's calendar.
+     * A failing listener is logged, so it does not fail the modification nor stop the other listeners.
+     *
+     * @param user The owner of the modified calendar
+     * @param version The change version after the modifications
+     * @param session The session which made the modifications
+     */
+    private void notifyChanged(User user, long version, ClientSession session) {
+        for (var listener : changeListeners) {
+            try {
+                listener.eventsChanged(user.username(), version, session);
+            } catch (RuntimeException e) {
+                LOGGER.error("Change listener failed for user '{}'", user.username(), e);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addChangeListener(EventChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Registers the parse and serialize timings of the calendar files, the statistics of the calendar cache,
+     *  the number of the syncs to the disk and, in the write-behind write mode, the number of the dirty calendars
+     *  and of their unflushed modifications.
+     *
+     * @param metrics The registry of the server metrics
+     */
+    @Override
+    public void registerMetrics(MetricsRegistry metrics) {
+        metrics.register("storage.parse", parseTimes);
+        metrics.register("storage.serialize", serializeTimes);
+        metrics.gauge("storage.syncs", fileStore::getSyncCount);
+        metrics.gauge("cache.hits", () -> cache.getStatistics().hits());
+        metrics.gauge("cache.misses", () -> cache.getStatistics().misses());
+        metrics.gauge("cache.evictions", () -> cache.getStatistics().evictions());
+        metrics.gauge("cache.size", () -> cache.getStatistics().size());
+        metrics.gauge("cache.capacity", () -> cache.getStatistics().capacity());
+        if (dirtyCalendars != null) {
+            metrics.gauge("storage.writeBehind.dirtyCalendars", dirtyCalendars::size);
+            metrics.gauge("storage.writeBehind.unflushedChanges", dirtyCalendars::getUnflushedChanges);
+        }
+    }
+
+    /**
+     * Gets the hit/miss statistics of the in-memory calendar cache.
+     *
+     * @return The cache statistics
+     */
+    public CacheStatistics getCacheStatistics() {
+        return cache.getStatistics();
+    }
+
+    /**
+     * Authenticates a user with the given username and password hash.
+     * The method checks if the username exists and if the password hash matches.
+     * The credentials are looked up in the credential store, only the header of the calendar file is read
+     *  on the first login of the user.
+     *
+     * @param user The user that is being authenticated.
+     * @return true if authentication is successful, false otherwise.
+     */
+    @Override
+    public boolean authenticate(User user, ClientSession session) {
+        validateUsersUsername(user, session);
+
+        var lock = locks.forUser(user.username()).readLock();
+        lock.lock();
+        try {
+            if (!credentials.contains(user.username())) {
+                LOGGER.error("User calendar file for username '{}' does not exist", user.username());
+                throw new XmlDatabaseException("The calendar for username '" + user.username() + "' does not exist");
+            }
+            return credentials.verify(user);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds an event to the user's calendar.
+     * The event gets the calendar's next event ID.
+     *
+     * @param user The user for which the event will be added.
+     * @param event The event to add.
+     * @return The ID of the added event.
+     * @throws InvalidInputException if the event has no date or time
+     * @throws XmlDatabaseException if an error occurs while adding the event
+     */
+    @Override
+    public long addEvent(User user, Event event, ClientSession session) throws XmlDatabaseException, IOException {
+        validateUsersUsername(user, session);
+        if (!UserCalendar.isComplete(event)) {
+            LOGGER.error("Client session '{}': Attempt to add event without date or time for user '{}'.", session.getSessionId(), user.username());
+            throw new InvalidInputException("The event must have a date and a time.");
+        }
+
+        long nextEventId;
+        long version;
+        CompletableFuture<Void> written;
+        var lock = locks.forUser(user.username()).writeLock();
+        lock.lock();
+        try {
+            var calendar = loadCalendar(user.username());
+            Event added = calendar.addEvent(event);
+            nextEventId = added.getId();
+
+            written = persist(calendar, List.of(new JournalRecord(JournalRecord.Type.ADD, added)));
+            version = changes.currentVersion(user.username());
+        } finally {
+            lock.unlock();
+        }
+
+        awaitOrDiscard(written, user.username());
+        notifyChanged(user, version, session);
+        LOGGER.info("Client session '{}': Added new calendar event for user '{}'", session.getSessionId(), user.username());
+        return nextEventId;
+    }
+
+    /**
+     * Deletes an event from the user's calendar.
+     * The event is looked up by its ID and removed from the calendar.
+     *
+     * @param user The user for which the event will be deleted.
+     * @param eventId The ID of the event to delete.
+     * @param session The client session.
+     * @throws XmlDatabaseException if an error occurs while deleting the event
+     */
+    @Override
+    public void deleteEvent(User user, Long eventId, ClientSession session) throws XmlDatabaseException {
+        validateUsersUsername(user, session);
+
+        long version;
+        CompletableFuture<Void> written;
+        var lock = locks.forUser(user.username()).writeLock();
+        lock.lock();
+        try {
+            var calendar = loadCalendar(user.username());
+            if (calendar.removeEvent(eventId) == null) {
+                LOGGER.error("Client session '{}': Event with ID '{}' not found in the calendar for user '{}'", session.getSessionId(), eventId, user.username());
+                throw new XmlDatabaseException("Event with ID '" + eventId + "' not found in the calendar");
+            }
+
+            try {
+                written = persist(calendar, List.of(JournalRecord.delete(eventId)));
+            } catch (IOException e) {
+                LOGGER.error("Failed to save calendar for user '{}' while deleting event", user.username(), e);
+                throw new XmlDatabaseException("Failed to save '" + user.username() + "' calendar while deleting event");
+            }
+            version = changes.currentVersion(user.username());
+        } finally {
+            lock.unlock();
+        }
+
+        awaitDurable(written, user);
+        notifyChanged(user, version, session);
+        LOGGER.info("Client session '{}': Deleted event with ID '{}' from calendar for user '{}'", session.getSessionId(), eventId, user.username());
+    }
+
+    /**
+     * Retrieves all events from the user's calendar.
+     * The method reads the calendar file (or its cached calendar) and returns an unmodifiable copy of the events.
+     *
+     * @param user The user for which the events will be retrieved.
+     * @param session The client session.
+     * @return A list of events from the user's calendar.
+     * @throws XmlDatabaseException if an error occurs while retrieving the events
+     */
+    @Override
+    public List<Event> getAllEvents(User user, ClientSession session) throws XmlDatabaseException {
+        validateUsersUsername(user, session);
+
+        var lock = locks.forUser(user.username()).readLock();
+        lock.lock();
+        try {
+            List<Event> events = loadCalendar(user.username()).getEvents();
+
+            LOGGER.info("Client session '{}': Retrieved all events for user '{}'", session.getSessionId(), user.username());
+            return events;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves the events of the user's calendar which take place within the given date range.
+     * The range is looked up in the date index of the cached calendar, so it costs O(log n + k).
+     *  Without the cache (and without a pending journal or a dirty calendar) the calendar file is streamed and the events outside
+     *  the range are skipped without being created.
+     *
+     * @param user The user for which the events will be retrieved.
+     * @param startDate The first day of the range (inclusive).
+     * @param endDate The last day of the range (inclusive).
+     * @param session The client session.
+     * @return A list of events within the range, sorted by date and time.
+     * @throws XmlDatabaseException if an error occurs while retrieving the events
+     */
+    @Override
+    public List<Event> getEventsInRange(User user, LocalDate startDate, LocalDate endDate, ClientSession session) throws XmlDatabaseException {
+        validateUsersUsername(user, session);
+
+        var lock = locks.forUser(user.username()).readLock();
+        lock.lock();
+        try {
+            List<Event> events;
+            if (cache.isEnabled() || hasUnwrittenChanges(user.username())) {
+                events = loadCalendar(user.username()).getEventsInRange(startDate, endDate);
+            } else {
+                validateUserRepositoryLocation(user);
+                events = readEvents(user.username(), startDate, endDate).stream()
+                        .sorted(EventDateIndex.ORDER)
+                        .toList();
+            }
+
+            LOGGER.info("Client session '{}': Retrieved events between {} and {} for user '{}'", session.getSessionId(), startDate, endDate, user.username());
+            return events;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves a page of the events of the user's calendar which take place within the given date range.
+     * The page is looked up in the date index of the cached calendar, so it costs O(log n + limit).
+     *  Without the cache (and without a pending journal or a dirty calendar) the events within the range are streamed from the calendar file
+     *  and sorted.
+     *
+     * @param user The user for which the events will be retrieved.
+     * @param startDate The first day of the range (inclusive).
+     * @param endDate The last day of the range (inclusive).
+     * @param after The cursor after which the page starts, null for the first page.
+     * @param limit The maximum number of returned events.
+     * @param session The client session.
+     * @return A list of at most {@code limit} events, sorted by date, time and ID.
+     * @throws XmlDatabaseException if an error occurs while retrieving the events
+     */
+    @Override
+    public List<Event> getEventsPage(User user, LocalDate startDate, LocalDate endDate, EventCursor after, int limit, ClientSession session) throws XmlDatabaseException {
+        validateUsersUsername(user, session);
+
+        var lock = locks.forUser(user.username()).readLock();
+        lock.lock();
+        try {
+            List<Event> events;
+            if (cache.isEnabled() || hasUnwrittenChanges(user.username())) {
+                events = loadCalendar(user.username()).getEventsPage(startDate, endDate, after, limit);
+            } else {
+                validateUserRepositoryLocation(user);
+                events = readEvents(user.username(), startDate, endDate).stream()
+                        .filter(event -> after == null || after.precedes(event))
+                        .sorted(EventDateIndex.ORDER)
+                        .limit(limit)
+                        .toList();
+            }
+
+            LOGGER.info("Client session '{}': Retrieved page of {} events between {} and {} for user '{}'", session.getSessionId(), events.size(), startDate, endDate, user.username());
+            return events;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves the changes of the user's calendar since the given change version.
+     * The IDs of the changed events are looked up in the change log and only those events are copied,
+     *  so a sync after a single modification does not transfer the whole calendar.
+     *  If the changes since the version are no longer known (or the version is null), all events are returned
+     *  as a complete snapshot.
+     *
+     * @param user The user for which the changes will be retrieved.
+     * @param sinceVersion The change version the client knows, null if it knows none.
+     * @param session The client session.
+     * @return The changes since the version, or a complete snapshot.
+     * @throws XmlDatabaseException if an error occurs while retrieving the events
+     */
+    @Override
+    public EventChanges getChangesSince(User user, Long sinceVersion, ClientSession session) throws XmlDatabaseException {
+        validateUsersUsername(user, session);
+
+        var lock = locks.forUser(user.username()).readLock();
+        lock.lock();
+        try {
+            var calendar = loadCalendar(user.username());
+            var delta = changes.changesSince(user.username(), sinceVersion);
+            if (delta == null) {
+                LOGGER.info("Client session '{}': Retrieved snapshot of all events for user '{}'", session.getSessionId(), user.username());
+                return EventChanges.snapshot(changes.currentVersion(user.username()), calendar.getEvents());
+            }
+
+            List<Event> changedEvents = new ArrayList<>(delta.changedEventIds().size());
+            for (long eventId : delta.changedEventIds()) {
+                changedEvents.add(calendar.getEvent(eventId));
+            }
+            LOGGER.info("Client session '{}': Retrieved {} changed and {} deleted events since version {} for user '{}'",
+                    session.getSessionId(), changedEvents.size(), delta.deletedEventIds().size(), sinceVersion, user.username());
+            return new EventChanges(delta.version(), false, changedEvents, delta.deletedEventIds());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Updates an event in the user's calendar.
+     * The method searches for the event with the given ID and updates its details.
+     * If the event detail is null, the previous value is kept.
+     *
+     * @param user The user for which the event will be updated.
+     * @param event The event to update.
+     * @param session The client session.
+     * @throws XmlDatabaseException if an error occurs while updating the event
+     */
+    @Override
+    public void updateEvent(User user, Event event, ClientSession session) throws XmlDatabaseException {
+        validateUsersUsername(user, session);
+
+        long version;
+        CompletableFuture<Void> written;
+        var lock = locks.forUser(user.username()).writeLock();
+        lock.lock();
+        try {
+            var calendar = loadCalendar(user.username());
+            Event updated = calendar.updateEvent(event);
+            if (updated == null) {
+                LOGGER.error("Client session '{}': Event with ID '{}' not found in the calendar for user '{}'", session.getSessionId(), event.getId(), user.username());
+                throw new XmlDatabaseException("Event with ID '" + event.getId() + "' not found in the calendar");
+            }
+
+            try {
+                written = persist(calendar, List.of(new JournalRecord(JournalRecord.Type.UPDATE, updated)));
+            } catch (IOException e) {
+                LOGGER.error("Failed to modify the '{}' calendar event with ID '{}'",user.username(), event.getId(), e);
+                throw new XmlDatabaseException("Failed to modify calendar event");
+            }
+            version = changes.currentVersion(user.username());
+        } finally {
+            lock.unlock();
+        }
+
+        awaitDurable(written, user);
+        notifyChanged(user, version, session);
+        LOGGER.info("Client session '{}': Updated event with ID '{}' in calendar for user '{}'", session.getSessionId(), event.getId(), user.username());
+    }
+
+    /**
+     * Applies a batch of event operations to the user's calendar.
+     * All operations are applied under a single write lock and the calendar is persisted once
+     *  (a single rewrite or a single journal append), so a batch of n additions costs one write instead of n.
+     *  A failed operation (e.g. an update of a missing event) is reported in its result and does not stop the others,
+     *  it leaves the calendar unchanged, so the calendar persisted and recorded in the change log is the one the results describe.
+     *
+     * @param user The user whose calendar will be modified.
+     * @param operations The operations to apply, in order.
+     * @param session The client session.
+     * @return The results of the operations, in the order of the operations.
+     * @throws XmlDatabaseException if the calendar cannot be read or the modifications cannot be saved
+     */
+    @Override
+    public List<BatchItemResult> applyBatch(User user, List<BatchOperation> operations, ClientSession session) throws XmlDatabaseException {
+        validateUsersUsername(user, session);
+
+        List<BatchItemResult> results = new ArrayList<>(operations.size());
+        long version = 0;
+        CompletableFuture<Void> written = null;
+        var lock = locks.forUser(user.username()).writeLock();
+        lock.lock();
+        try {
+            var calendar = loadCalendar(user.username());
+            List<JournalRecord> records = new ArrayList<>();
+            for (var operation : operations) {
+                try {
+                    results.add(applyOperation(calendar, operation, records));
+                } catch (RuntimeException e) {
+                    // a failed operation leaves the calendar unchanged, the ones applied before it are still persisted
+                    LOGGER.error("Client session '{}': Failed to apply batch operation for user '{}'", session.getSessionId(), user.username(), e);
+                    results.add(BatchItemResult.failure(eventIdOf(operation), "Failed to apply the operation: " + e.getMessage()));
+                }
+            }
+
+            if (!records.isEmpty()) {
+                try {
+                    written = persist(calendar, records);
+                } catch (IOException e) {
+                    LOGGER.error("Failed to save calendar for user '{}' while applying batch", user.username(), e);
+                    throw new XmlDatabaseException("Failed to save '" + user.username() + "' calendar while applying batch");
+                }
+                version = changes.currentVersion(user.username());
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (written != null) {
+            awaitDurable(written, user);
+            notifyChanged(user, version, session);
+        }
+        LOGGER.info("Client session '{}': Applied batch of {} operations to calendar for user '{}'", session.getSessionId(), operations.size(), user.username());
+        return results;
+    }
+
+    /**
+     * Applies a single operation of a batch onto the calendar and collects the journal record of the modification.
+     *
+     * @param calendar The calendar to modify, the caller must hold its user's write lock
+     * @param operation The operation to apply
+     * @param records The records of the applied modifications, the record of this operation is appended to it
+     * @return The result of the operation
+     */
+    private static BatchItemResult applyOperation(UserCalendar calendar, BatchOperation operation, List<JournalRecord> records) {
+        switch (operation) {
+            case AddEventCommand command -> {
+                if (command.getEvent() == null) {
+                    return BatchItemResult.failure(null, "Missing event to add");
+                }
+                if (!UserCalendar.isComplete(command.getEvent())) {
+                    return BatchItemResult.failure(null, "The event must have a date and a time");
+                }
+                Event added = calendar.addEvent(command.getEvent());
+                records.add(new JournalRecord(JournalRecord.Type.ADD, added));
+                return BatchItemResult.success(added.getId());
+            }
+            case UpdateEventCommand command -> {
+                if (command.getEvent() == null || !command.getEvent().hasId()) {
+                    return BatchItemResult.failure(null, "Missing ID of the event to update");
+                }
+                Event updated = calendar.updateEvent(command.getEvent());
+                if (updated == null) {
+                    return BatchItemResult.failure(command.getEvent().getId(), "Event with ID '" + command.getEvent().getId() + "' not found in the calendar");
+                }
+                records.add(new JournalRecord(JournalRecord.Type.UPDATE, updated));
+                return BatchItemResult.success(updated.getId());
+            }
+            case DeleteEventCommand command -> {
+                Long eventId = command.getEventId();
+                if (eventId == null) {
+                    return BatchItemResult.failure(null, "Missing ID of the event to delete");
+                }
+                if (calendar.removeEvent(eventId) == null) {
+                    return BatchItemResult.failure(eventId, "Event with ID '" + eventId + "' not found in the calendar");
+                }
+                records.add(JournalRecord.delete(eventId));
+                return BatchItemResult.success(eventId);
+            }
+        }
+    }
+
+    /**
+     * Gets the ID of the event modified by the batch operation, so its failure can be told apart in the results.
+     *
+     * @param operation The batch operation
+     * @return The ID of the event, or null if the operation adds a new event or carries no ID
+     */
+    private static Long eventIdOf(BatchOperation operation) {
+        return switch (operation) {
+            case AddEventCommand command -> null;
+            case UpdateEventCommand command ->
+                    command.getEvent() != null && command.getEvent().hasId() ? command.getEvent().getId() : null;
+            case DeleteEventCommand command -> command.getEventId();
+        };
+    }
+
+    @Override
+    public void deleteUser(User user, ClientSession session) throws XmlDatabaseException, IOException {
+        validateUsersUsername(user, session);
+
+        var lock = locks.forUser(user.username()).writeLock();
+        lock.lock();
+        try {
+            // Re-authenticate before deletion for security
+            if (!authenticate(user, session)) {
+                LOGGER.warn("Client session '{}': Failed attempt to delete user '{}' due to invalid credentials.", session.getSessionId(), user.username());
+                throw new XmlDatabaseException("Invalid password. Account deletion failed.");
+            }
+
+            cache.invalidate(user.username());
+            if (dirtyCalendars != null) {
+                dirtyCalendars.remove(user.username());
+            }
+            changes.forget(user.username());
+            format.invalidate(getUserFilePath(user.username()));
+            try {
+                Files.delete(getUserFilePath(user.username()));
+                journal.delete(user.username());
+                credentials.remove(user.username());
+                LOGGER.info("Client session '{}': Successfully deleted user account and data for '{}'.", session.getSessionId(), user.username());
+            } catch (NoSuchFileException e) {
+                LOGGER.error("Client session '{}': Tried to delete non-existent user file for '{}'.", session.getSessionId(), user.username(), e);
+                throw new XmlDatabaseException("User data file not found for deletion.");
+            } catch (IOException e) {
+                LOGGER.error("Client session '{}': Failed to delete user file for '{}'.", session.getSessionId(), user.username(), e);
+                throw new XmlDatabaseException("A critical error occurred while deleting your account data.");
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * A single modification of a calendar stored in the user's journal.
+ * Added and updated events are stored complete (after merging the update), so replaying a record
+ *  is idempotent and does not depend on the state it was recorded against.
+ *
+ * @param type The kind of the modification.
+ * @param event The complete event for {@link Type#ADD} and {@link Type#UPDATE}, only the ID matters for {@link Type#DELETE}.
+ */
+record JournalRecord(Type type, Event event) {
+
+    /**
+     * The kind of modification recorded in the journal.
+     */
+    enum Type {
+        /**
+         * A new event was added.
+         */
+        ADD,
+        /**
+         * An existing event was updated.
+         */
+        UPDATE,
+        /**
+         * An existing event was deleted.
+         */
+        DELETE,
+    }
+
+    private static final int TITLE_PRESENT = 1;
+    private static final int DATE_PRESENT = 1 << 1;
+    private static final int TIME_PRESENT = 1 << 2;
+    private static final int LOCATION_PRESENT = 1 << 3;
+    private static final int DESCRIPTION_PRESENT = 1 << 4;
+
+    /**
+     * Creates a record of a deleted event.
+     *
+     * @param eventId The ID of the deleted event
+     * @return The journal record
+     */
+    static JournalRecord delete(long eventId) {
+        return new JournalRecord(Type.DELETE, Event.withId(eventId, new Event(null, null, null, null, null)));
+    }
+
+    /**
+     * Applies the record onto the calendar.
+     * Applying an already applied record leaves the calendar unchanged.
+     *
+     * @param calendar The calendar to modify
+     */
+    void applyTo(UserCalendar calendar) {
+        switch (type) {
+            case ADD, UPDATE -> calendar.storeEvent(event);
+            case DELETE -> calendar.removeEvent(event.getId());
+        }
+    }
+
+    /**
+     * Writes the record in the compact binary journal format.
+     *
+     * @param output The output to write into
+     * @throws IOException if an I/O error occurs
+     */
+    void writeTo(DataOutput output) throws IOException {
+        output.writeByte(type.ordinal());
+        output.writeLong(event.getId());
+        if (type == Type.DELETE) {
+            return;
+        }
+
+        int present = (event.getTitle() != null ? TITLE_PRESENT : 0)
+                | (event.getDate() != null ? DATE_PRESENT : 0)
+                | (event.getTime() != null ? TIME_PRESENT : 0)
+                | (event.getLocation() != null ? LOCATION_PRESENT : 0)
+                | (event.getDescription() != null ? DESCRIPTION_PRESENT : 0);
+        output.writeByte(present);
+        if (event.getTitle() != null) writeString(output, event.getTitle());
+        if (event.getDate() != null) output.writeLong(event.getDate().toEpochDay());
+        if (event.getTime() != null) output.writeLong(event.getTime().toNanoOfDay());
+        if (event.getLocation() != null) writeString(output, event.getLocation());
+        if (event.getDescription() != null) writeString(output, event.getDescription());
+    }
+
+    /**
+     * Reads a record written by {@link #writeTo(DataOutput)}.
+     *
+     * @param input The input to read from
+     * @return The journal record
+     * @throws IOException if an I/O error occurs or the record is malformed
+     */
+    static JournalRecord readFrom(DataInput input) throws IOException {
+        int typeOrdinal = input.readUnsignedByte();
+        if (typeOrdinal >= Type.values().length) {
+            throw new IOException("Unknown journal record type: " + typeOrdinal);
+        }
+        Type type = Type.values()[typeOrdinal];
+        long id = input.readLong();
+        if (type == Type.DELETE) {
+            return delete(id);
+        }
+
+        int present = input.readUnsignedByte();
+        String title = (present & TITLE_PRESENT) != 0 ? readString(input) : null;
+        LocalDate date = (present & DATE_PRESENT) != 0 ? LocalDate.ofEpochDay(input.readLong()) : null;
+        LocalTime time = (present & TIME_PRESENT) != 0 ? LocalTime.ofNanoOfDay(input.readLong()) : null;
+        String location = (present & LOCATION_PRESENT) != 0 ? readString(input) : null;
+        String description = (present & DESCRIPTION_PRESENT) != 0 ? readString(input) : null;
+        return new JournalRecord(type, Event.withId(id, new Event(title, date, time, location, description)));
+    }
+
+    private static void writeString(DataOutput output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInput input) throws IOException {
+        int length = input.readInt();
+        if (length < 0) {
+            throw new IOException("Negative string length in journal record: " + length);
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
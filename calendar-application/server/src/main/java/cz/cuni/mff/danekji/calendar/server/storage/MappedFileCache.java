@@ -0,0 +1,113 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded least-recently-used cache of read-only memory mappings of the calendar files.
+ * <p>
+ * Calendar files are never modified in place, they are replaced by renaming a new file over them,
+ *  so a mapping always shows a complete file, possibly an outdated one. Every lookup compares the identity
+ *  (file key, modification time and size) of the current file with the mapped one and remaps a replaced file.
+ *  The mappings are released by the garbage collector once they are evicted and no reader uses them anymore.
+ *  The cache is thread-safe.
+ */
+final class MappedFileCache {
+    private static final Logger LOGGER = LogManager.getLogger(MappedFileCache.class);
+    private static final int MAX_MAPPED_FILES = 1024;
+
+    private record Mapping(Object fileKey, FileTime lastModifiedTime, long size, MappedByteBuffer buffer) {
+        boolean isOf(BasicFileAttributes attributes) {
+            return Objects.equals(fileKey, attributes.fileKey())
+                    && lastModifiedTime.equals(attributes.lastModifiedTime())
+                    && size == attributes.size();
+        }
+    }
+
+    private final Lock lock = new ReentrantLock(); // guards the mappings
+    private final Map<Path, Mapping> mappings = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, Mapping> eldest) {
+            return size() > MAX_MAPPED_FILES;
+        }
+    };
+
+    /**
+     * Returns the mapping of the current version of the file, mapping the file if it is not mapped yet or was replaced.
+     *
+     * @param file The file to map
+     * @return A new read-only view of the mapping positioned at the beginning of the file
+     * @throws IOException if the file cannot be mapped
+     */
+    ByteBuffer map(Path file) throws IOException {
+        Path key = file.toAbsolutePath().normalize();
+        // the attributes must be read before the file is opened, so a file replaced in between is only ever
+        //  remapped once more and never served as the current version
+        var attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        lock.lock();
+        try {
+            var mapping = mappings.get(key);
+            if (mapping != null && mapping.isOf(attributes)) {
+                return mapping.buffer().duplicate();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        MappedByteBuffer buffer;
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        lock.lock();
+        try {
+            mappings.put(key, new Mapping(attributes.fileKey(), attributes.lastModifiedTime(), attributes.size(), buffer));
+        } finally {
+            lock.unlock();
+        }
+        LOGGER.debug("Mapped calendar file '{}' ({} bytes)", file, buffer.capacity());
+        return buffer.duplicate();
+    }
+
+    /**
+     * Drops the mapping of the file, e.g. after the file is replaced or deleted.
+     *
+     * @param file The mapped file
+     */
+    void invalidate(Path file) {
+        lock.lock();
+        try {
+            mappings.remove(file.toAbsolutePath().normalize());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of currently cached mappings.
+     *
+     * @return The number of mapped files
+     */
+    int size() {
+        lock.lock();
+        try {
+            return mappings.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
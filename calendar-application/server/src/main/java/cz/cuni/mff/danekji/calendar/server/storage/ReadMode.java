@@ -0,0 +1,16 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+/**
+ * Determines how the binary repository reads the calendar files.
+ */
+public enum ReadMode {
+    /**
+     * The files are read into the heap with regular reads.
+     */
+    STREAM,
+    /**
+     * The files (at least as large as the configured threshold) are memory-mapped and the events are decoded
+     *  straight from the mapping. The mappings are reused until the file is replaced.
+     */
+    MMAP,
+}
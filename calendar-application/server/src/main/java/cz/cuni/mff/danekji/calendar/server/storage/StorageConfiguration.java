@@ -0,0 +1,319 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import cz.cuni.mff.danekji.calendar.core.exceptions.server.ServerException;
+import cz.cuni.mff.danekji.calendar.server.config.PropertiesReader;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Configuration of the server-side storage layer.
+ * <p>
+ * The values are read from a {@link Properties} instance (usually the JVM system properties, so they can be passed
+ *  as {@code -Dname=value} to {@code mvn exec:java}). Missing properties fall back to the documented defaults.
+ */
+public final class StorageConfiguration {
+    /**
+     * The format of the calendar files, either {@code xml} or {@code binary}.
+     */
+    public static final String ENGINE = "calendar.storage.engine";
+
+    /**
+     * The default format of the calendar files.
+     */
+    public static final StorageEngine DEFAULT_ENGINE = StorageEngine.XML;
+
+    /**
+     * The data directory of the calendar files, the binary engine stores them in its {@code binary} subdirectory.
+     */
+    public static final String DATA_DIR = "calendar.storage.dataDir";
+
+    /**
+     * The default data directory of the calendar files.
+     */
+    public static final Path DEFAULT_DATA_DIR = Path.of("./data");
+
+    /**
+     * The layout of the users' files within the data directory, either {@code flat} or {@code sharded}.
+     */
+    public static final String LAYOUT = "calendar.storage.layout";
+
+    /**
+     * The default layout of the users' files.
+     */
+    public static final DirectoryLayout DEFAULT_LAYOUT = DirectoryLayout.FLAT;
+
+    /**
+     * The maximum number of parsed calendars kept in memory, {@code 0} disables the cache.
+     */
+    public static final String CACHE_MAX_CALENDARS = "calendar.storage.cache.maxCalendars";
+
+    /**
+     * The default maximum number of parsed calendars kept in memory.
+     */
+    public static final int DEFAULT_CACHE_MAX_CALENDARS = 256;
+
+    /**
+     * The way calendar modifications are persisted, either {@code rewrite}, {@code journal} or {@code write_behind}.
+     */
+    public static final String WRITE_MODE = "calendar.storage.writeMode";
+
+    /**
+     * The default way calendar modifications are persisted.
+     */
+    public static final WriteMode DEFAULT_WRITE_MODE = WriteMode.REWRITE;
+
+    /**
+     * The interval (in milliseconds) in which the journals are folded into the calendar files.
+     */
+    public static final String JOURNAL_COMPACTION_INTERVAL_MILLIS = "calendar.storage.journal.compactionIntervalMillis";
+
+    /**
+     * The default interval (in milliseconds) in which the journals are folded into the calendar files.
+     */
+    public static final long DEFAULT_JOURNAL_COMPACTION_INTERVAL_MILLIS = 30_000;
+
+    /**
+     * The interval (in milliseconds) in which the dirty calendars are flushed in the {@code write_behind} write mode.
+     */
+    public static final String WRITE_BEHIND_FLUSH_INTERVAL_MILLIS = "calendar.storage.writeBehind.flushIntervalMillis";
+
+    /**
+     * The default interval (in milliseconds) in which the dirty calendars are flushed.
+     */
+    public static final long DEFAULT_WRITE_BEHIND_FLUSH_INTERVAL_MILLIS = 1_000;
+
+    /**
+     * The maximum number of dirty calendars in the {@code write_behind} write mode, reaching it starts a flush
+     *  and the modifications of the other calendars are written through until the flush is done.
+     */
+    public static final String WRITE_BEHIND_MAX_DIRTY_CALENDARS = "calendar.storage.writeBehind.maxDirtyCalendars";
+
+    /**
+     * The default maximum number of dirty calendars.
+     */
+    public static final int DEFAULT_WRITE_BEHIND_MAX_DIRTY_CALENDARS = 1024;
+
+    /**
+     * How hard the writes are synced to the disk, either {@code none}, {@code per_write} or {@code grouped}.
+     */
+    public static final String DURABILITY = "calendar.storage.durability";
+
+    /**
+     * The default durability of the writes.
+     */
+    public static final Durability DEFAULT_DURABILITY = Durability.PER_WRITE;
+
+    /**
+     * The group commit window (in milliseconds) in which the syncs are coalesced in the {@code grouped} durability.
+     */
+    public static final String GROUP_COMMIT_WINDOW_MILLIS = "calendar.storage.durability.groupCommitWindowMillis";
+
+    /**
+     * The default group commit window (in milliseconds).
+     */
+    public static final long DEFAULT_GROUP_COMMIT_WINDOW_MILLIS = 5;
+
+    /**
+     * How the binary calendar files are read, either {@code stream} or {@code mmap}.
+     */
+    public static final String READ_MODE = "calendar.storage.readMode";
+
+    /**
+     * The default way the binary calendar files are read.
+     */
+    public static final ReadMode DEFAULT_READ_MODE = ReadMode.STREAM;
+
+    /**
+     * The size (in bytes) from which the binary calendar files are memory-mapped in the {@code mmap} read mode.
+     */
+    public static final String MMAP_MIN_FILE_BYTES = "calendar.storage.mmap.minFileBytes";
+
+    /**
+     * The default size (in bytes) from which the binary calendar files are memory-mapped.
+     */
+    public static final long DEFAULT_MMAP_MIN_FILE_BYTES = 64 * 1024;
+
+    private final PropertiesReader properties;
+
+    /**
+     * Constructor for StorageConfiguration.
+     *
+     * @param properties The properties from which the configuration values are read.
+     */
+    public StorageConfiguration(Properties properties) {
+        this.properties = new PropertiesReader(properties);
+    }
+
+    /**
+     * Creates a configuration that uses only the default values.
+     *
+     * @return The default storage configuration.
+     */
+    public static StorageConfiguration defaults() {
+        return new StorageConfiguration(new Properties());
+    }
+
+    /**
+     * Creates a configuration backed by the JVM system properties.
+     *
+     * @return The storage configuration read from the system properties.
+     */
+    public static StorageConfiguration fromSystemProperties() {
+        return new StorageConfiguration(System.getProperties());
+    }
+
+    /**
+     * Gets the format of the calendar files.
+     *
+     * @return The storage engine.
+     * @throws ServerException if the configured value is not a known storage engine
+     */
+    public StorageEngine getEngine() {
+        return properties.getEnum(ENGINE, StorageEngine.class, DEFAULT_ENGINE);
+    }
+
+    /**
+     * Gets the data directory of the calendar files.
+     *
+     * @return The data directory.
+     * @throws ServerException if the configured value is not a valid path
+     */
+    public Path getDataDir() {
+        String value = properties.getString(DATA_DIR);
+        if (value == null) {
+            return DEFAULT_DATA_DIR;
+        }
+
+        try {
+            return Path.of(value);
+        } catch (InvalidPathException e) {
+            throw new ServerException("Property '" + DATA_DIR + "' is not a valid path: " + value);
+        }
+    }
+
+    /**
+     * Gets the layout of the users' files within the data directory.
+     *
+     * @return The directory layout.
+     * @throws ServerException if the configured value is not a known layout
+     */
+    public DirectoryLayout getLayout() {
+        return properties.getEnum(LAYOUT, DirectoryLayout.class, DEFAULT_LAYOUT);
+    }
+
+    /**
+     * Gets the maximum number of parsed calendars kept in memory.
+     *
+     * @return The cache capacity, {@code 0} if caching is disabled.
+     * @throws ServerException if the configured value is not a non-negative number
+     */
+    public int getCacheMaxCalendars() {
+        int value = properties.getInt(CACHE_MAX_CALENDARS, DEFAULT_CACHE_MAX_CALENDARS);
+        if (value < 0) {
+            throw new ServerException("Property '" + CACHE_MAX_CALENDARS + "' cannot be negative");
+        }
+        return value;
+    }
+
+    /**
+     * Gets the way calendar modifications are persisted.
+     *
+     * @return The write mode.
+     * @throws ServerException if the configured value is not a known write mode
+     */
+    public WriteMode getWriteMode() {
+        return properties.getEnum(WRITE_MODE, WriteMode.class, DEFAULT_WRITE_MODE);
+    }
+
+    /**
+     * Gets the interval in which the journals are folded into the calendar files.
+     *
+     * @return The compaction interval in milliseconds.
+     * @throws ServerException if the configured value is not a positive number
+     */
+    public long getJournalCompactionIntervalMillis() {
+        long value = properties.getLong(JOURNAL_COMPACTION_INTERVAL_MILLIS, DEFAULT_JOURNAL_COMPACTION_INTERVAL_MILLIS);
+        if (value <= 0) {
+            throw new ServerException("Property '" + JOURNAL_COMPACTION_INTERVAL_MILLIS + "' must be positive");
+        }
+        return value;
+    }
+
+    /**
+     * Gets the interval in which the dirty calendars are flushed.
+     *
+     * @return The flush interval in milliseconds.
+     * @throws ServerException if the configured value is not a positive number
+     */
+    public long getWriteBehindFlushIntervalMillis() {
+        long value = properties.getLong(WRITE_BEHIND_FLUSH_INTERVAL_MILLIS, DEFAULT_WRITE_BEHIND_FLUSH_INTERVAL_MILLIS);
+        if (value <= 0) {
+            throw new ServerException("Property '" + WRITE_BEHIND_FLUSH_INTERVAL_MILLIS + "' must be positive");
+        }
+        return value;
+    }
+
+    /**
+     * Gets the maximum number of dirty calendars.
+     *
+     * @return The capacity of the dirty set.
+     * @throws ServerException if the configured value is not a positive number
+     */
+    public int getWriteBehindMaxDirtyCalendars() {
+        int value = properties.getInt(WRITE_BEHIND_MAX_DIRTY_CALENDARS, DEFAULT_WRITE_BEHIND_MAX_DIRTY_CALENDARS);
+        if (value <= 0) {
+            throw new ServerException("Property '" + WRITE_BEHIND_MAX_DIRTY_CALENDARS + "' must be positive");
+        }
+        return value;
+    }
+
+    /**
+     * Gets how hard the writes are synced to the disk.
+     *
+     * @return The durability level.
+     * @throws ServerException if the configured value is not a known durability level
+     */
+    public Durability getDurability() {
+        return properties.getEnum(DURABILITY, Durability.class, DEFAULT_DURABILITY);
+    }
+
+    /**
+     * Gets the group commit window in which the syncs are coalesced.
+     *
+     * @return The group commit window in milliseconds.
+     * @throws ServerException if the configured value is not a positive number
+     */
+    public long getGroupCommitWindowMillis() {
+        long value = properties.getLong(GROUP_COMMIT_WINDOW_MILLIS, DEFAULT_GROUP_COMMIT_WINDOW_MILLIS);
+        if (value <= 0) {
+            throw new ServerException("Property '" + GROUP_COMMIT_WINDOW_MILLIS + "' must be positive");
+        }
+        return value;
+    }
+
+    /**
+     * Gets how the binary calendar files are read.
+     *
+     * @return The read mode.
+     * @throws ServerException if the configured value is not a known read mode
+     */
+    public ReadMode getReadMode() {
+        return properties.getEnum(READ_MODE, ReadMode.class, DEFAULT_READ_MODE);
+    }
+
+    /**
+     * Gets the size from which the binary calendar files are memory-mapped, smaller files are read with regular reads.
+     *
+     * @return The mapping threshold in bytes.
+     * @throws ServerException if the configured value is not a non-negative number
+     */
+    public long getMmapMinFileBytes() {
+        long value = properties.getLong(MMAP_MIN_FILE_BYTES, DEFAULT_MMAP_MIN_FILE_BYTES);
+        if (value < 0) {
+            throw new ServerException("Property '" + MMAP_MIN_FILE_BYTES + "' cannot be negative");
+        }
+        return value;
+    }
+}
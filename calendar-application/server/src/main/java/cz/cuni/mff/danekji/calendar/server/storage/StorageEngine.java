@@ -0,0 +1,15 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+/**
+ * Determines the format in which the server stores the calendar files.
+ */
+public enum StorageEngine {
+    /**
+     * Pretty-printed XML files in the data directory, handled by the {@link XMLEventRepository}.
+     */
+    XML,
+    /**
+     * Compact binary files in the {@code binary} subdirectory of the data directory, handled by the {@link BinaryEventRepository}.
+     */
+    BINARY,
+}
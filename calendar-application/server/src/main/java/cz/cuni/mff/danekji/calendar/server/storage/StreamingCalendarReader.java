@@ -0,0 +1,198 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import cz.cuni.mff.danekji.calendar.core.exceptions.server.XmlDatabaseException;
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.User;
+import cz.cuni.mff.danekji.calendar.core.xml.XMLCalendarTags;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming (StAX) reader of the calendar XML files.
+ * <p>
+ * Unlike the JDOM parser, the reader never builds a tree of the whole document, the events are created
+ *  directly from the stream, one at a time. The date range of a query is checked while streaming,
+ *  so the events outside the range are never created at all.
+ */
+final class StreamingCalendarReader {
+    private final static Logger LOGGER = LogManager.getLogger(StreamingCalendarReader.class);
+    // the JDK factory is thread-safe once configured
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    private StreamingCalendarReader() {
+    }
+
+    private static XMLInputFactory createFactory() {
+        var factory = XMLInputFactory.newDefaultFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * Reads the whole calendar from the XML file.
+     *
+     * @param file The path to the user's calendar XML file
+     * @return The calendar
+     * @throws XmlDatabaseException if the file cannot be read or is not a valid calendar
+     */
+    static UserCalendar readCalendar(Path file) throws XmlDatabaseException {
+        return read(file, LocalDate.MIN, LocalDate.MAX);
+    }
+
+    /**
+     * Reads only the owner of the calendar from the XML file, the rest of the file is not read at all.
+     *
+     * @param file The path to the user's calendar XML file
+     * @return The user (username and password hash)
+     * @throws XmlDatabaseException if the file cannot be read or does not contain a valid user
+     */
+    static User readUser(Path file) throws XmlDatabaseException {
+        try (var input = Files.newInputStream(file)) {
+            XMLStreamReader reader = FACTORY.createXMLStreamReader(input);
+            try {
+                reader.nextTag();
+                if (!reader.getLocalName().equals(XMLCalendarTags.CALENDAR_TAG)) {
+                    LOGGER.error("The XML file '{}' is not a calendar file", file);
+                    throw new XmlDatabaseException("The XML file is not a valid calendar");
+                }
+
+                while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                    if (reader.getLocalName().equals(XMLCalendarTags.USER_TAG)) {
+                        return readUser(reader);
+                    }
+                    skipElement(reader);
+                }
+                throw new XmlDatabaseException("The XML file is not a valid calendar");
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | XMLStreamException | NumberFormatException e) {
+            LOGGER.error("Failed to parse file '{}'", file, e);
+            throw new XmlDatabaseException("Failed to parse XML file: " + file);
+        }
+    }
+
+    /**
+     * Reads the events from the XML file which take place within the given date range (both inclusive).
+     *
+     * @param file The path to the user's calendar XML file
+     * @param startDate The first day of the range
+     * @param endDate The last day of the range
+     * @return The events within the range, in the order they are stored in
+     * @throws XmlDatabaseException if the file cannot be read or is not a valid calendar
+     */
+    static List<Event> readEvents(Path file, LocalDate startDate, LocalDate endDate) throws XmlDatabaseException {
+        return read(file, startDate, endDate).getEvents();
+    }
+
+    private static UserCalendar read(Path file, LocalDate startDate, LocalDate endDate) throws XmlDatabaseException {
+        try (var input = Files.newInputStream(file)) {
+            XMLStreamReader reader = FACTORY.createXMLStreamReader(input);
+            try {
+                reader.nextTag();
+                if (!reader.getLocalName().equals(XMLCalendarTags.CALENDAR_TAG)) {
+                    LOGGER.error("The XML file '{}' is not a calendar file", file);
+                    throw new XmlDatabaseException("The XML file is not a valid calendar");
+                }
+
+                User user = null;
+                Long nextEventId = null;
+                List<Event> events = null;
+                while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                    switch (reader.getLocalName()) {
+                        case XMLCalendarTags.USER_TAG -> user = readUser(reader);
+                        case XMLCalendarTags.NEXT_EVENT_ID_TAG -> nextEventId = Long.parseLong(reader.getElementText());
+                        case XMLCalendarTags.EVENTS_TAG -> events = readEvents(reader, startDate, endDate);
+                        default -> skipElement(reader);
+                    }
+                }
+
+                if (user == null || nextEventId == null || events == null) {
+                    LOGGER.error("The XML file '{}' is not a calendar file", file);
+                    throw new XmlDatabaseException("The XML file is not a valid calendar");
+                }
+                return new UserCalendar(user, nextEventId, events);
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | XMLStreamException | NumberFormatException | DateTimeParseException e) {
+            LOGGER.error("Failed to parse file '{}'", file, e);
+            throw new XmlDatabaseException("Failed to parse XML file: " + file);
+        }
+    }
+
+    private static User readUser(XMLStreamReader reader) throws XMLStreamException {
+        String username = null;
+        String passwordHash = null;
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case XMLCalendarTags.USERNAME_TAG -> username = reader.getElementText();
+                case XMLCalendarTags.PASSWORD_HASH_TAG -> passwordHash = reader.getElementText();
+                default -> skipElement(reader);
+            }
+        }
+        if (username == null || passwordHash == null) {
+            throw new XmlDatabaseException("The XML file is not a valid calendar");
+        }
+        return new User(username, Integer.parseInt(passwordHash));
+    }
+
+    private static List<Event> readEvents(XMLStreamReader reader, LocalDate startDate, LocalDate endDate) throws XMLStreamException {
+        List<Event> events = new ArrayList<>();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (!reader.getLocalName().equals(XMLCalendarTags.EVENT_TAG)) {
+                skipElement(reader);
+                continue;
+            }
+
+            String id = null, title = null, date = null, time = null, location = null, description = null;
+            while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case XMLCalendarTags.ID_TAG -> id = reader.getElementText();
+                    case XMLCalendarTags.TITLE_TAG -> title = reader.getElementText();
+                    case XMLCalendarTags.DATE_TAG -> date = reader.getElementText();
+                    case XMLCalendarTags.TIME_TAG -> time = reader.getElementText();
+                    case XMLCalendarTags.LOCATION_TAG -> location = reader.getElementText();
+                    case XMLCalendarTags.DESCRIPTION_TAG -> description = reader.getElementText();
+                    default -> skipElement(reader);
+                }
+            }
+            if (id == null || date == null || time == null) {
+                throw new XmlDatabaseException("Failed to parse event from XML");
+            }
+
+            LocalDate eventDate = LocalDate.parse(date);
+            if (eventDate.isBefore(startDate) || eventDate.isAfter(endDate)) {
+                continue;
+            }
+            events.add(Event.withId(Long.parseLong(id), new Event(title, eventDate, LocalTime.parse(time), location, description)));
+        }
+        return events;
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.EventCursor;
+import cz.cuni.mff.danekji.calendar.core.models.User;
+import cz.cuni.mff.danekji.calendar.core.xml.XMLCalendarTags;
+import org.jdom2.Document;
+import org.jdom2.Element;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory model of a single user's calendar.
+ * <p>
+ * The events are indexed by their ID (in the order they are stored in) and by their date, so point updates
+ *  and deletes as well as date range queries do not depend on the size of the calendar.
+ *  The model is not thread-safe, it is guarded by the owner's lock in {@link UserLocks}:
+ *  readers must hold the read lock and modifications require the write lock. Events returned to the callers
+ *  are always copied into new lists, so they stay valid after the lock is released.
+ */
+final class UserCalendar {
+    private final User user;
+    private long nextEventId;
+    private final Map<Long, Event> eventsById = new LinkedHashMap<>();
+    private final EventDateIndex dateIndex = new EventDateIndex();
+
+    /**
+     * Constructor for UserCalendar.
+     *
+     * @param user The owner of the calendar (username and password hash)
+     * @param nextEventId The ID which will be assigned to the next added event
+     * @param events The events of the calendar in the order they are stored in
+     */
+    UserCalendar(User user, long nextEventId, List<Event> events) {
+        this.user = user;
+        this.nextEventId = nextEventId;
+        for (var event : events) {
+            storeEvent(event);
+        }
+    }
+
+    /**
+     * Creates an empty calendar for a freshly created account.
+     *
+     * @param user The owner of the calendar
+     * @return The empty calendar
+     */
+    static UserCalendar empty(User user) {
+        return new UserCalendar(user, 1, List.of());
+    }
+
+    /**
+     * Gets the owner of the calendar.
+     *
+     * @return The user (username and password hash)
+     */
+    User getUser() {
+        return user;
+    }
+
+    /**
+     * Gets the ID which will be assigned to the next added event.
+     *
+     * @return The next event ID
+     */
+    long getNextEventId() {
+        return nextEventId;
+    }
+
+    /**
+     * Converts the calendar into a calendar XML document.
+     *
+     * @return The XML document representing this calendar
+     */
+    Document toDocument() {
+        Element calendarElement = new Element(XMLCalendarTags.CALENDAR_TAG);
+
+        Element nextEventIdElement = new Element(XMLCalendarTags.NEXT_EVENT_ID_TAG);
+        nextEventIdElement.setText(String.valueOf(nextEventId));
+        Element eventsElement = new Element(XMLCalendarTags.EVENTS_TAG);
+        for (var event : eventsById.values()) {
+            eventsElement.addContent(event.toXMLElement());
+        }
+
+        calendarElement.addContent(List.of(user.toXMLElement(), nextEventIdElement, eventsElement));
+        return new Document(calendarElement);
+    }
+
+    /**
+     * Checks whether the event has the details the date index orders the events by, so it can be added.
+     *
+     * @param event The event to check
+     * @return true if the event has a date and a time
+     */
+    static boolean isComplete(Event event) {
+        return event.getDate() != null && event.getTime() != null;
+    }
+
+    /**
+     * Adds the event under the next free ID.
+     *
+     * @param event The event without ID, it must be complete (see {@link #isComplete(Event)})
+     * @return The stored event with its assigned ID
+     */
+    Event addEvent(Event event) {
+        Event added = Event.withId(nextEventId, event);
+        storeEvent(added);
+        return added;
+    }
+
+    /**
+     * Updates the event with the same ID.
+     * The details which are null in the given event keep their previous value.
+     *
+     * @param event The event carrying the ID and the new details
+     * @return The stored (merged) event, or null if the event does not exist
+     */
+    Event updateEvent(Event event) {
+        Event previous = eventsById.get(event.getId());
+        if (previous == null) {
+            return null;
+        }
+
+        Event updated = Event.withId(previous.getId(), new Event(
+                event.getTitle() != null ? event.getTitle() : previous.getTitle(),
+                event.getDate() != null ? event.getDate() : previous.getDate(),
+                event.getTime() != null ? event.getTime() : previous.getTime(),
+                event.getLocation() != null ? event.getLocation() : previous.getLocation(),
+                event.getDescription() != null ? event.getDescription() : previous.getDescription()));
+        storeEvent(updated);
+        return updated;
+    }
+
+    /**
+     * Stores the given complete event.
+     * An event with the same ID is replaced (keeping its position), otherwise the event is appended
+     *  and the next event ID is moved past its ID.
+     * The event is indexed first, so an event the index rejects leaves the calendar unchanged.
+     *
+     * @param event The complete event with ID
+     */
+    void storeEvent(Event event) {
+        Event previous = eventsById.get(event.getId());
+        if (previous != null) {
+            dateIndex.remove(previous);
+        }
+        try {
+            dateIndex.add(event);
+        } catch (RuntimeException e) {
+            if (previous != null) {
+                dateIndex.add(previous);
+            }
+            throw e;
+        }
+        eventsById.put(event.getId(), event);
+        nextEventId = Math.max(nextEventId, event.getId() + 1);
+    }
+
+    /**
+     * Removes the event with the given ID.
+     *
+     * @param eventId The ID of the event to remove
+     * @return The removed event, or null if the event does not exist
+     */
+    Event removeEvent(long eventId) {
+        Event removed = eventsById.remove(eventId);
+        if (removed != null) {
+            dateIndex.remove(removed);
+        }
+        return removed;
+    }
+
+    /**
+     * Finds the event with the given ID.
+     *
+     * @param eventId The ID of the event
+     * @return The event, or null if the calendar does not contain it
+     */
+    Event getEvent(long eventId) {
+        return eventsById.get(eventId);
+    }
+
+    /**
+     * Gets all events of the calendar.
+     *
+     * @return A new unmodifiable list of the events in the order they are stored in
+     */
+    List<Event> getEvents() {
+        return List.copyOf(eventsById.values());
+    }
+
+    /**
+     * Returns the events taking place within the given date range, using the date index.
+     *
+     * @param startDate The first day of the range (inclusive)
+     * @param endDate The last day of the range (inclusive)
+     * @return A new unmodifiable list of the events within the range, sorted by date, time and ID
+     */
+    List<Event> getEventsInRange(LocalDate startDate, LocalDate endDate) {
+        return dateIndex.range(startDate, endDate);
+    }
+
+    /**
+     * Returns a page of the events taking place within the given date range, using the date index.
+     *
+     * @param startDate The first day of the range (inclusive)
+     * @param endDate The last day of the range (inclusive)
+     * @param after The cursor after which the page starts, null for the first page
+     * @param limit The maximum number of returned events
+     * @return A new unmodifiable list of the events of the page, sorted by date, time and ID
+     */
+    List<Event> getEventsPage(LocalDate startDate, LocalDate endDate, EventCursor after, int limit) {
+        return dateIndex.page(startDate, endDate, after, limit);
+    }
+}
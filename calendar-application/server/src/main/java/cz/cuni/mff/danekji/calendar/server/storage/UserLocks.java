@@ -0,0 +1,52 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Striped read/write locks guarding the per-user calendar files.
+ * <p>
+ * Every username is mapped onto one of a fixed number of stripes, so operations on different users
+ *  (almost always) run in parallel, while readers and writers of the same user are properly excluded.
+ *  Using a fixed number of stripes keeps the memory bounded no matter how many users there are.
+ */
+final class UserLocks {
+    /**
+     * The default number of stripes, must be a power of two.
+     */
+    static final int DEFAULT_STRIPES = 64;
+
+    private final ReadWriteLock[] stripes;
+
+    /**
+     * Constructor for UserLocks with the default number of stripes.
+     */
+    UserLocks() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Constructor for UserLocks.
+     *
+     * @param stripes The number of stripes, must be a power of two
+     */
+    UserLocks(int stripes) {
+        assert stripes > 0 && Integer.bitCount(stripes) == 1;
+        this.stripes = new ReadWriteLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /**
+     * Gets the lock guarding the calendar of the given user.
+     *
+     * @param username The owner of the calendar
+     * @return The read/write lock of the user's stripe
+     */
+    ReadWriteLock forUser(String username) {
+        int hash = username.hashCode();
+        hash ^= (hash >>> 16); // spread the high bits, as the stripes are selected by the low ones
+        return stripes[hash & (stripes.length - 1)];
+    }
+}
@@ -0,0 +1,22 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+/**
+ * Determines how the XML repository persists modifications of a calendar.
+ */
+public enum WriteMode {
+    /**
+     * Every modification rewrites the whole calendar file.
+     */
+    REWRITE,
+    /**
+     * Every modification appends a compact record to the user's journal,
+     *  which is periodically folded into the calendar file by a background compactor.
+     */
+    JOURNAL,
+    /**
+     * Every modification is applied to the calendar held in memory only, which is marked dirty.
+     *  The dirty calendars are rewritten by a background flusher periodically (or as soon as too many of them are dirty),
+     *  so the modifications made meanwhile are coalesced into a single write. A crash loses the unflushed modifications.
+     */
+    WRITE_BEHIND,
+}
@@ -0,0 +1,48 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import cz.cuni.mff.danekji.calendar.core.exceptions.server.XmlDatabaseException;
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.User;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * The pretty-printed XML calendar format, read by the {@link StreamingCalendarReader} and written by JDOM.
+ */
+final class XmlCalendarFormat implements CalendarFormat {
+    /**
+     * The extension of the XML calendar files.
+     */
+    static final String FILE_EXTENSION = ".xml";
+
+    @Override
+    public String fileExtension() {
+        return FILE_EXTENSION;
+    }
+
+    @Override
+    public UserCalendar read(Path file) throws XmlDatabaseException {
+        return StreamingCalendarReader.readCalendar(file);
+    }
+
+    @Override
+    public List<Event> readEvents(Path file, LocalDate startDate, LocalDate endDate) throws XmlDatabaseException {
+        return StreamingCalendarReader.readEvents(file, startDate, endDate);
+    }
+
+    @Override
+    public User readUser(Path file) throws XmlDatabaseException {
+        return StreamingCalendarReader.readUser(file);
+    }
+
+    @Override
+    public void write(UserCalendar calendar, OutputStream output) throws IOException {
+        new XMLOutputter(Format.getPrettyFormat()).output(calendar.toDocument(), output);
+    }
+}
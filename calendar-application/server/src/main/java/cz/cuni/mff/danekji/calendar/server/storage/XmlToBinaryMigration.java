@@ -0,0 +1,92 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import cz.cuni.mff.danekji.calendar.core.exceptions.server.XmlDatabaseException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * One-shot tool converting the XML calendars of the {@link XMLEventRepository} into the binary calendars
+ *  of the {@link BinaryEventRepository}.
+ * <p>
+ * The pending XML journals are folded first, so no modification is left behind. Calendars which already
+ *  exist in the binary folder are skipped, so the tool can be safely run again (e.g. after an interrupted run).
+ *  The XML files are kept untouched. The server must not be running during the migration.
+ */
+public final class XmlToBinaryMigration {
+    private final static Logger LOGGER = LogManager.getLogger(XmlToBinaryMigration.class);
+
+    private XmlToBinaryMigration() {
+    }
+
+    /**
+     * Migrates all calendars from the XML folder into the binary folder of the storage configuration
+     *  read from the system properties (e.g. {@code -Dcalendar.storage.dataDir=/srv/calendar}),
+     *  keeping the configured directory layout.
+     *
+     * @param args Command line arguments (not used).
+     */
+    public static void main(String[] args) {
+        var configuration = StorageConfiguration.fromSystemProperties();
+        new XMLEventRepository(configuration).close(); // folds the journals left behind by the server
+
+        Path binaryFolder = BinaryEventRepository.folderOf(configuration);
+        int migrated = migrate(XMLEventRepository.folderOf(configuration), binaryFolder, configuration.getLayout());
+        LOGGER.info("Migrated {} calendars into '{}'", migrated, binaryFolder.toAbsolutePath());
+    }
+
+    /**
+     * Converts every XML calendar in the source folder into a binary calendar in the target folder,
+     *  both in the {@link DirectoryLayout#FLAT} layout.
+     * The journals of the XML calendars are not replayed, they must be folded beforehand.
+     *
+     * @param xmlFolder The folder with the XML calendar files
+     * @param binaryFolder The folder for the binary calendar files, created if it does not exist
+     * @return The number of migrated calendars
+     * @throws XmlDatabaseException if a folder cannot be accessed or a calendar cannot be converted
+     */
+    static int migrate(Path xmlFolder, Path binaryFolder) throws XmlDatabaseException {
+        return migrate(xmlFolder, binaryFolder, DirectoryLayout.FLAT);
+    }
+
+    /**
+     * Converts every XML calendar in the source folder into a binary calendar in the target folder.
+     * The journals of the XML calendars are not replayed, they must be folded beforehand.
+     *
+     * @param xmlFolder The folder with the XML calendar files
+     * @param binaryFolder The folder for the binary calendar files, created if it does not exist
+     * @param layout The layout of the files in both folders
+     * @return The number of migrated calendars
+     * @throws XmlDatabaseException if a folder cannot be accessed or a calendar cannot be converted
+     */
+    static int migrate(Path xmlFolder, Path binaryFolder, DirectoryLayout layout) throws XmlDatabaseException {
+        var xmlFormat = new XmlCalendarFormat();
+        var binaryFormat = new BinaryCalendarFormat();
+        var binaryDirectory = new CalendarDirectory(binaryFolder, layout);
+        int migrated = 0;
+
+        try (var fileStore = new CalendarFileStore(Durability.PER_WRITE, StorageConfiguration.DEFAULT_GROUP_COMMIT_WINDOW_MILLIS)) {
+            for (var file : new CalendarDirectory(xmlFolder, layout).findFiles(xmlFormat.fileExtension())) {
+                String username = CalendarDirectory.usernameOf(file, xmlFormat.fileExtension());
+                Path target = binaryDirectory.fileOf(username, binaryFormat.fileExtension());
+                if (Files.exists(target)) {
+                    LOGGER.warn("Skipping calendar of user '{}', binary calendar already exists", username);
+                    continue;
+                }
+
+                UserCalendar calendar = xmlFormat.read(file);
+                Files.createDirectories(target.getParent());
+                CalendarFileStore.await(fileStore.replace(target, output -> binaryFormat.write(calendar, output)));
+                migrated++;
+                LOGGER.info("Migrated calendar of user '{}'", username);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to migrate calendars from '{}' to '{}'", xmlFolder.toAbsolutePath(), binaryFolder.toAbsolutePath(), e);
+            throw new XmlDatabaseException("Failed to migrate calendars to the binary format.");
+        }
+        return migrated;
+    }
+}
@@ -5,6 +5,7 @@
 module cz.cuni.mff.danekji.calendar.server {
     requires cz.cuni.mff.danekji.calendar.core;
     requires java.logging;
+    requires java.xml;
     requires org.apache.logging.log4j;
     requires org.jdom2;
 
@@ -0,0 +1,112 @@
+package cz.cuni.mff.danekji.calendar.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
+import cz.cuni.mff.danekji.calendar.core.models.User;
+import cz.cuni.mff.danekji.calendar.core.responses.Response;
+import cz.cuni.mff.danekji.calendar.core.responses.push.EventsChangedNotification;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class ChangeSubscriptionsTest {
+
+    private static ClientSession loggedSession(int sessionId, String username) {
+        ClientSession session = new ClientSession(sessionId, null);
+        session.setCurrentUser(new User(username, 123));
+        return session;
+    }
+
+    @Test
+    public void publish_notifiesOnlyOtherSessionsSubscribedToCalendar() throws Exception {
+        // arrange
+        ChangeSubscriptions subscriptions = new ChangeSubscriptions();
+        ClientSession origin = loggedSession(1, "alice");
+        ClientSession other = loggedSession(2, "alice");
+        ClientSession stranger = loggedSession(3, "bob");
+        BlockingQueue<Response> originPushes = new LinkedBlockingQueue<>();
+        BlockingQueue<Response> otherPushes = new LinkedBlockingQueue<>();
+        BlockingQueue<Response> strangerPushes = new LinkedBlockingQueue<>();
+        subscriptions.attach(origin, originPushes::add);
+        subscriptions.attach(other, otherPushes::add);
+        subscriptions.attach(stranger, strangerPushes::add);
+
+        // act
+        boolean subscribed = subscriptions.subscribe(origin) & subscriptions.subscribe(other) & subscriptions.subscribe(stranger);
+        boolean withoutChannel = subscriptions.subscribe(loggedSession(4, "alice"));
+        subscriptions.publish("alice", 7, origin);
+        Response pushed = otherPushes.poll(5, TimeUnit.SECONDS);
+        subscriptions.unsubscribe(other);
+        subscriptions.publish("alice", 8, origin);
+
+        // assert
+        assertTrue(subscribed);
+        assertFalse(withoutChannel, "A session without a push channel cannot subscribe");
+        assertEquals(new EventsChangedNotification(7), pushed);
+        assertNull(otherPushes.poll(100, TimeUnit.MILLISECONDS), "Unsubscribed session should not be notified");
+        assertTrue(originPushes.isEmpty(), "The session which made the change should not be notified");
+        assertTrue(strangerPushes.isEmpty(), "The sessions of other users should not be notified");
+    }
+
+    @Test
+    public void publish_coalescesChangesWhileSlowSubscriberIsBusy() throws Exception {
+        // arrange
+        ChangeSubscriptions subscriptions = new ChangeSubscriptions();
+        ClientSession origin = loggedSession(1, "alice");
+        ClientSession slow = loggedSession(2, "alice");
+        CountDownLatch firstPushStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingQueue<Response> pushes = new LinkedBlockingQueue<>();
+        subscriptions.attach(slow, notification -> {
+            pushes.add(notification);
+            firstPushStarted.countDown();
+            try {
+                release.await(); // a client which does not read its socket
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        subscriptions.subscribe(slow);
+
+        // act
+        subscriptions.publish("alice", 1, origin);
+        assertTrue(firstPushStarted.await(5, TimeUnit.SECONDS));
+        for (long version = 2; version <= 100; version++) {
+            subscriptions.publish("alice", version, origin); // must not block on the slow subscriber
+        }
+        release.countDown();
+        Response first = pushes.poll(5, TimeUnit.SECONDS);
+        Response second = pushes.poll(5, TimeUnit.SECONDS);
+
+        // assert
+        assertEquals(List.of(new EventsChangedNotification(1), new EventsChangedNotification(100)), List.of(first, second),
+                "The changes made during a delivery should be coalesced into the latest version");
+        assertNull(pushes.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void subscribe_movesResubscribedSessionToCalendarOfNewUser() throws Exception {
+        // arrange
+        ChangeSubscriptions subscriptions = new ChangeSubscriptions();
+        ClientSession origin = loggedSession(1, "carol");
+        ClientSession switching = loggedSession(2, "carol");
+        BlockingQueue<Response> pushes = new LinkedBlockingQueue<>();
+        subscriptions.attach(switching, pushes::add);
+        subscriptions.subscribe(switching);
+
+        // act
+        switching.setCurrentUser(new User("dave", 456));
+        subscriptions.subscribe(switching);
+        subscriptions.publish("carol", 3, origin);
+        Response previousUserPush = pushes.poll(100, TimeUnit.MILLISECONDS);
+        subscriptions.publish("dave", 4, origin);
+        Response newUserPush = pushes.poll(5, TimeUnit.SECONDS);
+
+        // assert
+        assertNull(previousUserPush, "The replaced subscription should not be notified");
+        assertEquals(new EventsChangedNotification(4), newUserPush);
+    }
+}
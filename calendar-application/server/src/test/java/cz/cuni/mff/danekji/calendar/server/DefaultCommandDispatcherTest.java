@@ -12,9 +12,27 @@ import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessResponse;
 import cz.cuni.mff.danekji.calendar.core.responses.error.ErrorResponse;
 import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
 import cz.cuni.mff.danekji.calendar.core.models.User;
+import cz.cuni.mff.danekji.calendar.core.models.BatchItemResult;
 import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.EventChanges;
+import cz.cuni.mff.danekji.calendar.core.models.EventCursor;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessEventChangesResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessEventListResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessBatchResponse;
+import cz.cuni.mff.danekji.calendar.core.models.Metric;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessStatsResponse;
+import cz.cuni.mff.danekji.calendar.server.metrics.MetricsRegistry;
+import cz.cuni.mff.danekji.calendar.core.exceptions.server.XmlDatabaseException;
+import cz.cuni.mff.danekji.calendar.server.storage.AsyncEventRepository;
 import cz.cuni.mff.danekji.calendar.server.storage.EventRepository;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 public class DefaultCommandDispatcherTest {
 
     @Test
@@ -75,4 +93,201 @@ public class DefaultCommandDispatcherTest {
         assertEquals("You must be logged in to add an event.", ((ErrorResponse) response).errorMessage(), "Error message should indicate login requirement");
     }
 
-}
\ No newline at end of file
+
+    @Test
+    public void visitBatchCommand_returnsResultsOfAllOperations() {
+        // arrange
+        EventRepository mockRepo = mock(EventRepository.class);
+        DefaultCommandDispatcher dispatcher = new DefaultCommandDispatcher(mockRepo);
+        ClientSession session = new ClientSession(42, null);
+        User user = new User("alice", 123);
+        session.setCurrentUser(user);
+        List<BatchOperation> operations = List.of(new DeleteEventCommand(1L), new DeleteEventCommand(2L));
+        var results = List.of(BatchItemResult.success(1L), BatchItemResult.failure(2L, "not found"));
+        when(mockRepo.applyBatch(user, operations, session)).thenReturn(results);
+
+        // act
+        Response response = dispatcher.visit(new BatchCommand(operations), session);
+
+        // assert
+        assertEquals(new SuccessBatchResponse(results), response, "Should return the per-operation results in one response");
+        verify(mockRepo, never()).deleteEvent(any(), any(), any());
+    }
+
+    @Test
+    public void visitShowEventsCommand_returnsPageWithCursorOfNextPage() {
+        // arrange
+        EventRepository mockRepo = mock(EventRepository.class);
+        DefaultCommandDispatcher dispatcher = new DefaultCommandDispatcher(mockRepo);
+        ClientSession session = new ClientSession(42, null);
+        User user = new User("alice", 123);
+        session.setCurrentUser(user);
+        List<Event> events = List.of(
+                Event.withId(1L, new Event("First", LocalDate.of(2024, 1, 1), LocalTime.of(9, 0), "", "")),
+                Event.withId(2L, new Event("Second", LocalDate.of(2024, 1, 2), LocalTime.of(9, 0), "", "")),
+                Event.withId(3L, new Event("Third", LocalDate.of(2024, 1, 3), LocalTime.of(9, 0), "", "")));
+        when(mockRepo.getEventsPage(user, LocalDate.MIN, LocalDate.MAX, null, 3, session)).thenReturn(events);
+
+        // act
+        Response page = dispatcher.visit(new ShowEventsCommand(2, null, false), session);
+        Response invalid = dispatcher.visit(new ShowEventsCommand(0, null, false), session);
+
+        // assert
+        assertEquals(new SuccessEventListResponse(events.subList(0, 2), EventCursor.after(events.get(1))), page,
+                "One more event than the limit should be fetched to find out whether there is a next page");
+        assertInstanceOf(ErrorResponse.class, invalid, "Non-positive limit should be rejected");
+        verify(mockRepo, never()).getAllEvents(any(), any());
+    }
+
+    @Test
+    public void visitSyncEventsCommand_returnsChangesSinceVersion() {
+        // arrange
+        EventRepository mockRepo = mock(EventRepository.class);
+        DefaultCommandDispatcher dispatcher = new DefaultCommandDispatcher(mockRepo);
+        ClientSession session = new ClientSession(42, null);
+        User user = new User("alice", 123);
+        var changes = new EventChanges(8, false, List.of(), List.of(3L));
+        when(mockRepo.getChangesSince(user, 7L, session)).thenReturn(changes);
+
+        // act
+        Response unlogged = dispatcher.visit(new SyncEventsCommand(7L), new ClientSession(43, null));
+        session.setCurrentUser(user);
+        Response response = dispatcher.visit(new SyncEventsCommand(7L), session);
+
+        // assert
+        assertInstanceOf(ErrorResponse.class, unlogged, "Sync should require login");
+        assertEquals(new SuccessEventChangesResponse(changes), response);
+        verify(mockRepo, never()).getAllEvents(any(), any());
+    }
+
+    @Test
+    public void visitSubscribeCommand_subscribesOnlyConnectionsWithPushChannel() {
+        // arrange
+        EventRepository mockRepo = mock(EventRepository.class);
+        ChangeSubscriptions subscriptions = new ChangeSubscriptions();
+        DefaultCommandDispatcher dispatcher = new DefaultCommandDispatcher(mockRepo, subscriptions, new MetricsRegistry(), Set.of());
+        ClientSession session = new ClientSession(42, null);
+        session.setCurrentUser(new User("alice", 123));
+
+        // act
+        Response withoutChannel = dispatcher.visit(new SubscribeCommand(), session);
+        subscriptions.attach(session, notification -> {});
+        Response subscribed = dispatcher.visit(new SubscribeCommand(), session);
+        dispatcher.visit(new LogoutCommand(), session);
+        session.setCurrentUser(new User("alice", 123));
+        Response unsubscribed = dispatcher.visit(new UnsubscribeCommand(), session);
+
+        // assert
+        assertInstanceOf(ErrorResponse.class, withoutChannel, "A connection without pushed notifications cannot subscribe");
+        assertInstanceOf(SuccessResponse.class, subscribed);
+        assertInstanceOf(ErrorResponse.class, unsubscribed, "Logout should cancel the subscription");
+    }
+
+    @Test
+    public void visitStatsCommand_returnsCommandMetricsOnlyToAdmins() {
+        // arrange
+        EventRepository mockRepo = mock(EventRepository.class);
+        DefaultCommandDispatcher dispatcher = new DefaultCommandDispatcher(mockRepo, new ChangeSubscriptions(), new MetricsRegistry(), Set.of("admin"));
+        ClientSession adminSession = new ClientSession(42, null);
+        ClientSession userSession = new ClientSession(43, null);
+        when(mockRepo.authenticate(any(), any())).thenReturn(true);
+
+        // act
+        dispatcher.dispatch(new LoginCommand(new User("admin", 123)), adminSession);
+        dispatcher.dispatch(new LoginCommand(new User("alice", 123)), userSession);
+        dispatcher.dispatch(new LoginCommand(new User("alice", 123)), userSession); // already logged in
+        Response denied = dispatcher.dispatch(new StatsCommand(), userSession);
+        Response stats = dispatcher.dispatch(new StatsCommand(), adminSession);
+
+        // assert
+        assertInstanceOf(ErrorResponse.class, denied, "Only the administrators should see the statistics");
+        assertInstanceOf(SuccessStatsResponse.class, stats);
+        var metrics = ((SuccessStatsResponse) stats).metrics();
+        assertTrue(metrics.contains(new Metric("command.login.count", 3)), "Every dispatched command should be counted");
+        assertTrue(metrics.contains(new Metric("command.login.errors", 1)));
+        assertTrue(metrics.contains(new Metric("command.stats.errors", 1)));
+        assertTrue(metrics.stream().anyMatch(metric -> metric.name().equals("command.login.p99_us")));
+    }
+
+    @Test
+    public void dispatch_recordsCommandWhichThrows() {
+        // arrange
+        EventRepository mockRepo = mock(EventRepository.class);
+        MetricsRegistry metrics = new MetricsRegistry();
+        DefaultCommandDispatcher dispatcher = new DefaultCommandDispatcher(mockRepo, new ChangeSubscriptions(), metrics, Set.of());
+        when(mockRepo.authenticate(any(), any())).thenThrow(new IllegalStateException("Storage is broken"));
+
+        // act
+        assertThrows(IllegalStateException.class, () -> dispatcher.dispatch(new LoginCommand(new User("alice", 123)), new ClientSession(42, null)));
+
+        // assert
+        assertTrue(metrics.snapshot().contains(new Metric("command.login.count", 1)), "The failed command should be counted");
+        assertTrue(metrics.snapshot().contains(new Metric("command.login.errors", 1)));
+    }
+
+    @Test
+    public void dispatchAsync_completesOnceStorageOperationIsDone() throws Exception {
+        // arrange
+        EventRepository mockRepo = mock(EventRepository.class, withSettings().extraInterfaces(AsyncEventRepository.class));
+        DefaultCommandDispatcher dispatcher = new DefaultCommandDispatcher(mockRepo);
+        ClientSession session = new ClientSession(42, null);
+        User user = new User("alice", 123);
+        session.setCurrentUser(user);
+        Event event = new Event("Meeting", null, null, null, null);
+        var added = new CompletableFuture<Long>();
+        when(((AsyncEventRepository) mockRepo).addEventAsync(user, event, session)).thenReturn(added);
+
+        // act
+        CompletableFuture<Response> response = dispatcher.dispatchAsync(new AddEventCommand(event), session);
+        boolean doneBeforeStorage = response.isDone();
+        added.complete(7L);
+
+        // assert
+        assertFalse(doneBeforeStorage, "The response should wait for the storage operation, not the dispatching thread");
+        assertEquals(new SuccessResponse("Event with id '7' added successfully."), response.join());
+        verify(mockRepo, never()).addEvent(any(), any(), any());
+    }
+
+    @Test
+    public void dispatchAsync_answersLikeSynchronousDispatch() {
+        // arrange
+        EventRepository mockRepo = mock(EventRepository.class);
+        DefaultCommandDispatcher dispatcher = new DefaultCommandDispatcher(mockRepo);
+        ClientSession session = new ClientSession(42, null);
+        User user = new User("alice", 123);
+        Event event = Event.withId(5L, new Event("Meeting", LocalDate.of(2025, 1, 1), LocalTime.NOON, "", ""));
+        doThrow(new XmlDatabaseException("Event not found")).when(mockRepo).updateEvent(user, event, session);
+
+        // act
+        Response unlogged = dispatcher.dispatchAsync(new UpdateEventCommand(event), session).join();
+        session.setCurrentUser(user);
+        Response failed = dispatcher.dispatchAsync(new UpdateEventCommand(event), session).join();
+        Response expected = dispatcher.dispatch(new UpdateEventCommand(event), session);
+
+        // assert
+        assertEquals(new ErrorResponse("You must be logged in to update an event."), unlogged);
+        assertEquals(expected, failed, "The storage failure should be answered as by the synchronous dispatch");
+        assertEquals(new ErrorResponse("Failed to update event: Event not found"), failed);
+    }
+
+    @Test
+    public void dispatchAsync_recordsFailedCommandAsError() {
+        // arrange
+        EventRepository mockRepo = mock(EventRepository.class);
+        MetricsRegistry metrics = new MetricsRegistry();
+        DefaultCommandDispatcher dispatcher = new DefaultCommandDispatcher(mockRepo, new ChangeSubscriptions(), metrics, Set.of());
+        ClientSession session = new ClientSession(42, null);
+        User user = new User("alice", 123);
+        session.setCurrentUser(user);
+        when(mockRepo.getAllEvents(user, session)).thenThrow(new IllegalStateException("Storage is broken"));
+
+        // act
+        var response = dispatcher.dispatchAsync(new ShowEventsCommand(), session);
+
+        // assert
+        var failure = assertThrows(CompletionException.class, response::join);
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+        assertTrue(metrics.snapshot().contains(new Metric("command.show_events.count", 1)), "The failed command should be counted");
+        assertTrue(metrics.snapshot().contains(new Metric("command.show_events.errors", 1)), "The failed command should be an error");
+    }
+}
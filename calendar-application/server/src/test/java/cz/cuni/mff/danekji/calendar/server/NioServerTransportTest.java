@@ -0,0 +1,312 @@
+package cz.cuni.mff.danekji.calendar.server;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import cz.cuni.mff.danekji.calendar.core.commands.LoginCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.QuitCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.ShowEventsCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.ShowFutureEventsCommand;
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.EventCursor;
+import cz.cuni.mff.danekji.calendar.core.models.User;
+import cz.cuni.mff.danekji.calendar.core.network.CorrelatedMessage;
+import cz.cuni.mff.danekji.calendar.core.network.FrameCodec;
+import cz.cuni.mff.danekji.calendar.core.network.WireProtocol;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessEventChunkResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessEventListResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessLoginResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessQuit;
+import cz.cuni.mff.danekji.calendar.server.storage.EventRepository;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class NioServerTransportTest {
+
+    private static Thread startInBackground(NioServerTransport transport) {
+        Thread thread = new Thread(() -> {
+            try {
+                transport.run();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    @Test
+    public void run_servesFramedCommandsAndClosesQuitSession() throws Exception {
+        // arrange
+        EventRepository mockRepo = mock(EventRepository.class);
+        User user = new User("alice", 123);
+        when(mockRepo.authenticate(eq(user), any())).thenReturn(true);
+        NioServerTransport transport = new NioServerTransport(new Server(mockRepo), 0, 2);
+        Thread loop = startInBackground(transport);
+
+        try (Socket socket = new Socket("localhost", transport.getLocalPort())) {
+            var in = new DataInputStream(socket.getInputStream());
+            var out = new DataOutputStream(socket.getOutputStream());
+
+            // act
+            Object sessionId = FrameCodec.readFrame(in);
+            byte[] login = FrameCodec.encode(new LoginCommand(user), WireProtocol.BINARY);
+            out.write(login, 0, 3); // a frame split in the middle of its header
+            out.flush();
+            Thread.sleep(50);
+            out.write(login, 3, login.length - 3);
+            out.flush();
+            Object loginResponse = FrameCodec.readFrame(in);
+            FrameCodec.writeFrame(out, new QuitCommand(), WireProtocol.SERIALIZATION);
+            out.flush();
+            Object quitResponse = FrameCodec.readFrame(in);
+
+            // assert
+            assertInstanceOf(Integer.class, sessionId, "The session ID should be sent first");
+            assertInstanceOf(SuccessLoginResponse.class, loginResponse, "Split frame should be reassembled");
+            assertInstanceOf(SuccessQuit.class, quitResponse);
+            assertThrows(EOFException.class, () -> FrameCodec.readFrame(in), "Quit session should be closed");
+        } finally {
+            // cleanup
+            transport.close();
+            loop.join();
+        }
+    }
+
+    @Test
+    public void run_answersPipelinedQueriesOutOfOrder() throws Exception {
+        // arrange
+        EventRepository mockRepo = mock(EventRepository.class);
+        User user = new User("alice", 123);
+        when(mockRepo.authenticate(eq(user), any())).thenReturn(true);
+        CountDownLatch fastQueryAnswered = new CountDownLatch(1);
+        when(mockRepo.getAllEvents(eq(user), any())).thenAnswer(invocation -> {
+            fastQueryAnswered.await(5, TimeUnit.SECONDS); // released once the later query is answered
+            return List.of();
+        });
+        when(mockRepo.getEventsInRange(eq(user), any(), any(), any())).thenReturn(List.of());
+        NioServerTransport transport = new NioServerTransport(new Server(mockRepo), 0, 4);
+        Thread loop = startInBackground(transport);
+
+        try (Socket socket = new Socket("localhost", transport.getLocalPort())) {
+            var in = new DataInputStream(socket.getInputStream());
+            var out = new DataOutputStream(socket.getOutputStream());
+            FrameCodec.readFrame(in); // session ID
+
+            // act
+            FrameCodec.writeFrame(out, new CorrelatedMessage(1, new LoginCommand(user)), WireProtocol.BINARY);
+            FrameCodec.writeFrame(out, new CorrelatedMessage(2, new ShowEventsCommand()), WireProtocol.BINARY);
+            FrameCodec.writeFrame(out, new CorrelatedMessage(3, new ShowFutureEventsCommand(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 7))), WireProtocol.BINARY);
+            out.flush();
+            var first = (CorrelatedMessage) FrameCodec.readFrame(in);
+            var second = (CorrelatedMessage) FrameCodec.readFrame(in);
+            fastQueryAnswered.countDown();
+            var third = (CorrelatedMessage) FrameCodec.readFrame(in);
+
+            // assert
+            assertEquals(1, first.requestId(), "Login should be answered before the queries sent after it");
+            assertInstanceOf(SuccessLoginResponse.class, first.message());
+            assertEquals(3, second.requestId(), "Fast query should overtake the slow one");
+            assertEquals(2, third.requestId());
+            assertInstanceOf(SuccessEventListResponse.class, third.message());
+        } finally {
+            // cleanup
+            transport.close();
+            loop.join();
+        }
+    }
+
+    @Test
+    public void run_holdsManyIdleConnections() throws Exception {
+        // arrange
+        NioServerTransport transport = new NioServerTransport(new Server(mock(EventRepository.class)), 0, 2);
+        Thread loop = startInBackground(transport);
+        List<Socket> sockets = new ArrayList<>();
+
+        try {
+            // act
+            Set<Object> sessionIds = new HashSet<>();
+            for (int i = 0; i < 200; i++) {
+                Socket socket = new Socket("localhost", transport.getLocalPort());
+                sockets.add(socket);
+                sessionIds.add(FrameCodec.readFrame(new DataInputStream(socket.getInputStream())));
+            }
+
+            // assert
+            assertEquals(200, sessionIds.size(), "Every connection should get its own session");
+        } finally {
+            // cleanup
+            for (var socket : sockets) {
+                socket.close();
+            }
+            transport.close();
+            loop.join();
+        }
+    }
+
+    @Test
+    public void run_streamsQueryInChunks() throws Exception {
+        // arrange
+        EventRepository mockRepo = mock(EventRepository.class);
+        User user = new User("alice", 123);
+        when(mockRepo.authenticate(eq(user), any())).thenReturn(true);
+        List<Event> events = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            events.add(Event.withId(id, new Event("Event " + id, LocalDate.of(2024, 1, 1), LocalTime.of(9, 0), "", "")));
+        }
+        when(mockRepo.getEventsPage(eq(user), any(), any(), any(), anyInt(), any())).thenAnswer(invocation -> {
+            EventCursor after = invocation.getArgument(3);
+            int limit = invocation.getArgument(4);
+            return events.stream().filter(event -> after == null || after.precedes(event)).limit(limit).toList();
+        });
+        NioServerTransport transport = new NioServerTransport(new Server(mockRepo), 0, 2);
+        Thread loop = startInBackground(transport);
+
+        try (Socket socket = new Socket("localhost", transport.getLocalPort())) {
+            var in = new DataInputStream(socket.getInputStream());
+            var out = new DataOutputStream(socket.getOutputStream());
+            FrameCodec.readFrame(in); // session ID
+
+            // act
+            FrameCodec.writeFrame(out, new CorrelatedMessage(1, new LoginCommand(user)), WireProtocol.BINARY);
+            FrameCodec.writeFrame(out, new CorrelatedMessage(2, new ShowEventsCommand(2, null, true)), WireProtocol.BINARY);
+            out.flush();
+            FrameCodec.readFrame(in); // login response
+            List<SuccessEventChunkResponse> chunks = new ArrayList<>();
+            SuccessEventChunkResponse chunk;
+            do {
+                var message = (CorrelatedMessage) FrameCodec.readFrame(in);
+                assertEquals(2, message.requestId(), "Every chunk should be tagged with the request ID of the query");
+                chunk = (SuccessEventChunkResponse) message.message();
+                chunks.add(chunk);
+            } while (chunk.isPartial());
+
+            // assert
+            assertEquals(List.of(2, 2, 1), chunks.stream().map(c -> c.events().size()).toList(), "Pages should be streamed as chunks");
+            assertEquals(List.of(1L, 2L, 3L, 4L, 5L), chunks.stream().flatMap(c -> c.events().stream()).map(Event::getId).toList(), "Chunks should contain all events in order");
+            assertTrue(chunks.getLast().last());
+        } finally {
+            // cleanup
+            transport.close();
+            loop.join();
+        }
+    }
+
+    @Test
+    public void run_pausesStreamedQueryUntilClientDrainsConnection() throws Exception {
+        // arrange
+        EventRepository mockRepo = mock(EventRepository.class);
+        User user = new User("alice", 123);
+        when(mockRepo.authenticate(eq(user), any())).thenReturn(true);
+        String description = "x".repeat(256 * 1024);
+        List<Event> events = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            events.add(Event.withId(id, new Event("Event " + id, LocalDate.of(2024, 1, 1), LocalTime.of(9, 0), "", description)));
+        }
+        AtomicInteger pagesRead = new AtomicInteger();
+        when(mockRepo.getEventsPage(eq(user), any(), any(), any(), anyInt(), any())).thenAnswer(invocation -> {
+            pagesRead.incrementAndGet();
+            EventCursor after = invocation.getArgument(3);
+            int limit = invocation.getArgument(4);
+            return events.stream().filter(event -> after == null || after.precedes(event)).limit(limit).toList();
+        });
+        NioServerTransport transport = new NioServerTransport(new Server(mockRepo), 0, 2);
+        Thread loop = startInBackground(transport);
+
+        try (Socket socket = new Socket("localhost", transport.getLocalPort())) {
+            var in = new DataInputStream(socket.getInputStream());
+            var out = new DataOutputStream(socket.getOutputStream());
+            FrameCodec.readFrame(in); // session ID
+
+            // act
+            FrameCodec.writeFrame(out, new CorrelatedMessage(1, new LoginCommand(user)), WireProtocol.BINARY);
+            FrameCodec.writeFrame(out, new CorrelatedMessage(2, new ShowEventsCommand(1, null, true)), WireProtocol.BINARY);
+            out.flush();
+            FrameCodec.readFrame(in); // login response
+            Thread.sleep(500); // the client does not read the chunks meanwhile
+            int pagesReadWhileNotDraining = pagesRead.get();
+            int streamedEvents = 0;
+            SuccessEventChunkResponse chunk;
+            do {
+                chunk = (SuccessEventChunkResponse) ((CorrelatedMessage) FrameCodec.readFrame(in)).message();
+                streamedEvents += chunk.events().size();
+            } while (chunk.isPartial());
+
+            // assert
+            assertTrue(pagesReadWhileNotDraining < events.size(), "The query should wait for the client to drain the connection");
+            assertEquals(events.size(), streamedEvents, "All events should be streamed once the client reads them");
+        } finally {
+            // cleanup
+            transport.close();
+            loop.join();
+        }
+    }
+
+    @Test
+    public void run_closesConnectionWhichDoesNotDrainStreamedQueryInTime() throws Exception {
+        // arrange
+        EventRepository mockRepo = mock(EventRepository.class);
+        User user = new User("alice", 123);
+        when(mockRepo.authenticate(eq(user), any())).thenReturn(true);
+        String description = "x".repeat(256 * 1024);
+        List<Event> events = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            events.add(Event.withId(id, new Event("Event " + id, LocalDate.of(2024, 1, 1), LocalTime.of(9, 0), "", description)));
+        }
+        AtomicInteger pagesRead = new AtomicInteger();
+        when(mockRepo.getEventsPage(eq(user), any(), any(), any(), anyInt(), any())).thenAnswer(invocation -> {
+            pagesRead.incrementAndGet();
+            EventCursor after = invocation.getArgument(3);
+            int limit = invocation.getArgument(4);
+            return events.stream().filter(event -> after == null || after.precedes(event)).limit(limit).toList();
+        });
+        NioServerTransport transport = new NioServerTransport(new Server(mockRepo), 0, 2, 200);
+        Thread loop = startInBackground(transport);
+
+        try (Socket socket = new Socket("localhost", transport.getLocalPort())) {
+            socket.setSoTimeout(10_000);
+            var in = new DataInputStream(socket.getInputStream());
+            var out = new DataOutputStream(socket.getOutputStream());
+            FrameCodec.readFrame(in); // session ID
+
+            // act
+            FrameCodec.writeFrame(out, new CorrelatedMessage(1, new LoginCommand(user)), WireProtocol.BINARY);
+            FrameCodec.writeFrame(out, new CorrelatedMessage(2, new ShowEventsCommand(1, null, true)), WireProtocol.BINARY);
+            out.flush();
+            FrameCodec.readFrame(in); // login response
+            Thread.sleep(1000); // the client does not read the chunks for longer than the drain timeout
+            boolean closed = false;
+            try {
+                while (true) {
+                    FrameCodec.readFrame(in);
+                }
+            } catch (SocketTimeoutException e) {
+                fail("The connection should be closed once the drain timeout expires");
+            } catch (IOException e) {
+                closed = true;
+            }
+
+            // assert
+            assertTrue(closed, "The connection should be closed");
+            assertTrue(pagesRead.get() < events.size(), "The query should stop once the drain timeout expires");
+        } finally {
+            // cleanup
+            transport.close();
+            loop.join();
+        }
+    }
+}
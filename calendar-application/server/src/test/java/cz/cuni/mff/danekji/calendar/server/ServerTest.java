@@ -0,0 +1,205 @@
+package cz.cuni.mff.danekji.calendar.server;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import cz.cuni.mff.danekji.calendar.core.commands.AddEventCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.BatchCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.BatchOperation;
+import cz.cuni.mff.danekji.calendar.core.commands.CreateAccountCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.DeleteUserCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.LoginCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.QuitCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.ShowEventsCommand;
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.User;
+import cz.cuni.mff.danekji.calendar.core.network.BinaryCodec;
+import cz.cuni.mff.danekji.calendar.core.network.CorrelatedMessage;
+import cz.cuni.mff.danekji.calendar.core.network.ProtocolNegotiation;
+import cz.cuni.mff.danekji.calendar.core.network.WireProtocol;
+import cz.cuni.mff.danekji.calendar.core.responses.error.ErrorResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessEventListResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessLoginResponse;
+import cz.cuni.mff.danekji.calendar.core.responses.success.SuccessQuit;
+import cz.cuni.mff.danekji.calendar.server.storage.EventRepository;
+import cz.cuni.mff.danekji.calendar.server.storage.XMLEventRepository;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import java.io.BufferedOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.ref.WeakReference;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.LocalDate;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ServerTest {
+    private static final int ROUND_TRIPS = 100_000;
+    private static final int WARM_UP_ROUND_TRIPS = 10_000;
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Test
+    public void serve_longSerializationSessionKeepsHeapFlat() throws Exception {
+        // arrange
+        EventRepository mockRepo = mock(EventRepository.class, withSettings().stubOnly()); // keeps no invocation history
+        User user = new User("alice", 123);
+        when(mockRepo.authenticate(eq(user), any())).thenReturn(true);
+        AtomicReference<WeakReference<List<Event>>> firstSentEvents = new AtomicReference<>();
+        when(mockRepo.getAllEvents(eq(user), any())).thenAnswer(invocation -> {
+            List<Event> events = List.of(
+                    Event.withId(1L, new Event("Standup", LocalDate.of(2024, 3, 4), LocalTime.of(9, 0), "Office", "Daily")),
+                    Event.withId(2L, new Event("Lunch", LocalDate.of(2024, 3, 4), LocalTime.of(12, 0), "Canteen", "")),
+                    Event.withId(3L, new Event("Gym", LocalDate.of(2024, 3, 5), LocalTime.of(18, 0), "Gym", "Legs")));
+            firstSentEvents.compareAndSet(null, new WeakReference<>(events));
+            return events;
+        });
+        Server server = new Server(mockRepo);
+        ServerSocket serverSocket = new ServerSocket(0);
+        Thread acceptor = new Thread(() -> {
+            try {
+                server.serve(serverSocket);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        acceptor.start();
+
+        try (Socket socket = new Socket("localhost", serverSocket.getLocalPort());
+             var out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            out.flush();
+            var in = new ObjectInputStream(socket.getInputStream());
+            in.readObject(); // session ID
+            WireProtocol.SERIALIZATION.write(out, new LoginCommand(user)); // a client which does not negotiate
+            out.flush();
+            assertInstanceOf(SuccessLoginResponse.class, in.readObject());
+
+            // act
+            WeakReference<Object> firstReceivedResponse = null;
+            long heapAfterWarmUp = 0;
+            for (int i = 0; i < ROUND_TRIPS; i++) {
+                WireProtocol.SERIALIZATION.write(out, new ShowEventsCommand());
+                out.flush();
+                Object response = in.readObject();
+                if (i == 0) {
+                    assertInstanceOf(SuccessEventListResponse.class, response);
+                    firstReceivedResponse = new WeakReference<>(response);
+                } else if (i == WARM_UP_ROUND_TRIPS) {
+                    heapAfterWarmUp = usedHeapAfterGc();
+                }
+            }
+            long heapGrowth = usedHeapAfterGc() - heapAfterWarmUp;
+
+            // assert
+            assertNull(firstSentEvents.get().get(), "Sent events should not be kept by the server stream");
+            assertNull(firstReceivedResponse.get(), "Received response should not be kept by the client stream");
+            assertTrue(heapGrowth < 16 * 1024 * 1024, "Heap should stay flat, but grew by " + heapGrowth + " B");
+
+            WireProtocol.SERIALIZATION.write(out, new QuitCommand());
+            out.flush();
+            assertInstanceOf(SuccessQuit.class, in.readObject());
+        } finally {
+            // cleanup
+            serverSocket.close();
+            acceptor.join();
+        }
+    }
+
+    /**
+     * Runs a client which pipelines commands with large responses and reads them only later,
+     *  so the session has to wait until its client drains the connection.
+     */
+    private static void runSlowReadingClient(int port, User user, int events, int queries) throws Exception {
+        try (Socket socket = new Socket()) {
+            socket.setReceiveBufferSize(4096); // must be set before connecting to limit the window
+            socket.connect(new java.net.InetSocketAddress("localhost", port));
+            var out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.flush();
+            var in = new ObjectInputStream(socket.getInputStream());
+            in.readObject(); // session ID
+            out.writeObject(new ProtocolNegotiation(BinaryCodec.VERSION));
+            out.flush();
+            var protocol = WireProtocol.ofCodecVersion(((ProtocolNegotiation) in.readObject()).codecVersion());
+
+            List<BatchOperation> additions = new ArrayList<>();
+            for (int i = 0; i < events; i++) {
+                additions.add(new AddEventCommand(new Event("Event " + i, LocalDate.of(2025, 1, 1).plusDays(i), LocalTime.NOON, "Room", "Description " + i)));
+            }
+            long requestId = 1;
+            protocol.write(out, new CorrelatedMessage(requestId++, new CreateAccountCommand(user)));
+            protocol.write(out, new CorrelatedMessage(requestId++, new LoginCommand(user)));
+            protocol.write(out, new CorrelatedMessage(requestId++, new BatchCommand(additions)));
+            for (int i = 0; i < queries; i++) {
+                protocol.write(out, new CorrelatedMessage(requestId++, new ShowEventsCommand()));
+            }
+            protocol.write(out, new CorrelatedMessage(requestId++, new DeleteUserCommand(user)));
+            out.flush();
+            Thread.sleep(500); // the session blocks on the full connection meanwhile
+
+            for (long i = 1; i < requestId; i++) {
+                var response = (CorrelatedMessage) protocol.read(in);
+                assertFalse(response.message() instanceof ErrorResponse, "Unexpected error: " + response.message());
+            }
+        }
+    }
+
+    @Test
+    public void serve_concurrentSessionsDoNotPinCarrierThreads() throws Exception {
+        // arrange
+        Server server = new Server(new XMLEventRepository());
+        ServerSocket serverSocket = new ServerSocket(0);
+        Thread acceptor = new Thread(() -> {
+            try {
+                server.serve(serverSocket);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        acceptor.start();
+        List<RecordedEvent> pinnedEvents = new CopyOnWriteArrayList<>();
+
+        try (var recording = new RecordingStream()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent("jdk.VirtualThreadPinned", pinnedEvents::add);
+            recording.startAsync();
+
+            // act
+            try (var clients = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<?>> finished = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    var user = new User("pinning-" + i, 123);
+                    finished.add(clients.submit(() -> {
+                        runSlowReadingClient(serverSocket.getLocalPort(), user, 500, 200);
+                        return null;
+                    }));
+                }
+                for (var client : finished) {
+                    client.get();
+                }
+            }
+            recording.stop(); // delivers the remaining events
+
+            // assert
+            assertTrue(pinnedEvents.isEmpty(), () -> "A virtual thread blocked while pinned to its carrier:\n" + pinnedEvents.getFirst());
+        } finally {
+            // cleanup
+            serverSocket.close();
+            acceptor.join();
+        }
+    }
+}
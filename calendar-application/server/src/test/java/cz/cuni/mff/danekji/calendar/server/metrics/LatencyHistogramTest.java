@@ -0,0 +1,60 @@
+package cz.cuni.mff.danekji.calendar.server.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void snapshot_reportsPercentilesWithinBucketError() {
+        // arrange
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        // act
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+        }
+        var snapshot = histogram.snapshot();
+
+        // assert
+        assertEquals(1000, snapshot.count());
+        assertEquals(500, snapshot.meanMicros());
+        assertEquals(1000, snapshot.maxMicros());
+        assertTrue(snapshot.p50Micros() >= 500 && snapshot.p50Micros() <= 500 * 1.125, "Median was " + snapshot.p50Micros());
+        assertTrue(snapshot.p99Micros() >= 990 && snapshot.p99Micros() <= 1000, "The percentile should not exceed the maximum");
+    }
+
+    @Test
+    public void record_countsEveryLatencyOfConcurrentRecorders() throws Exception {
+        // arrange
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        // act
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int thread = 0; thread < 8; thread++) {
+                executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        histogram.record(i * 1000L);
+                    }
+                });
+            }
+        }
+
+        // assert
+        assertEquals(80_000, histogram.count());
+        assertEquals(80_000, histogram.snapshot().count(), "No recorded latency should be lost");
+    }
+
+    @Test
+    public void bucketOf_coversEveryLatencyByItsBucketBounds() {
+        // act & assert
+        for (long micros = 0; micros < 100_000; micros++) {
+            int bucket = LatencyHistogram.bucketOf(micros);
+            assertTrue(micros <= LatencyHistogram.upperBoundOf(bucket), "Latency above its bucket: " + micros);
+            assertTrue(bucket == 0 || micros > LatencyHistogram.upperBoundOf(bucket - 1), "Latency below its bucket: " + micros);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import cz.cuni.mff.danekji.calendar.core.exceptions.server.XmlDatabaseException;
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.User;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+public class BinaryCalendarFormatTest {
+
+    @TempDir
+    Path folder;
+
+    private final BinaryCalendarFormat format = new BinaryCalendarFormat();
+
+    private Path writeCalendar(UserCalendar calendar) throws Exception {
+        Path file = folder.resolve(calendar.getUser().username() + format.fileExtension());
+        try (var output = Files.newOutputStream(file)) {
+            format.write(calendar, output);
+        }
+        return file;
+    }
+
+    @Test
+    public void read_readsWhatWasWritten() throws Exception {
+        // arrange
+        UserCalendar calendar = UserCalendar.empty(new User("alice", 123));
+        calendar.addEvent(new Event("Party", LocalDate.of(2023, 12, 31), LocalTime.of(20, 0), "Home", "New Year"));
+        calendar.addEvent(new Event("Lunch", LocalDate.of(2024, 1, 2), LocalTime.of(12, 30, 15), "", null));
+        Path file = writeCalendar(calendar);
+
+        // act
+        UserCalendar read = format.read(file);
+
+        // assert
+        assertEquals(calendar.getUser(), read.getUser(), "User should be read");
+        assertEquals(calendar.getNextEventId(), read.getNextEventId(), "Next event ID should be read");
+        assertEquals(2, read.getEvents().size(), "All events should be read");
+        Event party = read.getEvents().getFirst();
+        assertEquals(1L, party.getId());
+        assertEquals("Party", party.getTitle());
+        assertEquals(LocalDate.of(2023, 12, 31), party.getDate());
+        assertEquals(LocalTime.of(20, 0), party.getTime());
+        assertEquals("Home", party.getLocation());
+        assertEquals("New Year", party.getDescription());
+        Event lunch = read.getEvents().getLast();
+        assertEquals(LocalTime.of(12, 30, 15), lunch.getTime(), "Times with seconds should not be rounded");
+        assertEquals("", lunch.getLocation(), "Empty details should stay empty");
+        assertNull(lunch.getDescription(), "Missing details should stay missing");
+        assertEquals(calendar.getUser(), format.readUser(file), "User should be readable on its own");
+    }
+
+    @Test
+    public void readEvents_returnsOnlyEventsWithinRange() throws Exception {
+        // arrange
+        UserCalendar calendar = UserCalendar.empty(new User("bob", 456));
+        for (int day = 1; day <= 10; day++) {
+            calendar.addEvent(new Event("Day " + day, LocalDate.of(2024, 3, day), LocalTime.of(9, 0), "", ""));
+        }
+        Path file = writeCalendar(calendar);
+
+        // act
+        var events = format.readEvents(file, LocalDate.of(2024, 3, 4), LocalDate.of(2024, 3, 6));
+
+        // assert
+        assertEquals(3, events.size(), "Only the events within the range should be read");
+        assertEquals("Day 4", events.getFirst().getTitle());
+        assertEquals("Day 6", events.getLast().getTitle());
+    }
+
+    @Test
+    public void read_mmapModeRemapsReplacedFile() throws Exception {
+        // arrange
+        var mappingFormat = new BinaryCalendarFormat(ReadMode.MMAP, 0);
+        UserCalendar calendar = UserCalendar.empty(new User("dave", 321));
+        calendar.addEvent(new Event("Lunch", LocalDate.of(2024, 1, 2), LocalTime.of(12, 0), "Canteen", ""));
+        Path file = writeCalendar(calendar);
+        UserCalendar mapped = mappingFormat.read(file);
+
+        // act
+        calendar.addEvent(new Event("Dinner", LocalDate.of(2024, 1, 2), LocalTime.of(19, 0), "Home", ""));
+        try (var fileStore = new CalendarFileStore(Durability.NONE, 1)) {
+            fileStore.replace(file, output -> format.write(calendar, output));
+        }
+        UserCalendar remapped = mappingFormat.read(file);
+
+        // assert
+        assertEquals(1, mapped.getEvents().size(), "Mapped file should be decoded");
+        assertEquals(2, remapped.getEvents().size(), "Replaced file should be remapped");
+        assertEquals(1, mappingFormat.getMappedFileCount(), "The file should be mapped once");
+        assertEquals(2, mappingFormat.readEvents(file, LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 2)).size(),
+                "Range reads should be decoded from the mapping");
+    }
+
+    @Test
+    public void readUser_mmapModeReadsOnlyHeaderWithoutMapping() throws Exception {
+        // arrange
+        var mappingFormat = new BinaryCalendarFormat(ReadMode.MMAP, 0);
+        UserCalendar calendar = UserCalendar.empty(new User("frank", 987));
+        calendar.addEvent(new Event("Lunch", LocalDate.of(2024, 1, 2), LocalTime.of(12, 0), "Canteen", ""));
+        Path file = writeCalendar(calendar);
+
+        // act
+        User user = mappingFormat.readUser(file);
+
+        // assert
+        assertEquals(calendar.getUser(), user);
+        assertEquals(0, mappingFormat.getMappedFileCount(), "Reading the credentials should not map the file");
+    }
+
+    @Test
+    public void read_mmapModeReadsSmallFiles() throws Exception {
+        // arrange
+        var mappingFormat = new BinaryCalendarFormat(ReadMode.MMAP, 1024 * 1024);
+        UserCalendar calendar = UserCalendar.empty(new User("erin", 654));
+        calendar.addEvent(new Event("Lunch", LocalDate.of(2024, 1, 2), LocalTime.of(12, 0), "Canteen", ""));
+        Path file = writeCalendar(calendar);
+
+        // act
+        UserCalendar read = mappingFormat.read(file);
+
+        // assert
+        assertEquals(1, read.getEvents().size(), "Small file should be read");
+        assertEquals(calendar.getUser(), mappingFormat.readUser(file), "User of a small file should be read");
+        assertEquals(0, mappingFormat.getMappedFileCount(), "Small file should not be mapped");
+    }
+
+    @Test
+    public void read_throwsForNonBinaryFile() throws Exception {
+        // arrange
+        Path file = folder.resolve("carol" + format.fileExtension());
+        Files.writeString(file, "<calendar/>");
+
+        // act & assert
+        assertThrows(XmlDatabaseException.class, () -> format.read(file), "Should reject a file without the binary header");
+    }
+}
@@ -0,0 +1,58 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import cz.cuni.mff.danekji.calendar.core.models.User;
+
+public class CalendarCacheTest {
+
+    @Test
+    public void get_countsHitsAndMisses() {
+        // arrange
+        CalendarCache cache = new CalendarCache(2);
+        UserCalendar calendar = UserCalendar.empty(new User("alice", 123));
+
+        // act
+        assertNull(cache.get("alice"), "Empty cache should miss");
+        cache.put("alice", calendar);
+        var cached = cache.get("alice");
+
+        // assert
+        assertSame(calendar, cached, "Cached calendar should be returned");
+        CacheStatistics statistics = cache.getStatistics();
+        assertEquals(1, statistics.hits());
+        assertEquals(1, statistics.misses());
+        assertEquals(0.5, statistics.hitRatio());
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsedCalendar() {
+        // arrange
+        CalendarCache cache = new CalendarCache(2);
+        cache.put("alice", UserCalendar.empty(new User("alice", 1)));
+        cache.put("bob", UserCalendar.empty(new User("bob", 2)));
+
+        // act
+        cache.get("alice"); // bob becomes the least recently used
+        cache.put("charlie", UserCalendar.empty(new User("charlie", 3)));
+
+        // assert
+        assertNotNull(cache.get("alice"), "Recently used calendar should stay cached");
+        assertNull(cache.get("bob"), "Least recently used calendar should be evicted");
+        assertEquals(1, cache.getStatistics().evictions());
+        assertEquals(2, cache.getStatistics().size());
+    }
+
+    @Test
+    public void put_doesNothingWhenCacheIsDisabled() {
+        // arrange
+        CalendarCache cache = new CalendarCache(0);
+
+        // act
+        cache.put("alice", UserCalendar.empty(new User("alice", 1)));
+
+        // assert
+        assertNull(cache.get("alice"), "Disabled cache should never store calendars");
+        assertEquals(0, cache.getStatistics().size());
+    }
+}
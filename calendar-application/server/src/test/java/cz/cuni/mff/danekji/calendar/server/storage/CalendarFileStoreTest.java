@@ -0,0 +1,76 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class CalendarFileStoreTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    public void replace_replacesContentWithoutLeavingTemporaryFile() throws Exception {
+        // arrange
+        Path file = folder.resolve("alice.xml");
+        Files.writeString(file, "old");
+
+        try (CalendarFileStore store = new CalendarFileStore(Durability.PER_WRITE, 1)) {
+            // act
+            CalendarFileStore.await(store.replace(file, output -> output.write("new".getBytes(StandardCharsets.UTF_8))));
+
+            // assert
+            assertEquals("new", Files.readString(file), "File content should be replaced");
+            assertFalse(Files.exists(folder.resolve("alice.xml" + CalendarFileStore.TEMPORARY_FILE_EXTENSION)), "Temporary file should be renamed");
+        }
+    }
+
+    @Test
+    public void replace_keepsOldContentWhenWriteFails() throws Exception {
+        // arrange
+        Path file = folder.resolve("bob.xml");
+        Files.writeString(file, "old");
+
+        try (CalendarFileStore store = new CalendarFileStore(Durability.NONE, 1)) {
+            // act
+            assertThrows(IOException.class, () -> store.replace(file, output -> {
+                output.write("half".getBytes(StandardCharsets.UTF_8));
+                throw new IOException("simulated failure");
+            }));
+
+            // assert
+            assertEquals("old", Files.readString(file), "Failed write should not touch the file");
+            assertFalse(Files.exists(folder.resolve("bob.xml" + CalendarFileStore.TEMPORARY_FILE_EXTENSION)), "Temporary file should be deleted");
+        }
+    }
+
+    @Test
+    public void append_groupedDurabilityCoalescesSyncsOfSameFile() throws Exception {
+        // arrange
+        Path file = folder.resolve("carol.journal");
+        Files.createFile(file);
+
+        try (CalendarFileStore store = new CalendarFileStore(Durability.GROUPED, 200)) {
+            // act
+            List<CompletableFuture<Void>> written = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                int value = i;
+                written.add(store.append(file, output -> output.write(value)));
+            }
+            for (var future : written) {
+                CalendarFileStore.await(future);
+            }
+
+            // assert
+            assertEquals(10, Files.size(file), "All appends should be written");
+            assertTrue(store.getSyncCount() < 10, "Appends within the window should share syncs");
+        }
+    }
+}
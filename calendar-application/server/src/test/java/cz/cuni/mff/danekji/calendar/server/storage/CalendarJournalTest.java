@@ -0,0 +1,112 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.User;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+public class CalendarJournalTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    public void read_ignoresTornRecordAtTheEnd() throws Exception {
+        // arrange
+        CalendarJournal journal = new CalendarJournal(new CalendarDirectory(folder, DirectoryLayout.FLAT), new CalendarFileStore(Durability.NONE, 1));
+        Event event = Event.withId(1L, new Event("Party", LocalDate.of(2023, 12, 31), LocalTime.of(20, 0), "Home", "New Year"));
+        journal.append("alice", new JournalRecord(JournalRecord.Type.ADD, event));
+        journal.append("alice", JournalRecord.delete(1));
+        long completeSize = Files.size(journal.getJournalFilePath("alice"));
+        journal.append("alice", new JournalRecord(JournalRecord.Type.ADD, Event.withId(2L, event)));
+
+        // act
+        try (var channel = Files.newByteChannel(journal.getJournalFilePath("alice"), StandardOpenOption.WRITE)) {
+            channel.truncate(completeSize + 7); // simulate a crash in the middle of the last append
+        }
+        var records = journal.read("alice");
+
+        // assert
+        assertEquals(2, records.size(), "Only complete records should be read");
+        assertEquals(event.getTitle(), records.getFirst().event().getTitle(), "Record should be read back unchanged");
+        assertEquals(event.getTime(), records.getFirst().event().getTime(), "Record should be read back unchanged");
+        assertEquals(JournalRecord.Type.DELETE, records.getLast().type(), "Record types should be preserved");
+    }
+
+    @Test
+    public void append_failedAppendInTheMiddleDoesNotCorruptLaterRecords() throws Exception {
+        // arrange
+        CalendarFileStore fileStore = new CalendarFileStore(Durability.NONE, 1);
+        CalendarJournal journal = new CalendarJournal(new CalendarDirectory(folder, DirectoryLayout.FLAT), fileStore);
+        Event event = Event.withId(1L, new Event("Party", LocalDate.of(2023, 12, 31), LocalTime.of(20, 0), "Home", "New Year"));
+        journal.append("carol", new JournalRecord(JournalRecord.Type.ADD, event));
+        long sizeBeforeFailure = Files.size(journal.getJournalFilePath("carol"));
+
+        // act
+        assertThrows(IOException.class, () -> fileStore.append(journal.getJournalFilePath("carol"), output -> {
+            output.write(new byte[] {0, 0, 0, 42, 1, 2, 3}); // a length prefix and a part of the record
+            output.flush();
+            throw new IOException("simulated failure");
+        }));
+        long sizeAfterFailure = Files.size(journal.getJournalFilePath("carol"));
+        journal.append("carol", JournalRecord.delete(1));
+        var records = journal.read("carol");
+
+        // assert
+        assertEquals(sizeBeforeFailure, sizeAfterFailure, "The partial record should be truncated");
+        assertEquals(2, records.size(), "The records around the failed append should be read");
+        assertEquals(JournalRecord.Type.ADD, records.getFirst().type());
+        assertEquals(JournalRecord.Type.DELETE, records.getLast().type(), "The record appended after the failure should be read");
+    }
+
+    @Test
+    public void isUnchanged_detectsAppendedRecords() throws Exception {
+        // arrange
+        CalendarJournal journal = new CalendarJournal(new CalendarDirectory(folder, DirectoryLayout.FLAT), new CalendarFileStore(Durability.NONE, 1));
+        journal.append("dave", JournalRecord.delete(1));
+        var attributes = journal.attributes("dave");
+
+        // act
+        boolean unchangedBeforeAppend = journal.isUnchanged("dave", attributes);
+        journal.append("dave", JournalRecord.delete(2));
+        boolean unchangedAfterAppend = journal.isUnchanged("dave", attributes);
+        journal.delete("dave");
+        boolean unchangedAfterDelete = journal.isUnchanged("dave", attributes);
+
+        // assert
+        assertTrue(unchangedBeforeAppend);
+        assertFalse(unchangedAfterAppend, "An appended record should be detected, so it is not deleted unfolded");
+        assertFalse(unchangedAfterDelete);
+    }
+
+    @Test
+    public void replay_isIdempotent() throws Exception {
+        // arrange
+        CalendarJournal journal = new CalendarJournal(new CalendarDirectory(folder, DirectoryLayout.FLAT), new CalendarFileStore(Durability.NONE, 1));
+        UserCalendar calendar = UserCalendar.empty(new User("bob", 456));
+        Event event = new Event("Lunch", LocalDate.of(2024, 1, 2), LocalTime.of(12, 0), "Canteen", "");
+        journal.append("bob", new JournalRecord(JournalRecord.Type.ADD, Event.withId(1L, event)));
+        journal.append("bob", new JournalRecord(JournalRecord.Type.ADD, Event.withId(2L, event)));
+        journal.append("bob", JournalRecord.delete(1));
+
+        // act
+        journal.replay("bob", calendar);
+        var replayedEvents = calendar.getEvents();
+        long replayedNextEventId = calendar.getNextEventId();
+        journal.replay("bob", calendar);
+
+        // assert
+        assertEquals(1, replayedEvents.size(), "Deleted event should not be replayed");
+        assertEquals(3, replayedNextEventId, "Next event ID should move past the replayed events");
+        assertEquals(replayedEvents.stream().map(Event::getId).toList(), calendar.getEvents().stream().map(Event::getId).toList(),
+                "Replaying again should not change the calendar");
+        assertEquals(replayedNextEventId, calendar.getNextEventId(), "Replaying again should not change the calendar");
+    }
+}
@@ -0,0 +1,107 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ChangeLogTest {
+
+    private static JournalRecord record(JournalRecord.Type type, long eventId) {
+        return new JournalRecord(type, Event.withId(eventId, new Event("Event", LocalDate.of(2024, 1, 1), LocalTime.of(9, 0), "", "")));
+    }
+
+    @Test
+    public void changesSince_returnsLastChangeOfEveryEventSinceVersion() {
+        // arrange
+        ChangeLog log = new ChangeLog();
+        long start = log.record("alice", List.of(record(JournalRecord.Type.ADD, 1)));
+        long known = log.record("alice", List.of(record(JournalRecord.Type.ADD, 2)));
+        log.record("alice", List.of(record(JournalRecord.Type.UPDATE, 1), record(JournalRecord.Type.ADD, 3)));
+        log.record("alice", List.of(JournalRecord.delete(2), JournalRecord.delete(3)));
+
+        // act
+        var all = log.changesSince("alice", start);
+        var recent = log.changesSince("alice", known);
+        var current = log.changesSince("alice", log.currentVersion("alice"));
+
+        // assert
+        assertEquals(known + 4, log.currentVersion("alice"), "Every modification should get its own version");
+        assertEquals(List.of(1L), all.changedEventIds());
+        assertEquals(List.of(2L, 3L), all.deletedEventIds().stream().sorted().toList());
+        assertEquals(List.of(1L), recent.changedEventIds(), "Only the events changed since the version should be returned");
+        assertEquals(List.of(2L, 3L), recent.deletedEventIds().stream().sorted().toList());
+        assertTrue(current.changedEventIds().isEmpty() && current.deletedEventIds().isEmpty(), "Nothing changed since the current version");
+        assertEquals(log.currentVersion("alice"), recent.version());
+    }
+
+    @Test
+    public void record_startsRecreatedLogAboveVersionsOfForgottenLog() {
+        // arrange
+        ChangeLog log = new ChangeLog();
+        List<JournalRecord> records = new ArrayList<>();
+        for (long eventId = 0; eventId < 5000; eventId++) {
+            records.add(record(JournalRecord.Type.ADD, eventId));
+        }
+        long stale = log.record("erin", records);
+        log.forget("erin");
+
+        // act
+        long start = log.record("erin", List.of(record(JournalRecord.Type.ADD, 0)));
+        var changes = log.changesSince("erin", stale);
+
+        // assert
+        assertTrue(start > stale, "The re-created log should start above the versions of the forgotten one");
+        assertNull(changes, "A version of the forgotten log should not be answered by the re-created one");
+    }
+
+    @Test
+    public void changesSince_returnsNullIfChangesAreNotKnown() {
+        // arrange
+        ChangeLog log = new ChangeLog(2, ChangeLog.DEFAULT_MAX_USERS);
+        long start = log.record("bob", List.of(record(JournalRecord.Type.ADD, 0)));
+        long afterFirst = log.record("bob", List.of(record(JournalRecord.Type.ADD, 1)));
+        log.record("bob", List.of(record(JournalRecord.Type.ADD, 2), record(JournalRecord.Type.ADD, 3)));
+
+        // act
+        var evicted = log.changesSince("bob", start);
+        var retained = log.changesSince("bob", afterFirst);
+        var unknown = log.changesSince("bob", null);
+        var fromPreviousRun = log.changesSince("bob", start - 1);
+        var fromFuture = log.changesSince("bob", log.currentVersion("bob") + 1);
+        log.forget("bob");
+        var forgotten = log.changesSince("bob", afterFirst);
+
+        // assert
+        assertNull(evicted, "The change of the second event was evicted, so the changes since the start are not known");
+        assertEquals(List.of(2L, 3L), retained.changedEventIds());
+        assertNull(unknown);
+        assertNull(fromPreviousRun);
+        assertNull(fromFuture);
+        assertNull(forgotten, "A forgotten log should not answer the versions of the previous one");
+    }
+
+    @Test
+    public void currentVersion_readsOfUnknownUsersDoNotCreateLogs() {
+        // arrange
+        ChangeLog log = new ChangeLog(ChangeLog.DEFAULT_CAPACITY, 1);
+        long carolVersion = log.record("carol", List.of(record(JournalRecord.Type.ADD, 1)));
+
+        // act
+        long unknownVersion = log.currentVersion("dave");
+        var unknownChanges = log.changesSince("dave", unknownVersion);
+        var carolChanges = log.changesSince("carol", carolVersion);
+        log.record("erin", List.of(record(JournalRecord.Type.ADD, 1)));
+        var evictedChanges = log.changesSince("carol", carolVersion);
+
+        // assert
+        assertEquals(ChangeLog.SNAPSHOT_VERSION, unknownVersion, "A user without a log should get the snapshot version");
+        assertNull(unknownChanges, "The changes since the snapshot version should not be known");
+        assertNotNull(carolChanges, "Reading an unknown user should not evict the log of another one");
+        assertNull(evictedChanges, "The log of the least recently used user should be evicted");
+        assertEquals(ChangeLog.SNAPSHOT_VERSION, log.currentVersion("carol"));
+    }
+}
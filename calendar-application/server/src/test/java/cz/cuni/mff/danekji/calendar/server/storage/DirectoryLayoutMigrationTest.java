@@ -0,0 +1,123 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
+import cz.cuni.mff.danekji.calendar.core.exceptions.server.XmlDatabaseException;
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.User;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Properties;
+
+public class DirectoryLayoutMigrationTest {
+
+    @TempDir
+    Path folder;
+
+    private StorageConfiguration configuration(DirectoryLayout layout) {
+        Properties properties = new Properties();
+        properties.setProperty(StorageConfiguration.DATA_DIR, folder.toString());
+        properties.setProperty(StorageConfiguration.LAYOUT, layout.name().toLowerCase());
+        return new StorageConfiguration(properties);
+    }
+
+    @Test
+    public void shardedRepository_storesFilesInTwoLevelsOfHashedDirectories() throws Exception {
+        // arrange
+        var repo = new XMLEventRepository(configuration(DirectoryLayout.SHARDED));
+        User user = new User("alice", 123);
+        ClientSession session = new ClientSession(42, null);
+
+        // act
+        repo.createAccount(user, session);
+        repo.addEvent(user, new Event("Party", LocalDate.of(2024, 12, 31), LocalTime.of(20, 0), "Home", ""), session);
+        Path file = repo.getUserFilePath("alice");
+        repo.close();
+        var reopened = new XMLEventRepository(configuration(DirectoryLayout.SHARDED));
+        boolean authenticated = reopened.authenticate(user, session);
+        var events = reopened.getAllEvents(user, session);
+        reopened.close();
+
+        // assert
+        assertTrue(Files.exists(file));
+        assertEquals(folder, file.getParent().getParent().getParent(), "The file should be two shard levels deep");
+        assertTrue(file.getParent().getFileName().toString().matches("[0-9a-f]{2}"));
+        assertTrue(file.getParent().getParent().getFileName().toString().matches("[0-9a-f]{2}"));
+        assertEquals(file, reopened.getUserFilePath("alice"), "The shards of a user should be stable");
+        assertTrue(authenticated, "The credentials should be loaded from the shards");
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    public void migrate_movesFlatFilesIntoShardsAndBack() throws Exception {
+        // arrange
+        var flatRepo = new XMLEventRepository(configuration(DirectoryLayout.FLAT));
+        User user = new User("bob", 456);
+        ClientSession session = new ClientSession(42, null);
+        flatRepo.createAccount(user, session);
+        flatRepo.addEvent(user, new Event("Standup", LocalDate.of(2024, 3, 4), LocalTime.of(9, 0), "Office", ""), session);
+        flatRepo.close();
+
+        // act
+        int moved = DirectoryLayoutMigration.migrate(folder, DirectoryLayout.FLAT, DirectoryLayout.SHARDED);
+        int movedAgain = DirectoryLayoutMigration.migrate(folder, DirectoryLayout.FLAT, DirectoryLayout.SHARDED);
+        var shardedRepo = new XMLEventRepository(configuration(DirectoryLayout.SHARDED));
+        var events = shardedRepo.getAllEvents(user, session);
+        Path shardedFile = shardedRepo.getUserFilePath("bob");
+        shardedRepo.close();
+        int movedBack = DirectoryLayoutMigration.migrate(folder, DirectoryLayout.SHARDED, DirectoryLayout.FLAT);
+
+        // assert
+        assertEquals(1, moved, "The calendar file should be moved into its shard");
+        assertEquals(0, movedAgain, "Already moved files should be skipped");
+        assertEquals(1, events.size(), "The sharded repository should serve the moved calendar");
+        assertNotEquals(folder, shardedFile.getParent());
+        assertEquals(1, movedBack);
+        assertTrue(Files.exists(folder.resolve("bob.xml")), "The calendar file should be moved back");
+        assertFalse(Files.exists(shardedFile.getParent().getParent()), "The emptied shards should be deleted");
+    }
+
+    @Test
+    public void shardedRepository_refusesToStartOverUnmigratedFlatFiles() throws Exception {
+        // arrange
+        var flatRepo = new XMLEventRepository(configuration(DirectoryLayout.FLAT));
+        flatRepo.createAccount(new User("carol", 789), new ClientSession(42, null));
+        flatRepo.close();
+
+        // act & assert
+        assertThrows(XmlDatabaseException.class, () -> new XMLEventRepository(configuration(DirectoryLayout.SHARDED)),
+                "The users stored in the flat layout should not go missing silently");
+        var reopened = new XMLEventRepository(configuration(DirectoryLayout.FLAT));
+        assertTrue(reopened.authenticate(new User("carol", 789), new ClientSession(42, null)));
+        reopened.close();
+    }
+
+    @Test
+    public void shardedRepository_searchesShardsForLeftoversOnlyAfterUncleanShutdown() throws Exception {
+        // arrange
+        var repo = new XMLEventRepository(configuration(DirectoryLayout.SHARDED));
+        repo.createAccount(new User("dave", 321), new ClientSession(42, null));
+        Path leftover = repo.getUserFilePath("dave").resolveSibling("dave.xml" + CalendarFileStore.TEMPORARY_FILE_EXTENSION);
+        repo.close();
+        Files.write(leftover, new byte[0]);
+
+        // act
+        var afterCleanShutdown = new XMLEventRepository(configuration(DirectoryLayout.SHARDED));
+        boolean keptAfterCleanShutdown = Files.exists(leftover);
+        boolean markerConsumed = Files.notExists(folder.resolve(CalendarDirectory.CLEAN_SHUTDOWN_MARKER));
+        var afterCrash = new XMLEventRepository(configuration(DirectoryLayout.SHARDED)); // the previous one is never closed
+        boolean keptAfterCrash = Files.exists(leftover);
+        afterCrash.close();
+
+        // assert
+        assertTrue(keptAfterCleanShutdown, "The shards should not be searched after a clean shutdown");
+        assertTrue(markerConsumed, "The marker should be consumed, so a crash is recovered");
+        assertFalse(keptAfterCrash, "The temporary files should be deleted after a crash");
+        assertTrue(Files.exists(folder.resolve(CalendarDirectory.CLEAN_SHUTDOWN_MARKER)));
+        afterCleanShutdown.close();
+    }
+}
@@ -0,0 +1,82 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.EventCursor;
+import cz.cuni.mff.danekji.calendar.core.models.User;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+public class EventDateIndexTest {
+
+    private static Event event(long id, LocalDate date, LocalTime time) {
+        return Event.withId(id, new Event("Event " + id, date, time, "", ""));
+    }
+
+    @Test
+    public void range_returnsEventsWithinRangeSortedByDateAndTime() {
+        // arrange
+        EventDateIndex index = new EventDateIndex();
+        index.add(event(1, LocalDate.of(2024, 5, 3), LocalTime.of(10, 0)));
+        index.add(event(2, LocalDate.of(2024, 5, 1), LocalTime.of(9, 0)));
+        index.add(event(3, LocalDate.of(2024, 5, 3), LocalTime.of(8, 0)));
+        index.add(event(4, LocalDate.of(2024, 5, 7), LocalTime.of(12, 0)));
+        index.add(event(5, LocalDate.of(2024, 4, 30), LocalTime.of(23, 0)));
+
+        // act
+        var events = index.range(LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 3));
+
+        // assert
+        assertEquals(List.of(2L, 3L, 1L), events.stream().map(Event::getId).toList(),
+                "Events within the range (inclusive) should be sorted by date and time");
+        assertTrue(index.range(LocalDate.of(2024, 5, 4), LocalDate.of(2024, 5, 6)).isEmpty(), "Empty range should return no events");
+        assertEquals(5, index.range(LocalDate.MIN, LocalDate.MAX).size(), "Unbounded range should return all events");
+    }
+
+    @Test
+    public void userCalendar_keepsDateIndexInSyncWithModifications() {
+        // arrange
+        UserCalendar calendar = UserCalendar.empty(new User("alice", 123));
+        calendar.addEvent(new Event("Party", LocalDate.of(2024, 6, 1), LocalTime.of(20, 0), "Home", ""));
+        calendar.addEvent(new Event("Lunch", LocalDate.of(2024, 6, 2), LocalTime.of(12, 0), "Canteen", ""));
+
+        // act
+        Event updated = calendar.updateEvent(Event.withId(1L, new Event(null, LocalDate.of(2024, 6, 10), null, null, null)));
+        var beforeDelete = calendar.getEventsInRange(LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 5));
+        Event deleted = calendar.removeEvent(2);
+
+        // assert
+        assertEquals("Home", updated.getLocation(), "Details missing in the update should be kept");
+        assertEquals(List.of(2L), beforeDelete.stream().map(Event::getId).toList(), "Updated event should be moved to its new date");
+        assertEquals(List.of(1L), calendar.getEventsInRange(LocalDate.of(2024, 6, 10), LocalDate.of(2024, 6, 10)).stream().map(Event::getId).toList(),
+                "Updated event should be found at its new date");
+        assertEquals("Lunch", deleted.getTitle(), "Removed event should be returned");
+        assertTrue(calendar.getEventsInRange(LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 5)).isEmpty(), "Deleted event should be removed from the index");
+        assertNull(calendar.getEvent(2), "Deleted event should be removed from the ID index");
+    }
+
+    @Test
+    public void page_continuesRightAfterCursor() {
+        // arrange
+        EventDateIndex index = new EventDateIndex();
+        for (long id = 1; id <= 5; id++) {
+            index.add(event(id, LocalDate.of(2024, 5, 1), LocalTime.of(9, 0))); // same date and time, ordered by ID
+        }
+        index.add(event(6, LocalDate.of(2024, 5, 2), LocalTime.of(9, 0)));
+
+        // act
+        var first = index.page(LocalDate.MIN, LocalDate.MAX, null, 2);
+        var second = index.page(LocalDate.MIN, LocalDate.MAX, EventCursor.after(first.getLast()), 2);
+        index.add(event(7, LocalDate.of(2024, 4, 1), LocalTime.of(9, 0))); // added before the cursor
+        var third = index.page(LocalDate.MIN, LocalDate.MAX, EventCursor.after(second.getLast()), 10);
+
+        // assert
+        assertEquals(List.of(1L, 2L), first.stream().map(Event::getId).toList());
+        assertEquals(List.of(3L, 4L), second.stream().map(Event::getId).toList(), "Events with equal date and time should not be skipped");
+        assertEquals(List.of(5L, 6L), third.stream().map(Event::getId).toList(), "Events added before the cursor should not shift the pages");
+        assertTrue(index.page(LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 1), EventCursor.after(third.getLast()), 10).isEmpty(),
+                "Cursor past the range should return no events");
+    }
+}
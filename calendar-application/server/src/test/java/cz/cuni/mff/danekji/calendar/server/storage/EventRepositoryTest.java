@@ -0,0 +1,45 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
+import cz.cuni.mff.danekji.calendar.core.commands.AddEventCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.BatchOperation;
+import cz.cuni.mff.danekji.calendar.core.commands.DeleteEventCommand;
+import cz.cuni.mff.danekji.calendar.core.exceptions.server.XmlDatabaseException;
+import cz.cuni.mff.danekji.calendar.core.models.BatchItemResult;
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+public class EventRepositoryTest {
+
+    @Test
+    public void applyBatch_reportsFailedAdditionAndAppliesFollowingOperations() throws Exception {
+        // arrange
+        EventRepository repository = mock(EventRepository.class, CALLS_REAL_METHODS);
+        ClientSession session = new ClientSession(42, null);
+        User user = new User("alice", 123);
+        Event event = new Event("Meeting", LocalDate.of(2025, 1, 1), LocalTime.of(10, 0), null, null);
+        doThrow(new XmlDatabaseException("Failed to save calendar")).when(repository).addEvent(user, event, session);
+        doNothing().when(repository).deleteEvent(user, 7L, session);
+
+        List<BatchOperation> operations = List.of(new AddEventCommand(event), new DeleteEventCommand(7L));
+
+        // act
+        List<BatchItemResult> results = repository.applyBatch(user, operations, session);
+
+        // assert
+        assertEquals(2, results.size(), "Every operation should have its result");
+        assertFalse(results.get(0).isSuccess(), "The failed addition should be reported");
+        assertNull(results.get(0).eventId(), "The failed addition has no event ID");
+        assertEquals("Failed to save calendar", results.get(0).errorMessage(), "The failure should carry the reason");
+        assertEquals(BatchItemResult.success(7L), results.get(1), "The operation after the failed one should be applied");
+        verify(repository).deleteEvent(user, 7L, session);
+    }
+}
@@ -0,0 +1,82 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import cz.cuni.mff.danekji.calendar.core.exceptions.server.XmlDatabaseException;
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.User;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+public class StreamingCalendarReaderTest {
+
+    @TempDir
+    Path folder;
+
+    private Path writeCalendar(UserCalendar calendar) throws Exception {
+        Path file = folder.resolve(calendar.getUser().username() + ".xml");
+        try (var output = Files.newOutputStream(file)) {
+            new XMLOutputter(Format.getPrettyFormat()).output(calendar.toDocument(), output);
+        }
+        return file;
+    }
+
+    @Test
+    public void readCalendar_readsWholeCalendar() throws Exception {
+        // arrange
+        UserCalendar calendar = UserCalendar.empty(new User("alice", 123));
+        calendar.addEvent(new Event("Party", LocalDate.of(2023, 12, 31), LocalTime.of(20, 0), "Home", "New Year"));
+        calendar.addEvent(new Event("Lunch", LocalDate.of(2024, 1, 2), LocalTime.of(12, 30), "", ""));
+        Path file = writeCalendar(calendar);
+
+        // act
+        UserCalendar read = StreamingCalendarReader.readCalendar(file);
+
+        // assert
+        assertEquals(calendar.getUser(), read.getUser(), "User should be read");
+        assertEquals(calendar.getNextEventId(), read.getNextEventId(), "Next event ID should be read");
+        assertEquals(2, read.getEvents().size(), "All events should be read");
+        Event party = read.getEvents().getFirst();
+        assertEquals(1L, party.getId());
+        assertEquals("Party", party.getTitle());
+        assertEquals(LocalDate.of(2023, 12, 31), party.getDate());
+        assertEquals(LocalTime.of(20, 0), party.getTime());
+        assertEquals("Home", party.getLocation());
+        assertEquals("New Year", party.getDescription());
+        assertEquals("", read.getEvents().getLast().getLocation(), "Empty details should be read as empty strings");
+    }
+
+    @Test
+    public void readEvents_returnsOnlyEventsWithinRange() throws Exception {
+        // arrange
+        UserCalendar calendar = UserCalendar.empty(new User("bob", 456));
+        for (int day = 1; day <= 10; day++) {
+            calendar.addEvent(new Event("Day " + day, LocalDate.of(2024, 3, day), LocalTime.of(9, 0), "", ""));
+        }
+        Path file = writeCalendar(calendar);
+
+        // act
+        var events = StreamingCalendarReader.readEvents(file, LocalDate.of(2024, 3, 4), LocalDate.of(2024, 3, 6));
+
+        // assert
+        assertEquals(3, events.size(), "Only events within the range (inclusive) should be read");
+        assertEquals("Day 4", events.getFirst().getTitle());
+        assertEquals("Day 6", events.getLast().getTitle());
+    }
+
+    @Test
+    public void readCalendar_throwsExceptionForNonCalendarFile() throws Exception {
+        // arrange
+        Path file = folder.resolve("carol.xml");
+        Files.writeString(file, "<notes><note>Hello</note></notes>");
+
+        // act & assert
+        assertThrows(XmlDatabaseException.class, () -> StreamingCalendarReader.readCalendar(file),
+                "Should throw exception when the file is not a calendar");
+    }
+}
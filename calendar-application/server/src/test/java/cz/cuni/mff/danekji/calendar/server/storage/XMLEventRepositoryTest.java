@@ -2,18 +2,44 @@ package cz.cuni.mff.danekji.calendar.server.storage;
 
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Test;
+import cz.cuni.mff.danekji.calendar.core.commands.AddEventCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.BatchOperation;
+import cz.cuni.mff.danekji.calendar.core.commands.DeleteEventCommand;
+import cz.cuni.mff.danekji.calendar.core.commands.UpdateEventCommand;
 import cz.cuni.mff.danekji.calendar.core.exceptions.client.InvalidInputException;
+import cz.cuni.mff.danekji.calendar.core.exceptions.server.XmlDatabaseException;
+import cz.cuni.mff.danekji.calendar.core.models.BatchItemResult;
 import cz.cuni.mff.danekji.calendar.core.models.User;
 import cz.cuni.mff.danekji.calendar.core.models.Event;
 import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
+import cz.cuni.mff.danekji.calendar.core.models.Metric;
+import cz.cuni.mff.danekji.calendar.server.metrics.MetricsRegistry;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class XMLEventRepositoryTest {
 
+    @AfterAll
+    static void deleteCleanShutdownMarker() throws Exception {
+        Files.deleteIfExists(StorageConfiguration.defaults().getDataDir().resolve(CalendarDirectory.CLEAN_SHUTDOWN_MARKER));
+    }
+
+    private static List<Event> eventsInFile(XMLEventRepository repo, String username) {
+        return new XmlCalendarFormat().read(repo.getUserFilePath(username)).getEvents();
+    }
+
     @Test
     public void createAccount_createsXmlFile() throws Exception {
         // arrange
@@ -48,15 +74,166 @@ public class XMLEventRepositoryTest {
         assertEquals(1L, eventId, "First event should have ID 1");
 
         // verify event in XML
-        var document = XMLEventRepository.getUserCalendarDocument(repo.getUserFilePath("alice"));
-        var eventsElement = document.getRootElement().getChild("events");
-        assertEquals(1, eventsElement.getChildren().size(), "XML should contain one event");
-        assertEquals("1", eventsElement.getChildren().getFirst().getChildText("id"), "Event ID in XML should match");
+        var eventsInFile = eventsInFile(repo, "alice");
+        assertEquals(1, eventsInFile.size(), "XML should contain one event");
+        assertEquals(1L, eventsInFile.getFirst().getId(), "Event ID in XML should match");
 
         // cleanup
         Files.delete(repo.getUserFilePath("alice"));
     }
 
+    @Test
+    public void getAllEvents_servesRepeatedReadsFromCache() throws Exception {
+        // arrange
+        XMLEventRepository repo = new XMLEventRepository();
+        User user = new User("dave", 321);
+        ClientSession session = new ClientSession(42, null);
+        repo.createAccount(user, session);
+        repo.addEvent(user, new Event("Lunch", LocalDate.of(2024, 1, 2), LocalTime.of(12, 0), "Canteen", ""), session);
+        long hitsBefore = repo.getCacheStatistics().hits();
+
+        // act
+        var events = repo.getAllEvents(user, session);
+        var eventsAgain = repo.getAllEvents(user, session);
+
+        // assert
+        assertEquals(1, events.size(), "Calendar should contain the added event");
+        assertEquals(events, eventsAgain, "Cached read should return the same events");
+        assertEquals(hitsBefore + 2, repo.getCacheStatistics().hits(), "Both reads should be served from the cache");
+
+        // cleanup
+        Files.delete(repo.getUserFilePath("dave"));
+    }
+
+    @Test
+    public void addEvent_concurrentWritesOfSameUserAreNotLost() throws Exception {
+        // arrange
+        XMLEventRepository repo = new XMLEventRepository();
+        User user = new User("erin", 654);
+        User otherUser = new User("frank", 987);
+        ClientSession session = new ClientSession(42, null);
+        repo.createAccount(user, session);
+        repo.createAccount(otherUser, session);
+        Event event = new Event("Standup", LocalDate.of(2024, 3, 4), LocalTime.of(9, 0), "Office", "");
+
+        // act
+        List<Future<Long>> ids = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 40; i++) {
+                ids.add(executor.submit(() -> repo.addEvent(user, event, session)));
+                executor.submit(() -> repo.getAllEvents(otherUser, session));
+            }
+        }
+
+        // assert
+        Set<Long> uniqueIds = new HashSet<>();
+        for (var id : ids) {
+            uniqueIds.add(id.get());
+        }
+        assertEquals(40, uniqueIds.size(), "Every concurrent add should get its own ID");
+        var eventsInFile = eventsInFile(repo, "erin");
+        assertEquals(40, eventsInFile.size(), "No concurrent add should be lost in the XML file");
+
+        // cleanup
+        Files.delete(repo.getUserFilePath("erin"));
+        Files.delete(repo.getUserFilePath("frank"));
+    }
+
+    private static long metricValue(MetricsRegistry metrics, String name) {
+        return metrics.snapshot().stream().filter(metric -> metric.name().equals(name)).findFirst().orElseThrow().value();
+    }
+
+    private static StorageConfiguration journalConfiguration() {
+        Properties properties = new Properties();
+        properties.setProperty(StorageConfiguration.WRITE_MODE, "journal");
+        properties.setProperty(StorageConfiguration.JOURNAL_COMPACTION_INTERVAL_MILLIS, "3600000");
+        return new StorageConfiguration(properties);
+    }
+
+    @Test
+    public void addEvent_journalModeAppendsToJournalUntilCompacted() throws Exception {
+        // arrange
+        XMLEventRepository repo = new XMLEventRepository(journalConfiguration());
+        User user = new User("grace", 135);
+        ClientSession session = new ClientSession(42, null);
+        repo.createAccount(user, session);
+        Path journalFile = repo.getUserFilePath("grace").resolveSibling("grace.journal");
+
+        // act
+        repo.addEvent(user, new Event("Gym", LocalDate.of(2024, 5, 6), LocalTime.of(18, 0), "Gym", ""), session);
+        var eventsBeforeCompaction = eventsInFile(repo, "grace");
+        boolean journalExisted = Files.exists(journalFile);
+        var events = repo.getAllEvents(user, session);
+        repo.close();
+
+        // assert
+        assertEquals(0, eventsBeforeCompaction.size(), "Calendar file should not be rewritten before compaction");
+        assertTrue(journalExisted, "The modification should be appended to the journal");
+        assertEquals(1, events.size(), "Reads should see the journaled event");
+        var eventsAfterCompaction = eventsInFile(repo, "grace");
+        assertEquals(1, eventsAfterCompaction.size(), "Closing should fold the journal into the calendar file");
+        assertFalse(Files.exists(journalFile), "Compacted journal should be deleted");
+
+        // cleanup
+        Files.delete(repo.getUserFilePath("grace"));
+    }
+
+    @Test
+    public void constructor_recoversJournalLeftByPreviousRun() throws Exception {
+        // arrange
+        XMLEventRepository crashedRepo = new XMLEventRepository(journalConfiguration());
+        User user = new User("heidi", 246);
+        ClientSession session = new ClientSession(42, null);
+        crashedRepo.createAccount(user, session);
+        long keptId = crashedRepo.addEvent(user, new Event("Dentist", LocalDate.of(2024, 7, 8), LocalTime.of(10, 0), "Clinic", ""), session);
+        long deletedId = crashedRepo.addEvent(user, new Event("Cinema", LocalDate.of(2024, 7, 9), LocalTime.of(20, 0), "Mall", ""), session);
+        crashedRepo.updateEvent(user, Event.withId(keptId, new Event("Dentist checkup", null, null, null, null)), session);
+        crashedRepo.deleteEvent(user, deletedId, session);
+
+        // act
+        XMLEventRepository repo = new XMLEventRepository();
+        var events = repo.getAllEvents(user, session);
+
+        // assert
+        assertEquals(1, events.size(), "Only the kept event should be recovered");
+        assertEquals("Dentist checkup", events.getFirst().getTitle(), "The update should be recovered");
+        assertEquals("Clinic", events.getFirst().getLocation(), "Details missing in the update should be kept");
+        assertFalse(Files.exists(repo.getUserFilePath("heidi").resolveSibling("heidi.journal")), "Recovered journal should be deleted");
+        assertEquals(deletedId + 1, repo.addEvent(user, new Event("Next", LocalDate.of(2024, 7, 10), LocalTime.of(8, 0), "", ""), session),
+                "Recovered calendar should not reuse event IDs");
+
+        // cleanup
+        crashedRepo.close();
+        Files.delete(repo.getUserFilePath("heidi"));
+    }
+
+    @Test
+    public void authenticate_readsOnlyCredentialsOnFirstLoginWithoutReadingCalendar() throws Exception {
+        // arrange
+        User user = new User("ivan", 357);
+        ClientSession session = new ClientSession(42, null);
+        XMLEventRepository creatingRepo = new XMLEventRepository();
+        creatingRepo.createAccount(user, session);
+        creatingRepo.addEvent(user, new Event("Review", LocalDate.of(2024, 9, 1), LocalTime.of(14, 0), "Office", ""), session);
+        XMLEventRepository repo = new XMLEventRepository();
+
+        // act
+        boolean authenticated = repo.authenticate(user, session);
+        boolean authenticatedWithWrongPassword = repo.authenticate(new User("ivan", 358), session);
+
+        // assert
+        assertTrue(authenticated, "Valid credentials should be accepted");
+        assertFalse(authenticatedWithWrongPassword, "Invalid password should be rejected");
+        assertEquals(0, repo.getCacheStatistics().misses(), "Authentication should not load the calendar");
+        assertThrows(InvalidInputException.class, () -> repo.createAccount(user, session),
+                "Existing account should be known without touching the calendar file");
+        assertThrows(XmlDatabaseException.class, () -> repo.authenticate(new User("ivan-unknown", 357), session),
+                "Unknown account should be rejected");
+
+        // cleanup
+        Files.delete(repo.getUserFilePath("ivan"));
+    }
+
     @Test
     public void createAccount_throwsExceptionForExistingUser() throws Exception {
         // arrange
@@ -75,4 +252,246 @@ public class XMLEventRepositoryTest {
         // cleanup
         Files.delete(repo.getUserFilePath("charlie"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void applyBatch_appliesAllOperationsAndReportsFailuresPerItem() throws Exception {
+        // arrange
+        XMLEventRepository repo = new XMLEventRepository();
+        User user = new User("judy", 357);
+        ClientSession session = new ClientSession(42, null);
+        repo.createAccount(user, session);
+        long existingId = repo.addEvent(user, new Event("Standup", LocalDate.of(2024, 9, 2), LocalTime.of(9, 0), "Office", ""), session);
+        List<BatchOperation> operations = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            operations.add(new AddEventCommand(new Event("Imported " + i, LocalDate.of(2024, 9, 3), LocalTime.of(10, 0), "", "")));
+        }
+        operations.add(new UpdateEventCommand(Event.withId(existingId, new Event("Daily standup", null, null, null, null))));
+        operations.add(new DeleteEventCommand(999L));
+
+        // act
+        var results = repo.applyBatch(user, operations, session);
+
+        // assert
+        assertEquals(operations.size(), results.size(), "Every operation should have its result");
+        assertTrue(results.subList(0, 101).stream().allMatch(BatchItemResult::isSuccess), "Additions and the update should succeed");
+        assertEquals(existingId + 1, results.getFirst().eventId(), "Added events should get the next IDs");
+        assertFalse(results.getLast().isSuccess(), "Deleting a missing event should fail");
+        assertEquals(999L, results.getLast().eventId());
+        var eventsInFile = eventsInFile(repo, "judy");
+        assertEquals(101, eventsInFile.size(), "The whole batch should be persisted");
+        assertEquals("Daily standup", repo.getAllEvents(user, session).getFirst().getTitle());
+
+        // cleanup
+        Files.delete(repo.getUserFilePath("judy"));
+    }
+
+    @Test
+    public void applyBatch_journalModeAppendsAllRecordsAtOnce() throws Exception {
+        // arrange
+        XMLEventRepository repo = new XMLEventRepository(journalConfiguration());
+        MetricsRegistry metrics = new MetricsRegistry();
+        repo.registerMetrics(metrics);
+        User user = new User("karl", 468);
+        ClientSession session = new ClientSession(42, null);
+        repo.createAccount(user, session);
+        repo.addEvent(user, new Event("Warmup", LocalDate.of(2024, 5, 5), LocalTime.of(18, 0), "Gym", ""), session); // creates the journal
+        List<BatchOperation> operations = List.of(
+                new AddEventCommand(new Event("Gym", LocalDate.of(2024, 5, 6), LocalTime.of(18, 0), "Gym", "")),
+                new AddEventCommand(new Event("Pool", LocalDate.of(2024, 5, 7), LocalTime.of(18, 0), "Pool", "")),
+                new DeleteEventCommand(2L));
+
+        // act
+        long syncsBefore = metricValue(metrics, "storage.syncs");
+        var results = repo.applyBatch(user, operations, session);
+        long syncsAfter = metricValue(metrics, "storage.syncs");
+        Path journalFile = repo.getUserFilePath("karl").resolveSibling("karl.journal");
+        var records = new CalendarJournal(new CalendarDirectory(journalFile.getParent(), DirectoryLayout.FLAT),
+                new CalendarFileStore(Durability.NONE, 1)).read("karl");
+        repo.close();
+        var events = new XMLEventRepository().getAllEvents(user, session);
+
+        // assert
+        assertTrue(results.stream().allMatch(BatchItemResult::isSuccess));
+        assertEquals(1, syncsAfter - syncsBefore, "The batch should be appended to the journal in a single write");
+        assertEquals(List.of(JournalRecord.Type.ADD, JournalRecord.Type.ADD, JournalRecord.Type.DELETE),
+                records.subList(1, records.size()).stream().map(JournalRecord::type).toList(), "The append should contain a record per operation");
+        assertEquals(List.of("Warmup", "Pool"), events.stream().map(Event::getTitle).toList(),
+                "The compacted calendar should contain the whole batch");
+
+        // cleanup
+        Files.delete(repo.getUserFilePath("karl"));
+    }
+
+    @Test
+    public void getChangesSince_returnsOnlyEventsChangedSinceVersion() throws Exception {
+        // arrange
+        XMLEventRepository repo = new XMLEventRepository();
+        User user = new User("liam", 579);
+        ClientSession session = new ClientSession(42, null);
+        repo.createAccount(user, session);
+        long keptId = repo.addEvent(user, new Event("Kept", LocalDate.of(2024, 6, 1), LocalTime.of(9, 0), "", ""), session);
+        long updatedId = repo.addEvent(user, new Event("Updated", LocalDate.of(2024, 6, 2), LocalTime.of(9, 0), "", ""), session);
+        long deletedId = repo.addEvent(user, new Event("Deleted", LocalDate.of(2024, 6, 3), LocalTime.of(9, 0), "", ""), session);
+
+        // act
+        var snapshot = repo.getChangesSince(user, null, session);
+        repo.updateEvent(user, Event.withId(updatedId, new Event("Renamed", null, null, null, null)), session);
+        repo.deleteEvent(user, deletedId, session);
+        long addedId = repo.addEvent(user, new Event("Added", LocalDate.of(2024, 6, 4), LocalTime.of(9, 0), "", ""), session);
+        var delta = repo.getChangesSince(user, snapshot.version(), session);
+
+        // assert
+        assertTrue(snapshot.complete(), "Without a known version the whole calendar should be returned");
+        assertEquals(3, snapshot.changedEvents().size());
+        assertFalse(delta.complete());
+        assertEquals(List.of(updatedId, addedId), delta.changedEvents().stream().map(Event::getId).toList(),
+                "Only the changed events should be returned, not the kept one");
+        assertEquals("Renamed", delta.changedEvents().getFirst().getTitle());
+        assertEquals(List.of(deletedId), delta.deletedEventIds());
+        assertTrue(delta.version() > snapshot.version());
+        assertFalse(delta.changedEvents().stream().anyMatch(event -> event.getId() == keptId));
+
+        // cleanup
+        Files.delete(repo.getUserFilePath("liam"));
+    }
+
+    @Test
+    public void addChangeListener_isNotifiedOfEveryCommittedChange() throws Exception {
+        // arrange
+        XMLEventRepository repo = new XMLEventRepository();
+        User user = new User("mallory", 680);
+        ClientSession session = new ClientSession(42, null);
+        repo.createAccount(user, session);
+        List<Long> versions = new ArrayList<>();
+        repo.addChangeListener((username, version, origin) -> {
+            assertEquals("mallory", username);
+            assertSame(session, origin, "The listener should know the session which made the change");
+            versions.add(version);
+        });
+
+        // act
+        long eventId = repo.addEvent(user, new Event("Watched", LocalDate.of(2024, 7, 1), LocalTime.of(9, 0), "", ""), session);
+        repo.deleteEvent(user, eventId, session);
+        var current = repo.getChangesSince(user, null, session);
+
+        // assert
+        assertEquals(2, versions.size(), "Every modification should be announced");
+        assertTrue(versions.get(0) < versions.get(1));
+        assertEquals(current.version(), versions.get(1), "The announced version should be the one a sync returns");
+
+        // cleanup
+        Files.delete(repo.getUserFilePath("mallory"));
+    }
+
+    private static StorageConfiguration writeBehindConfiguration(int maxDirtyCalendars) {
+        Properties properties = new Properties();
+        properties.setProperty(StorageConfiguration.WRITE_MODE, "write_behind");
+        properties.setProperty(StorageConfiguration.WRITE_BEHIND_FLUSH_INTERVAL_MILLIS, "3600000");
+        properties.setProperty(StorageConfiguration.WRITE_BEHIND_MAX_DIRTY_CALENDARS, Integer.toString(maxDirtyCalendars));
+        return new StorageConfiguration(properties);
+    }
+
+    @Test
+    public void addEvent_writeBehindModeCoalescesEditsUntilFlushed() throws Exception {
+        // arrange
+        XMLEventRepository repo = new XMLEventRepository(writeBehindConfiguration(16));
+        MetricsRegistry metrics = new MetricsRegistry();
+        repo.registerMetrics(metrics);
+        User user = new User("nina", 791);
+        ClientSession session = new ClientSession(42, null);
+        repo.createAccount(user, session);
+
+        // act
+        long eventId = repo.addEvent(user, new Event("Draft", LocalDate.of(2024, 8, 1), LocalTime.of(9, 0), "", ""), session);
+        repo.updateEvent(user, Event.withId(eventId, new Event("Final", null, null, null, null)), session);
+        repo.addEvent(user, new Event("Review", LocalDate.of(2024, 8, 2), LocalTime.of(9, 0), "", ""), session);
+        var eventsBeforeFlush = eventsInFile(repo, "nina");
+        var events = repo.getAllEvents(user, session);
+        var metricsBeforeFlush = metrics.snapshot();
+        repo.close();
+
+        // assert
+        assertEquals(0, eventsBeforeFlush.size(), "Calendar file should not be rewritten before the flush");
+        assertEquals(List.of("Final", "Review"), events.stream().map(Event::getTitle).toList(), "Reads should see the unflushed edits");
+        assertTrue(metricsBeforeFlush.contains(new Metric("storage.writeBehind.unflushedChanges", 3)));
+        assertTrue(metricsBeforeFlush.contains(new Metric("storage.writeBehind.dirtyCalendars", 1)));
+        var eventsAfterFlush = eventsInFile(repo, "nina");
+        assertEquals(2, eventsAfterFlush.size(), "Closing should flush the dirty calendar");
+        assertTrue(metrics.snapshot().contains(new Metric("storage.serialize.count", 2)),
+                "The account creation and the three edits should cost two writes in total");
+        assertTrue(metrics.snapshot().contains(new Metric("storage.writeBehind.unflushedChanges", 0)));
+
+        // cleanup
+        Files.delete(repo.getUserFilePath("nina"));
+    }
+
+    @Test
+    public void addEvent_writeBehindModeWritesThroughWhenDirtySetIsFull() throws Exception {
+        // arrange
+        XMLEventRepository repo = new XMLEventRepository(writeBehindConfiguration(1));
+        User dirtyUser = new User("oscar", 802);
+        User otherUser = new User("peggy", 913);
+        ClientSession session = new ClientSession(42, null);
+        repo.createAccount(dirtyUser, session);
+        repo.createAccount(otherUser, session);
+
+        // act
+        repo.addEvent(dirtyUser, new Event("Buffered", LocalDate.of(2024, 9, 1), LocalTime.of(9, 0), "", ""), session);
+        repo.addEvent(otherUser, new Event("Written", LocalDate.of(2024, 9, 1), LocalTime.of(9, 0), "", ""), session);
+        var otherEvents = eventsInFile(repo, "peggy");
+        repo.close();
+
+        // assert
+        assertEquals(1, otherEvents.size(), "The edit should be written through while the dirty set is full");
+        var dirtyEvents = eventsInFile(repo, "oscar");
+        assertEquals(1, dirtyEvents.size());
+
+        // cleanup
+        Files.delete(repo.getUserFilePath("oscar"));
+        Files.delete(repo.getUserFilePath("peggy"));
+    }
+
+    @Test
+    public void addEvent_writeBehindModeWritesThroughOnceClosed() throws Exception {
+        // arrange
+        XMLEventRepository repo = new XMLEventRepository(writeBehindConfiguration(16));
+        User user = new User("quentin", 924);
+        ClientSession session = new ClientSession(42, null);
+        repo.createAccount(user, session);
+        repo.addEvent(user, new Event("Flushed", LocalDate.of(2024, 10, 1), LocalTime.of(9, 0), "", ""), session);
+        repo.close();
+
+        // act
+        repo.addEvent(user, new Event("Late", LocalDate.of(2024, 10, 2), LocalTime.of(9, 0), "", ""), session);
+
+        // assert
+        assertEquals(2, eventsInFile(repo, "quentin").size(), "An edit made after closing should be written through, not left dirty");
+
+        // cleanup
+        Files.delete(repo.getUserFilePath("quentin"));
+    }
+
+    @Test
+    public void addEvent_rejectsEventWithoutDateAndAddsNextValidEvent() throws Exception {
+        // arrange
+        XMLEventRepository repo = new XMLEventRepository();
+        User user = new User("rupert", 135);
+        ClientSession session = new ClientSession(42, null);
+        repo.createAccount(user, session);
+
+        // act
+        assertThrows(InvalidInputException.class,
+                () -> repo.addEvent(user, new Event("Undated", null, LocalTime.of(9, 0), "", ""), session));
+        long addedId = repo.addEvent(user, new Event("Dated", LocalDate.of(2024, 11, 1), LocalTime.of(9, 0), "", ""), session);
+        var events = repo.getAllEvents(user, session);
+
+        // assert
+        assertEquals(1, addedId, "The rejected event should not take an ID");
+        assertEquals(List.of("Dated"), events.stream().map(Event::getTitle).toList(), "The rejected event should not stay in the calendar");
+        assertEquals(1, eventsInFile(repo, "rupert").size());
+
+        // cleanup
+        repo.close();
+        Files.delete(repo.getUserFilePath("rupert"));
+    }
+}
@@ -0,0 +1,74 @@
+package cz.cuni.mff.danekji.calendar.server.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import cz.cuni.mff.danekji.calendar.core.client.session.ClientSession;
+import cz.cuni.mff.danekji.calendar.core.models.Event;
+import cz.cuni.mff.danekji.calendar.core.models.User;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+public class XmlToBinaryMigrationTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    public void migrate_convertsXmlCalendarsAndSkipsMigratedOnes() throws Exception {
+        // arrange
+        Path xmlFolder = Files.createDirectory(folder.resolve("xml"));
+        Path binaryFolder = folder.resolve("binary");
+        var xmlFormat = new XmlCalendarFormat();
+        UserCalendar calendar = UserCalendar.empty(new User("alice", 123));
+        calendar.addEvent(new Event("Party", LocalDate.of(2023, 12, 31), LocalTime.of(20, 0), "Home", "New Year"));
+        calendar.addEvent(new Event("Lunch", LocalDate.of(2024, 1, 2), LocalTime.of(12, 30), "Canteen", ""));
+        calendar.removeEvent(1);
+        try (var output = Files.newOutputStream(xmlFolder.resolve("alice.xml"))) {
+            xmlFormat.write(calendar, output);
+        }
+
+        // act
+        int migrated = XmlToBinaryMigration.migrate(xmlFolder, binaryFolder);
+        int migratedAgain = XmlToBinaryMigration.migrate(xmlFolder, binaryFolder);
+
+        // assert
+        assertEquals(1, migrated, "The XML calendar should be migrated");
+        assertEquals(0, migratedAgain, "Already migrated calendars should be skipped");
+        UserCalendar read = new BinaryCalendarFormat().read(binaryFolder.resolve("alice.cal"));
+        assertEquals(calendar.getUser(), read.getUser(), "User should be migrated");
+        assertEquals(3L, read.getNextEventId(), "Next event ID should be migrated");
+        assertEquals(1, read.getEvents().size(), "Events should be migrated");
+        assertEquals("Lunch", read.getEvents().getFirst().getTitle());
+        assertTrue(Files.exists(xmlFolder.resolve("alice.xml")), "XML calendar should be kept");
+    }
+
+    @Test
+    public void binaryRepository_servesMigratedCalendar() throws Exception {
+        // arrange
+        Path xmlFolder = Files.createDirectory(folder.resolve("xml"));
+        Path binaryFolder = folder.resolve("binary");
+        User user = new User("bob", 456);
+        ClientSession session = new ClientSession(42, null);
+        UserCalendar calendar = UserCalendar.empty(user);
+        calendar.addEvent(new Event("Standup", LocalDate.of(2024, 3, 4), LocalTime.of(9, 0), "Office", ""));
+        try (var output = Files.newOutputStream(xmlFolder.resolve("bob.xml"))) {
+            new XmlCalendarFormat().write(calendar, output);
+        }
+        XmlToBinaryMigration.migrate(xmlFolder, binaryFolder);
+
+        // act
+        var repo = new BinaryEventRepository(binaryFolder, StorageConfiguration.defaults());
+        boolean authenticated = repo.authenticate(user, session);
+        long addedId = repo.addEvent(user, new Event("Retro", LocalDate.of(2024, 3, 8), LocalTime.of(15, 0), "Office", ""), session);
+        var events = new BinaryCalendarFormat().read(repo.getUserFilePath("bob")).getEvents();
+        repo.close();
+
+        // assert
+        assertTrue(authenticated, "Migrated credentials should be accepted");
+        assertEquals(2L, addedId, "Event IDs should continue after the migrated ones");
+        assertEquals(2, events.size(), "The added event should be written into the binary file");
+    }
+}